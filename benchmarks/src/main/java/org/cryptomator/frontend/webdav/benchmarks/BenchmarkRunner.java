@@ -0,0 +1,87 @@
+package org.cryptomator.frontend.webdav.benchmarks;
+
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Properties;
+
+/**
+ * Runs the benchmarks selected via the usual JMH command line options, always adding the {@link GCProfiler} to report allocation rates.
+ * <p>
+ * If the system property {@value #ALLOCATION_BUDGET_PROPERTY} points to a properties file, the bytes allocated per operation are checked against it
+ * and the process exits with status 1 if any benchmark exceeds its budget. Keys are benchmark labels like <code>ServletChainBenchmark.request.PROPFIND_DEPTH_1</code>,
+ * i.e. the simple class name, the method name and the parameter values, each separated by a dot. The budget of the longest key being a prefix of the label applies,
+ * e.g. <code>ServletChainBenchmark</code> may define a default for all request types. Benchmarks without matching key are not checked.
+ */
+public class BenchmarkRunner {
+
+	static final String ALLOCATION_BUDGET_PROPERTY = "benchmarks.allocationBudget";
+	private static final String ALLOCATION_RESULT_SUFFIX = "gc.alloc.rate.norm";
+
+	public static void main(String[] args) throws CommandLineOptionException, RunnerException, IOException {
+		var cmdOptions = new CommandLineOptions(args);
+		if (cmdOptions.shouldHelp() || cmdOptions.shouldList() || cmdOptions.shouldListProfilers() || cmdOptions.shouldListResultFormats()) {
+			Main.main(args);
+			return;
+		}
+		var options = new OptionsBuilder().parent(cmdOptions).addProfiler(GCProfiler.class).build();
+		var results = new Runner(options).run();
+		var budgetFile = System.getProperty(ALLOCATION_BUDGET_PROPERTY);
+		if (budgetFile != null && !checkAllocationBudget(results, loadBudget(Path.of(budgetFile)))) {
+			System.exit(1);
+		}
+	}
+
+	private static Properties loadBudget(Path file) throws IOException {
+		var budget = new Properties();
+		try (Reader reader = Files.newBufferedReader(file)) {
+			budget.load(reader);
+		}
+		return budget;
+	}
+
+	private static boolean checkAllocationBudget(Collection<RunResult> results, Properties budget) {
+		boolean withinBudget = true;
+		System.out.println();
+		System.out.println("Allocation budget (bytes/op):");
+		for (var result : results) {
+			var label = label(result);
+			var allocated = result.getSecondaryResults().entrySet().stream() //
+					.filter(e -> e.getKey().endsWith(ALLOCATION_RESULT_SUFFIX)) //
+					.mapToDouble(e -> e.getValue().getScore()) //
+					.findAny();
+			var budgetKey = budget.stringPropertyNames().stream().filter(label::startsWith).reduce((a, b) -> a.length() >= b.length() ? a : b);
+			if (allocated.isEmpty() || budgetKey.isEmpty()) {
+				continue;
+			}
+			double limit = Double.parseDouble(budget.getProperty(budgetKey.get()));
+			boolean exceeded = allocated.getAsDouble() > limit;
+			System.out.println(String.format(Locale.ROOT, "%-60s %12.1f / %12.1f %s", label, allocated.getAsDouble(), limit, exceeded ? "EXCEEDED" : "ok"));
+			withinBudget &= !exceeded;
+		}
+		return withinBudget;
+	}
+
+	private static String label(RunResult result) {
+		var params = result.getParams();
+		var benchmark = params.getBenchmark();
+		var sb = new StringBuilder(benchmark.substring(benchmark.lastIndexOf('.', benchmark.lastIndexOf('.') - 1) + 1));
+		for (var key : params.getParamsKeys()) {
+			sb.append('.').append(params.getParam(key));
+		}
+		return sb.toString();
+	}
+
+}
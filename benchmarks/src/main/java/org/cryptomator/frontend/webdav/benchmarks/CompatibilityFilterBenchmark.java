@@ -0,0 +1,152 @@
+package org.cryptomator.frontend.webdav.benchmarks;
+
+import org.cryptomator.frontend.webdav.servlet.AttributePrefetching;
+import org.cryptomator.frontend.webdav.servlet.ChannelPooling;
+import org.cryptomator.frontend.webdav.servlet.CompatibilityStep;
+import org.cryptomator.frontend.webdav.servlet.Locking;
+import org.cryptomator.frontend.webdav.servlet.ReadAheadCaching;
+import org.cryptomator.frontend.webdav.servlet.WebDavServletFactory;
+import org.cryptomator.webdav.core.filters.AcceptRangeFilter;
+import org.cryptomator.webdav.core.filters.LoggingFilter;
+import org.cryptomator.webdav.core.filters.MacChunkedPutCompatibilityFilter;
+import org.cryptomator.webdav.core.filters.MkcolComplianceFilter;
+import org.cryptomator.webdav.core.filters.PostRequestBlockingFilter;
+import org.cryptomator.webdav.core.filters.UnicodeResourcePathNormalizationFilter;
+import org.eclipse.jetty.server.HttpConnectionFactory;
+import org.eclipse.jetty.server.LocalConnector;
+import org.eclipse.jetty.server.Server;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.Filter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Compares the servlet library's six compatibility filters with the single filter replacing them, both in front of the WebDAV servlet.
+ * The contexts are created by {@link WebDavServletFactory#createServletContext(Path, String, java.util.Set, AttributePrefetching, ChannelPooling, ReadAheadCaching, Locking)},
+ * either with all {@link CompatibilityStep}s or with none of them and the library's filters added instead.
+ * Requests are fed into a persistent connection of Jetty's in-memory {@link LocalConnector}, just like in the {@link ServletChainBenchmark}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class CompatibilityFilterBenchmark {
+
+	private static final String CONTEXT_PATH = "/a1b2c3d4/Vault";
+	private static final String MAC_USER_AGENT = "WebDAVFS/3.0.0 (03008000) Darwin/22.1.0 (arm64)";
+	private static final List<Class<? extends Filter>> LIBRARY_FILTERS = List.of(LoggingFilter.class, UnicodeResourcePathNormalizationFilter.class, PostRequestBlockingFilter.class, MkcolComplianceFilter.class, AcceptRangeFilter.class, MacChunkedPutCompatibilityFilter.class);
+
+	public enum Pipeline {
+		SEPARATE_FILTERS, FUSED
+	}
+
+	public enum RequestType {
+		OPTIONS("OPTIONS " + CONTEXT_PATH + "/dir/ HTTP/1.1\r\nHost: localhost\r\nUser-Agent: " + MAC_USER_AGENT + "\r\n\r\n"),
+		GET("GET " + CONTEXT_PATH + "/dir/file.bin HTTP/1.1\r\nHost: localhost\r\nUser-Agent: " + MAC_USER_AGENT + "\r\n\r\n"),
+		PROPFIND("PROPFIND " + CONTEXT_PATH + "/dir/file.bin HTTP/1.1\r\nHost: localhost\r\nUser-Agent: " + MAC_USER_AGENT + "\r\nDepth: 0\r\n\r\n"),
+		PUT_CHUNKED("PUT " + CONTEXT_PATH + "/dir/file.bin HTTP/1.1\r\nHost: localhost\r\nUser-Agent: " + MAC_USER_AGENT + "\r\nTransfer-Encoding: chunked\r\nX-Expected-Entity-Length: 16\r\n\r\n10\r\n0123456789abcdef\r\n0\r\n\r\n");
+
+		private final byte[] request;
+
+		RequestType(String request) {
+			this.request = request.getBytes(StandardCharsets.UTF_8);
+		}
+	}
+
+	@Param
+	public Pipeline pipeline;
+
+	@Param
+	public RequestType requestType;
+
+	private Path rootPath;
+	private Server server;
+	private AttributePrefetching attributePrefetching;
+	private ChannelPooling channelPooling;
+	private ReadAheadCaching readAheadCaching;
+	private Locking locking;
+	private LocalConnector.LocalEndPoint endPoint;
+	private ByteBuffer request;
+
+	@Setup
+	public void setup() throws Exception {
+		rootPath = Files.createTempDirectory("compatibility-filter-benchmark");
+		Files.writeString(Files.createDirectory(rootPath.resolve("dir")).resolve("file.bin"), "0123456789abcdef");
+
+		attributePrefetching = new AttributePrefetching(1, 1);
+		channelPooling = new ChannelPooling(0, Duration.ZERO);
+		readAheadCaching = new ReadAheadCaching(0, 1, 1);
+		locking = new Locking();
+		var steps = pipeline == Pipeline.FUSED ? EnumSet.allOf(CompatibilityStep.class) : EnumSet.noneOf(CompatibilityStep.class);
+		var context = WebDavServletFactory.createServletContext(rootPath, CONTEXT_PATH, steps, attributePrefetching, channelPooling, readAheadCaching, locking);
+		if (pipeline == Pipeline.SEPARATE_FILTERS) {
+			for (var filter : LIBRARY_FILTERS) {
+				context.addFilter(filter, "/*", EnumSet.of(DispatcherType.REQUEST));
+			}
+		}
+		server = new Server();
+		var connector = new LocalConnector(server, new HttpConnectionFactory());
+		server.addConnector(connector);
+		server.setHandler(context);
+		server.start();
+
+		request = ByteBuffer.wrap(requestType.request);
+		endPoint = connector.connect();
+		var response = StandardCharsets.UTF_8.decode(sendRequest()).toString();
+		if (!response.startsWith("HTTP/1.1 2")) {
+			throw new IllegalStateException("Unexpected response to " + requestType + ":\n" + response);
+		}
+	}
+
+	@TearDown
+	public void tearDown() throws Exception {
+		endPoint.close();
+		server.stop();
+		attributePrefetching.shutdown();
+		readAheadCaching.shutdown();
+		channelPooling.shutdown();
+		locking.shutdown();
+		try (Stream<Path> files = Files.walk(rootPath)) {
+			files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+		}
+	}
+
+	@Benchmark
+	public ByteBuffer request() throws Exception {
+		return sendRequest();
+	}
+
+	private ByteBuffer sendRequest() throws Exception {
+		endPoint.addInputAndExecute(request.duplicate());
+		var response = endPoint.waitForResponse(false, 10, TimeUnit.SECONDS);
+		if (response == null) {
+			throw new IOException("No response to " + requestType);
+		}
+		return response;
+	}
+
+}
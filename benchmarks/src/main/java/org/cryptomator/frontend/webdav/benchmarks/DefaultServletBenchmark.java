@@ -0,0 +1,126 @@
+package org.cryptomator.frontend.webdav.benchmarks;
+
+import org.cryptomator.frontend.webdav.WebDavServer;
+import org.cryptomator.frontend.webdav.WebDavServerConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Requests not addressed to any context are handled by the server's default servlet, which checks the requested path against all context paths.
+ * Valid requests address a parent of a context path, e.g. when a client lists the server's root. Anything else gets tarpitted and is therefore not measured.
+ * <p>
+ * The server is started via the public {@link WebDavServer} API and requests are sent through a persistent loopback connection, so the results include the cost of the socket.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class DefaultServletBenchmark {
+
+	@Param({"1", "10", "100"})
+	public int contextCount;
+
+	private Path rootPath;
+	private WebDavServer server;
+	private SocketChannel channel;
+	private ByteBuffer request;
+	private final ByteBuffer buffer = ByteBuffer.allocate(16 * 1024);
+
+	@Setup
+	public void setup() throws Exception {
+		rootPath = Files.createTempDirectory("default-servlet-benchmark");
+		server = WebDavServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), WebDavServerConfig.builder().setJmxMetrics(false).build());
+		server.start();
+		int port = -1;
+		for (int i = 0; i < contextCount; i++) {
+			var servlet = server.createWebDavServlet(rootPath, contextPath(i));
+			servlet.start();
+			port = servlet.getServletRootUri().getPort();
+		}
+		var parentOfContextPath = contextPath(contextCount - 1).substring(0, 9) + "/";
+		request = ByteBuffer.wrap(("PROPFIND " + parentOfContextPath + " HTTP/1.1\r\nHost: localhost\r\nDepth: 0\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+		channel = SocketChannel.open(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+		propfind();
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		channel.close();
+		server.terminate();
+		Files.delete(rootPath);
+	}
+
+	private static String contextPath(int i) {
+		return String.format("/%08x/Vault%d", i * 0x9E3779B9, i);
+	}
+
+	@Benchmark
+	public long propfind() throws IOException {
+		request.rewind();
+		while (request.hasRemaining()) {
+			channel.write(request);
+		}
+		buffer.clear();
+		int headerEnd;
+		while ((headerEnd = indexOfHeaderEnd(buffer)) < 0) {
+			if (channel.read(buffer) < 0) {
+				throw new EOFException();
+			}
+		}
+		String headers = new String(buffer.array(), 0, headerEnd, StandardCharsets.US_ASCII);
+		if (!headers.startsWith("HTTP/1.1 2")) {
+			throw new IOException("Unexpected response: " + headers);
+		}
+		long contentLength = headers.lines() //
+				.filter(line -> line.regionMatches(true, 0, "Content-Length:", 0, 15)) //
+				.mapToLong(line -> Long.parseLong(line.substring(15).trim())) //
+				.findAny().orElseThrow(() -> new IOException("Missing Content-Length: " + headers));
+		long remaining = contentLength - (buffer.position() - headerEnd);
+		while (remaining > 0) {
+			buffer.clear();
+			int read = channel.read(buffer);
+			if (read < 0) {
+				throw new EOFException();
+			}
+			remaining -= read;
+		}
+		return contentLength;
+	}
+
+	/**
+	 * @return The position after the blank line terminating the headers or <code>-1</code> if not yet received
+	 */
+	private static int indexOfHeaderEnd(ByteBuffer buf) {
+		byte[] bytes = buf.array();
+		for (int i = 3; i < buf.position(); i++) {
+			if (bytes[i - 3] == '\r' && bytes[i - 2] == '\n' && bytes[i - 1] == '\r' && bytes[i] == '\n') {
+				return i + 1;
+			}
+		}
+		return -1;
+	}
+
+}
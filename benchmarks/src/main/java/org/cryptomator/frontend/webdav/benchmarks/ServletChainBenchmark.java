@@ -0,0 +1,163 @@
+package org.cryptomator.frontend.webdav.benchmarks;
+
+import org.cryptomator.frontend.webdav.WebDavServerConfig;
+import org.cryptomator.frontend.webdav.cache.AttributeCaching;
+import org.cryptomator.frontend.webdav.jfr.RequestEventHandler;
+import org.cryptomator.frontend.webdav.metrics.RequestMetrics;
+import org.cryptomator.frontend.webdav.servlet.AttributePrefetching;
+import org.cryptomator.frontend.webdav.servlet.ChannelPooling;
+import org.cryptomator.frontend.webdav.servlet.CompatibilityStep;
+import org.cryptomator.frontend.webdav.servlet.Locking;
+import org.cryptomator.frontend.webdav.servlet.ReadAheadCaching;
+import org.cryptomator.frontend.webdav.servlet.WebDavServletFactory;
+import org.eclipse.jetty.http.UriCompliance;
+import org.eclipse.jetty.server.HttpConfiguration;
+import org.eclipse.jetty.server.HttpConnectionFactory;
+import org.eclipse.jetty.server.LocalConnector;
+import org.eclipse.jetty.server.Server;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Sends requests through a servlet context built by {@link WebDavServletFactory#createServletContext(Path, String, java.util.Set, AttributePrefetching, ChannelPooling, ReadAheadCaching, Locking)}
+ * like in production, including the compatibility filter, the servlet and the metrics and event handlers, but without any sockets involved:
+ * Requests are fed into a persistent connection of Jetty's in-memory {@link LocalConnector}.
+ * Admission control without limits and disabled response compression, as configured by default, are left out.
+ * <p>
+ * Along with the average time per request, the always-enabled GC profiler reports the bytes allocated per request (<code>gc.alloc.rate.norm</code>),
+ * which can be checked against an allocation budget, see {@link BenchmarkRunner}. Both include the cost of the connector's request and response buffers.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ServletChainBenchmark {
+
+	private static final String CONTEXT_PATH = "/a1b2c3d4/Vault";
+	private static final int FILE_SIZE = 4096;
+	private static final int DIR_ENTRIES = 50;
+	private static final String PROPFIND_BODY = "<?xml version=\"1.0\" encoding=\"utf-8\"?>\r\n<D:propfind xmlns:D=\"DAV:\"><D:allprop/></D:propfind>";
+	private static final String PUT_BODY = "x".repeat(FILE_SIZE);
+
+	public enum RequestType {
+		OPTIONS("OPTIONS " + CONTEXT_PATH + "/ HTTP/1.1\r\nHost: localhost\r\n\r\n"),
+		HEAD("HEAD " + CONTEXT_PATH + "/file.bin HTTP/1.1\r\nHost: localhost\r\n\r\n"),
+		GET("GET " + CONTEXT_PATH + "/file.bin HTTP/1.1\r\nHost: localhost\r\n\r\n"),
+		GET_RANGE("GET " + CONTEXT_PATH + "/file.bin HTTP/1.1\r\nHost: localhost\r\nRange: bytes=1024-2047\r\n\r\n"),
+		PROPFIND_DEPTH_0(propfind("/file.bin", "0")),
+		PROPFIND_DEPTH_1(propfind("/dir/", "1")),
+		PUT("PUT " + CONTEXT_PATH + "/put.bin HTTP/1.1\r\nHost: localhost\r\nContent-Length: " + FILE_SIZE + "\r\n\r\n" + PUT_BODY);
+
+		private final byte[] request;
+
+		RequestType(String request) {
+			this.request = request.getBytes(StandardCharsets.UTF_8);
+		}
+
+		private static String propfind(String path, String depth) {
+			return "PROPFIND " + CONTEXT_PATH + path + " HTTP/1.1\r\nHost: localhost\r\nDepth: " + depth + "\r\nContent-Type: application/xml; charset=utf-8\r\nContent-Length: " + PROPFIND_BODY.length() + "\r\n\r\n" + PROPFIND_BODY;
+		}
+
+		boolean isHead() {
+			return this == HEAD;
+		}
+	}
+
+	@Param
+	public RequestType requestType;
+
+	private Path rootPath;
+	private Server server;
+	private AttributePrefetching attributePrefetching;
+	private ChannelPooling channelPooling;
+	private ReadAheadCaching readAheadCaching;
+	private Locking locking;
+	private LocalConnector.LocalEndPoint endPoint;
+	private ByteBuffer request;
+
+	@Setup
+	public void setup() throws Exception {
+		rootPath = Files.createTempDirectory("servlet-chain-benchmark");
+		Files.write(rootPath.resolve("file.bin"), new byte[FILE_SIZE]);
+		Path dir = Files.createDirectory(rootPath.resolve("dir"));
+		for (int i = 0; i < DIR_ENTRIES; i++) {
+			Files.write(dir.resolve("file" + i + ".bin"), new byte[FILE_SIZE]);
+		}
+
+		var config = WebDavServerConfig.builder().setJmxMetrics(false).build();
+		var attributeCaching = new AttributeCaching(config.attributeCacheSize(), config.attributeCacheTtl());
+		attributePrefetching = new AttributePrefetching(config.listingParallelism(), config.maxThreads());
+		channelPooling = new ChannelPooling(config.channelPoolSize(), config.channelPoolIdleTimeout());
+		readAheadCaching = new ReadAheadCaching(config.readAheadCacheSize(), config.readAheadBlocks(), config.maxThreads());
+		locking = new Locking();
+		var requestMetrics = new RequestMetrics(false);
+		var context = WebDavServletFactory.createServletContext(attributeCaching.wrap(rootPath), CONTEXT_PATH, EnumSet.allOf(CompatibilityStep.class), attributePrefetching, channelPooling, readAheadCaching, locking);
+		context.insertHandler(requestMetrics.newContextHandler(CONTEXT_PATH));
+		context.insertHandler(new RequestEventHandler(CONTEXT_PATH));
+
+		var httpConfig = new HttpConfiguration();
+		httpConfig.setUriCompliance(UriCompliance.from("0,AMBIGUOUS_PATH_SEPARATOR,AMBIGUOUS_PATH_ENCODING")); // same as the WebDavServer's connectors
+		server = new Server();
+		var connector = new LocalConnector(server, new HttpConnectionFactory(httpConfig));
+		server.addConnector(connector);
+		server.setHandler(context);
+		server.start();
+
+		request = ByteBuffer.wrap(requestType.request);
+		endPoint = connector.connect();
+		var response = StandardCharsets.UTF_8.decode(sendRequest()).toString();
+		if (!response.startsWith("HTTP/1.1 2")) {
+			throw new IllegalStateException("Unexpected response to " + requestType + ":\n" + response);
+		}
+	}
+
+	@TearDown
+	public void tearDown() throws Exception {
+		endPoint.close();
+		server.stop();
+		attributePrefetching.shutdown();
+		readAheadCaching.shutdown();
+		channelPooling.shutdown();
+		locking.shutdown();
+		try (Stream<Path> files = Files.walk(rootPath)) {
+			files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+		}
+	}
+
+	@Benchmark
+	public ByteBuffer request() throws Exception {
+		return sendRequest();
+	}
+
+	private ByteBuffer sendRequest() throws Exception {
+		endPoint.addInputAndExecute(request.duplicate());
+		var response = endPoint.waitForResponse(requestType.isHead(), 10, TimeUnit.SECONDS);
+		if (response == null) {
+			throw new IOException("No response to " + requestType);
+		}
+		return response;
+	}
+
+}
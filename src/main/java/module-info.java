@@ -6,10 +6,16 @@ import org.cryptomator.integrations.mount.MountService;
 
 module org.cryptomator.frontend.webdav {
 	requires org.cryptomator.frontend.webdav.servlet;
+	requires jackrabbit.webdav;
 	requires org.cryptomator.integrations.api;
 	requires org.eclipse.jetty.server;
 	requires org.eclipse.jetty.servlet;
 	requires org.slf4j;
+	requires java.management;
+	requires java.xml;
+	requires jdk.jfr;
+	requires static org.eclipse.jetty.http2.server;
+	requires static org.eclipse.jetty.unixdomain.server;
 	requires static org.jetbrains.annotations;
 
 	provides MountService with MacAppleScriptMounter, FallbackMounter, WindowsMounter, LinuxGioMounter;
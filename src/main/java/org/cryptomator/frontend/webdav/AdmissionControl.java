@@ -0,0 +1,180 @@
+package org.cryptomator.frontend.webdav;
+
+import org.eclipse.jetty.io.EndPoint;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.handler.HandlerWrapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decides whether a request gets handled or is rejected early with a {@code 503 Service Unavailable}.
+ * <p>
+ * Requests are rejected if
+ * <ul>
+ *     <li>the connection they arrived on already has too many requests in flight, which is only possible with multiplexed HTTP/2 connections,</li>
+ *     <li>the context they are addressed to already has too many requests in flight, or</li>
+ *     <li>the server is overloaded, i.e. tasks kept waiting in the executor's queue for longer than the configured delay.
+ *     While overloaded, requests are only admitted to contexts that have no other request in flight.</li>
+ * </ul>
+ * One instance is shared by all contexts of a {@link WebDavServer}, each of which installs its own {@link #newContextHandler() handler}.
+ */
+public class AdmissionControl {
+
+	private static final Logger LOG = LoggerFactory.getLogger(AdmissionControl.class);
+	private static final String RETRY_AFTER_HEADER = "Retry-After";
+	private static final long OVERLOAD_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+	private final int maxRequestsPerConnection;
+	private final int maxRequestsPerContext;
+	private final long maxQueueDelayNanos;
+	private final String retryAfterSeconds;
+	private final ConcurrentMap<EndPoint, AtomicInteger> inFlightPerConnection = new ConcurrentHashMap<>();
+	private final LongAdder shedByConnectionLimit = new LongAdder();
+	private final LongAdder shedByContextLimit = new LongAdder();
+	private final LongAdder shedByQueueDelay = new LongAdder();
+	private volatile boolean queueDelayAboveMax;
+	private volatile long queueDelayAboveMaxSince;
+	private volatile boolean overloaded;
+
+	AdmissionControl(WebDavServerConfig config) {
+		this.maxRequestsPerConnection = config.maxRequestsPerConnection();
+		this.maxRequestsPerContext = config.maxRequestsPerContext();
+		this.maxQueueDelayNanos = config.maxQueueDelay().toNanos();
+		this.retryAfterSeconds = Long.toString(Math.max(1, config.retryAfter().toSeconds()));
+	}
+
+	/**
+	 * Records how long a task waited in the executor's queue before being run.
+	 * <p>
+	 * Similar to CoDel, the server is considered overloaded, as soon as the delay exceeded the maximum for a whole interval,
+	 * and recovers with the first task that waited for less than the maximum.
+	 *
+	 * @param delayNanos Time in nanoseconds between submission and execution of the task
+	 */
+	void recordQueueDelay(long delayNanos) {
+		if (maxQueueDelayNanos <= 0) {
+			return;
+		} else if (delayNanos < maxQueueDelayNanos) {
+			queueDelayAboveMax = false;
+			overloaded = false;
+		} else if (!queueDelayAboveMax) {
+			queueDelayAboveMaxSince = System.nanoTime();
+			queueDelayAboveMax = true;
+		} else if (!overloaded && System.nanoTime() - queueDelayAboveMaxSince >= OVERLOAD_INTERVAL_NANOS) {
+			LOG.warn("Queue delay exceeded {}ms for more than {}ms. Shedding load.", TimeUnit.NANOSECONDS.toMillis(maxQueueDelayNanos), TimeUnit.NANOSECONDS.toMillis(OVERLOAD_INTERVAL_NANOS));
+			overloaded = true;
+		}
+	}
+
+	/**
+	 * @return A new handler to be installed in the handler chain of a single context
+	 */
+	public HandlerWrapper newContextHandler() {
+		return new AdmissionHandler();
+	}
+
+	/**
+	 * @return <code>true</code> while requests get shed due to long queueing delays
+	 */
+	public boolean isOverloaded() {
+		return overloaded;
+	}
+
+	/**
+	 * @return Number of requests rejected, because their connection had too many requests in flight
+	 */
+	public long getShedByConnectionLimitCount() {
+		return shedByConnectionLimit.sum();
+	}
+
+	/**
+	 * @return Number of requests rejected, because their context had too many requests in flight
+	 */
+	public long getShedByContextLimitCount() {
+		return shedByContextLimit.sum();
+	}
+
+	/**
+	 * @return Number of requests rejected, because the server was overloaded
+	 */
+	public long getShedByQueueDelayCount() {
+		return shedByQueueDelay.sum();
+	}
+
+	// never rejects HTTP/1.1 requests, as each connection handles one request after another
+	private boolean tryAcquireConnection(EndPoint endPoint) {
+		if (maxRequestsPerConnection <= 0) {
+			return true;
+		}
+		// check and increment within compute(), as a concurrent releaseConnection() might otherwise remove the counter in between
+		var admitted = new boolean[1];
+		inFlightPerConnection.compute(endPoint, (ep, inFlight) -> {
+			var counter = inFlight == null ? new AtomicInteger() : inFlight;
+			admitted[0] = counter.get() < maxRequestsPerConnection;
+			if (admitted[0]) {
+				counter.incrementAndGet();
+			}
+			return counter.get() == 0 ? null : counter;
+		});
+		return admitted[0];
+	}
+
+	private void releaseConnection(EndPoint endPoint) {
+		if (maxRequestsPerConnection <= 0) {
+			return;
+		}
+		inFlightPerConnection.computeIfPresent(endPoint, (ep, inFlight) -> inFlight.decrementAndGet() == 0 ? null : inFlight);
+	}
+
+	private class AdmissionHandler extends HandlerWrapper {
+
+		private final AtomicInteger inFlight = new AtomicInteger();
+
+		@Override
+		public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException, ServletException {
+			var endPoint = baseRequest.getHttpChannel().getEndPoint();
+			if (!tryAcquireConnection(endPoint)) {
+				shedByConnectionLimit.increment();
+				reject(baseRequest, response, "connection limit");
+				return;
+			}
+			try {
+				int inFlightBefore = inFlight.getAndIncrement();
+				try {
+					if (maxRequestsPerContext > 0 && inFlightBefore >= maxRequestsPerContext) {
+						shedByContextLimit.increment();
+						reject(baseRequest, response, "context limit");
+					} else if (overloaded && inFlightBefore > 0) {
+						shedByQueueDelay.increment();
+						reject(baseRequest, response, "queue delay");
+					} else {
+						super.handle(target, baseRequest, request, response);
+					}
+				} finally {
+					inFlight.decrementAndGet();
+				}
+			} finally {
+				releaseConnection(endPoint);
+			}
+		}
+
+		private void reject(Request baseRequest, HttpServletResponse response, String reason) throws IOException {
+			LOG.debug("Rejecting {} {} due to {}.", baseRequest.getMethod(), baseRequest.getRequestURI(), reason);
+			baseRequest.setHandled(true);
+			response.setHeader(RETRY_AFTER_HEADER, retryAfterSeconds);
+			response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+		}
+
+	}
+
+}
@@ -0,0 +1,48 @@
+package org.cryptomator.frontend.webdav;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * WebDAV client implementations known to access the server with distinct request patterns, as identified by their <code>User-Agent</code> header.
+ */
+public enum ClientFamily {
+
+	/**
+	 * macOS Finder (WebDAVFS)
+	 */
+	MACOS,
+
+	/**
+	 * Windows Explorer (WebDAV mini-redirector)
+	 */
+	WINDOWS,
+
+	/**
+	 * GNOME Files and other applications using gvfs
+	 */
+	GVFS,
+
+	/**
+	 * davfs2 file system driver
+	 */
+	DAVFS2,
+
+	OTHER;
+
+	public static ClientFamily of(@Nullable String userAgent) {
+		if (userAgent == null) {
+			return OTHER;
+		} else if (userAgent.startsWith("WebDAVFS") || userAgent.startsWith("WebDAVLib")) {
+			return MACOS;
+		} else if (userAgent.startsWith("Microsoft-WebDAV-MiniRedir")) {
+			return WINDOWS;
+		} else if (userAgent.startsWith("gvfs")) {
+			return GVFS;
+		} else if (userAgent.startsWith("davfs2")) {
+			return DAVFS2;
+		} else {
+			return OTHER;
+		}
+	}
+
+}
@@ -0,0 +1,94 @@
+package org.cryptomator.frontend.webdav;
+
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.handler.HandlerWrapper;
+import org.jetbrains.annotations.Nullable;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * A handler observing each request from the moment it enters the handler until its response is complete, including asynchronously processed requests.
+ *
+ * @param <T> The type of state kept per request
+ */
+public abstract class CompletionAwareHandler<T> extends HandlerWrapper {
+
+	/**
+	 * Invoked before the request is passed on to the wrapped handler.
+	 *
+	 * @param target The target of the request
+	 * @param baseRequest The request
+	 * @param request The request
+	 * @return State passed to {@link #complete(Object, Request, int)} or <code>null</code> to not observe this request
+	 */
+	@Nullable
+	protected abstract T begin(String target, Request baseRequest, HttpServletRequest request);
+
+	/**
+	 * Invoked once the request has been processed, either by the handling thread or, if processed asynchronously, when its async context completes.
+	 *
+	 * @param state The state returned by {@link #begin(String, Request, HttpServletRequest)}
+	 * @param baseRequest The request
+	 * @param status The response status
+	 */
+	protected abstract void complete(T state, Request baseRequest, int status);
+
+	@Override
+	public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException, ServletException {
+		var state = begin(target, baseRequest, request);
+		if (state == null) {
+			super.handle(target, baseRequest, request, response);
+			return;
+		}
+		boolean returnedNormally = false;
+		try {
+			super.handle(target, baseRequest, request, response);
+			returnedNormally = true;
+		} finally {
+			if (returnedNormally && baseRequest.isAsyncStarted()) {
+				baseRequest.getAsyncContext().addListener(new CompletionListener(state, baseRequest));
+			} else {
+				// an exception escaping the handler results in a 500 response
+				complete(state, baseRequest, returnedNormally ? response.getStatus() : HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+			}
+		}
+	}
+
+	private class CompletionListener implements AsyncListener {
+
+		private final T state;
+		private final Request baseRequest;
+
+		CompletionListener(T state, Request baseRequest) {
+			this.state = state;
+			this.baseRequest = baseRequest;
+		}
+
+		@Override
+		public void onComplete(AsyncEvent event) {
+			complete(state, baseRequest, baseRequest.getResponse().getStatus());
+		}
+
+		@Override
+		public void onTimeout(AsyncEvent event) {
+			// onComplete will follow
+		}
+
+		@Override
+		public void onError(AsyncEvent event) {
+			// onComplete will follow
+		}
+
+		@Override
+		public void onStartAsync(AsyncEvent event) {
+			event.getAsyncContext().addListener(this);
+		}
+
+	}
+
+}
@@ -0,0 +1,204 @@
+package org.cryptomator.frontend.webdav;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A set of context paths organized as a trie of path segments, answering whether a path is the same as or a parent of any registered context path.
+ * <p>
+ * Reads are lock-free and don't allocate: They walk an immutable snapshot of the trie, comparing segments in place without splitting the path.
+ * Updates are rare and copy the nodes along the modified path, before publishing the new root.
+ * <p>
+ * Like in URIs, segments are separated by <code>/</code>, empty segments are ignored, i.e. <code>/foo//bar/</code> is equivalent to <code>/foo/bar</code>.
+ */
+final class ContextPathTrie {
+
+	private static final char SEPARATOR = '/';
+
+	private volatile Node root = Node.EMPTY;
+
+	/**
+	 * @param contextPath The context path to add
+	 * @return <code>true</code> if the path hasn't been contained before
+	 */
+	synchronized boolean add(String contextPath) {
+		var segments = segments(contextPath);
+		var existing = root.find(segments, 0);
+		if (existing != null && existing.terminal) {
+			return false;
+		}
+		root = root.with(segments, 0);
+		return true;
+	}
+
+	/**
+	 * @param contextPath The context path to remove
+	 * @return <code>true</code> if the path has been contained
+	 */
+	synchronized boolean remove(String contextPath) {
+		var segments = segments(contextPath);
+		var node = root.find(segments, 0);
+		if (node == null || !node.terminal) {
+			return false;
+		}
+		root = root.without(segments, 0);
+		return true;
+	}
+
+	/**
+	 * @param path A path, e.g. the path of a requested resource
+	 * @return <code>true</code> if the given path is the same as or a parent of any context path
+	 */
+	boolean isSameOrParentOfAny(String path) {
+		Node node = root;
+		if (node == Node.EMPTY) {
+			return false;
+		}
+		int len = path.length();
+		int start = 0;
+		while (start < len) {
+			if (path.charAt(start) == SEPARATOR) {
+				start++;
+				continue;
+			}
+			int end = path.indexOf(SEPARATOR, start);
+			if (end == -1) {
+				end = len;
+			}
+			node = node.child(path, start, end);
+			if (node == null) {
+				return false;
+			}
+			start = end + 1;
+		}
+		return true;
+	}
+
+	private static String[] segments(String path) {
+		List<String> segments = new ArrayList<>();
+		int start = 0;
+		while (start < path.length()) {
+			int end = path.indexOf(SEPARATOR, start);
+			if (end == -1) {
+				end = path.length();
+			}
+			if (end > start) {
+				segments.add(path.substring(start, end));
+			}
+			start = end + 1;
+		}
+		return segments.toArray(String[]::new);
+	}
+
+	/**
+	 * An immutable node, whose children are sorted by their segment to allow binary search.
+	 */
+	private static final class Node {
+
+		static final Node EMPTY = new Node(new String[0], new Node[0], false);
+
+		final String[] segments;
+		final Node[] children;
+		final boolean terminal;
+
+		Node(String[] segments, Node[] children, boolean terminal) {
+			this.segments = segments;
+			this.children = children;
+			this.terminal = terminal;
+		}
+
+		Node child(String path, int start, int end) {
+			int low = 0;
+			int high = segments.length - 1;
+			while (low <= high) {
+				int mid = (low + high) >>> 1;
+				int cmp = compare(segments[mid], path, start, end);
+				if (cmp < 0) {
+					low = mid + 1;
+				} else if (cmp > 0) {
+					high = mid - 1;
+				} else {
+					return children[mid];
+				}
+			}
+			return null;
+		}
+
+		Node find(String[] path, int depth) {
+			if (depth == path.length) {
+				return this;
+			}
+			var child = child(path[depth], 0, path[depth].length());
+			return child == null ? null : child.find(path, depth + 1);
+		}
+
+		Node with(String[] path, int depth) {
+			if (depth == path.length) {
+				return new Node(segments, children, true);
+			}
+			int i = Arrays.binarySearch(segments, path[depth]);
+			if (i >= 0) {
+				var newChildren = children.clone();
+				newChildren[i] = children[i].with(path, depth + 1);
+				return new Node(segments, newChildren, terminal);
+			} else {
+				int insertionPoint = -i - 1;
+				var newSegments = new String[segments.length + 1];
+				var newChildren = new Node[children.length + 1];
+				System.arraycopy(segments, 0, newSegments, 0, insertionPoint);
+				System.arraycopy(children, 0, newChildren, 0, insertionPoint);
+				newSegments[insertionPoint] = path[depth];
+				newChildren[insertionPoint] = EMPTY.with(path, depth + 1);
+				System.arraycopy(segments, insertionPoint, newSegments, insertionPoint + 1, segments.length - insertionPoint);
+				System.arraycopy(children, insertionPoint, newChildren, insertionPoint + 1, children.length - insertionPoint);
+				return new Node(newSegments, newChildren, terminal);
+			}
+		}
+
+		/**
+		 * @return A copy of this node without the given path, or {@link #EMPTY}, if this node is no longer part of any path
+		 */
+		Node without(String[] path, int depth) {
+			if (depth == path.length) {
+				return children.length == 0 ? EMPTY : new Node(segments, children, false);
+			}
+			int i = Arrays.binarySearch(segments, path[depth]);
+			var newChild = children[i].without(path, depth + 1);
+			if (newChild != EMPTY) {
+				var newChildren = children.clone();
+				newChildren[i] = newChild;
+				return new Node(segments, newChildren, terminal);
+			} else if (segments.length == 1 && !terminal) {
+				return EMPTY;
+			} else {
+				var newSegments = new String[segments.length - 1];
+				var newChildren = new Node[children.length - 1];
+				System.arraycopy(segments, 0, newSegments, 0, i);
+				System.arraycopy(children, 0, newChildren, 0, i);
+				System.arraycopy(segments, i + 1, newSegments, i, segments.length - i - 1);
+				System.arraycopy(children, i + 1, newChildren, i, children.length - i - 1);
+				return new Node(newSegments, newChildren, terminal);
+			}
+		}
+
+		/**
+		 * Compares a segment with a region of a path, consistently with {@link String#compareTo(String)}.
+		 */
+		private static int compare(String segment, String path, int start, int end) {
+			int len1 = segment.length();
+			int len2 = end - start;
+			int lim = Math.min(len1, len2);
+			for (int k = 0; k < lim; k++) {
+				char c1 = segment.charAt(k);
+				char c2 = path.charAt(start + k);
+				if (c1 != c2) {
+					return c1 - c2;
+				}
+			}
+			return len1 - len2;
+		}
+
+	}
+
+}
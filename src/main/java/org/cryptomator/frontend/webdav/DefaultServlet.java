@@ -13,33 +13,38 @@ import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.Set;
-import java.util.concurrent.CopyOnWriteArraySet;
-import java.util.function.Predicate;
-import java.util.regex.Pattern;
 
 class DefaultServlet extends HttpServlet implements ContextPathRegistry {
 
 	private static final String METHOD_PROPFIND = "PROPFIND";
-	private static final int TARPIT_DELAY_MS = 5000;
-	private static final Pattern PATH_SEP_PATTERN = Pattern.compile("/");
-	private final Set<String> contextPaths;
+	private static final String PROPFIND_CONTENT_TYPE = "application/xml; charset=UTF-8";
+	private static final byte[] PROPFIND_PREFIX = ("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>\n" //
+			+ "<D:multistatus xmlns:D=\"DAV:\">\n" //
+			+ "<D:response>\n" //
+			+ "  <D:href>").getBytes(StandardCharsets.UTF_8);
+	private static final byte[] PROPFIND_SUFFIX = ("</D:href>\n" //
+			+ "  <D:propstat>\n" //
+			+ "    <D:prop>\n" //
+			+ "      <D:iscollection>1</D:iscollection>\n" //
+			+ "      <D:resourcetype><D:collection/></D:resourcetype>\n" //
+			+ "    </D:prop>\n" //
+			+ "  </D:propstat>\n" //
+			+ "</D:response>\n" //
+			+ "</D:multistatus>").getBytes(StandardCharsets.UTF_8);
+	private final ContextPathTrie contextPaths = new ContextPathTrie();
+	private final Tarpit tarpit;
 
-	public DefaultServlet(Set<String> contextPaths) {
-		this.contextPaths = new CopyOnWriteArraySet<>(contextPaths);
+	public DefaultServlet(Set<String> contextPaths, Tarpit tarpit) {
+		contextPaths.forEach(this.contextPaths::add);
+		this.tarpit = tarpit;
 	}
 
 	@Override
 	protected void service(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
 		if (!isRequestedResourcePathPartOfValidContextPath(req.getRequestURI())) {
-			try {
-				Thread.sleep(TARPIT_DELAY_MS);
-				resp.addHeader("X-Tarpit-Delayed", TARPIT_DELAY_MS + "ms");
-				resp.sendError(HttpServletResponse.SC_NOT_FOUND);
-			} catch (InterruptedException e) {
-				resp.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Thread interrupted.");
-				Thread.currentThread().interrupt();
-			}
+			tarpit.rejectDelayed(req, resp);
 			return;
 		}
 
@@ -62,24 +67,25 @@ class DefaultServlet extends HttpServlet implements ContextPathRegistry {
 	}
 
 	protected void doPropfind(HttpServletRequest req, HttpServletResponse resp) throws IOException {
-		resp.getWriter()
-				.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>\n" //
-						+ "<D:multistatus xmlns:D=\"DAV:\">\n" //
-						+ "<D:response>\n" //
-						+ "  <D:href>" + req.getRequestURI() + "</D:href>\n" //
-						+ "  <D:propstat>\n" //
-						+ "    <D:prop>\n" //
-						+ "      <D:iscollection>1</D:iscollection>\n" //
-						+ "      <D:resourcetype><D:collection/></D:resourcetype>\n" //
-						+ "    </D:prop>\n" //
-						+ "  </D:propstat>\n" //
-						+ "</D:response>\n" //
-						+ "</D:multistatus>");
-		resp.getWriter().flush();
+		byte[] href = escapeXml(req.getRequestURI()).getBytes(StandardCharsets.UTF_8);
+		resp.setContentType(PROPFIND_CONTENT_TYPE);
+		resp.setContentLength(PROPFIND_PREFIX.length + href.length + PROPFIND_SUFFIX.length);
+		var out = resp.getOutputStream();
+		out.write(PROPFIND_PREFIX);
+		out.write(href);
+		out.write(PROPFIND_SUFFIX);
+		out.flush();
+	}
+
+	private static String escapeXml(String str) {
+		if (str.indexOf('&') == -1 && str.indexOf('<') == -1 && str.indexOf('>') == -1) {
+			return str;
+		}
+		return str.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
 	}
 
 	private boolean isRequestedResourcePathPartOfValidContextPath(String requestedResourcePath) {
-		return contextPaths.stream().anyMatch(cp -> isParentOrSamePath(cp, requestedResourcePath));
+		return contextPaths.isSameOrParentOfAny(requestedResourcePath);
 	}
 
 	@Override
@@ -92,19 +98,4 @@ class DefaultServlet extends HttpServlet implements ContextPathRegistry {
 		return contextPaths.remove(contextPath);
 	}
 
-	private boolean isParentOrSamePath(String path, String potentialParent) {
-		String[] pathComponents = PATH_SEP_PATTERN.splitAsStream(path).filter(Predicate.not(String::isBlank)).toArray(String[]::new);
-		String[] parentPathComponents = PATH_SEP_PATTERN.splitAsStream(potentialParent).filter(Predicate.not(String::isBlank)).toArray(String[]::new);
-		if (pathComponents.length < parentPathComponents.length) {
-			return false; // parent can not be parent of path, if it is longer than path.
-		}
-		assert pathComponents.length >= parentPathComponents.length;
-		for (int i = 0; i < parentPathComponents.length; i++) {
-			if (!pathComponents[i].equals(parentPathComponents[i])) {
-				return false;
-			}
-		}
-		return true;
-	}
-
 }
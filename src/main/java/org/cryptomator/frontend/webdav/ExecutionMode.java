@@ -0,0 +1,46 @@
+package org.cryptomator.frontend.webdav;
+
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Locale;
+
+/**
+ * Determines on which kind of threads a {@link WebDavServer} handles its requests.
+ */
+public enum ExecutionMode {
+
+	/**
+	 * Requests are handled by a bounded pool of platform threads. Supported on every runtime.
+	 */
+	PLATFORM_THREADS,
+
+	/**
+	 * Requests are handled by virtual threads, while I/O selection remains on the platform thread pool.
+	 * Requires Java 21 or newer. On older runtimes, the server falls back to {@link #PLATFORM_THREADS}.
+	 */
+	VIRTUAL_THREADS;
+
+	private static final Logger LOG = LoggerFactory.getLogger(ExecutionMode.class);
+
+	/**
+	 * Parses the name of a mode, ignoring case and surrounding whitespace. A mistyped system property must not prevent the server from being created,
+	 * so unknown names result in a warning only.
+	 *
+	 * @param name The name of a mode or <code>null</code>
+	 * @return The named mode or {@link #PLATFORM_THREADS}, if the name is <code>null</code> or unknown
+	 */
+	static ExecutionMode parse(@Nullable String name) {
+		if (name == null) {
+			return PLATFORM_THREADS;
+		}
+		try {
+			return valueOf(name.strip().toUpperCase(Locale.ROOT));
+		} catch (IllegalArgumentException e) {
+			LOG.warn("Unknown execution mode '{}', falling back to {}.", name, PLATFORM_THREADS);
+			return PLATFORM_THREADS;
+		}
+	}
+
+}
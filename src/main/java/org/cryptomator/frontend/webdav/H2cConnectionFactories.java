@@ -0,0 +1,66 @@
+package org.cryptomator.frontend.webdav;
+
+import org.eclipse.jetty.http2.server.HTTP2CServerConnectionFactory;
+import org.eclipse.jetty.server.ConnectionFactory;
+import org.eclipse.jetty.server.HttpConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Optional;
+
+/**
+ * Creates the connection factory for HTTP/2 over cleartext (h2c), if <code>org.eclipse.jetty.http2:http2-server</code> is present at runtime.
+ * <p>
+ * Installed next to a {@link org.eclipse.jetty.server.HttpConnectionFactory}, the factory accepts both
+ * prior-knowledge connections (starting with the HTTP/2 preface) and HTTP/1.1 connections sending <code>Upgrade: h2c</code>.
+ * <p>
+ * As HTTP/2 is an opt-in feature, the dependency is optional and the module is only required statically.
+ * When running on the module path, make sure to resolve the module, e.g. using <code>--add-modules org.eclipse.jetty.http2.server</code>.
+ */
+final class H2cConnectionFactories {
+
+	private static final Logger LOG = LoggerFactory.getLogger(H2cConnectionFactories.class);
+	private static final String H2C_CONNECTION_FACTORY_CLASS = "org.eclipse.jetty.http2.server.HTTP2CServerConnectionFactory";
+
+	private H2cConnectionFactories() {
+	}
+
+	/**
+	 * @param httpConfig The HTTP config shared with the HTTP/1.1 connection factory
+	 * @param config The server config containing the HTTP/2 stream and flow control settings
+	 * @return A h2c connection factory or an empty optional, if HTTP/2 support is not available at runtime
+	 */
+	public static Optional<ConnectionFactory> create(HttpConfiguration httpConfig, WebDavServerConfig config) {
+		if (!isAvailable()) {
+			LOG.warn("HTTP/2 requested, but {} is not available. Falling back to HTTP/1.1 only.", H2C_CONNECTION_FACTORY_CLASS);
+			return Optional.empty();
+		}
+		return Optional.of(Http2Server.newConnectionFactory(httpConfig, config));
+	}
+
+	/**
+	 * @return Whether <code>org.eclipse.jetty.http2:http2-server</code> is present at runtime
+	 */
+	static boolean isAvailable() {
+		try {
+			Class.forName(H2C_CONNECTION_FACTORY_CLASS, false, H2cConnectionFactories.class.getClassLoader());
+			return true;
+		} catch (ClassNotFoundException | LinkageError e) {
+			return false;
+		}
+	}
+
+	// only loaded after checking for the optional dependency
+	private static final class Http2Server {
+
+		static ConnectionFactory newConnectionFactory(HttpConfiguration httpConfig, WebDavServerConfig config) {
+			var factory = new HTTP2CServerConnectionFactory(httpConfig);
+			factory.setMaxConcurrentStreams(config.h2cMaxConcurrentStreams());
+			factory.setInitialSessionRecvWindow(config.h2cInitialSessionRecvWindow());
+			factory.setInitialStreamRecvWindow(config.h2cInitialStreamRecvWindow());
+			return factory;
+		}
+
+	}
+
+}
@@ -0,0 +1,42 @@
+package org.cryptomator.frontend.webdav;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongConsumer;
+
+/**
+ * A {@link ThreadPoolExecutor} reporting how long each task waited in the queue before it got executed.
+ */
+class QueueDelayRecordingExecutor extends ThreadPoolExecutor {
+
+	private final LongConsumer queueDelayListener;
+
+	public QueueDelayRecordingExecutor(int corePoolSize, int maximumPoolSize, long keepAliveTime, TimeUnit unit, BlockingQueue<Runnable> workQueue, LongConsumer queueDelayListener) {
+		super(corePoolSize, maximumPoolSize, keepAliveTime, unit, workQueue);
+		this.queueDelayListener = queueDelayListener;
+	}
+
+	@Override
+	public void execute(Runnable command) {
+		super.execute(new EnqueuedTask(command, System.nanoTime()));
+	}
+
+	@Override
+	protected void beforeExecute(Thread t, Runnable r) {
+		super.beforeExecute(t, r);
+		if (r instanceof EnqueuedTask task) {
+			queueDelayListener.accept(System.nanoTime() - task.enqueuedAt);
+		}
+	}
+
+	private record EnqueuedTask(Runnable delegate, long enqueuedAt) implements Runnable {
+
+		@Override
+		public void run() {
+			delegate.run();
+		}
+
+	}
+
+}
@@ -0,0 +1,122 @@
+package org.cryptomator.frontend.webdav;
+
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.handler.HandlerWrapper;
+import org.eclipse.jetty.server.handler.gzip.GzipHandler;
+import org.eclipse.jetty.util.compression.DeflaterPool;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Compresses textual responses, most notably the XML bodies of <code>PROPFIND</code> multistatus responses, if the client accepts gzip.
+ * <p>
+ * Only <code>application/xml</code> and <code>text/*</code> responses exceeding the configured size get compressed.
+ * Any other content, particularly already compressed files served via <code>GET</code>, is sent as is.
+ * <p>
+ * One instance is shared by all contexts of a {@link WebDavServer}, each of which installs its own {@link #newContextHandler() handler}.
+ * The handlers share a single pool of deflaters registered with the server.
+ * <p>
+ * Jackrabbit gzips multistatus responses on its own, using a fresh deflater for each response regardless of its size.
+ * Therefore the <code>Accept-Encoding</code> header is hidden from the servlet for requests whose responses get compressed by this stage, while compression is enabled.
+ */
+public class ResponseCompression {
+
+	private static final int DEFLATER_POOL_CAPACITY = 64;
+	private static final String[] COMPRESSED_METHODS = {"GET", "PROPFIND", "REPORT"};
+	private static final Set<String> COMPRESSED_METHOD_SET = Set.of(COMPRESSED_METHODS);
+	private static final String ACCEPT_ENCODING_HEADER = "Accept-Encoding";
+
+	private final boolean enabled;
+	private final int minSize;
+	private final DeflaterPool deflaterPool;
+
+	ResponseCompression(WebDavServerConfig config) {
+		this.enabled = config.compression();
+		this.minSize = config.compressionMinSize();
+		this.deflaterPool = new DeflaterPool(DEFLATER_POOL_CAPACITY, config.compressionLevel(), true);
+	}
+
+	/**
+	 * Registers the deflater pool with the server, which will then manage its lifecycle.
+	 * Must be invoked before any handler created by this instance gets started.
+	 *
+	 * @param server The server whose contexts will use this instance
+	 */
+	void registerWith(Server server) {
+		if (enabled) {
+			server.addBean(deflaterPool);
+		}
+	}
+
+	/**
+	 * @return A new handler to be installed in the handler chain of a single context or an empty optional, if compression is disabled
+	 */
+	public Optional<HandlerWrapper> newContextHandler() {
+		if (!enabled) {
+			return Optional.empty();
+		}
+		var handler = new CompressionHandler();
+		handler.setMinGzipSize(minSize);
+		handler.setIncludedMethods(COMPRESSED_METHODS);
+		handler.setDeflaterPool(deflaterPool);
+		return Optional.of(handler);
+	}
+
+	static boolean isCompressible(String mimeType) {
+		var lowerCaseMimeType = mimeType.toLowerCase(Locale.ROOT);
+		return lowerCaseMimeType.startsWith("text/") || lowerCaseMimeType.equals("application/xml");
+	}
+
+	private static class CompressionHandler extends GzipHandler {
+
+		@Override
+		public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException, ServletException {
+			// only hide the header from requests whose responses get compressed here. Jackrabbit may still gzip responses to other methods, e.g. LOCK or PROPPATCH
+			var compressed = COMPRESSED_METHOD_SET.contains(request.getMethod());
+			super.handle(target, baseRequest, compressed ? new AcceptEncodingHidingRequest(request) : request, response);
+		}
+
+		@Override
+		public boolean isMimeTypeGzipable(String mimeType) {
+			// GzipHandler only supports exact matches, hence check text/* ourselves. super still excludes well-known compressed types
+			return isCompressible(mimeType) && super.isMimeTypeGzipable(mimeType);
+		}
+
+	}
+
+	private static class AcceptEncodingHidingRequest extends HttpServletRequestWrapper {
+
+		AcceptEncodingHidingRequest(HttpServletRequest request) {
+			super(request);
+		}
+
+		@Override
+		public String getHeader(String name) {
+			return ACCEPT_ENCODING_HEADER.equalsIgnoreCase(name) ? null : super.getHeader(name);
+		}
+
+		@Override
+		public Enumeration<String> getHeaders(String name) {
+			return ACCEPT_ENCODING_HEADER.equalsIgnoreCase(name) ? Collections.emptyEnumeration() : super.getHeaders(name);
+		}
+
+		@Override
+		public Enumeration<String> getHeaderNames() {
+			var names = Collections.list(super.getHeaderNames());
+			names.removeIf(ACCEPT_ENCODING_HEADER::equalsIgnoreCase);
+			return Collections.enumeration(names);
+		}
+
+	}
+
+}
@@ -0,0 +1,81 @@
+package org.cryptomator.frontend.webdav;
+
+import org.cryptomator.frontend.webdav.cache.AttributeCaching;
+import org.cryptomator.frontend.webdav.metrics.RequestMetrics;
+import org.cryptomator.frontend.webdav.servlet.AttributePrefetching;
+import org.cryptomator.frontend.webdav.servlet.ChannelPooling;
+import org.cryptomator.frontend.webdav.servlet.Locking;
+import org.cryptomator.frontend.webdav.servlet.ReadAheadCaching;
+import org.cryptomator.frontend.webdav.trace.RequestTracing;
+
+import java.util.Objects;
+
+/**
+ * The components of a {@link WebDavServer} shared by all of its servlet contexts, which each context gets wired to when created.
+ *
+ * @param admissionControl Limits the number of concurrent requests
+ * @param responseCompression Compresses responses
+ * @param requestMetrics Records request counts and latencies
+ * @param requestTracing Records request traces
+ * @param attributeCaching Caches file attributes
+ * @param attributePrefetching Reads attributes of directory members concurrently
+ * @param channelPooling Keeps files open between requests
+ * @param readAheadCaching Prefetches file content
+ * @param locking Manages WebDAV locks
+ */
+public record ServerComponents(AdmissionControl admissionControl, ResponseCompression responseCompression, RequestMetrics requestMetrics, RequestTracing requestTracing, //
+							   AttributeCaching attributeCaching, AttributePrefetching attributePrefetching, ChannelPooling channelPooling, ReadAheadCaching readAheadCaching, Locking locking) {
+
+	public ServerComponents {
+		Objects.requireNonNull(admissionControl);
+		Objects.requireNonNull(responseCompression);
+		Objects.requireNonNull(requestMetrics);
+		Objects.requireNonNull(requestTracing);
+		Objects.requireNonNull(attributeCaching);
+		Objects.requireNonNull(attributePrefetching);
+		Objects.requireNonNull(channelPooling);
+		Objects.requireNonNull(readAheadCaching);
+		Objects.requireNonNull(locking);
+	}
+
+	/**
+	 * @param config The server config
+	 * @return New components configured as given, which must be {@link #shutdown() shut down} along with the server
+	 */
+	static ServerComponents create(WebDavServerConfig config) {
+		// background threads come on top of the server's threads, so each background pool only gets a fraction of them:
+		int backgroundThreads = Math.max(1, config.maxThreads() / 4);
+		return new ServerComponents( //
+				new AdmissionControl(config), //
+				new ResponseCompression(config), //
+				new RequestMetrics(config.jmxMetrics()), //
+				new RequestTracing(config.traceDirectory()), //
+				new AttributeCaching(config.attributeCacheSize(), config.attributeCacheTtl()), //
+				new AttributePrefetching(config.listingParallelism(), backgroundThreads), //
+				new ChannelPooling(config.channelPoolSize(), config.channelPoolIdleTimeout()), //
+				new ReadAheadCaching(config.readAheadCacheSize(), config.readAheadBlocks(), backgroundThreads), //
+				new Locking());
+	}
+
+	/**
+	 * @return Components configured by {@link WebDavServerConfig#defaults()}, shared by all contexts that aren't created by a {@link WebDavServer}
+	 */
+	public static ServerComponents defaults() {
+		return DefaultsHolder.DEFAULTS;
+	}
+
+	private static class DefaultsHolder {
+		private static final ServerComponents DEFAULTS = create(WebDavServerConfig.defaults());
+	}
+
+	/**
+	 * Stops all threads. Must only be invoked when terminating the server.
+	 */
+	void shutdown() {
+		attributePrefetching.shutdown();
+		readAheadCaching.shutdown();
+		channelPooling.shutdown();
+		locking.shutdown();
+	}
+
+}
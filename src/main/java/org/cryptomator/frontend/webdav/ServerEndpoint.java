@@ -0,0 +1,34 @@
+package org.cryptomator.frontend.webdav;
+
+import org.eclipse.jetty.server.ServerConnector;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+
+/**
+ * An address a {@link WebDavServer} accepts connections on.
+ */
+@FunctionalInterface
+public interface ServerEndpoint {
+
+	/**
+	 * @param absolutePath An absolute path, e.g. a servlet's context path
+	 * @return A URI addressing the given path via this endpoint
+	 */
+	URI resolve(String absolutePath);
+
+	/**
+	 * @param connector A TCP connector
+	 * @return An endpoint reporting <code>http</code> URIs with the connector's host and actual port
+	 */
+	static ServerEndpoint of(ServerConnector connector) {
+		return absolutePath -> {
+			try {
+				return new URI("http", null, connector.getHost(), connector.getLocalPort(), absolutePath, null, null);
+			} catch (URISyntaxException e) {
+				throw new IllegalArgumentException("Unable to construct valid URI for given path.", e);
+			}
+		};
+	}
+
+}
@@ -0,0 +1,147 @@
+package org.cryptomator.frontend.webdav;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Delays the {@code 404 Not Found} response to requests outside of any context, slowing down clients that probe for resources.
+ * <p>
+ * Delayed requests are suspended via {@link AsyncContext} and resumed by a single scheduler thread, so they don't occupy any thread of the server's pool while waiting.
+ * If the configured number of requests is already being delayed, further ones are answered immediately.
+ * One instance is shared by all contexts of a {@link WebDavServer}.
+ */
+public class Tarpit {
+
+	private static final Logger LOG = LoggerFactory.getLogger(Tarpit.class);
+	private static final String TARPIT_HEADER = "X-Tarpit-Delayed";
+	private static final long DEFAULT_DELAY_MILLIS = 5000;
+
+	private final int maxRequests;
+	private final long delayMillis;
+	private final ScheduledExecutorService scheduler;
+	private final Set<AsyncContext> pending = ConcurrentHashMap.newKeySet();
+	private final AtomicInteger delaying = new AtomicInteger();
+	private final LongAdder delayed = new LongAdder();
+	private final LongAdder notDelayed = new LongAdder();
+
+	Tarpit(WebDavServerConfig config) {
+		this(config.maxTarpittedRequests(), DEFAULT_DELAY_MILLIS);
+	}
+
+	Tarpit(int maxRequests, long delayMillis) {
+		this.maxRequests = maxRequests;
+		this.delayMillis = delayMillis;
+		this.scheduler = Executors.newSingleThreadScheduledExecutor(Tarpit::createSchedulerThread);
+	}
+
+	private static Thread createSchedulerThread(Runnable runnable) {
+		Thread t = new Thread(runnable, "webdav-tarpit");
+		t.setDaemon(true);
+		return t;
+	}
+
+	/**
+	 * Responds with a {@code 404 Not Found} after a delay, unless too many requests are already being delayed.
+	 * <p>
+	 * Returns without waiting for the delay. The request must support async processing.
+	 *
+	 * @param req The request to reject
+	 * @param resp The corresponding response
+	 * @throws IOException If sending an immediate response failed
+	 */
+	void rejectDelayed(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+		if (!tryAcquire()) {
+			notDelayed.increment();
+			resp.sendError(HttpServletResponse.SC_NOT_FOUND);
+			return;
+		}
+		var asyncContext = req.startAsync();
+		asyncContext.setTimeout(0); // completed by the scheduler or on shutdown
+		pending.add(asyncContext);
+		try {
+			scheduler.schedule(() -> completeIfPending(asyncContext), delayMillis, TimeUnit.MILLISECONDS);
+			delayed.increment();
+		} catch (RejectedExecutionException e) {
+			// server has been terminated
+			notDelayed.increment();
+			completeIfPending(asyncContext);
+		}
+	}
+
+	private boolean tryAcquire() {
+		if (delaying.incrementAndGet() > maxRequests) {
+			delaying.decrementAndGet();
+			return false;
+		} else {
+			return true;
+		}
+	}
+
+	/**
+	 * Completes the given request, unless this already happened concurrently, e.g. by {@link #shutdown()}.
+	 */
+	private void completeIfPending(AsyncContext asyncContext) {
+		if (pending.remove(asyncContext)) {
+			complete(asyncContext);
+		}
+	}
+
+	private void complete(AsyncContext asyncContext) {
+		try {
+			var resp = (HttpServletResponse) asyncContext.getResponse();
+			resp.addHeader(TARPIT_HEADER, delayMillis + "ms");
+			resp.sendError(HttpServletResponse.SC_NOT_FOUND);
+			asyncContext.complete();
+		} catch (IOException | IllegalStateException e) {
+			// most likely the client gave up waiting and closed the connection
+			LOG.trace("Failed to respond to tarpitted request.", e);
+		} finally {
+			delaying.decrementAndGet();
+		}
+	}
+
+	/**
+	 * Stops the scheduler and completes requests being delayed at this time, so they no longer count as {@link #getDelayingCount() delaying}.
+	 * If the server has already been stopped, their connections are closed without a response.
+	 */
+	void shutdown() {
+		// shutdownNow() drops the scheduled completions, hence complete the pending requests ourselves:
+		scheduler.shutdownNow();
+		pending.forEach(this::completeIfPending);
+	}
+
+	/**
+	 * @return Number of requests currently being delayed
+	 */
+	public int getDelayingCount() {
+		return delaying.get();
+	}
+
+	/**
+	 * @return Number of requests that have been delayed
+	 */
+	public long getDelayedCount() {
+		return delayed.sum();
+	}
+
+	/**
+	 * @return Number of requests that have been rejected immediately, because too many requests were being delayed
+	 */
+	public long getNotDelayedCount() {
+		return notDelayed.sum();
+	}
+
+}
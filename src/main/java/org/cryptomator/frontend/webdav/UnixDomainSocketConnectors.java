@@ -0,0 +1,85 @@
+package org.cryptomator.frontend.webdav;
+
+import org.eclipse.jetty.server.ConnectionFactory;
+import org.eclipse.jetty.server.Connector;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.unixdomain.server.UnixDomainServerConnector;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+/**
+ * Creates connectors listening on a Unix domain socket, if <code>org.eclipse.jetty:jetty-unixdomain-server</code> is present at runtime.
+ * <p>
+ * Like HTTP/2, Unix domain sockets are an opt-in feature, so the dependency is optional and the module is only required statically.
+ * When running on the module path, make sure to resolve the module, e.g. using <code>--add-modules org.eclipse.jetty.unixdomain.server</code>.
+ */
+final class UnixDomainSocketConnectors {
+
+	private static final String UNIX_DOMAIN_CONNECTOR_CLASS = "org.eclipse.jetty.unixdomain.server.UnixDomainServerConnector";
+	private static final String URI_SCHEME = "http+unix";
+	private static final String UNRESERVED_CHARS = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789-._~";
+
+	private UnixDomainSocketConnectors() {
+	}
+
+	/**
+	 * @param server The server to which the connector belongs
+	 * @param socketPath The file system path of the socket to bind to
+	 * @param connectionFactories The connection factories used by the connector
+	 * @return A new connector
+	 * @throws IllegalStateException If Unix domain sockets are not supported by the runtime
+	 */
+	public static Connector create(Server server, Path socketPath, ConnectionFactory... connectionFactories) throws IllegalStateException {
+		try {
+			Class.forName(UNIX_DOMAIN_CONNECTOR_CLASS, false, UnixDomainSocketConnectors.class.getClassLoader());
+		} catch (ClassNotFoundException | LinkageError e) {
+			throw new IllegalStateException("Unix domain sockets require " + UNIX_DOMAIN_CONNECTOR_CLASS + " to be present at runtime.", e);
+		}
+		return UnixDomainServer.newConnector(server, socketPath, connectionFactories);
+	}
+
+	/**
+	 * Creates an endpoint reporting URIs in the <code>http+unix</code> scheme, which carries the percent-encoded socket path as its authority,
+	 * e.g. <code>http+unix://%2Frun%2Fwebdav.sock/vault</code>. This form is understood by various HTTP clients supporting Unix domain sockets.
+	 * For clients like curl, pass the socket path separately, e.g. <code>curl --unix-socket /run/webdav.sock http://localhost/vault</code>.
+	 *
+	 * @param socketPath The file system path of the socket
+	 * @return An endpoint for the given socket
+	 */
+	public static ServerEndpoint endpoint(Path socketPath) {
+		var authority = percentEncode(socketPath.toAbsolutePath().toString());
+		return absolutePath -> URI.create(URI_SCHEME + "://" + authority + percentEncodePath(absolutePath));
+	}
+
+	private static String percentEncodePath(String path) {
+		return Arrays.stream(path.split("/", -1)).map(UnixDomainSocketConnectors::percentEncode).collect(Collectors.joining("/"));
+	}
+
+	private static String percentEncode(String str) {
+		StringBuilder sb = new StringBuilder();
+		for (byte b : str.getBytes(StandardCharsets.UTF_8)) {
+			if (UNRESERVED_CHARS.indexOf(b) >= 0) {
+				sb.append((char) b);
+			} else {
+				sb.append('%').append(Character.toUpperCase(Character.forDigit((b >> 4) & 0xF, 16))).append(Character.toUpperCase(Character.forDigit(b & 0xF, 16)));
+			}
+		}
+		return sb.toString();
+	}
+
+	// only loaded after checking for the optional dependency
+	private static final class UnixDomainServer {
+
+		static Connector newConnector(Server server, Path socketPath, ConnectionFactory... connectionFactories) {
+			var connector = new UnixDomainServerConnector(server, connectionFactories);
+			connector.setUnixDomainPath(socketPath);
+			return connector;
+		}
+
+	}
+
+}
@@ -8,22 +8,28 @@
  *******************************************************************************/
 package org.cryptomator.frontend.webdav;
 
+import org.cryptomator.frontend.webdav.jfr.ServerLifecycleEvent;
+import org.cryptomator.frontend.webdav.servlet.CompatibilityStep;
 import org.cryptomator.frontend.webdav.servlet.WebDavServletController;
 import org.cryptomator.frontend.webdav.servlet.WebDavServletFactory;
 import org.eclipse.jetty.server.Server;
-import org.eclipse.jetty.server.ServerConnector;
 import org.eclipse.jetty.server.handler.ContextHandlerCollection;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.net.InetSocketAddress;
+import java.net.UnixDomainSocketAddress;
 import java.nio.file.Path;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
 import java.util.concurrent.ExecutorService;
 
 /**
  * The WebDAV server, that WebDAV servlets can be added to using {@link #createWebDavServlet(Path, String)}.
  *
- * An instance of this class can be obtained via {@link #create(InetSocketAddress)}.
+ * An instance of this class can be obtained via {@link #create(InetSocketAddress)}, {@link #create(InetSocketAddress, WebDavServerConfig)}
+ * or {@link #create(UnixDomainSocketAddress, WebDavServerConfig)}.
  */
 public class WebDavServer {
 
@@ -31,20 +37,40 @@ public class WebDavServer {
 
 	private final Server server;
 	private final ExecutorService executorService;
-	private final ServerConnector localConnector;
+	private final List<ServerEndpoint> endpoints;
 	private final ContextHandlerCollection servletCollectionCtx;
 	private final DefaultServlet defaultServlet;
+	private final Tarpit tarpit;
+	private final ServerComponents components;
 
-	WebDavServer(Server server, ExecutorService executorService, ServerConnector connector, ContextHandlerCollection servletCollectionCtx, DefaultServlet defaultServlet) {
+	WebDavServer(Server server, ExecutorService executorService, List<ServerEndpoint> endpoints, ContextHandlerCollection servletCollectionCtx, DefaultServlet defaultServlet, Tarpit tarpit, ServerComponents components) {
 		this.server = server;
 		this.executorService = executorService;
-		this.localConnector = connector;
+		this.endpoints = List.copyOf(endpoints);
 		this.servletCollectionCtx = servletCollectionCtx;
 		this.defaultServlet = defaultServlet;
+		this.tarpit = tarpit;
+		this.components = components;
 	}
 
 	public static WebDavServer create(InetSocketAddress bindAddr) {
-		return WebDavServerFactory.createWebDavServer(bindAddr);
+		return create(bindAddr, WebDavServerConfig.defaults());
+	}
+
+	public static WebDavServer create(InetSocketAddress bindAddr, WebDavServerConfig config) {
+		return WebDavServerFactory.createWebDavServer(bindAddr, config);
+	}
+
+	/**
+	 * Creates a server that is only reachable via a Unix domain socket.
+	 * Requires <code>org.eclipse.jetty:jetty-unixdomain-server</code> to be present at runtime.
+	 *
+	 * @param bindAddr The socket to bind to
+	 * @param config The server config
+	 * @return A new server
+	 */
+	public static WebDavServer create(UnixDomainSocketAddress bindAddr, WebDavServerConfig config) {
+		return WebDavServerFactory.createWebDavServer(bindAddr, config);
 	}
 
 	/**
@@ -56,11 +82,17 @@ public class WebDavServer {
 		if (executorService.isShutdown()) {
 			throw new IllegalStateException("Server has already been terminated.");
 		}
+		var event = new ServerLifecycleEvent();
+		event.operation = "start";
+		event.begin();
 		try {
 			server.start();
+			event.success = true;
 			LOG.info("WebDavServer started.");
 		} catch (Exception e) {
 			throw new ServerLifecycleException("Server couldn't be started", e);
+		} finally {
+			event.commit();
 		}
 	}
 
@@ -70,11 +102,17 @@ public class WebDavServer {
 	 * @throws ServerLifecycleException If the server could not be stopped for any unexpected reason.
 	 */
 	public synchronized void stop() throws ServerLifecycleException {
+		var event = new ServerLifecycleEvent();
+		event.operation = "stop";
+		event.begin();
 		try {
 			server.stop();
+			event.success = true;
 			LOG.info("WebDavServer stopped.");
 		} catch (Exception e) {
 			throw new ServerLifecycleException("Server couldn't be stopped", e);
+		} finally {
+			event.commit();
 		}
 	}
 
@@ -86,6 +124,8 @@ public class WebDavServer {
 	public synchronized void terminate() throws ServerLifecycleException {
 		stop();
 		executorService.shutdownNow();
+		tarpit.shutdown();
+		components.shutdown();
 	}
 
 	/**
@@ -96,7 +136,33 @@ public class WebDavServer {
 	 * @return The controller object for this new servlet
 	 */
 	public WebDavServletController createWebDavServlet(Path rootPath, String contextPath) {
-		return WebDavServletFactory.createServletController(rootPath, contextPath, localConnector, servletCollectionCtx, defaultServlet);
+		return createWebDavServlet(rootPath, contextPath, EnumSet.allOf(CompatibilityStep.class));
+	}
+
+	/**
+	 * Creates a new WebDAV servlet (without starting it yet), applying only the given compatibility steps to its requests.
+	 *
+	 * @param rootPath The path to the directory which should be served as root resource.
+	 * @param contextPath The servlet context path, i.e. the path of the root resource.
+	 * @param compatibilitySteps The steps to apply, e.g. all but {@link CompatibilityStep#POST_BLOCKING} to allow <code>POST</code> requests
+	 * @return The controller object for this new servlet
+	 */
+	public WebDavServletController createWebDavServlet(Path rootPath, String contextPath, Set<CompatibilityStep> compatibilitySteps) {
+		return WebDavServletFactory.createServletController(rootPath, contextPath, endpoints, servletCollectionCtx, defaultServlet, compatibilitySteps, components);
+	}
+
+	/**
+	 * @return The admission control shared by all servlets of this server, e.g. to query the number of rejected requests.
+	 */
+	public AdmissionControl getAdmissionControl() {
+		return components.admissionControl();
+	}
+
+	/**
+	 * @return The tarpit shared by all servlets of this server, e.g. to query the number of delayed requests.
+	 */
+	public Tarpit getTarpit() {
+		return tarpit;
 	}
 
 }
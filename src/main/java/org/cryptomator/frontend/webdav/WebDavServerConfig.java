@@ -0,0 +1,313 @@
+package org.cryptomator.frontend.webdav;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.zip.Deflater;
+
+/**
+ * Settings applied when creating a {@link WebDavServer}.
+ * <p>
+ * Settings not explicitly set via {@link Builder} default to the value of the corresponding system property,
+ * allowing to tune servers that are created indirectly, e.g. by a mount provider.
+ *
+ * @param executionMode How requests are dispatched to threads
+ * @param maxThreads Maximum number of threads handling connections and requests.
+ * Prefetching attributes and file content, if enabled, each use up to a quarter as many additional threads
+ * @param maxPendingRequests Maximum number of tasks waiting for a thread before new ones get rejected
+ * @param maxRequestsPerConnection Maximum number of concurrent requests per client connection or <code>0</code> for no limit.
+ * Only takes effect with {@code h2c}, as an HTTP/1.1 connection never has more than one request in flight
+ * @param maxRequestsPerContext Maximum number of concurrent requests per servlet context or <code>0</code> for no limit
+ * @param maxQueueDelay Maximum time requests may wait for a thread before the server sheds load, or {@link Duration#ZERO} to never shed load
+ * @param retryAfter Delay suggested to clients whose requests got rejected by the {@link AdmissionControl}
+ * @param maxTarpittedRequests Maximum number of requests outside of any context that get delayed concurrently, before further ones get rejected immediately
+ * @param h2c Whether to accept HTTP/2 over cleartext in addition to HTTP/1.1 (requires <code>org.eclipse.jetty.http2:http2-server</code> at runtime)
+ * @param h2cMaxConcurrentStreams Maximum number of concurrent streams per HTTP/2 connection
+ * @param h2cInitialSessionRecvWindow Initial flow control window of HTTP/2 connections in bytes
+ * @param h2cInitialStreamRecvWindow Initial flow control window of HTTP/2 streams in bytes
+ * @param unixDomainSocket Path of a Unix domain socket to listen on in addition to the TCP port or <code>null</code>
+ * (requires <code>org.eclipse.jetty:jetty-unixdomain-server</code> at runtime)
+ * @param compression Whether to gzip <code>application/xml</code> and <code>text/*</code> responses for clients accepting it
+ * @param compressionMinSize Minimum size of responses in bytes to be compressed
+ * @param compressionLevel Deflate level between <code>0</code> and <code>9</code> or <code>-1</code> for the default level
+ * @param jmxMetrics Whether to register the request metrics of each context as an MBean
+ * @param prometheusMetrics Whether to serve request metrics in the Prometheus text format at {@value org.cryptomator.frontend.webdav.metrics.PrometheusMetricsServlet#PATH}
+ * @param traceDirectory Directory to record sanitized request traces of each context to or <code>null</code> to disable tracing,
+ * see {@link org.cryptomator.frontend.webdav.trace.RequestTracing}
+ * @param attributeCacheSize Maximum number of cached file attributes and directory entries per context or <code>0</code> to disable caching,
+ * see {@link org.cryptomator.frontend.webdav.cache.AttributeCaching}
+ * @param attributeCacheTtl Time after which cached file attributes and directory listings expire
+ * @param listingParallelism Maximum number of members of a collection whose attributes are read concurrently while answering a <code>PROPFIND</code> request
+ * with <code>Depth: 1</code> or <code>1</code> to read them sequentially, see {@link org.cryptomator.frontend.webdav.servlet.AttributePrefetching}
+ * @param readAheadCacheSize Maximum number of bytes of file content cached per context for clients reading files sequentially or <code>0</code> to disable read-ahead,
+ * see {@link org.cryptomator.frontend.webdav.servlet.ReadAheadCaching}
+ * @param readAheadBlocks Number of blocks of 256 KiB prefetched ahead of sequential reads
+ * @param channelPoolSize Maximum number of files per context kept open between <code>GET</code> requests or <code>0</code> to disable pooling,
+ * see {@link org.cryptomator.frontend.webdav.servlet.ChannelPooling}
+ * @param channelPoolIdleTimeout Time after which pooled files that haven't been read get closed
+ */
+public record WebDavServerConfig(ExecutionMode executionMode, int maxThreads, int maxPendingRequests, int maxRequestsPerConnection, int maxRequestsPerContext, Duration maxQueueDelay, Duration retryAfter, int maxTarpittedRequests, //
+								 boolean h2c, int h2cMaxConcurrentStreams, int h2cInitialSessionRecvWindow, int h2cInitialStreamRecvWindow, //
+								 @Nullable Path unixDomainSocket, //
+								 boolean compression, int compressionMinSize, int compressionLevel, //
+								 boolean jmxMetrics, boolean prometheusMetrics, //
+								 @Nullable Path traceDirectory, //
+								 int attributeCacheSize, Duration attributeCacheTtl, //
+								 int listingParallelism, //
+								 long readAheadCacheSize, int readAheadBlocks, //
+								 int channelPoolSize, Duration channelPoolIdleTimeout) {
+
+	public static final String PROPERTY_EXECUTION_MODE = "org.cryptomator.frontend.webdav.executionMode";
+	public static final String PROPERTY_MAX_THREADS = "org.cryptomator.frontend.webdav.maxThreads";
+	public static final String PROPERTY_MAX_PENDING_REQUESTS = "org.cryptomator.frontend.webdav.maxPendingRequests";
+	public static final String PROPERTY_MAX_REQUESTS_PER_CONNECTION = "org.cryptomator.frontend.webdav.maxRequestsPerConnection";
+	public static final String PROPERTY_MAX_REQUESTS_PER_CONTEXT = "org.cryptomator.frontend.webdav.maxRequestsPerContext";
+	public static final String PROPERTY_MAX_QUEUE_DELAY_MILLIS = "org.cryptomator.frontend.webdav.maxQueueDelayMillis";
+	public static final String PROPERTY_RETRY_AFTER_SECONDS = "org.cryptomator.frontend.webdav.retryAfterSeconds";
+	public static final String PROPERTY_MAX_TARPITTED_REQUESTS = "org.cryptomator.frontend.webdav.maxTarpittedRequests";
+	public static final String PROPERTY_H2C = "org.cryptomator.frontend.webdav.h2c";
+	public static final String PROPERTY_H2C_MAX_CONCURRENT_STREAMS = "org.cryptomator.frontend.webdav.h2c.maxConcurrentStreams";
+	public static final String PROPERTY_H2C_INITIAL_SESSION_RECV_WINDOW = "org.cryptomator.frontend.webdav.h2c.initialSessionRecvWindow";
+	public static final String PROPERTY_H2C_INITIAL_STREAM_RECV_WINDOW = "org.cryptomator.frontend.webdav.h2c.initialStreamRecvWindow";
+	public static final String PROPERTY_UNIX_DOMAIN_SOCKET = "org.cryptomator.frontend.webdav.unixDomainSocket";
+	public static final String PROPERTY_COMPRESSION = "org.cryptomator.frontend.webdav.compression";
+	public static final String PROPERTY_COMPRESSION_MIN_SIZE = "org.cryptomator.frontend.webdav.compression.minSize";
+	public static final String PROPERTY_COMPRESSION_LEVEL = "org.cryptomator.frontend.webdav.compression.level";
+	public static final String PROPERTY_JMX_METRICS = "org.cryptomator.frontend.webdav.metrics.jmx";
+	public static final String PROPERTY_PROMETHEUS_METRICS = "org.cryptomator.frontend.webdav.metrics.prometheus";
+	public static final String PROPERTY_TRACE_DIRECTORY = "org.cryptomator.frontend.webdav.trace.directory";
+	public static final String PROPERTY_ATTRIBUTE_CACHE_SIZE = "org.cryptomator.frontend.webdav.attributeCache.size";
+	public static final String PROPERTY_ATTRIBUTE_CACHE_TTL_MILLIS = "org.cryptomator.frontend.webdav.attributeCache.ttlMillis";
+	public static final String PROPERTY_LISTING_PARALLELISM = "org.cryptomator.frontend.webdav.listingParallelism";
+	public static final String PROPERTY_READ_AHEAD_CACHE_SIZE = "org.cryptomator.frontend.webdav.readAheadCache.size";
+	public static final String PROPERTY_READ_AHEAD_BLOCKS = "org.cryptomator.frontend.webdav.readAheadCache.blocks";
+	public static final String PROPERTY_CHANNEL_POOL_SIZE = "org.cryptomator.frontend.webdav.channelPool.size";
+	public static final String PROPERTY_CHANNEL_POOL_IDLE_TIMEOUT_MILLIS = "org.cryptomator.frontend.webdav.channelPool.idleTimeoutMillis";
+
+	public WebDavServerConfig {
+		Objects.requireNonNull(executionMode);
+		Objects.requireNonNull(maxQueueDelay);
+		Objects.requireNonNull(retryAfter);
+		Objects.requireNonNull(attributeCacheTtl);
+		Objects.requireNonNull(channelPoolIdleTimeout);
+		if (maxThreads <= 0 || maxPendingRequests <= 0) {
+			throw new IllegalArgumentException("Thread pool settings must be positive");
+		}
+		if (maxRequestsPerConnection < 0 || maxRequestsPerContext < 0 || maxTarpittedRequests < 0) {
+			throw new IllegalArgumentException("Request limits must not be negative");
+		}
+		if (h2cMaxConcurrentStreams <= 0 || h2cInitialSessionRecvWindow <= 0 || h2cInitialStreamRecvWindow <= 0) {
+			throw new IllegalArgumentException("HTTP/2 settings must be positive");
+		}
+		if (compressionMinSize < 0) {
+			throw new IllegalArgumentException("Compression threshold must not be negative");
+		}
+		if (compressionLevel < Deflater.DEFAULT_COMPRESSION || compressionLevel > Deflater.BEST_COMPRESSION) {
+			throw new IllegalArgumentException("Invalid compression level " + compressionLevel);
+		}
+		if (attributeCacheSize < 0 || attributeCacheTtl.isNegative()) {
+			throw new IllegalArgumentException("Attribute cache settings must not be negative");
+		}
+		if (listingParallelism <= 0) {
+			throw new IllegalArgumentException("Listing parallelism must be positive");
+		}
+		if (readAheadCacheSize < 0 || readAheadBlocks <= 0) {
+			throw new IllegalArgumentException("Read-ahead cache size must not be negative and number of blocks must be positive");
+		}
+		if (channelPoolSize < 0 || channelPoolIdleTimeout.isNegative()) {
+			throw new IllegalArgumentException("Channel pool settings must not be negative");
+		}
+	}
+
+	/**
+	 * @return A config consisting of default values only.
+	 */
+	public static WebDavServerConfig defaults() {
+		return builder().build();
+	}
+
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	public static class Builder {
+
+		private ExecutionMode executionMode = ExecutionMode.parse(System.getProperty(PROPERTY_EXECUTION_MODE));
+		private int maxThreads = Integer.getInteger(PROPERTY_MAX_THREADS, 100);
+		private int maxPendingRequests = Integer.getInteger(PROPERTY_MAX_PENDING_REQUESTS, 400);
+		private int maxRequestsPerConnection = Integer.getInteger(PROPERTY_MAX_REQUESTS_PER_CONNECTION, 0);
+		private int maxRequestsPerContext = Integer.getInteger(PROPERTY_MAX_REQUESTS_PER_CONTEXT, 0);
+		private Duration maxQueueDelay = Duration.ofMillis(Long.getLong(PROPERTY_MAX_QUEUE_DELAY_MILLIS, 0));
+		private Duration retryAfter = Duration.ofSeconds(Long.getLong(PROPERTY_RETRY_AFTER_SECONDS, 1));
+		private int maxTarpittedRequests = Integer.getInteger(PROPERTY_MAX_TARPITTED_REQUESTS, 1000);
+		private boolean h2c = Boolean.getBoolean(PROPERTY_H2C);
+		private int h2cMaxConcurrentStreams = Integer.getInteger(PROPERTY_H2C_MAX_CONCURRENT_STREAMS, 128);
+		private int h2cInitialSessionRecvWindow = Integer.getInteger(PROPERTY_H2C_INITIAL_SESSION_RECV_WINDOW, 1024 * 1024);
+		private int h2cInitialStreamRecvWindow = Integer.getInteger(PROPERTY_H2C_INITIAL_STREAM_RECV_WINDOW, 512 * 1024);
+		private Path unixDomainSocket = Optional.ofNullable(System.getProperty(PROPERTY_UNIX_DOMAIN_SOCKET)).map(Path::of).orElse(null);
+		private boolean compression = Boolean.getBoolean(PROPERTY_COMPRESSION);
+		private int compressionMinSize = Integer.getInteger(PROPERTY_COMPRESSION_MIN_SIZE, 1024);
+		private int compressionLevel = Integer.getInteger(PROPERTY_COMPRESSION_LEVEL, Deflater.BEST_SPEED);
+		private boolean jmxMetrics = Boolean.getBoolean(PROPERTY_JMX_METRICS);
+		private boolean prometheusMetrics = Boolean.getBoolean(PROPERTY_PROMETHEUS_METRICS);
+		private Path traceDirectory = Optional.ofNullable(System.getProperty(PROPERTY_TRACE_DIRECTORY)).map(Path::of).orElse(null);
+		private int attributeCacheSize = Integer.getInteger(PROPERTY_ATTRIBUTE_CACHE_SIZE, 0);
+		private Duration attributeCacheTtl = Duration.ofMillis(Long.getLong(PROPERTY_ATTRIBUTE_CACHE_TTL_MILLIS, 2000));
+		private int listingParallelism = Integer.getInteger(PROPERTY_LISTING_PARALLELISM, 8);
+		private long readAheadCacheSize = Long.getLong(PROPERTY_READ_AHEAD_CACHE_SIZE, 0);
+		private int readAheadBlocks = Integer.getInteger(PROPERTY_READ_AHEAD_BLOCKS, 8);
+		private int channelPoolSize = Integer.getInteger(PROPERTY_CHANNEL_POOL_SIZE, 0);
+		private Duration channelPoolIdleTimeout = Duration.ofMillis(Long.getLong(PROPERTY_CHANNEL_POOL_IDLE_TIMEOUT_MILLIS, 5000));
+
+		private Builder() {
+		}
+
+		public Builder setExecutionMode(ExecutionMode executionMode) {
+			this.executionMode = Objects.requireNonNull(executionMode);
+			return this;
+		}
+
+		public Builder setMaxThreads(int maxThreads) {
+			this.maxThreads = maxThreads;
+			return this;
+		}
+
+		public Builder setMaxPendingRequests(int maxPendingRequests) {
+			this.maxPendingRequests = maxPendingRequests;
+			return this;
+		}
+
+		public Builder setMaxRequestsPerConnection(int maxRequestsPerConnection) {
+			this.maxRequestsPerConnection = maxRequestsPerConnection;
+			return this;
+		}
+
+		public Builder setMaxRequestsPerContext(int maxRequestsPerContext) {
+			this.maxRequestsPerContext = maxRequestsPerContext;
+			return this;
+		}
+
+		public Builder setMaxQueueDelay(Duration maxQueueDelay) {
+			this.maxQueueDelay = Objects.requireNonNull(maxQueueDelay);
+			return this;
+		}
+
+		public Builder setRetryAfter(Duration retryAfter) {
+			this.retryAfter = Objects.requireNonNull(retryAfter);
+			return this;
+		}
+
+		public Builder setMaxTarpittedRequests(int maxTarpittedRequests) {
+			this.maxTarpittedRequests = maxTarpittedRequests;
+			return this;
+		}
+
+		public Builder setH2c(boolean h2c) {
+			this.h2c = h2c;
+			return this;
+		}
+
+		public Builder setH2cMaxConcurrentStreams(int h2cMaxConcurrentStreams) {
+			this.h2cMaxConcurrentStreams = h2cMaxConcurrentStreams;
+			return this;
+		}
+
+		public Builder setH2cInitialSessionRecvWindow(int h2cInitialSessionRecvWindow) {
+			this.h2cInitialSessionRecvWindow = h2cInitialSessionRecvWindow;
+			return this;
+		}
+
+		public Builder setH2cInitialStreamRecvWindow(int h2cInitialStreamRecvWindow) {
+			this.h2cInitialStreamRecvWindow = h2cInitialStreamRecvWindow;
+			return this;
+		}
+
+		public Builder setUnixDomainSocket(@Nullable Path unixDomainSocket) {
+			this.unixDomainSocket = unixDomainSocket;
+			return this;
+		}
+
+		public Builder setCompression(boolean compression) {
+			this.compression = compression;
+			return this;
+		}
+
+		public Builder setCompressionMinSize(int compressionMinSize) {
+			this.compressionMinSize = compressionMinSize;
+			return this;
+		}
+
+		public Builder setCompressionLevel(int compressionLevel) {
+			this.compressionLevel = compressionLevel;
+			return this;
+		}
+
+		public Builder setJmxMetrics(boolean jmxMetrics) {
+			this.jmxMetrics = jmxMetrics;
+			return this;
+		}
+
+		public Builder setPrometheusMetrics(boolean prometheusMetrics) {
+			this.prometheusMetrics = prometheusMetrics;
+			return this;
+		}
+
+		public Builder setTraceDirectory(@Nullable Path traceDirectory) {
+			this.traceDirectory = traceDirectory;
+			return this;
+		}
+
+		public Builder setAttributeCacheSize(int attributeCacheSize) {
+			this.attributeCacheSize = attributeCacheSize;
+			return this;
+		}
+
+		public Builder setAttributeCacheTtl(Duration attributeCacheTtl) {
+			this.attributeCacheTtl = Objects.requireNonNull(attributeCacheTtl);
+			return this;
+		}
+
+		public Builder setListingParallelism(int listingParallelism) {
+			this.listingParallelism = listingParallelism;
+			return this;
+		}
+
+		public Builder setReadAheadCacheSize(long readAheadCacheSize) {
+			this.readAheadCacheSize = readAheadCacheSize;
+			return this;
+		}
+
+		public Builder setReadAheadBlocks(int readAheadBlocks) {
+			this.readAheadBlocks = readAheadBlocks;
+			return this;
+		}
+
+		public Builder setChannelPoolSize(int channelPoolSize) {
+			this.channelPoolSize = channelPoolSize;
+			return this;
+		}
+
+		public Builder setChannelPoolIdleTimeout(Duration channelPoolIdleTimeout) {
+			this.channelPoolIdleTimeout = Objects.requireNonNull(channelPoolIdleTimeout);
+			return this;
+		}
+
+		public WebDavServerConfig build() {
+			return new WebDavServerConfig(executionMode, maxThreads, maxPendingRequests, maxRequestsPerConnection, maxRequestsPerContext, maxQueueDelay, retryAfter, maxTarpittedRequests, //
+					h2c, h2cMaxConcurrentStreams, h2cInitialSessionRecvWindow, h2cInitialStreamRecvWindow, //
+					unixDomainSocket, //
+					compression, compressionMinSize, compressionLevel, //
+					jmxMetrics, prometheusMetrics, //
+					traceDirectory, //
+					attributeCacheSize, attributeCacheTtl, //
+					listingParallelism, //
+					readAheadCacheSize, readAheadBlocks, //
+					channelPoolSize, channelPoolIdleTimeout);
+		}
+
+	}
+
+}
@@ -8,15 +8,26 @@
  *******************************************************************************/
 package org.cryptomator.frontend.webdav;
 
+import org.cryptomator.frontend.webdav.metrics.PrometheusMetricsServlet;
+import org.cryptomator.frontend.webdav.metrics.RequestMetrics;
+import org.cryptomator.frontend.webdav.servlet.Locking;
 import org.eclipse.jetty.http.UriCompliance;
 import org.eclipse.jetty.server.*;
 import org.eclipse.jetty.server.handler.ContextHandlerCollection;
 import org.eclipse.jetty.servlet.ServletContextHandler;
 import org.eclipse.jetty.servlet.ServletHolder;
+import org.eclipse.jetty.util.VirtualThreads;
 import org.eclipse.jetty.util.thread.ExecutorThreadPool;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.net.InetSocketAddress;
+import java.net.UnixDomainSocketAddress;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
@@ -25,25 +36,38 @@ import java.util.concurrent.atomic.AtomicInteger;
 
 class WebDavServerFactory {
 
-	private static final int MAX_PENDING_REQUESTS = 400;
-	private static final int MAX_THREADS = 100;
+	private static final Logger LOG = LoggerFactory.getLogger(WebDavServerFactory.class);
 	private static final int THREAD_IDLE_SECONDS = 60;
 	private static final String ROOT_PATH = "/";
 	private static final AtomicInteger THREAD_NUM = new AtomicInteger();
 
 	private WebDavServerFactory(){}
 
-	private static ThreadPoolExecutor createThreadPoolExecutor() {
-		// set core pool size = MAX_THREADS and allow coreThreadTimeOut to enforce spawning threads till the maximum even if the queue is not full
-		BlockingQueue<Runnable> queue = new LinkedBlockingQueue<>(MAX_PENDING_REQUESTS);
-		ThreadPoolExecutor executor = new ThreadPoolExecutor(MAX_THREADS, MAX_THREADS, THREAD_IDLE_SECONDS, TimeUnit.SECONDS, queue);
+	private static ThreadPoolExecutor createThreadPoolExecutor(WebDavServerConfig config, AdmissionControl admissionControl) {
+		// set core pool size = maxThreads and allow coreThreadTimeOut to enforce spawning threads till the maximum even if the queue is not full
+		BlockingQueue<Runnable> queue = new LinkedBlockingQueue<>(config.maxPendingRequests());
+		ThreadPoolExecutor executor;
+		if (config.maxQueueDelay().toNanos() <= 0) {
+			executor = new ThreadPoolExecutor(config.maxThreads(), config.maxThreads(), THREAD_IDLE_SECONDS, TimeUnit.SECONDS, queue);
+		} else {
+			// only measure queue delays if needed to shed load, as doing so wraps each task
+			executor = new QueueDelayRecordingExecutor(config.maxThreads(), config.maxThreads(), THREAD_IDLE_SECONDS, TimeUnit.SECONDS, queue, admissionControl::recordQueueDelay);
+		}
 		executor.allowCoreThreadTimeOut(true);
 		return executor;
 	}
 
-	private static ExecutorThreadPool createThreadPool(ThreadPoolExecutor executorService) {
+	private static ExecutorThreadPool createThreadPool(ThreadPoolExecutor executorService, ExecutionMode executionMode) {
 		ExecutorThreadPool threadPool = new ExecutorThreadPool(executorService);
 		executorService.setThreadFactory(WebDavServerFactory::createServerThread);
+		if (executionMode == ExecutionMode.VIRTUAL_THREADS) {
+			// jetty keeps selecting on the pool's platform threads but invokes the (blocking) servlets on virtual threads
+			if (VirtualThreads.areSupported()) {
+				threadPool.setVirtualThreadsExecutor(VirtualThreads.getDefaultVirtualThreadsExecutor());
+			} else {
+				LOG.warn("Virtual threads not supported by Java {}. Falling back to platform threads.", System.getProperty("java.version"));
+			}
+		}
 		try {
 			threadPool.start();
 			return threadPool;
@@ -59,23 +83,37 @@ class WebDavServerFactory {
 	}
 
 
-	private static Server createServer(ExecutorThreadPool threadPool, ContextHandlerCollection servletCollection) {
+	private static Server createServer(ExecutorThreadPool threadPool, ContextHandlerCollection servletCollection, ResponseCompression responseCompression) {
 		if (!threadPool.isStarted()) {
 			// otherwise addBean() will make the threadpool managed, i.e. it will be shut down when the server is stopped
 			throw new IllegalStateException();
 		}
 		Server server = new Server(threadPool);
+		responseCompression.registerWith(server);
 		server.setHandler(servletCollection);
 		return server;
 	}
 
-	private static ServerConnector createServerConnector(Server server, InetSocketAddress bindAddr) {
+	private static HttpConfiguration createHttpConfiguration() {
 		HttpConfiguration config = new HttpConfiguration();
 		config.setUriCompliance(UriCompliance.from("0,AMBIGUOUS_PATH_SEPARATOR,AMBIGUOUS_PATH_ENCODING"));
-		ServerConnector connector = new ServerConnector(server, new HttpConnectionFactory(config));
+		return config;
+	}
+
+	private static ConnectionFactory[] createConnectionFactories(WebDavServerConfig serverConfig) {
+		HttpConfiguration config = createHttpConfiguration();
+		List<ConnectionFactory> connectionFactories = new ArrayList<>();
+		connectionFactories.add(new HttpConnectionFactory(config));
+		if (serverConfig.h2c()) {
+			H2cConnectionFactories.create(config, serverConfig).ifPresent(connectionFactories::add);
+		}
+		return connectionFactories.toArray(ConnectionFactory[]::new);
+	}
+
+	private static ServerConnector createServerConnector(Server server, InetSocketAddress bindAddr, WebDavServerConfig serverConfig) {
+		ServerConnector connector = new ServerConnector(server, createConnectionFactories(serverConfig));
 		connector.setHost(bindAddr.getHostString());
 		connector.setPort(bindAddr.getPort());
-		server.setConnectors(new Connector[]{connector});
 		return connector;
 	}
 
@@ -85,23 +123,51 @@ class WebDavServerFactory {
 		return collection;
 	}
 
-	private static ServletContextHandler createDefaultServletContext(DefaultServlet servlet) {
+	private static ServletContextHandler createDefaultServletContext(DefaultServlet servlet, AdmissionControl admissionControl, Tarpit tarpit, RequestMetrics requestMetrics, Locking locking, boolean prometheusMetrics) {
 		final ServletContextHandler servletContext = new ServletContextHandler(null, ROOT_PATH, ServletContextHandler.NO_SESSIONS);
 		final ServletHolder servletHolder = new ServletHolder(ROOT_PATH, servlet);
+		servletHolder.setAsyncSupported(true); // required by the tarpit
 		servletContext.addServlet(servletHolder, ROOT_PATH);
+		if (prometheusMetrics) {
+			var metricsServlet = new PrometheusMetricsServlet(requestMetrics, admissionControl, tarpit, locking);
+			servletContext.addServlet(new ServletHolder(PrometheusMetricsServlet.PATH, metricsServlet), PrometheusMetricsServlet.PATH);
+		}
+		servletContext.insertHandler(requestMetrics.newContextHandler(ROOT_PATH));
+		servletContext.insertHandler(admissionControl.newContextHandler());
 		return servletContext;
 	}
 
-	public static WebDavServer createWebDavServer(InetSocketAddress bindAddr) {
+	public static WebDavServer createWebDavServer(InetSocketAddress bindAddr, WebDavServerConfig config) {
+		return createWebDavServer(bindAddr, config.unixDomainSocket(), config);
+	}
+
+	public static WebDavServer createWebDavServer(UnixDomainSocketAddress bindAddr, WebDavServerConfig config) {
+		return createWebDavServer(null, bindAddr.getPath(), config);
+	}
+
+	private static WebDavServer createWebDavServer(@Nullable InetSocketAddress bindAddr, @Nullable Path socketPath, WebDavServerConfig config) {
 		var contextPaths = new HashSet<String>();
-		var executorService = createThreadPoolExecutor();
-		var threadPool = createThreadPool(executorService);
-		var defaultServlet = new DefaultServlet(contextPaths);
-		var defaultServletCtx = createDefaultServletContext(defaultServlet);
+		var components = ServerComponents.create(config);
+		var tarpit = new Tarpit(config);
+		var executorService = createThreadPoolExecutor(config, components.admissionControl());
+		var threadPool = createThreadPool(executorService, config.executionMode());
+		var defaultServlet = new DefaultServlet(contextPaths, tarpit);
+		var defaultServletCtx = createDefaultServletContext(defaultServlet, components.admissionControl(), tarpit, components.requestMetrics(), components.locking(), config.prometheusMetrics());
 		var servletCollectionCtx = createContextHandlerCollection(defaultServletCtx);
-		var server = createServer(threadPool, servletCollectionCtx);
-		var serverConnector = createServerConnector(server, bindAddr);
-		return new WebDavServer(server, executorService, serverConnector, servletCollectionCtx, defaultServlet);
+		var server = createServer(threadPool, servletCollectionCtx, components.responseCompression());
+		var connectors = new ArrayList<Connector>();
+		var endpoints = new ArrayList<ServerEndpoint>();
+		if (bindAddr != null) {
+			var serverConnector = createServerConnector(server, bindAddr, config);
+			connectors.add(serverConnector);
+			endpoints.add(ServerEndpoint.of(serverConnector));
+		}
+		if (socketPath != null) {
+			connectors.add(UnixDomainSocketConnectors.create(server, socketPath, createConnectionFactories(config)));
+			endpoints.add(UnixDomainSocketConnectors.endpoint(socketPath));
+		}
+		server.setConnectors(connectors.toArray(Connector[]::new));
+		return new WebDavServer(server, executorService, endpoints, servletCollectionCtx, defaultServlet, tarpit, components);
 	}
 
 }
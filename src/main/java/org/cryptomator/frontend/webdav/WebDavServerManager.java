@@ -3,23 +3,53 @@ package org.cryptomator.frontend.webdav;
 import java.io.IOException;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.UnixDomainSocketAddress;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
 public class WebDavServerManager {
 
-	private static final ConcurrentMap<Integer, ReferenceCountingHandle> RUNNING_SERVERS = new ConcurrentHashMap<>();
+	private static final ConcurrentMap<SocketAddress, ReferenceCountingHandle> RUNNING_SERVERS = new ConcurrentHashMap<>();
 
 	private WebDavServerManager() {
 	}
 
 	public static WebDavServerHandle getOrCreateServer(int port) throws ServerLifecycleException {
-		return RUNNING_SERVERS.compute(port, (p, handle) -> {
+		return getOrCreateServer(port, WebDavServerConfig.defaults());
+	}
+
+	/**
+	 * Gets the server running on the given port or creates a new one.
+	 *
+	 * @param port The loopback port to bind to
+	 * @param config The config used if a new server needs to be created. Ignored, if a server is already running on the given port.
+	 * @return A handle to the server, which needs to be closed when no longer needed
+	 * @throws ServerLifecycleException If a new server could not be started
+	 */
+	public static WebDavServerHandle getOrCreateServer(int port, WebDavServerConfig config) throws ServerLifecycleException {
+		return getOrCreateServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), config);
+	}
+
+	/**
+	 * Gets the server listening on the given Unix domain socket or creates a new one, which is not bound to any TCP port.
+	 *
+	 * @param socket The Unix domain socket to bind to
+	 * @param config The config used if a new server needs to be created. Ignored, if a server is already listening on the given socket.
+	 * @return A handle to the server, which needs to be closed when no longer needed
+	 * @throws ServerLifecycleException If a new server could not be started
+	 */
+	public static WebDavServerHandle getOrCreateServer(UnixDomainSocketAddress socket, WebDavServerConfig config) throws ServerLifecycleException {
+		return getOrCreateServer((SocketAddress) socket, config);
+	}
+
+	private static WebDavServerHandle getOrCreateServer(SocketAddress bindAddr, WebDavServerConfig config) throws ServerLifecycleException {
+		return RUNNING_SERVERS.compute(bindAddr, (addr, handle) -> {
 			if (handle == null || handle.counter.getAndIncrement() == 0) {
 				// if counter was 0 -> a concurrent thread is about to terminate it.
-				var server = tryCreate(p);
-				return new ReferenceCountingHandle(port, server, new AtomicInteger(1));
+				var server = tryCreate(addr, config);
+				return new ReferenceCountingHandle(addr, server, new AtomicInteger(1));
 			} else {
 				// handle exists. we increased the counter already.
 				return handle;
@@ -27,19 +57,25 @@ public class WebDavServerManager {
 		});
 	}
 
-	private static WebDavServer tryCreate(int port) throws ServerLifecycleException {
-		var bindAddr = new InetSocketAddress(InetAddress.getLoopbackAddress(), port);
-		var server = WebDavServerFactory.createWebDavServer(bindAddr);
+	private static WebDavServer tryCreate(SocketAddress bindAddr, WebDavServerConfig config) throws ServerLifecycleException {
+		WebDavServer server;
+		if (bindAddr instanceof InetSocketAddress inetAddr) {
+			server = WebDavServerFactory.createWebDavServer(inetAddr, config);
+		} else if (bindAddr instanceof UnixDomainSocketAddress socketAddr) {
+			server = WebDavServerFactory.createWebDavServer(socketAddr, config);
+		} else {
+			throw new IllegalArgumentException("Unsupported address type: " + bindAddr);
+		}
 		server.start();
 		return server;
 	}
 
-	private record ReferenceCountingHandle(int port, WebDavServer server, AtomicInteger counter) implements WebDavServerHandle {
+	private record ReferenceCountingHandle(SocketAddress bindAddr, WebDavServer server, AtomicInteger counter) implements WebDavServerHandle {
 
 		@Override
 		public void close() throws IOException {
 			if (counter.decrementAndGet() == 0) {
-				RUNNING_SERVERS.remove(port, this);
+				RUNNING_SERVERS.remove(bindAddr, this);
 				try {
 					server.terminate();
 				} catch (ServerLifecycleException e) {
@@ -0,0 +1,149 @@
+package org.cryptomator.frontend.webdav.cache;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Size- and time-bounded LRU cache of file attributes and directory listings, keyed by the path of the cached file system.
+ * <p>
+ * Each attribute entry counts as one towards the maximum size, each listing as one plus the number of its children.
+ * Results of file system operations that have been started before an invalidation are not cached,
+ * so readers racing with a modification never put stale values into the cache.
+ */
+final class AttributeCache {
+
+	private final int maxSize;
+	private final long ttlNanos;
+	private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+	private int size;
+	private long generation;
+
+	AttributeCache(int maxSize, Duration ttl) {
+		this.maxSize = maxSize;
+		this.ttlNanos = ttl.toNanos();
+	}
+
+	/**
+	 * @return Maximum number of children of a listing to be cached
+	 */
+	int maxListingSize() {
+		return maxSize - 1;
+	}
+
+	/**
+	 * @return A token to be passed to the <code>put</code> methods, identifying the state of the cache before a file system operation started
+	 */
+	synchronized long generation() {
+		return generation;
+	}
+
+	/**
+	 * @param path A path of the underlying file system
+	 * @param followLinks Whether the attributes of a symbolic link's target or of the link itself are requested
+	 * @return <code>null</code> if not cached, an empty optional if the file is known not to exist, or its attributes otherwise
+	 */
+	@Nullable
+	@SuppressWarnings("unchecked")
+	synchronized Optional<BasicFileAttributes> getAttributes(Path path, boolean followLinks) {
+		return (Optional<BasicFileAttributes>) get(new Key(path, followLinks ? Kind.ATTRIBUTES : Kind.LINK_ATTRIBUTES));
+	}
+
+	synchronized void putAttributes(Path path, boolean followLinks, Optional<BasicFileAttributes> attributes, long generation) {
+		put(new Key(path, followLinks ? Kind.ATTRIBUTES : Kind.LINK_ATTRIBUTES), attributes, 1, generation);
+	}
+
+	/**
+	 * @param dir A path of the underlying file system
+	 * @return The children of the given directory or <code>null</code> if not cached
+	 */
+	@Nullable
+	@SuppressWarnings("unchecked")
+	synchronized List<Path> getListing(Path dir) {
+		return (List<Path>) get(new Key(dir, Kind.LISTING));
+	}
+
+	synchronized void putListing(Path dir, List<Path> children, long generation) {
+		put(new Key(dir, Kind.LISTING), children, 1 + children.size(), generation);
+	}
+
+	/**
+	 * Evicts the attributes and the listing of the given path.
+	 *
+	 * @param path A path of the underlying file system
+	 */
+	synchronized void invalidate(Path path) {
+		generation++;
+		for (var kind : Kind.values()) {
+			remove(new Key(path, kind));
+		}
+	}
+
+	/**
+	 * Evicts the attributes and listings of the given path and all of its descendants.
+	 *
+	 * @param path A path of the underlying file system
+	 */
+	synchronized void invalidateTree(Path path) {
+		generation++;
+		Iterator<Map.Entry<Key, Entry>> iterator = entries.entrySet().iterator();
+		while (iterator.hasNext()) {
+			var entry = iterator.next();
+			if (entry.getKey().path.startsWith(path)) {
+				size -= entry.getValue().size;
+				iterator.remove();
+			}
+		}
+	}
+
+	private Object get(Key key) {
+		var entry = entries.get(key);
+		if (entry == null) {
+			return null;
+		} else if (System.nanoTime() - entry.expiresAt >= 0) {
+			remove(key);
+			return null;
+		} else {
+			return entry.value;
+		}
+	}
+
+	private void put(Key key, Object value, int entrySize, long generation) {
+		if (generation != this.generation || entrySize > maxSize) {
+			return;
+		}
+		remove(key);
+		entries.put(key, new Entry(value, entrySize, System.nanoTime() + ttlNanos));
+		size += entrySize;
+		Iterator<Entry> eldest = entries.values().iterator();
+		while (size > maxSize) {
+			size -= eldest.next().size;
+			eldest.remove();
+		}
+	}
+
+	private void remove(Key key) {
+		var removed = entries.remove(key);
+		if (removed != null) {
+			size -= removed.size;
+		}
+	}
+
+	private enum Kind {
+		ATTRIBUTES, LINK_ATTRIBUTES, LISTING
+	}
+
+	private record Key(Path path, Kind kind) {
+	}
+
+	private record Entry(Object value, int size, long expiresAt) {
+	}
+
+}
@@ -0,0 +1,40 @@
+package org.cryptomator.frontend.webdav.cache;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Optionally caches file attributes and directory listings of each context, so repeated <code>PROPFIND</code>s and precondition checks don't hit slow storage.
+ * <p>
+ * Each context gets its own cache, bounded by the configured number of entries and TTL, evicting the least recently used entries first.
+ * Every modification made via WebDAV (<code>PUT</code>, <code>DELETE</code>, <code>MOVE</code>, <code>COPY</code>, <code>MKCOL</code>, <code>PROPPATCH</code>, ...)
+ * immediately evicts the affected entries, while modifications made by other means become visible after the TTL at the latest.
+ */
+public class AttributeCaching {
+
+	private final int maxEntries;
+	private final Duration ttl;
+
+	/**
+	 * @param maxEntries Maximum number of entries per context, counting each child of a cached listing as one entry, or <code>0</code> to disable caching
+	 * @param ttl Time after which cached entries expire
+	 */
+	public AttributeCaching(int maxEntries, Duration ttl) {
+		this.maxEntries = maxEntries;
+		this.ttl = ttl;
+	}
+
+	/**
+	 * @param rootPath The directory served by a single context
+	 * @return The same path residing in a file system with a new cache or the given path, if caching is disabled
+	 */
+	public Path wrap(Path rootPath) {
+		if (maxEntries <= 0 || ttl.isZero() || ttl.isNegative()) {
+			return rootPath;
+		} else {
+			var fileSystem = new AttributeCachingFileSystem(rootPath.getFileSystem(), new AttributeCache(maxEntries, ttl));
+			return fileSystem.wrap(rootPath);
+		}
+	}
+
+}
@@ -0,0 +1,102 @@
+package org.cryptomator.frontend.webdav.cache;
+
+import java.nio.file.FileStore;
+import java.nio.file.FileSystem;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.UserPrincipalLookupService;
+import java.util.Set;
+import java.util.stream.StreamSupport;
+
+/**
+ * Wraps the file system of a served directory, answering repeated reads of {@link java.nio.file.attribute.BasicFileAttributes} and directory listings from an {@link AttributeCache}.
+ * <p>
+ * Every modification made through this file system evicts the affected entries. Modifications made by other means only become visible after the cache's TTL.
+ */
+class AttributeCachingFileSystem extends FileSystem {
+
+	private final AttributeCachingFileSystemProvider provider;
+	private final FileSystem delegate;
+	private final AttributeCache cache;
+
+	AttributeCachingFileSystem(FileSystem delegate, AttributeCache cache) {
+		this.provider = new AttributeCachingFileSystemProvider(this);
+		this.delegate = delegate;
+		this.cache = cache;
+	}
+
+	AttributeCachingPath wrap(Path delegatePath) {
+		return delegatePath == null ? null : new AttributeCachingPath(this, delegatePath);
+	}
+
+	FileSystem delegate() {
+		return delegate;
+	}
+
+	AttributeCache cache() {
+		return cache;
+	}
+
+	@Override
+	public AttributeCachingFileSystemProvider provider() {
+		return provider;
+	}
+
+	@Override
+	public void close() {
+		// the wrapped file system stays open
+	}
+
+	@Override
+	public boolean isOpen() {
+		return delegate.isOpen();
+	}
+
+	@Override
+	public boolean isReadOnly() {
+		return delegate.isReadOnly();
+	}
+
+	@Override
+	public String getSeparator() {
+		return delegate.getSeparator();
+	}
+
+	@Override
+	public Iterable<Path> getRootDirectories() {
+		return StreamSupport.stream(delegate.getRootDirectories().spliterator(), false).<Path>map(this::wrap).toList();
+	}
+
+	@Override
+	public Iterable<FileStore> getFileStores() {
+		return delegate.getFileStores();
+	}
+
+	@Override
+	public Set<String> supportedFileAttributeViews() {
+		return delegate.supportedFileAttributeViews();
+	}
+
+	@Override
+	public Path getPath(String first, String... more) {
+		return wrap(delegate.getPath(first, more));
+	}
+
+	@Override
+	public PathMatcher getPathMatcher(String syntaxAndPattern) {
+		var matcher = delegate.getPathMatcher(syntaxAndPattern);
+		return path -> matcher.matches(AttributeCachingPath.unwrap(path));
+	}
+
+	@Override
+	public UserPrincipalLookupService getUserPrincipalLookupService() {
+		return delegate.getUserPrincipalLookupService();
+	}
+
+	@Override
+	public WatchService newWatchService() {
+		throw new UnsupportedOperationException();
+	}
+
+}
@@ -0,0 +1,553 @@
+package org.cryptomator.frontend.webdav.cache;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.AccessMode;
+import java.nio.file.CopyOption;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileStore;
+import java.nio.file.FileSystem;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributeView;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.FileAttributeView;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.spi.FileSystemProvider;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Provider of a single {@link AttributeCachingFileSystem}. Not installed, as instances are created via {@link AttributeCaching#wrap(Path)}.
+ * <p>
+ * Reads of {@link BasicFileAttributes} and directory listings are cached, everything else is delegated.
+ * Operations modifying a file evict its entries as well as the ones of its parent, whose listing and modification time may have changed.
+ */
+class AttributeCachingFileSystemProvider extends FileSystemProvider {
+
+	private final AttributeCachingFileSystem fileSystem;
+
+	AttributeCachingFileSystemProvider(AttributeCachingFileSystem fileSystem) {
+		this.fileSystem = fileSystem;
+	}
+
+	private FileSystemProvider delegate() {
+		return fileSystem.delegate().provider();
+	}
+
+	private AttributeCache cache() {
+		return fileSystem.cache();
+	}
+
+	@Override
+	public String getScheme() {
+		return delegate().getScheme();
+	}
+
+	@Override
+	public FileSystem newFileSystem(URI uri, Map<String, ?> env) {
+		throw new UnsupportedOperationException("Use AttributeCaching.wrap()");
+	}
+
+	@Override
+	public FileSystem getFileSystem(URI uri) {
+		throw new UnsupportedOperationException("Use AttributeCaching.wrap()");
+	}
+
+	@Override
+	public Path getPath(URI uri) {
+		throw new UnsupportedOperationException("Use AttributeCaching.wrap()");
+	}
+
+	@Override
+	public SeekableByteChannel newByteChannel(Path path, Set<? extends OpenOption> options, FileAttribute<?>... attrs) throws IOException {
+		var delegatePath = AttributeCachingPath.unwrap(path);
+		if (!isModifying(options)) {
+			return delegate().newByteChannel(delegatePath, options, attrs);
+		}
+		try {
+			return new InvalidatingChannel(delegatePath, delegate().newByteChannel(delegatePath, options, attrs));
+		} finally {
+			invalidateFileAndParent(delegatePath);
+		}
+	}
+
+	@Override
+	public FileChannel newFileChannel(Path path, Set<? extends OpenOption> options, FileAttribute<?>... attrs) throws IOException {
+		var delegatePath = AttributeCachingPath.unwrap(path);
+		if (!isModifying(options)) {
+			return delegate().newFileChannel(delegatePath, options, attrs);
+		}
+		try {
+			return new InvalidatingFileChannel(delegatePath, delegate().newFileChannel(delegatePath, options, attrs));
+		} finally {
+			invalidateFileAndParent(delegatePath);
+		}
+	}
+
+	private static boolean isModifying(Set<? extends OpenOption> options) {
+		return options.contains(StandardOpenOption.WRITE) || options.contains(StandardOpenOption.APPEND) || options.contains(StandardOpenOption.DELETE_ON_CLOSE);
+	}
+
+	@Override
+	public DirectoryStream<Path> newDirectoryStream(Path dir, DirectoryStream.Filter<? super Path> filter) throws IOException {
+		var delegateDir = AttributeCachingPath.unwrap(dir);
+		var cached = cache().getListing(delegateDir);
+		if (cached != null) {
+			return new FilteredDirectoryStream(cached.iterator(), () -> {}, filter);
+		}
+		long generation = cache().generation();
+		var stream = delegate().newDirectoryStream(delegateDir, entry -> true);
+		var collectingIterator = new CollectingIterator(stream.iterator(), children -> cache().putListing(delegateDir, children, generation));
+		return new FilteredDirectoryStream(collectingIterator, stream::close, filter);
+	}
+
+	@Override
+	public void createDirectory(Path dir, FileAttribute<?>... attrs) throws IOException {
+		var delegateDir = AttributeCachingPath.unwrap(dir);
+		try {
+			delegate().createDirectory(delegateDir, attrs);
+		} finally {
+			invalidateFileAndParent(delegateDir);
+		}
+	}
+
+	@Override
+	public void delete(Path path) throws IOException {
+		var delegatePath = AttributeCachingPath.unwrap(path);
+		try {
+			delegate().delete(delegatePath);
+		} finally {
+			invalidateTreeAndParent(delegatePath);
+		}
+	}
+
+	@Override
+	public void copy(Path source, Path target, CopyOption... options) throws IOException {
+		var delegateTarget = AttributeCachingPath.unwrap(target);
+		try {
+			delegate().copy(AttributeCachingPath.unwrap(source), delegateTarget, options);
+		} finally {
+			invalidateTreeAndParent(delegateTarget);
+		}
+	}
+
+	@Override
+	public void move(Path source, Path target, CopyOption... options) throws IOException {
+		var delegateSource = AttributeCachingPath.unwrap(source);
+		var delegateTarget = AttributeCachingPath.unwrap(target);
+		try {
+			delegate().move(delegateSource, delegateTarget, options);
+		} finally {
+			invalidateTreeAndParent(delegateSource);
+			invalidateTreeAndParent(delegateTarget);
+		}
+	}
+
+	@Override
+	public boolean isSameFile(Path path, Path path2) throws IOException {
+		return delegate().isSameFile(AttributeCachingPath.unwrap(path), AttributeCachingPath.unwrap(path2));
+	}
+
+	@Override
+	public boolean isHidden(Path path) throws IOException {
+		return delegate().isHidden(AttributeCachingPath.unwrap(path));
+	}
+
+	@Override
+	public FileStore getFileStore(Path path) throws IOException {
+		return delegate().getFileStore(AttributeCachingPath.unwrap(path));
+	}
+
+	@Override
+	public void checkAccess(Path path, AccessMode... modes) throws IOException {
+		delegate().checkAccess(AttributeCachingPath.unwrap(path), modes);
+	}
+
+	@Override
+	public <V extends FileAttributeView> V getFileAttributeView(Path path, Class<V> type, LinkOption... options) {
+		var delegatePath = AttributeCachingPath.unwrap(path);
+		var view = delegate().getFileAttributeView(delegatePath, type, options);
+		if (view != null && type == BasicFileAttributeView.class) {
+			return type.cast(new InvalidatingAttributeView(delegatePath, (BasicFileAttributeView) view));
+		} else {
+			return view;
+		}
+	}
+
+	@Override
+	public <A extends BasicFileAttributes> A readAttributes(Path path, Class<A> type, LinkOption... options) throws IOException {
+		var delegatePath = AttributeCachingPath.unwrap(path);
+		boolean followLinks = options.length == 0;
+		boolean noFollowLinks = options.length == 1 && options[0] == LinkOption.NOFOLLOW_LINKS;
+		if (type != BasicFileAttributes.class || !(followLinks || noFollowLinks)) {
+			return delegate().readAttributes(delegatePath, type, options);
+		}
+		var cached = cache().getAttributes(delegatePath, followLinks);
+		if (cached == null) {
+			long generation = cache().generation();
+			try {
+				cached = Optional.of(delegate().readAttributes(delegatePath, BasicFileAttributes.class, options));
+			} catch (NoSuchFileException e) {
+				cached = Optional.empty();
+			}
+			cache().putAttributes(delegatePath, followLinks, cached, generation);
+		}
+		return type.cast(cached.orElseThrow(() -> new NoSuchFileException(path.toString())));
+	}
+
+	@Override
+	public Map<String, Object> readAttributes(Path path, String attributes, LinkOption... options) throws IOException {
+		return delegate().readAttributes(AttributeCachingPath.unwrap(path), attributes, options);
+	}
+
+	@Override
+	public void setAttribute(Path path, String attribute, Object value, LinkOption... options) throws IOException {
+		var delegatePath = AttributeCachingPath.unwrap(path);
+		try {
+			delegate().setAttribute(delegatePath, attribute, value, options);
+		} finally {
+			cache().invalidate(delegatePath);
+		}
+	}
+
+	private void invalidateFileAndParent(Path delegatePath) {
+		cache().invalidate(delegatePath);
+		if (delegatePath.getParent() != null) {
+			cache().invalidate(delegatePath.getParent());
+		}
+	}
+
+	private void invalidateTreeAndParent(Path delegatePath) {
+		cache().invalidateTree(delegatePath);
+		if (delegatePath.getParent() != null) {
+			cache().invalidate(delegatePath.getParent());
+		}
+	}
+
+	/**
+	 * Iterates over the children of a directory, passing them to a callback after the last one has been read, unless they are too many to be cached.
+	 */
+	private class CollectingIterator implements Iterator<Path> {
+
+		private final Iterator<Path> delegate;
+		private final ListingCallback onComplete;
+		private List<Path> collected = new ArrayList<>();
+
+		CollectingIterator(Iterator<Path> delegate, ListingCallback onComplete) {
+			this.delegate = delegate;
+			this.onComplete = onComplete;
+		}
+
+		@Override
+		public boolean hasNext() {
+			boolean hasNext = delegate.hasNext();
+			if (!hasNext && collected != null) {
+				onComplete.accept(List.copyOf(collected));
+				collected = null;
+			}
+			return hasNext;
+		}
+
+		@Override
+		public Path next() {
+			var next = delegate.next();
+			if (collected != null) {
+				collected.add(next);
+				if (collected.size() > cache().maxListingSize()) {
+					collected = null;
+				}
+			}
+			return next;
+		}
+
+	}
+
+	@FunctionalInterface
+	private interface ListingCallback {
+		void accept(List<Path> children);
+	}
+
+	@FunctionalInterface
+	private interface CloseAction {
+		void close() throws IOException;
+	}
+
+	/**
+	 * Wraps the children of a directory, which have been read from either the wrapped file system or the cache, applying the given filter.
+	 */
+	private class FilteredDirectoryStream implements DirectoryStream<Path> {
+
+		private final Iterator<Path> children;
+		private final CloseAction closeAction;
+		private final Filter<? super Path> filter;
+		private boolean iteratorReturned;
+
+		FilteredDirectoryStream(Iterator<Path> children, CloseAction closeAction, Filter<? super Path> filter) {
+			this.children = children;
+			this.closeAction = closeAction;
+			this.filter = filter;
+		}
+
+		@Override
+		public Iterator<Path> iterator() {
+			if (iteratorReturned) {
+				throw new IllegalStateException("Iterator already obtained");
+			}
+			iteratorReturned = true;
+			return new Iterator<>() {
+				private Path next;
+
+				@Override
+				public boolean hasNext() {
+					while (next == null && children.hasNext()) {
+						var candidate = fileSystem.wrap(children.next());
+						try {
+							if (filter.accept(candidate)) {
+								next = candidate;
+							}
+						} catch (IOException e) {
+							throw new DirectoryIteratorException(e);
+						}
+					}
+					return next != null;
+				}
+
+				@Override
+				public Path next() {
+					if (!hasNext()) {
+						throw new NoSuchElementException();
+					}
+					var result = next;
+					next = null;
+					return result;
+				}
+			};
+		}
+
+		@Override
+		public void close() throws IOException {
+			closeAction.close();
+		}
+
+	}
+
+	/**
+	 * Evicts the attributes of a file, whose size and modification time are about to change, once more after writing.
+	 */
+	private class InvalidatingChannel implements SeekableByteChannel {
+
+		private final Path delegatePath;
+		private final SeekableByteChannel delegate;
+
+		InvalidatingChannel(Path delegatePath, SeekableByteChannel delegate) {
+			this.delegatePath = delegatePath;
+			this.delegate = delegate;
+		}
+
+		@Override
+		public int read(ByteBuffer dst) throws IOException {
+			return delegate.read(dst);
+		}
+
+		@Override
+		public int write(ByteBuffer src) throws IOException {
+			return delegate.write(src);
+		}
+
+		@Override
+		public long position() throws IOException {
+			return delegate.position();
+		}
+
+		@Override
+		public SeekableByteChannel position(long newPosition) throws IOException {
+			delegate.position(newPosition);
+			return this;
+		}
+
+		@Override
+		public long size() throws IOException {
+			return delegate.size();
+		}
+
+		@Override
+		public SeekableByteChannel truncate(long size) throws IOException {
+			delegate.truncate(size);
+			return this;
+		}
+
+		@Override
+		public boolean isOpen() {
+			return delegate.isOpen();
+		}
+
+		@Override
+		public void close() throws IOException {
+			try {
+				delegate.close();
+			} finally {
+				invalidateFileAndParent(delegatePath);
+			}
+		}
+
+	}
+
+	/**
+	 * Like {@link InvalidatingChannel}, but keeps the capabilities of a {@link FileChannel}, such as efficient transfers to and from other channels.
+	 */
+	private class InvalidatingFileChannel extends FileChannel {
+
+		private final Path delegatePath;
+		private final FileChannel delegate;
+
+		InvalidatingFileChannel(Path delegatePath, FileChannel delegate) {
+			this.delegatePath = delegatePath;
+			this.delegate = delegate;
+		}
+
+		@Override
+		public int read(ByteBuffer dst) throws IOException {
+			return delegate.read(dst);
+		}
+
+		@Override
+		public long read(ByteBuffer[] dsts, int offset, int length) throws IOException {
+			return delegate.read(dsts, offset, length);
+		}
+
+		@Override
+		public int write(ByteBuffer src) throws IOException {
+			return delegate.write(src);
+		}
+
+		@Override
+		public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+			return delegate.write(srcs, offset, length);
+		}
+
+		@Override
+		public long position() throws IOException {
+			return delegate.position();
+		}
+
+		@Override
+		public FileChannel position(long newPosition) throws IOException {
+			delegate.position(newPosition);
+			return this;
+		}
+
+		@Override
+		public long size() throws IOException {
+			return delegate.size();
+		}
+
+		@Override
+		public FileChannel truncate(long size) throws IOException {
+			delegate.truncate(size);
+			return this;
+		}
+
+		@Override
+		public void force(boolean metaData) throws IOException {
+			delegate.force(metaData);
+		}
+
+		@Override
+		public long transferTo(long position, long count, WritableByteChannel target) throws IOException {
+			return delegate.transferTo(position, count, target);
+		}
+
+		@Override
+		public long transferFrom(ReadableByteChannel src, long position, long count) throws IOException {
+			return delegate.transferFrom(src, position, count);
+		}
+
+		@Override
+		public int read(ByteBuffer dst, long position) throws IOException {
+			return delegate.read(dst, position);
+		}
+
+		@Override
+		public int write(ByteBuffer src, long position) throws IOException {
+			return delegate.write(src, position);
+		}
+
+		@Override
+		public MappedByteBuffer map(MapMode mode, long position, long size) throws IOException {
+			return delegate.map(mode, position, size);
+		}
+
+		@Override
+		public FileLock lock(long position, long size, boolean shared) throws IOException {
+			return delegate.lock(position, size, shared);
+		}
+
+		@Override
+		public FileLock tryLock(long position, long size, boolean shared) throws IOException {
+			return delegate.tryLock(position, size, shared);
+		}
+
+		@Override
+		protected void implCloseChannel() throws IOException {
+			try {
+				delegate.close();
+			} finally {
+				invalidateFileAndParent(delegatePath);
+			}
+		}
+
+	}
+
+	/**
+	 * Evicts the attributes of a file after changing its timestamps.
+	 */
+	private class InvalidatingAttributeView implements BasicFileAttributeView {
+
+		private final Path delegatePath;
+		private final BasicFileAttributeView delegate;
+
+		InvalidatingAttributeView(Path delegatePath, BasicFileAttributeView delegate) {
+			this.delegatePath = delegatePath;
+			this.delegate = delegate;
+		}
+
+		@Override
+		public String name() {
+			return delegate.name();
+		}
+
+		@Override
+		public BasicFileAttributes readAttributes() throws IOException {
+			return delegate.readAttributes();
+		}
+
+		@Override
+		public void setTimes(FileTime lastModifiedTime, FileTime lastAccessTime, FileTime createTime) throws IOException {
+			try {
+				delegate.setTimes(lastModifiedTime, lastAccessTime, createTime);
+			} finally {
+				cache().invalidate(delegatePath);
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,149 @@
+package org.cryptomator.frontend.webdav.cache;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.ProviderMismatchException;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+
+/**
+ * A path of an {@link AttributeCachingFileSystem}, backed by a path of the wrapped file system.
+ */
+class AttributeCachingPath implements Path {
+
+	private final AttributeCachingFileSystem fileSystem;
+	private final Path delegate;
+
+	AttributeCachingPath(AttributeCachingFileSystem fileSystem, Path delegate) {
+		this.fileSystem = fileSystem;
+		this.delegate = delegate;
+	}
+
+	static Path unwrap(Path path) {
+		if (path instanceof AttributeCachingPath p) {
+			return p.delegate;
+		} else {
+			throw new ProviderMismatchException();
+		}
+	}
+
+	private Path toDelegateFs(Path other) {
+		if (other instanceof AttributeCachingPath p) {
+			return p.delegate;
+		} else {
+			return delegate.getFileSystem().getPath(other.toString());
+		}
+	}
+
+	@Override
+	public AttributeCachingFileSystem getFileSystem() {
+		return fileSystem;
+	}
+
+	@Override
+	public boolean isAbsolute() {
+		return delegate.isAbsolute();
+	}
+
+	@Override
+	public Path getRoot() {
+		return fileSystem.wrap(delegate.getRoot());
+	}
+
+	@Override
+	public Path getFileName() {
+		return fileSystem.wrap(delegate.getFileName());
+	}
+
+	@Override
+	public Path getParent() {
+		return fileSystem.wrap(delegate.getParent());
+	}
+
+	@Override
+	public int getNameCount() {
+		return delegate.getNameCount();
+	}
+
+	@Override
+	public Path getName(int index) {
+		return fileSystem.wrap(delegate.getName(index));
+	}
+
+	@Override
+	public Path subpath(int beginIndex, int endIndex) {
+		return fileSystem.wrap(delegate.subpath(beginIndex, endIndex));
+	}
+
+	@Override
+	public boolean startsWith(Path other) {
+		return other instanceof AttributeCachingPath p && delegate.startsWith(p.delegate);
+	}
+
+	@Override
+	public boolean endsWith(Path other) {
+		return other instanceof AttributeCachingPath p && delegate.endsWith(p.delegate);
+	}
+
+	@Override
+	public Path normalize() {
+		return fileSystem.wrap(delegate.normalize());
+	}
+
+	@Override
+	public Path resolve(Path other) {
+		return fileSystem.wrap(delegate.resolve(toDelegateFs(other)));
+	}
+
+	@Override
+	public Path relativize(Path other) {
+		return fileSystem.wrap(delegate.relativize(toDelegateFs(other)));
+	}
+
+	/**
+	 * @return The URI of the wrapped path, i.e. resolving it bypasses the cache
+	 */
+	@Override
+	public URI toUri() {
+		return delegate.toUri();
+	}
+
+	@Override
+	public Path toAbsolutePath() {
+		return fileSystem.wrap(delegate.toAbsolutePath());
+	}
+
+	@Override
+	public Path toRealPath(LinkOption... options) throws IOException {
+		return fileSystem.wrap(delegate.toRealPath(options));
+	}
+
+	@Override
+	public WatchKey register(WatchService watcher, WatchEvent.Kind<?>[] events, WatchEvent.Modifier... modifiers) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public int compareTo(Path other) {
+		return delegate.compareTo(unwrap(other));
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		return obj instanceof AttributeCachingPath p && p.fileSystem == fileSystem && p.delegate.equals(delegate);
+	}
+
+	@Override
+	public int hashCode() {
+		return delegate.hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return delegate.toString();
+	}
+
+}
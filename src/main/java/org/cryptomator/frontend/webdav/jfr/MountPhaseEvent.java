@@ -0,0 +1,31 @@
+package org.cryptomator.frontend.webdav.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("org.cryptomator.webdav.MountPhase")
+@Label("WebDAV Mount Phase")
+@Description("A single phase of mounting a WebDAV volume, i.e. obtaining the server, starting the servlet or mounting it in the OS")
+@Category({"Cryptomator", "WebDAV"})
+public class MountPhaseEvent extends Event {
+
+	public static final String PHASE_SERVER = "server";
+	public static final String PHASE_SERVLET = "servlet";
+	public static final String PHASE_MOUNT = "mount";
+
+	@Label("Phase")
+	public String phase;
+
+	@Label("Mount Provider")
+	public String mountProvider;
+
+	@Label("Context Path")
+	public String contextPath;
+
+	@Label("Success")
+	public boolean success;
+
+}
@@ -0,0 +1,36 @@
+package org.cryptomator.frontend.webdav.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Doesn't record the request's path, as recordings may get shared and paths contain cleartext file names.
+ */
+@Name("org.cryptomator.webdav.Request")
+@Label("WebDAV Request")
+@Description("A request handled by a WebDAV servlet context, from its arrival until it has been processed")
+@Category({"Cryptomator", "WebDAV"})
+public class RequestEvent extends Event {
+
+	@Label("Method")
+	String method;
+
+	@Label("Context Path")
+	String contextPath;
+
+	@Label("Status")
+	int status;
+
+	@Label("Bytes In")
+	@DataAmount
+	long bytesIn;
+
+	@Label("Bytes Out")
+	@DataAmount
+	long bytesOut;
+
+}
@@ -0,0 +1,44 @@
+package org.cryptomator.frontend.webdav.jfr;
+
+import org.cryptomator.frontend.webdav.CompletionAwareHandler;
+import org.eclipse.jetty.server.Request;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * Emits a {@link RequestEvent} for each request handled by a single context.
+ * <p>
+ * Unless a recording enables the event, the only cost is a single check of a flag.
+ */
+public class RequestEventHandler extends CompletionAwareHandler<RequestEvent> {
+
+	private final String contextPath;
+
+	public RequestEventHandler(String contextPath) {
+		this.contextPath = contextPath;
+	}
+
+	@Override
+	protected RequestEvent begin(String target, Request baseRequest, HttpServletRequest request) {
+		var event = new RequestEvent();
+		if (!event.isEnabled()) {
+			return null;
+		}
+		event.begin();
+		return event;
+	}
+
+	@Override
+	protected void complete(RequestEvent event, Request baseRequest, int status) {
+		event.end();
+		if (event.shouldCommit()) {
+			event.method = baseRequest.getMethod();
+			event.contextPath = contextPath;
+			event.status = status;
+			event.bytesIn = baseRequest.getHttpInput().getContentReceived();
+			event.bytesOut = baseRequest.getResponse().getHttpOutput().getWritten();
+			event.commit();
+		}
+	}
+
+}
@@ -0,0 +1,19 @@
+package org.cryptomator.frontend.webdav.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("org.cryptomator.webdav.ServerLifecycle")
+@Label("WebDAV Server Start/Stop")
+@Category({"Cryptomator", "WebDAV"})
+public class ServerLifecycleEvent extends Event {
+
+	@Label("Operation")
+	public String operation;
+
+	@Label("Success")
+	public boolean success;
+
+}
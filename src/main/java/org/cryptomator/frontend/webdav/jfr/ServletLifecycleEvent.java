@@ -0,0 +1,22 @@
+package org.cryptomator.frontend.webdav.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("org.cryptomator.webdav.ServletLifecycle")
+@Label("WebDAV Servlet Start/Stop")
+@Category({"Cryptomator", "WebDAV"})
+public class ServletLifecycleEvent extends Event {
+
+	@Label("Operation")
+	public String operation;
+
+	@Label("Context Path")
+	public String contextPath;
+
+	@Label("Success")
+	public boolean success;
+
+}
@@ -0,0 +1,43 @@
+package org.cryptomator.frontend.webdav.metrics;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Metrics of a single context, keyed by method. Metrics of a method are only allocated once it has been requested for the first time.
+ */
+final class ContextMetrics {
+
+	private static final WebDavMethod[] METHODS = WebDavMethod.values();
+
+	private final String contextPath;
+	private final AtomicReferenceArray<MethodMetrics> methods = new AtomicReferenceArray<>(METHODS.length);
+
+	ContextMetrics(String contextPath) {
+		this.contextPath = contextPath;
+	}
+
+	public String contextPath() {
+		return contextPath;
+	}
+
+	MethodMetrics get(WebDavMethod method) {
+		var metrics = methods.get(method.ordinal());
+		if (metrics == null) {
+			methods.compareAndSet(method.ordinal(), null, new MethodMetrics());
+			metrics = methods.get(method.ordinal());
+		}
+		return metrics;
+	}
+
+	/**
+	 * @param method The method
+	 * @return The metrics of the given method or <code>null</code>, if it has not been requested yet
+	 */
+	@Nullable
+	MethodMetrics peek(WebDavMethod method) {
+		return methods.get(method.ordinal());
+	}
+
+}
@@ -0,0 +1,127 @@
+package org.cryptomator.frontend.webdav.metrics;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.MBeanInfo;
+import javax.management.ReflectionException;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.CompositeDataSupport;
+import javax.management.openmbean.CompositeType;
+import javax.management.openmbean.OpenDataException;
+import javax.management.openmbean.OpenMBeanAttributeInfoSupport;
+import javax.management.openmbean.OpenMBeanConstructorInfoSupport;
+import javax.management.openmbean.OpenMBeanInfoSupport;
+import javax.management.openmbean.OpenMBeanOperationInfoSupport;
+import javax.management.openmbean.OpenType;
+import javax.management.openmbean.SimpleType;
+import java.util.Arrays;
+
+/**
+ * Exposes the {@link ContextMetrics} of a single context with one {@link CompositeData} attribute per {@link WebDavMethod}.
+ * <p>
+ * Implemented as a {@link DynamicMBean}, as standard MBeans require their interface to reside in a package exported to <code>java.management</code>.
+ */
+final class ContextMetricsMBean implements DynamicMBean {
+
+	private static final String CONTEXT_PATH_ATTRIBUTE = "ContextPath";
+	private static final String[] ITEM_NAMES = {"requests", "inFlight", "clientErrors", "serverErrors", "bytesReceived", "bytesSent", "latencyP50Micros", "latencyP99Micros", "latencyP999Micros", "latencyMaxMicros"};
+	private static final CompositeType METHOD_METRICS_TYPE = createMethodMetricsType();
+	private static final MBeanInfo MBEAN_INFO = createMBeanInfo();
+
+	private final ContextMetrics metrics;
+
+	ContextMetricsMBean(ContextMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	private static CompositeType createMethodMetricsType() {
+		OpenType<?>[] itemTypes = new OpenType<?>[ITEM_NAMES.length];
+		Arrays.fill(itemTypes, SimpleType.LONG);
+		try {
+			return new CompositeType("MethodMetrics", "Request metrics of a single method", ITEM_NAMES, ITEM_NAMES, itemTypes);
+		} catch (OpenDataException e) {
+			throw new IllegalStateException("Invalid composite type", e);
+		}
+	}
+
+	private static MBeanInfo createMBeanInfo() {
+		var attributes = new OpenMBeanAttributeInfoSupport[WebDavMethod.values().length + 1];
+		attributes[0] = new OpenMBeanAttributeInfoSupport(CONTEXT_PATH_ATTRIBUTE, "Context path", SimpleType.STRING, true, false, false);
+		for (var method : WebDavMethod.values()) {
+			attributes[method.ordinal() + 1] = new OpenMBeanAttributeInfoSupport(method.name(), "Metrics of " + method.name() + " requests", METHOD_METRICS_TYPE, true, false, false);
+		}
+		return new OpenMBeanInfoSupport(ContextMetricsMBean.class.getName(), "WebDAV request metrics of a single context", attributes, new OpenMBeanConstructorInfoSupport[0], new OpenMBeanOperationInfoSupport[0], null);
+	}
+
+	@Override
+	public Object getAttribute(String attribute) throws AttributeNotFoundException {
+		if (CONTEXT_PATH_ATTRIBUTE.equals(attribute)) {
+			return metrics.contextPath();
+		}
+		try {
+			return toCompositeData(metrics.peek(WebDavMethod.valueOf(attribute)));
+		} catch (IllegalArgumentException e) {
+			throw new AttributeNotFoundException(attribute);
+		}
+	}
+
+	private static CompositeData toCompositeData(MethodMetrics methodMetrics) {
+		Object[] values = new Object[ITEM_NAMES.length];
+		if (methodMetrics == null) {
+			Arrays.fill(values, 0L);
+		} else {
+			var latency = methodMetrics.latency();
+			values[0] = latency.count();
+			values[1] = methodMetrics.inFlight();
+			values[2] = methodMetrics.responses(4);
+			values[3] = methodMetrics.responses(5);
+			values[4] = methodMetrics.bytesReceived();
+			values[5] = methodMetrics.bytesSent();
+			values[6] = latency.valueAt(0.5);
+			values[7] = latency.valueAt(0.99);
+			values[8] = latency.valueAt(0.999);
+			values[9] = latency.max();
+		}
+		try {
+			return new CompositeDataSupport(METHOD_METRICS_TYPE, ITEM_NAMES, values);
+		} catch (OpenDataException e) {
+			throw new IllegalStateException("Values don't match composite type", e);
+		}
+	}
+
+	@Override
+	public AttributeList getAttributes(String[] attributes) {
+		var result = new AttributeList();
+		for (var attribute : attributes) {
+			try {
+				result.add(new Attribute(attribute, getAttribute(attribute)));
+			} catch (AttributeNotFoundException e) {
+				// skip, as demanded by the DynamicMBean contract
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+		throw new AttributeNotFoundException("Read-only attribute: " + attribute.getName());
+	}
+
+	@Override
+	public AttributeList setAttributes(AttributeList attributes) {
+		return new AttributeList();
+	}
+
+	@Override
+	public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+		throw new ReflectionException(new NoSuchMethodException(actionName));
+	}
+
+	@Override
+	public MBeanInfo getMBeanInfo() {
+		return MBEAN_INFO;
+	}
+
+}
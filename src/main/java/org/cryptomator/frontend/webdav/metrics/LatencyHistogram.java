@@ -0,0 +1,87 @@
+package org.cryptomator.frontend.webdav.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of latencies in microseconds.
+ * <p>
+ * Similar to an HdrHistogram, buckets are linear within each power of two, giving a relative error of at most 1/{@value #SUB_BUCKET_COUNT}
+ * for any value. Values of 2^33 µs (more than two hours) and above are counted in the last bucket.
+ */
+final class LatencyHistogram {
+
+	private static final int SUB_BUCKET_BITS = 5;
+	private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+	private static final int MAX_SHIFT = 27;
+	static final int BUCKET_COUNT = SUB_BUCKET_COUNT + (MAX_SHIFT + 1) * SUB_BUCKET_COUNT;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+	private final LongAdder sum = new LongAdder();
+	private final LongAccumulator max = new LongAccumulator(Long::max, 0L);
+
+	public void record(long micros) {
+		long value = Math.max(0L, micros);
+		counts.incrementAndGet(indexOf(value));
+		sum.add(value);
+		max.accumulate(value);
+	}
+
+	static int indexOf(long value) {
+		if (value < SUB_BUCKET_COUNT) {
+			return (int) value;
+		}
+		int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+		if (shift > MAX_SHIFT) {
+			return BUCKET_COUNT - 1;
+		}
+		int subBucket = (int) (value >>> shift) - SUB_BUCKET_COUNT;
+		return SUB_BUCKET_COUNT + shift * SUB_BUCKET_COUNT + subBucket;
+	}
+
+	static long highestValueOf(int index) {
+		if (index < SUB_BUCKET_COUNT) {
+			return index;
+		}
+		int shift = (index - SUB_BUCKET_COUNT) / SUB_BUCKET_COUNT;
+		int subBucket = (index - SUB_BUCKET_COUNT) % SUB_BUCKET_COUNT;
+		return ((long) (SUB_BUCKET_COUNT + subBucket + 1) << shift) - 1;
+	}
+
+	/**
+	 * Copies the current state. As recording is not paused, the snapshot may be off by the few values recorded concurrently.
+	 *
+	 * @return A snapshot of this histogram
+	 */
+	public Snapshot snapshot() {
+		long[] copy = new long[BUCKET_COUNT];
+		long count = 0;
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			copy[i] = counts.get(i);
+			count += copy[i];
+		}
+		return new Snapshot(copy, count, sum.sum(), max.get());
+	}
+
+	record Snapshot(long[] counts, long count, long sum, long max) {
+
+		/**
+		 * @param percentile A value between 0.0 and 1.0
+		 * @return The (upper bound of the) value, below which the given percentile of recorded values fall, or <code>0</code> if empty
+		 */
+		public long valueAt(double percentile) {
+			long rank = (long) Math.ceil(percentile * count);
+			long cumulative = 0;
+			for (int i = 0; i < counts.length; i++) {
+				cumulative += counts[i];
+				if (cumulative >= rank && cumulative > 0) {
+					return Math.min(highestValueOf(i), max);
+				}
+			}
+			return max;
+		}
+
+	}
+
+}
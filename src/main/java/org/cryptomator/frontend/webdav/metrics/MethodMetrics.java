@@ -0,0 +1,53 @@
+package org.cryptomator.frontend.webdav.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics of a single method within a single context.
+ */
+final class MethodMetrics {
+
+	private final LongAdder inFlight = new LongAdder();
+	private final LongAdder[] responsesByStatusClass = new LongAdder[]{new LongAdder(), new LongAdder(), new LongAdder(), new LongAdder(), new LongAdder()};
+	private final LongAdder bytesReceived = new LongAdder();
+	private final LongAdder bytesSent = new LongAdder();
+	private final LatencyHistogram latency = new LatencyHistogram();
+
+	void begin() {
+		inFlight.increment();
+	}
+
+	void end(int status, long durationNanos, long received, long sent) {
+		inFlight.decrement();
+		int statusClass = Math.min(Math.max(status / 100, 1), 5);
+		responsesByStatusClass[statusClass - 1].increment();
+		bytesReceived.add(received);
+		bytesSent.add(sent);
+		latency.record(durationNanos / 1000);
+	}
+
+	public long inFlight() {
+		return inFlight.sum();
+	}
+
+	/**
+	 * @param statusClass The first digit of the status code, i.e. a value between 1 and 5
+	 * @return Number of completed requests with the given status class
+	 */
+	public long responses(int statusClass) {
+		return responsesByStatusClass[statusClass - 1].sum();
+	}
+
+	public long bytesReceived() {
+		return bytesReceived.sum();
+	}
+
+	public long bytesSent() {
+		return bytesSent.sum();
+	}
+
+	public LatencyHistogram.Snapshot latency() {
+		return latency.snapshot();
+	}
+
+}
@@ -0,0 +1,163 @@
+package org.cryptomator.frontend.webdav.metrics;
+
+import org.cryptomator.frontend.webdav.AdmissionControl;
+import org.cryptomator.frontend.webdav.Tarpit;
+import org.cryptomator.frontend.webdav.servlet.Locking;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.ToLongFunction;
+
+/**
+ * Serves the {@link RequestMetrics} and the number of WebDAV locks of all contexts as well as the counters of the {@link AdmissionControl} and the {@link Tarpit}
+ * in the Prometheus text exposition format.
+ * <p>
+ * Installed next to the default servlet at the reserved path {@value #PATH}.
+ */
+public class PrometheusMetricsServlet extends HttpServlet {
+
+	public static final String PATH = "/metrics";
+	private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+	private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+	private final RequestMetrics requestMetrics;
+	private final AdmissionControl admissionControl;
+	private final Tarpit tarpit;
+	private final Locking locking;
+
+	public PrometheusMetricsServlet(RequestMetrics requestMetrics, AdmissionControl admissionControl, Tarpit tarpit, Locking locking) {
+		this.requestMetrics = requestMetrics;
+		this.admissionControl = admissionControl;
+		this.tarpit = tarpit;
+		this.locking = locking;
+	}
+
+	@Override
+	protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+		resp.setContentType(CONTENT_TYPE);
+		resp.getWriter().write(render());
+	}
+
+	String render() {
+		var sb = new StringBuilder();
+		var contexts = requestMetrics.contexts().stream().sorted(Comparator.comparing(ContextMetrics::contextPath)).toList();
+
+		sb.append("# HELP webdav_requests_total Completed requests.\n");
+		sb.append("# TYPE webdav_requests_total counter\n");
+		forEachMethod(contexts, (ctx, method, metrics) -> {
+			for (int statusClass = 1; statusClass <= 5; statusClass++) {
+				long responses = metrics.responses(statusClass);
+				if (responses > 0) {
+					sb.append("webdav_requests_total");
+					appendLabels(sb, ctx, method, "status", statusClass + "xx");
+					sb.append(' ').append(responses).append('\n');
+				}
+			}
+		});
+		appendCounter(sb, contexts, "webdav_requests_in_flight", "gauge", "Requests currently being processed.", MethodMetrics::inFlight);
+		appendCounter(sb, contexts, "webdav_request_bytes_received_total", "counter", "Bytes of request bodies received.", MethodMetrics::bytesReceived);
+		appendCounter(sb, contexts, "webdav_response_bytes_sent_total", "counter", "Bytes of response bodies sent, before any content encoding.", MethodMetrics::bytesSent);
+
+		sb.append("# HELP webdav_request_duration_seconds Time from receiving a request until it has been processed.\n");
+		sb.append("# TYPE webdav_request_duration_seconds summary\n");
+		forEachMethod(contexts, (ctx, method, metrics) -> {
+			var latency = metrics.latency();
+			for (double quantile : QUANTILES) {
+				sb.append("webdav_request_duration_seconds");
+				appendLabels(sb, ctx, method, "quantile", Double.toString(quantile));
+				sb.append(' ').append(seconds(latency.valueAt(quantile))).append('\n');
+			}
+			sb.append("webdav_request_duration_seconds_sum");
+			appendLabels(sb, ctx, method, null, null);
+			sb.append(' ').append(seconds(latency.sum())).append('\n');
+			sb.append("webdav_request_duration_seconds_count");
+			appendLabels(sb, ctx, method, null, null);
+			sb.append(' ').append(latency.count()).append('\n');
+		});
+
+		sb.append("# HELP webdav_requests_shed_total Requests rejected by admission control.\n");
+		sb.append("# TYPE webdav_requests_shed_total counter\n");
+		sb.append("webdav_requests_shed_total{reason=\"connection_limit\"} ").append(admissionControl.getShedByConnectionLimitCount()).append('\n');
+		sb.append("webdav_requests_shed_total{reason=\"context_limit\"} ").append(admissionControl.getShedByContextLimitCount()).append('\n');
+		sb.append("webdav_requests_shed_total{reason=\"queue_delay\"} ").append(admissionControl.getShedByQueueDelayCount()).append('\n');
+		sb.append("# HELP webdav_overloaded Whether requests are shed due to long queueing delays.\n");
+		sb.append("# TYPE webdav_overloaded gauge\n");
+		sb.append("webdav_overloaded ").append(admissionControl.isOverloaded() ? 1 : 0).append('\n');
+		sb.append("# HELP webdav_tarpit_requests Requests outside of any context currently being delayed.\n");
+		sb.append("# TYPE webdav_tarpit_requests gauge\n");
+		sb.append("webdav_tarpit_requests ").append(tarpit.getDelayingCount()).append('\n');
+		sb.append("# HELP webdav_tarpit_requests_total Requests outside of any context, by whether they got delayed.\n");
+		sb.append("# TYPE webdav_tarpit_requests_total counter\n");
+		sb.append("webdav_tarpit_requests_total{outcome=\"delayed\"} ").append(tarpit.getDelayedCount()).append('\n');
+		sb.append("webdav_tarpit_requests_total{outcome=\"not_delayed\"} ").append(tarpit.getNotDelayedCount()).append('\n');
+		sb.append("# HELP webdav_locks WebDAV locks currently held, including expired ones not yet removed.\n");
+		sb.append("# TYPE webdav_locks gauge\n");
+		locking.getLockCounts().forEach((contextPath, count) -> {
+			sb.append("webdav_locks{context=\"");
+			appendEscaped(sb, contextPath);
+			sb.append("\"} ").append(count).append('\n');
+		});
+		sb.append("# HELP webdav_locks_expired_total WebDAV locks removed after their timeout elapsed.\n");
+		sb.append("# TYPE webdav_locks_expired_total counter\n");
+		sb.append("webdav_locks_expired_total ").append(locking.getExpiredCount()).append('\n');
+		return sb.toString();
+	}
+
+	private static void appendCounter(StringBuilder sb, List<ContextMetrics> contexts, String name, String type, String help, ToLongFunction<MethodMetrics> value) {
+		sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+		sb.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+		forEachMethod(contexts, (ctx, method, metrics) -> {
+			sb.append(name);
+			appendLabels(sb, ctx, method, null, null);
+			sb.append(' ').append(value.applyAsLong(metrics)).append('\n');
+		});
+	}
+
+	private static void forEachMethod(List<ContextMetrics> contexts, MethodMetricsConsumer consumer) {
+		for (var ctx : contexts) {
+			for (var method : WebDavMethod.values()) {
+				var metrics = ctx.peek(method);
+				if (metrics != null) {
+					consumer.accept(ctx, method, metrics);
+				}
+			}
+		}
+	}
+
+	private static void appendLabels(StringBuilder sb, ContextMetrics ctx, WebDavMethod method, String extraLabel, String extraValue) {
+		sb.append("{context=\"");
+		appendEscaped(sb, ctx.contextPath());
+		sb.append("\",method=\"").append(method.name()).append('"');
+		if (extraLabel != null) {
+			sb.append(',').append(extraLabel).append("=\"").append(extraValue).append('"');
+		}
+		sb.append('}');
+	}
+
+	private static void appendEscaped(StringBuilder sb, String labelValue) {
+		for (int i = 0; i < labelValue.length(); i++) {
+			char c = labelValue.charAt(i);
+			switch (c) {
+				case '\\' -> sb.append("\\\\");
+				case '"' -> sb.append("\\\"");
+				case '\n' -> sb.append("\\n");
+				default -> sb.append(c);
+			}
+		}
+	}
+
+	private static String seconds(long micros) {
+		return String.format(Locale.ROOT, "%.6f", micros / 1e6);
+	}
+
+	@FunctionalInterface
+	private interface MethodMetricsConsumer {
+		void accept(ContextMetrics ctx, WebDavMethod method, MethodMetrics metrics);
+	}
+
+}
@@ -0,0 +1,114 @@
+package org.cryptomator.frontend.webdav.metrics;
+
+import org.cryptomator.frontend.webdav.CompletionAwareHandler;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.handler.HandlerWrapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+import javax.servlet.http.HttpServletRequest;
+import java.lang.management.ManagementFactory;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Collects request counts, latencies, in-flight requests and transferred bytes per {@link WebDavMethod method} and context.
+ * <p>
+ * One instance is shared by all contexts of a server, each of which installs its own {@link #newContextHandler(String) handler}.
+ * Recording only involves lock-free counters, so metrics are always collected. Optionally, each context's metrics are registered as an MBean
+ * named <code>org.cryptomator.frontend.webdav:type=RequestMetrics,server=&lt;n&gt;,context=&lt;quoted context path&gt;</code>
+ * while the context is running.
+ * <p>
+ * Latencies are measured from the moment the request has been received, i.e. they include the time spent waiting for a thread.
+ */
+public class RequestMetrics {
+
+	private static final Logger LOG = LoggerFactory.getLogger(RequestMetrics.class);
+	private static final String JMX_DOMAIN = "org.cryptomator.frontend.webdav";
+	private static final AtomicInteger SERVER_NUM = new AtomicInteger();
+
+	private final ConcurrentMap<String, ContextMetrics> contexts = new ConcurrentHashMap<>();
+	private final boolean jmx;
+	private final int serverNum;
+
+	/**
+	 * @param jmx Whether to register an MBean for each running context
+	 */
+	public RequestMetrics(boolean jmx) {
+		this.jmx = jmx;
+		this.serverNum = SERVER_NUM.incrementAndGet();
+	}
+
+	/**
+	 * Creates a handler recording metrics of the given context. Metrics of a context path survive restarts of its context.
+	 *
+	 * @param contextPath The path of the context, the handler will be installed in
+	 * @return A new handler to be installed in the handler chain of a single context
+	 */
+	public HandlerWrapper newContextHandler(String contextPath) {
+		return new MetricsHandler(contexts.computeIfAbsent(contextPath, ContextMetrics::new));
+	}
+
+	Collection<ContextMetrics> contexts() {
+		return contexts.values();
+	}
+
+	private ObjectName objectName(String contextPath) throws MalformedObjectNameException {
+		return new ObjectName(JMX_DOMAIN + ":type=RequestMetrics,server=" + serverNum + ",context=" + ObjectName.quote(contextPath));
+	}
+
+	private class MetricsHandler extends CompletionAwareHandler<MethodMetrics> {
+
+		private final ContextMetrics metrics;
+
+		MetricsHandler(ContextMetrics metrics) {
+			this.metrics = metrics;
+		}
+
+		@Override
+		protected void doStart() throws Exception {
+			if (jmx) {
+				try {
+					ManagementFactory.getPlatformMBeanServer().registerMBean(new ContextMetricsMBean(metrics), objectName(metrics.contextPath()));
+				} catch (JMException e) {
+					LOG.warn("Failed to register metrics of {} via JMX.", metrics.contextPath(), e);
+				}
+			}
+			super.doStart();
+		}
+
+		@Override
+		protected void doStop() throws Exception {
+			super.doStop();
+			if (jmx) {
+				try {
+					ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName(metrics.contextPath()));
+				} catch (JMException e) {
+					LOG.debug("Failed to unregister metrics of {}.", metrics.contextPath(), e);
+				}
+			}
+		}
+
+		@Override
+		protected MethodMetrics begin(String target, Request baseRequest, HttpServletRequest request) {
+			var methodMetrics = metrics.get(WebDavMethod.of(baseRequest.getMethod()));
+			methodMetrics.begin();
+			return methodMetrics;
+		}
+
+		@Override
+		protected void complete(MethodMetrics methodMetrics, Request baseRequest, int status) {
+			long duration = System.nanoTime() - baseRequest.getBeginNanoTime();
+			long received = baseRequest.getHttpInput().getContentReceived();
+			long sent = baseRequest.getResponse().getHttpOutput().getWritten();
+			methodMetrics.end(status, duration, received, sent);
+		}
+
+	}
+
+}
@@ -0,0 +1,43 @@
+package org.cryptomator.frontend.webdav.metrics;
+
+/**
+ * HTTP and WebDAV methods, metrics are collected for. Any other method is counted as {@link #OTHER}.
+ */
+public enum WebDavMethod {
+	GET, HEAD, PUT, POST, DELETE, OPTIONS, PROPFIND, PROPPATCH, MKCOL, COPY, MOVE, LOCK, UNLOCK, REPORT, OTHER;
+
+	public static WebDavMethod of(String method) {
+		switch (method) {
+			case "GET":
+				return GET;
+			case "HEAD":
+				return HEAD;
+			case "PUT":
+				return PUT;
+			case "POST":
+				return POST;
+			case "DELETE":
+				return DELETE;
+			case "OPTIONS":
+				return OPTIONS;
+			case "PROPFIND":
+				return PROPFIND;
+			case "PROPPATCH":
+				return PROPPATCH;
+			case "MKCOL":
+				return MKCOL;
+			case "COPY":
+				return COPY;
+			case "MOVE":
+				return MOVE;
+			case "LOCK":
+				return LOCK;
+			case "UNLOCK":
+				return UNLOCK;
+			case "REPORT":
+				return REPORT;
+			default:
+				return OTHER;
+		}
+	}
+}
@@ -3,6 +3,7 @@ package org.cryptomator.frontend.webdav.mount;
 import org.cryptomator.frontend.webdav.ServerLifecycleException;
 import org.cryptomator.frontend.webdav.WebDavServerHandle;
 import org.cryptomator.frontend.webdav.WebDavServerManager;
+import org.cryptomator.frontend.webdav.jfr.MountPhaseEvent;
 import org.cryptomator.frontend.webdav.servlet.WebDavServletController;
 import org.cryptomator.integrations.mount.Mount;
 import org.cryptomator.integrations.mount.MountBuilder;
@@ -65,29 +66,44 @@ public abstract class AbstractMountBuilder implements MountBuilder {
 
 	@Override
 	public final Mount mount() throws MountFailedException {
+		var contextPath = normalizedContextPath();
 		WebDavServerHandle serverHandle;
+		var serverPhase = beginPhase(MountPhaseEvent.PHASE_SERVER, contextPath);
 		try {
 			serverHandle = WebDavServerManager.getOrCreateServer(port);
+			serverPhase.success = true;
 		} catch (ServerLifecycleException e) {
 			throw new MountFailedException("Failed to start server", e);
+		} finally {
+			serverPhase.commit();
 		}
 
 		boolean success = false;
 		try {
 			WebDavServletController servlet;
+			var servletPhase = beginPhase(MountPhaseEvent.PHASE_SERVLET, contextPath);
 			try {
-				servlet = serverHandle.server().createWebDavServlet(vfsRoot, normalizedContextPath());
+				servlet = serverHandle.server().createWebDavServlet(vfsRoot, contextPath);
 				servlet.start();
+				servletPhase.success = true;
 			} catch (ServerLifecycleException e) {
 				throw new MountFailedException("Failed to create WebDAV servlet", e);
+			} finally {
+				servletPhase.commit();
 			}
 
 			var uri = servlet.getServletRootUri();
 			LOG.info("Mounting {}...", uri);
 
-			var mount = this.mount(serverHandle, servlet, uri);
-			success = true;
-			return mount;
+			var mountPhase = beginPhase(MountPhaseEvent.PHASE_MOUNT, contextPath);
+			try {
+				var mount = this.mount(serverHandle, servlet, uri);
+				mountPhase.success = true;
+				success = true;
+				return mount;
+			} finally {
+				mountPhase.commit();
+			}
 		} finally {
 			if (!success) {
 				try {
@@ -99,5 +115,14 @@ public abstract class AbstractMountBuilder implements MountBuilder {
 		}
 	}
 
+	private MountPhaseEvent beginPhase(String phase, String contextPath) {
+		var event = new MountPhaseEvent();
+		event.phase = phase;
+		event.mountProvider = getClass().getName();
+		event.contextPath = contextPath;
+		event.begin();
+		return event;
+	}
+
 	protected abstract Mount mount(WebDavServerHandle serverHandle, WebDavServletController servlet, URI uri) throws MountFailedException;
 }
@@ -0,0 +1,77 @@
+package org.cryptomator.frontend.webdav.servlet;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Reads the attributes of the members listed by a <code>PROPFIND</code> request with <code>Depth: 1</code> concurrently,
+ * so that listing a directory on a high-latency backend doesn't take one round trip per member.
+ * <p>
+ * A single pool of threads is shared by all contexts of a server, while each request submits at most {@link #parallelism()} tasks at a time.
+ */
+public class AttributePrefetching {
+
+	private final int parallelism;
+	private final ThreadPoolExecutor executor;
+
+	/**
+	 * @param parallelism Maximum number of members whose attributes are read concurrently per request or <code>1</code> to read them sequentially
+	 * @param threads Maximum number of threads reading attributes, shared by all requests
+	 */
+	public AttributePrefetching(int parallelism, int threads) {
+		this.parallelism = parallelism;
+		if (parallelism > 1) {
+			this.executor = BackgroundExecutors.create("webdav-prefetch", threads);
+		} else {
+			this.executor = null;
+		}
+	}
+
+	boolean isEnabled() {
+		return executor != null;
+	}
+
+	int parallelism() {
+		return parallelism;
+	}
+
+	<T> Future<T> submit(Callable<T> task) {
+		return executor.submit(task);
+	}
+
+	/**
+	 * Waits for the given task, rethrowing its exception as is, unless it is a checked exception other than an <code>IOException</code>.
+	 */
+	static <T> T await(Future<T> future) throws IOException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while reading attributes");
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException cause) {
+				throw cause;
+			} else if (e.getCause() instanceof RuntimeException cause) {
+				throw cause;
+			} else if (e.getCause() instanceof Error cause) {
+				throw cause;
+			} else {
+				throw new IOException(e.getCause());
+			}
+		}
+	}
+
+	/**
+	 * Stops all threads. Must only be invoked when terminating the server.
+	 */
+	public void shutdown() {
+		if (executor != null) {
+			executor.shutdownNow();
+		}
+	}
+
+}
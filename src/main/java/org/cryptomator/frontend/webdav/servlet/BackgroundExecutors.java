@@ -0,0 +1,36 @@
+package org.cryptomator.frontend.webdav.servlet;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates the thread pools doing work in the background of requests, such as {@link AttributePrefetching} and {@link ReadAheadCaching}.
+ */
+final class BackgroundExecutors {
+
+	private static final int THREAD_IDLE_SECONDS = 60;
+
+	private BackgroundExecutors() {
+	}
+
+	/**
+	 * Creates a pool, which, like the server's thread pool, spawns threads up to the maximum before queueing tasks, but lets them time out when idle.
+	 *
+	 * @param threadNamePrefix Prefix of the names of the pool's daemon threads, which get numbered consecutively
+	 * @param threads Maximum number of threads
+	 * @return A new executor with an unbounded queue
+	 */
+	static ThreadPoolExecutor create(String threadNamePrefix, int threads) {
+		var threadNum = new AtomicInteger(1);
+		var executor = new ThreadPoolExecutor(threads, threads, THREAD_IDLE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+			Thread t = new Thread(runnable, String.format("%s-%03d", threadNamePrefix, threadNum.getAndIncrement()));
+			t.setDaemon(true);
+			return t;
+		});
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+
+}
@@ -0,0 +1,88 @@
+package org.cryptomator.frontend.webdav.servlet;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * Parses <code>Range</code> headers requesting one or more byte ranges (RFC 7233, section 2.1). Unlike the library's <code>ByteRange</code>, this supports multiple ranges.
+ * <p>
+ * Overlapping and adjacent ranges are coalesced and the result is sorted by position, so that each region of the file gets read only once and in ascending order.
+ * To prevent small requests from causing large responses, headers with more than {@value #MAX_RANGES} ranges are ignored, i.e. the whole file is sent instead.
+ */
+class ByteRangeSet {
+
+	static final int MAX_RANGES = 16;
+	private static final String RANGE_BYTE_PREFIX = "bytes=";
+	private static final Pattern RANGE_SPEC = Pattern.compile("(\\d*)-(\\d*)");
+
+	record Range(long first, long last) {
+
+		long length() {
+			return last - first + 1;
+		}
+
+	}
+
+	private ByteRangeSet() {
+	}
+
+	/**
+	 * @param rangeHeader Value of the <code>Range</code> header
+	 * @param size Size of the requested file
+	 * @return The satisfiable ranges, coalesced and sorted (which is an empty list if none is satisfiable),
+	 * or an empty optional if the header is absent, malformed or exceeds {@value #MAX_RANGES} ranges
+	 */
+	static Optional<List<Range>> parse(String rangeHeader, long size) {
+		if (rangeHeader == null || !rangeHeader.startsWith(RANGE_BYTE_PREFIX)) {
+			return Optional.empty();
+		}
+		var specs = new ArrayList<String>();
+		for (var spec : rangeHeader.substring(RANGE_BYTE_PREFIX.length()).split(",")) {
+			if (!spec.isBlank()) {
+				specs.add(spec.strip());
+			}
+		}
+		if (specs.isEmpty() || specs.size() > MAX_RANGES) {
+			return Optional.empty();
+		}
+		var ranges = new ArrayList<Range>(specs.size());
+		for (var spec : specs) {
+			var matcher = RANGE_SPEC.matcher(spec);
+			if (!matcher.matches() || matcher.group(1).isEmpty() && matcher.group(2).isEmpty()) {
+				return Optional.empty();
+			}
+			try {
+				var first = matcher.group(1).isEmpty() ? null : Long.valueOf(matcher.group(1));
+				var last = matcher.group(2).isEmpty() ? null : Long.valueOf(matcher.group(2));
+				if (first == null && last > 0 && size > 0) { // suffix range
+					ranges.add(new Range(Math.max(0, size - last), size - 1));
+				} else if (first != null && last != null && first > last) {
+					return Optional.empty(); // syntactically invalid, see RFC 7233, section 2.1
+				} else if (first != null && first < size) {
+					ranges.add(new Range(first, last == null ? size - 1 : Math.min(last, size - 1)));
+				}
+			} catch (NumberFormatException e) {
+				return Optional.empty();
+			}
+		}
+		return Optional.of(coalesce(ranges));
+	}
+
+	private static List<Range> coalesce(List<Range> ranges) {
+		ranges.sort(Comparator.comparingLong(Range::first));
+		var result = new ArrayList<Range>(ranges.size());
+		for (var range : ranges) {
+			var previous = result.isEmpty() ? null : result.get(result.size() - 1);
+			if (previous != null && range.first() <= previous.last() + 1) {
+				result.set(result.size() - 1, new Range(previous.first(), Math.max(previous.last(), range.last())));
+			} else {
+				result.add(range);
+			}
+		}
+		return result;
+	}
+
+}
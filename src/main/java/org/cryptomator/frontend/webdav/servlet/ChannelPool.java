@@ -0,0 +1,262 @@
+package org.cryptomator.frontend.webdav.servlet;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Read-only channels of a single context, kept open between requests, so that successive range requests for the same file don't pay for opening it again,
+ * which on an encrypted file system involves reading and authenticating the file header.
+ * <p>
+ * A pooled channel is shared by all concurrent readers of its file, which therefore read from explicit positions instead of moving the channel's position.
+ * It gets closed once it has been idle for longer than the timeout, when its entry gets evicted in favour of another file,
+ * or when its file gets modified, but never while still being read.
+ * Channels opened for a file whose modification time differs from the one seen when opening the pooled channel replace the pooled one,
+ * as it might refer to a file that has been replaced by a different one in the meantime.
+ * <p>
+ * A pool of size <code>0</code> never retains any channel.
+ */
+class ChannelPool implements Closeable {
+
+	private static final Logger LOG = LoggerFactory.getLogger(ChannelPool.class);
+
+	private final int maxChannels;
+	private final long idleTimeoutNanos;
+	private final Consumer<ChannelPool> onClose;
+	private final Map<Path, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+	private boolean closed;
+
+	/**
+	 * @param maxChannels Maximum number of channels kept open while not being read
+	 * @param idleTimeoutNanos Time after which unused channels get closed by {@link #closeIdle()}
+	 * @param onClose Invoked when the pool gets closed
+	 */
+	ChannelPool(int maxChannels, long idleTimeoutNanos, Consumer<ChannelPool> onClose) {
+		this.maxChannels = maxChannels;
+		this.idleTimeoutNanos = idleTimeoutNanos;
+		this.onClose = onClose;
+	}
+
+	/**
+	 * A reference to an open channel, which must be closed when done reading.
+	 */
+	static class Lease implements Closeable {
+
+		private final ChannelPool pool;
+		private final Entry entry;
+		private boolean released;
+
+		private Lease(ChannelPool pool, Entry entry) {
+			this.pool = pool;
+			this.entry = entry;
+		}
+
+		/**
+		 * @return The channel, whose position must not be used, as it may be shared with other readers
+		 */
+		SeekableByteChannel channel() {
+			return entry.channel;
+		}
+
+		/**
+		 * Reads a sequence of bytes starting at the given position, like {@link FileChannel#read(ByteBuffer, long)}.
+		 *
+		 * @param dst The buffer to read into
+		 * @param position The file position at which to start reading
+		 * @return The number of bytes read, possibly zero, or <code>-1</code> if the given position is greater than or equal to the file's current size
+		 * @throws IOException If reading fails
+		 */
+		int read(ByteBuffer dst, long position) throws IOException {
+			if (entry.channel instanceof FileChannel fileChannel) {
+				return fileChannel.read(dst, position);
+			}
+			synchronized (entry.channel) {
+				entry.channel.position(position);
+				return entry.channel.read(dst);
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (!released) {
+				released = true;
+				pool.release(entry);
+			}
+		}
+
+	}
+
+	private static class Entry {
+
+		private final Path path;
+		private final long modificationTime;
+		private final SeekableByteChannel channel;
+		private int references;
+		private long idleSince;
+		private boolean retired; // no longer pooled, i.e. to be closed by its last reader
+
+		private Entry(Path path, long modificationTime, SeekableByteChannel channel) {
+			this.path = path;
+			this.modificationTime = modificationTime;
+			this.channel = channel;
+		}
+
+	}
+
+	/**
+	 * Borrows the pooled channel of the given file or opens a new one, preferring a {@link FileChannel} if the file system supports it.
+	 *
+	 * @param path File to read
+	 * @param modificationTime The file's current modification time
+	 * @return A lease of an open channel, which must be closed when done reading
+	 * @throws IOException If the file can't be opened
+	 */
+	Lease acquire(Path path, long modificationTime) throws IOException {
+		List<Entry> retired = new ArrayList<>();
+		try {
+			synchronized (this) {
+				var entry = entries.get(path);
+				if (entry != null && entry.modificationTime == modificationTime && entry.channel.isOpen()) {
+					entry.references++;
+					return new Lease(this, entry);
+				} else if (entry != null) {
+					entries.remove(path);
+					retire(entry, retired);
+				}
+			}
+			// open outside of the lock, as opening may be slow:
+			var entry = new Entry(path, modificationTime, openChannel(path));
+			entry.references = 1;
+			synchronized (this) {
+				if (closed || maxChannels == 0 || entries.containsKey(path)) {
+					// a concurrent reader was quicker, so don't replace its channel
+					entry.retired = true;
+				} else {
+					entries.put(path, entry);
+					evictIdle(entries.size() - maxChannels, retired);
+				}
+			}
+			return new Lease(this, entry);
+		} finally {
+			closeAll(retired);
+		}
+	}
+
+	private static SeekableByteChannel openChannel(Path path) throws IOException {
+		try {
+			return FileChannel.open(path, StandardOpenOption.READ);
+		} catch (UnsupportedOperationException e) {
+			return Files.newByteChannel(path, StandardOpenOption.READ);
+		}
+	}
+
+	private void release(Entry entry) throws IOException {
+		synchronized (this) {
+			entry.references--;
+			entry.idleSince = System.nanoTime();
+			if (entry.references > 0 || !entry.retired) {
+				return;
+			}
+		}
+		entry.channel.close();
+	}
+
+	/**
+	 * Closes the channels of the given file or of any file within the given directory, or marks them to be closed after their last reader is done.
+	 *
+	 * @param path Modified file or directory
+	 */
+	void invalidate(Path path) {
+		List<Entry> retired = new ArrayList<>();
+		synchronized (this) {
+			for (Iterator<Entry> iterator = entries.values().iterator(); iterator.hasNext(); ) {
+				var entry = iterator.next();
+				if (entry.path.startsWith(path)) {
+					iterator.remove();
+					retire(entry, retired);
+				}
+			}
+		}
+		closeAll(retired);
+	}
+
+	/**
+	 * Closes channels that have been idle for longer than the timeout. Invoked periodically by {@link ChannelPooling}.
+	 */
+	void closeIdle() {
+		List<Entry> retired = new ArrayList<>();
+		synchronized (this) {
+			long now = System.nanoTime();
+			for (Iterator<Entry> iterator = entries.values().iterator(); iterator.hasNext(); ) {
+				var entry = iterator.next();
+				if (entry.references == 0 && now - entry.idleSince > idleTimeoutNanos) {
+					iterator.remove();
+					retire(entry, retired);
+				}
+			}
+		}
+		closeAll(retired);
+	}
+
+	// evicts up to `count` unused entries in LRU order. entries still being read stay, so the pool may temporarily exceed its size
+	private void evictIdle(int count, List<Entry> retired) {
+		assert Thread.holdsLock(this);
+		for (Iterator<Entry> iterator = entries.values().iterator(); count > 0 && iterator.hasNext(); ) {
+			var entry = iterator.next();
+			if (entry.references == 0) {
+				iterator.remove();
+				retire(entry, retired);
+				count--;
+			}
+		}
+	}
+
+	// adds the entry to the list of channels to close outside of the lock, unless it is still being read
+	private void retire(Entry entry, List<Entry> retired) {
+		assert Thread.holdsLock(this);
+		entry.retired = true;
+		if (entry.references == 0) {
+			retired.add(entry);
+		}
+	}
+
+	private static void closeAll(List<Entry> entries) {
+		for (var entry : entries) {
+			try {
+				entry.channel.close();
+			} catch (IOException e) {
+				LOG.warn("Failed to close {}", entry.path, e);
+			}
+		}
+	}
+
+	/**
+	 * Closes all channels not being read and stops pooling.
+	 */
+	@Override
+	public void close() {
+		List<Entry> retired = new ArrayList<>();
+		synchronized (this) {
+			closed = true;
+			entries.values().forEach(entry -> retire(entry, retired));
+			entries.clear();
+		}
+		closeAll(retired);
+		onClose.accept(this);
+	}
+
+}
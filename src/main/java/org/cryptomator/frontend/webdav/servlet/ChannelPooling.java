@@ -0,0 +1,70 @@
+package org.cryptomator.frontend.webdav.servlet;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps files read by <code>GET</code> requests open for a while, so that successive range requests for the same file,
+ * e.g. when scrubbing through a video or rendering previews, don't open it over and over again.
+ * <p>
+ * Each context gets its own {@link ChannelPool}, which is cleared of files modified by <code>PUT</code>, <code>DELETE</code>,
+ * <code>MOVE</code> or <code>COPY</code> requests handled by that context. A single thread shared by all contexts of a server closes idle channels.
+ */
+public class ChannelPooling {
+
+	private static final long MIN_SWEEP_INTERVAL_MILLIS = 10;
+
+	private final int maxChannels;
+	private final Duration idleTimeout;
+	private final Set<ChannelPool> pools = ConcurrentHashMap.newKeySet();
+	private final ScheduledExecutorService scheduler;
+
+	/**
+	 * @param maxChannels Maximum number of idle channels kept open per context or <code>0</code> to disable pooling
+	 * @param idleTimeout Time after which unused channels get closed
+	 */
+	public ChannelPooling(int maxChannels, Duration idleTimeout) {
+		this.maxChannels = maxChannels;
+		this.idleTimeout = idleTimeout;
+		if (maxChannels > 0) {
+			this.scheduler = Executors.newSingleThreadScheduledExecutor(ChannelPooling::createSweeperThread);
+			long interval = Math.max(idleTimeout.toMillis() / 2, MIN_SWEEP_INTERVAL_MILLIS);
+			scheduler.scheduleWithFixedDelay(() -> pools.forEach(ChannelPool::closeIdle), interval, interval, TimeUnit.MILLISECONDS);
+		} else {
+			this.scheduler = null;
+		}
+	}
+
+	private static Thread createSweeperThread(Runnable runnable) {
+		Thread t = new Thread(runnable, "webdav-channel-pool");
+		t.setDaemon(true);
+		return t;
+	}
+
+	/**
+	 * @return A new pool for a single context, which must be closed when the context stops
+	 */
+	ChannelPool newPool() {
+		if (scheduler == null) {
+			return new ChannelPool(0, 0, pool -> {});
+		}
+		var pool = new ChannelPool(maxChannels, idleTimeout.toNanos(), pools::remove);
+		pools.add(pool);
+		return pool;
+	}
+
+	/**
+	 * Stops closing idle channels. Must only be invoked when terminating the server.
+	 */
+	public void shutdown() {
+		if (scheduler != null) {
+			scheduler.shutdownNow();
+		}
+		pools.forEach(ChannelPool::close);
+	}
+
+}
@@ -0,0 +1,221 @@
+package org.cryptomator.frontend.webdav.servlet;
+
+import org.cryptomator.webdav.core.filters.UnicodeResourcePathNormalizationFilter;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Applies the enabled {@link CompatibilityStep}s in a single filter, instead of dispatching each request through the six filters of the servlet library,
+ * each of which compares the method again and most of which wrap the request or response regardless of whether they need to.
+ * <p>
+ * The request's method and client are looked at once, and only the steps relevant to them are applied:
+ * <ul>
+ *     <li>Only responses to <code>OPTIONS</code> requests are wrapped to remove <code>POST</code> from the <code>Allow</code> header, as no other response carries it.</li>
+ *     <li>The {@link UnicodeResourcePathNormalizationFilter} is only invoked if the request path or <code>Destination</code> header contain non-ASCII characters
+ *     (after percent-decoding), which are the only ones affected by NFC normalization, or if a <code>PROPFIND</code> response needs to be normalized to NFD.</li>
+ *     <li>Chunked <code>PUT</code> requests of macOS are not wrapped, but the announced length is passed on to {@link FileContentReceiver} as a request attribute,
+ *     so that their content is still received without copying it through heap arrays.</li>
+ * </ul>
+ */
+class CompatibilityFilter implements Filter {
+
+	private static final Logger LOG = LoggerFactory.getLogger(CompatibilityFilter.class);
+	private static final String EXPECTED_ENTITY_LENGTH_ATTRIBUTE = CompatibilityFilter.class.getName() + ".expectedEntityLength";
+	private static final String NFD_RESPONSE_ATTRIBUTE = CompatibilityFilter.class.getName() + ".nfdResponse";
+	private static final String USER_AGENT_EXPECTING_NFD = "WebDAVFS"; // the library filter only matches this exact User-Agent
+
+	private final boolean requestLogging;
+	private final boolean unicodeNormalization;
+	private final boolean postBlocking;
+	private final boolean mkcolCompliance;
+	private final boolean acceptRanges;
+	private final boolean macChunkedPut;
+	private final Filter unicodeNormalizationFilter = new UnicodeResourcePathNormalizationFilter();
+	private final AtomicLong requestIds = new AtomicLong();
+
+	/**
+	 * @param steps The steps to apply
+	 */
+	CompatibilityFilter(Set<CompatibilityStep> steps) {
+		var enabled = steps.isEmpty() ? EnumSet.noneOf(CompatibilityStep.class) : EnumSet.copyOf(steps);
+		this.requestLogging = enabled.contains(CompatibilityStep.REQUEST_LOGGING);
+		this.unicodeNormalization = enabled.contains(CompatibilityStep.UNICODE_NORMALIZATION);
+		this.postBlocking = enabled.contains(CompatibilityStep.POST_BLOCKING);
+		this.mkcolCompliance = enabled.contains(CompatibilityStep.MKCOL_COMPLIANCE);
+		this.acceptRanges = enabled.contains(CompatibilityStep.ACCEPT_RANGES);
+		this.macChunkedPut = enabled.contains(CompatibilityStep.MAC_CHUNKED_PUT);
+	}
+
+	/**
+	 * @param request A request that passed this filter
+	 * @return The length given in the <code>X-Expected-Entity-Length</code> header of a chunked <code>PUT</code> request of macOS or {@link Long#MAX_VALUE}
+	 */
+	static long expectedEntityLength(HttpServletRequest request) {
+		return request.getAttribute(EXPECTED_ENTITY_LENGTH_ATTRIBUTE) instanceof Long length ? length : Long.MAX_VALUE;
+	}
+
+	/**
+	 * @param request A request that passed this filter
+	 * @return Whether the hrefs of the multistatus response get normalized to NFD, which requires the response to be of known length
+	 */
+	static boolean isNormalizingResponse(HttpServletRequest request) {
+		return request.getAttribute(NFD_RESPONSE_ATTRIBUTE) != null;
+	}
+
+	@Override
+	public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException, ServletException {
+		if (!(request instanceof HttpServletRequest httpRequest && response instanceof HttpServletResponse httpResponse)) {
+			chain.doFilter(request, response);
+		} else if (requestLogging && LOG.isDebugEnabled()) {
+			// same output as LoggingFilter
+			long requestId = requestIds.getAndIncrement();
+			LOG.debug("REQUEST {}:\n{} {} {}\n{}", requestId, httpRequest.getMethod(), httpRequest.getRequestURI(), httpRequest.getProtocol(), headers(httpRequest));
+			doFilterHttp(httpRequest, httpResponse, chain);
+			LOG.debug("RESPONSE {}:\n{}\n{}", requestId, httpResponse.getStatus(), headers(httpResponse));
+		} else {
+			doFilterHttp(httpRequest, httpResponse, chain);
+		}
+	}
+
+	private void doFilterHttp(HttpServletRequest request, HttpServletResponse response, FilterChain chain) throws IOException, ServletException {
+		var method = request.getMethod().toUpperCase(Locale.ROOT); // the library's filters compare methods case-insensitively
+		switch (method) {
+			case "POST" -> {
+				if (postBlocking) {
+					LOG.warn("Blocked POST request to {}", request.getRequestURI());
+					response.sendError(HttpServletResponse.SC_METHOD_NOT_ALLOWED);
+					return;
+				}
+			}
+			case "OPTIONS" -> {
+				if (postBlocking) {
+					response = new AllowHeaderFilteringResponse(response);
+				}
+			}
+			case "MKCOL" -> {
+				if (mkcolCompliance && (request.getContentLengthLong() > 0 || request.getHeader("Transfer-Encoding") != null)) {
+					LOG.warn("Blocked invalid MKCOL request to {}", request.getRequestURI());
+					response.sendError(HttpServletResponse.SC_UNSUPPORTED_MEDIA_TYPE, "MKCOL with body not supported.");
+					return;
+				}
+			}
+			case "GET" -> {
+				if (acceptRanges) {
+					response.addHeader("Accept-Ranges", "bytes");
+				}
+			}
+			case "PUT" -> {
+				var expectedEntityLength = request.getHeader("X-Expected-Entity-Length");
+				if (macChunkedPut && expectedEntityLength != null && "chunked".equalsIgnoreCase(request.getHeader("Transfer-Encoding"))) {
+					long length;
+					try {
+						length = Long.parseLong(expectedEntityLength);
+					} catch (NumberFormatException e) {
+						length = -1;
+					}
+					if (length < 0) {
+						response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid X-Expected-Entity-Length");
+						return;
+					}
+					request.setAttribute(EXPECTED_ENTITY_LENGTH_ATTRIBUTE, length);
+				}
+			}
+			default -> {
+				// no step applies
+			}
+		}
+		if (unicodeNormalization && needsUnicodeNormalization(request, method)) {
+			unicodeNormalizationFilter.doFilter(request, response, chain);
+		} else {
+			chain.doFilter(request, response);
+		}
+	}
+
+	private static boolean needsUnicodeNormalization(HttpServletRequest request, String method) {
+		if ("PROPFIND".equals(method) && USER_AGENT_EXPECTING_NFD.equals(request.getHeader("User-Agent"))) {
+			request.setAttribute(NFD_RESPONSE_ATTRIBUTE, Boolean.TRUE);
+			return true;
+		}
+		return mayContainNonAscii(request.getRequestURI()) || mayContainNonAscii(request.getHeader("Destination"));
+	}
+
+	// checks for raw non-ASCII characters as well as percent-encoded bytes of UTF-8 sequences, i.e. bytes of 0x80 and above
+	private static boolean mayContainNonAscii(@Nullable String uri) {
+		if (uri == null) {
+			return false;
+		}
+		for (int i = 0; i < uri.length(); i++) {
+			char c = uri.charAt(i);
+			if (c >= 0x80 || c == '%' && i + 1 < uri.length() && Character.digit(uri.charAt(i + 1), 16) >= 8) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static String headers(HttpServletRequest request) {
+		var sb = new StringBuilder();
+		for (var name : Collections.list(request.getHeaderNames())) {
+			for (var value : Collections.list(request.getHeaders(name))) {
+				sb.append(name).append(": ").append(value).append('\n');
+			}
+		}
+		return sb.toString();
+	}
+
+	private static String headers(HttpServletResponse response) {
+		var sb = new StringBuilder();
+		for (var name : response.getHeaderNames()) {
+			for (var value : response.getHeaders(name)) {
+				sb.append(name).append(": ").append(value).append('\n');
+			}
+		}
+		return sb.toString();
+	}
+
+	// same as PostRequestBlockingFilter's FilteredResponse
+	private static class AllowHeaderFilteringResponse extends HttpServletResponseWrapper {
+
+		AllowHeaderFilteringResponse(HttpServletResponse response) {
+			super(response);
+		}
+
+		@Override
+		public void addHeader(String name, String value) {
+			if ("Allow".equalsIgnoreCase(name)) {
+				super.setHeader(name, removePost(value));
+			} else {
+				super.addHeader(name, value);
+			}
+		}
+
+		@Override
+		public void setHeader(String name, String value) {
+			super.setHeader(name, "Allow".equalsIgnoreCase(name) ? removePost(value) : value);
+		}
+
+		private static String removePost(String allowedMethods) {
+			return Arrays.stream(allowedMethods.split("\\s*,\\s*")).filter(method -> !"POST".equals(method)).collect(Collectors.joining(","));
+		}
+
+	}
+
+}
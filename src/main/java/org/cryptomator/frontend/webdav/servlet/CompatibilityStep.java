@@ -0,0 +1,48 @@
+package org.cryptomator.frontend.webdav.servlet;
+
+/**
+ * Steps applied to requests before they reach the WebDAV servlet of a context, each replacing one of the servlet library's filters.
+ * By default, all of them are enabled.
+ *
+ * @see org.cryptomator.frontend.webdav.WebDavServer#createWebDavServlet(java.nio.file.Path, String, java.util.Set)
+ * @see WebDavServletFactory#createServletContext(java.nio.file.Path, String, java.util.Set)
+ */
+public enum CompatibilityStep {
+
+	/**
+	 * Logs requests and responses including their headers, if debug logging is enabled
+	 * (replaces {@link org.cryptomator.webdav.core.filters.LoggingFilter}).
+	 */
+	REQUEST_LOGGING,
+
+	/**
+	 * Normalizes request paths and <code>Destination</code> headers to NFC and the hrefs of <code>PROPFIND</code> responses to NFD for clients expecting so
+	 * (replaces {@link org.cryptomator.webdav.core.filters.UnicodeResourcePathNormalizationFilter}).
+	 */
+	UNICODE_NORMALIZATION,
+
+	/**
+	 * Answers <code>POST</code> requests with <code>405 Method Not Allowed</code> and removes <code>POST</code> from the <code>Allow</code> header
+	 * (replaces {@link org.cryptomator.webdav.core.filters.PostRequestBlockingFilter}).
+	 */
+	POST_BLOCKING,
+
+	/**
+	 * Answers <code>MKCOL</code> requests with a body with <code>415 Unsupported Media Type</code>
+	 * (replaces {@link org.cryptomator.webdav.core.filters.MkcolComplianceFilter}).
+	 */
+	MKCOL_COMPLIANCE,
+
+	/**
+	 * Adds <code>Accept-Ranges: bytes</code> to responses to <code>GET</code> requests
+	 * (replaces {@link org.cryptomator.webdav.core.filters.AcceptRangeFilter}).
+	 */
+	ACCEPT_RANGES,
+
+	/**
+	 * Cuts off chunked <code>PUT</code> requests of macOS after the length given in their <code>X-Expected-Entity-Length</code> header
+	 * (replaces {@link org.cryptomator.webdav.core.filters.MacChunkedPutCompatibilityFilter}).
+	 */
+	MAC_CHUNKED_PUT
+
+}
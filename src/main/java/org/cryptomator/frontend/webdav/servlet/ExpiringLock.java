@@ -0,0 +1,156 @@
+package org.cryptomator.frontend.webdav.servlet;
+
+import org.apache.jackrabbit.webdav.DavConstants;
+import org.apache.jackrabbit.webdav.lock.AbstractActiveLock;
+import org.apache.jackrabbit.webdav.lock.LockInfo;
+import org.apache.jackrabbit.webdav.lock.Scope;
+import org.apache.jackrabbit.webdav.lock.Type;
+
+import java.util.UUID;
+
+/**
+ * A lock held in a {@link LockTable}, which removes it via the {@link TimingWheel} once it has expired.
+ * <p>
+ * Behaves like the library's <code>ExclusiveSharedLock</code>, except that locks requested without a timeout or with an infinite one never expire,
+ * instead of expiring immediately or after roughly 24 days respectively.
+ */
+class ExpiringLock extends AbstractActiveLock implements TimingWheel.Timeout {
+
+	private static final long NEVER = Long.MAX_VALUE;
+
+	private final LockTable table;
+	private final String path;
+	private final String token;
+	private final Type type;
+	private final Scope scope;
+	private volatile String owner;
+	private volatile boolean isDeep;
+	private volatile long expirationTime;
+	private volatile boolean released;
+
+	ExpiringLock(LockTable table, String path, LockInfo lockInfo) {
+		this.table = table;
+		this.path = path;
+		this.token = "opaquelocktoken:" + UUID.randomUUID();
+		this.type = lockInfo.getType();
+		this.scope = lockInfo.getScope();
+		this.owner = lockInfo.getOwner();
+		this.isDeep = lockInfo.isDeep();
+		this.expirationTime = expirationTime(lockInfo.getTimeout());
+	}
+
+	private static long expirationTime(long timeout) {
+		if (timeout <= 0 || timeout == DavConstants.INFINITE_TIMEOUT) {
+			return NEVER;
+		}
+		return System.currentTimeMillis() + timeout;
+	}
+
+	String getPath() {
+		return path;
+	}
+
+	boolean expires() {
+		return expirationTime != NEVER;
+	}
+
+	void release() {
+		released = true;
+	}
+
+	@Override
+	public boolean isLockedByToken(String lockToken) {
+		return token.equals(lockToken);
+	}
+
+	@Override
+	public boolean isExpired() {
+		return System.currentTimeMillis() > expirationTime;
+	}
+
+	@Override
+	public String getToken() {
+		return token;
+	}
+
+	@Override
+	public String getOwner() {
+		return owner;
+	}
+
+	@Override
+	public void setOwner(String owner) {
+		this.owner = owner;
+	}
+
+	@Override
+	public long getTimeout() {
+		long expirationTime = this.expirationTime;
+		return expirationTime == NEVER ? DavConstants.INFINITE_TIMEOUT : expirationTime - System.currentTimeMillis();
+	}
+
+	/**
+	 * Extends or shortens this lock's lifetime. Extending it doesn't reschedule it, as the {@link TimingWheel} re-reads the {@link #deadline()}.
+	 *
+	 * @param timeout The new timeout in milliseconds from now
+	 */
+	@Override
+	public void setTimeout(long timeout) {
+		long previous = expirationTime;
+		expirationTime = expirationTime(timeout);
+		if (expirationTime < previous && !released) {
+			table.scheduleExpiry(this);
+		}
+	}
+
+	@Override
+	public boolean isDeep() {
+		return isDeep;
+	}
+
+	@Override
+	public void setIsDeep(boolean isDeep) {
+		this.isDeep = isDeep;
+	}
+
+	@Override
+	public Type getType() {
+		return type;
+	}
+
+	@Override
+	public Scope getScope() {
+		return scope;
+	}
+
+	@Override
+	public long deadline() {
+		return expirationTime;
+	}
+
+	@Override
+	public boolean isCancelled() {
+		return released;
+	}
+
+	@Override
+	public void expire() {
+		table.expire(this);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		return obj instanceof ExpiringLock other && token.equals(other.token);
+	}
+
+	@Override
+	public int hashCode() {
+		return token.hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return "lock on /" + path + " (" + token + ")";
+	}
+
+}
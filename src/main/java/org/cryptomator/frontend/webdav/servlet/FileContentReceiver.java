@@ -0,0 +1,112 @@
+package org.cryptomator.frontend.webdav.servlet;
+
+import org.eclipse.jetty.io.ByteBufferPool;
+import org.eclipse.jetty.server.HttpInput;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes the body of a <code>PUT</code> request to a file without copying it through heap arrays.
+ * <p>
+ * Content is read from Jetty's {@link HttpInput} straight into a direct buffer borrowed from a {@link ByteBufferPool} and written to the file from there,
+ * sparing the copy into a temporary direct buffer the JDK makes when writing heap buffers to a channel.
+ * Each buffer is filled completely before being written, and its size is a multiple of the file store's block size, so each write covers whole blocks.
+ * <p>
+ * Only if the request's input stream has been wrapped (i.e. is not Jetty's {@link HttpInput}), content gets copied through a small heap array first.
+ * Chunked uploads of macOS, whose body must be cut off after the announced length, are limited here instead of wrapping the stream, see {@link CompatibilityFilter}.
+ * <p>
+ * Each upload holds a single buffer at a time, so the memory used per upload is bounded by the buffer size, regardless of the file size or the backend's speed.
+ */
+class FileContentReceiver {
+
+	static final int MIN_BUFFER_SIZE = 256 * 1024;
+	static final int MAX_BUFFER_SIZE = 4 * 1024 * 1024;
+	private static final int DEFAULT_BLOCK_SIZE = 4096;
+	private static final int HEAP_CHUNK_SIZE = 16 * 1024;
+
+	private FileContentReceiver() {
+	}
+
+	/**
+	 * Determines the size of buffers used for writing files to the file store of the given directory.
+	 *
+	 * @param dir A directory of the file store
+	 * @return The smallest multiple of the file store's block size that is at least {@value #MIN_BUFFER_SIZE} bytes, but at most {@value #MAX_BUFFER_SIZE} bytes
+	 */
+	static int bufferSize(Path dir) {
+		long blockSize;
+		try {
+			blockSize = Files.getFileStore(dir).getBlockSize();
+		} catch (IOException | UnsupportedOperationException e) {
+			blockSize = DEFAULT_BLOCK_SIZE;
+		}
+		if (blockSize <= 0 || blockSize > MAX_BUFFER_SIZE) {
+			blockSize = DEFAULT_BLOCK_SIZE;
+		}
+		return (int) Math.min((MIN_BUFFER_SIZE + blockSize - 1) / blockSize * blockSize, MAX_BUFFER_SIZE);
+	}
+
+	/**
+	 * Creates or truncates the given file and writes everything read from <code>in</code> to it, but no more than <code>limit</code> bytes.
+	 *
+	 * @param in The request's input stream
+	 * @param path File to write
+	 * @param bufferPool Pool to borrow a direct buffer from
+	 * @param bufferSize Size of the buffer, see {@link #bufferSize(Path)}
+	 * @param limit Number of bytes after which the rest of the stream is ignored or {@link Long#MAX_VALUE}
+	 * @return The number of bytes written
+	 * @throws IOException If reading the request or writing the file fails
+	 */
+	static long receive(InputStream in, Path path, ByteBufferPool bufferPool, int bufferSize, long limit) throws IOException {
+		ByteBuffer buffer = bufferPool.acquire(bufferSize, true);
+		byte[] chunk = in instanceof HttpInput ? null : new byte[HEAP_CHUNK_SIZE];
+		long total = 0;
+		try (var channel = Files.newByteChannel(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			boolean eof = false;
+			while (!eof && total < limit) {
+				buffer.clear().limit((int) Math.min(bufferSize, limit - total));
+				eof = chunk == null ? fill((HttpInput) in, buffer) : fill(in, buffer, chunk);
+				buffer.flip();
+				total += buffer.remaining();
+				while (buffer.hasRemaining()) {
+					channel.write(buffer);
+				}
+			}
+		} finally {
+			bufferPool.release(buffer);
+		}
+		return total;
+	}
+
+	/**
+	 * @return Whether the end of the stream has been reached
+	 */
+	private static boolean fill(HttpInput in, ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			if (in.read(buffer) == -1) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return Whether the end of the stream has been reached
+	 */
+	private static boolean fill(InputStream in, ByteBuffer buffer, byte[] chunk) throws IOException {
+		while (buffer.hasRemaining()) {
+			int read = in.read(chunk, 0, Math.min(chunk.length, buffer.remaining()));
+			if (read == -1) {
+				return true;
+			}
+			buffer.put(chunk, 0, read);
+		}
+		return false;
+	}
+
+}
@@ -0,0 +1,189 @@
+package org.cryptomator.frontend.webdav.servlet;
+
+import org.cryptomator.integrations.common.OperatingSystem;
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.io.ByteBufferPool;
+import org.eclipse.jetty.server.HttpChannel;
+import org.eclipse.jetty.server.HttpOutput;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+
+/**
+ * Sends regions of a file to the client without copying them through heap arrays.
+ * <p>
+ * If the file system provides a {@link FileChannel} that supports {@link FileChannel#map(FileChannel.MapMode, long, long) mapping},
+ * large regions are mapped into memory and handed to Jetty as is, so the socket reads straight from the page cache.
+ * Mapping is skipped if the response gets compressed, as the deflater would read the mapping in user space, and on Windows, see {@link #MAPPING_ENABLED}.
+ * Otherwise, the content is read into a direct buffer borrowed from the connector's {@link ByteBufferPool}, which Jetty can write without further copies.
+ * <p>
+ * Only if the response's output stream has been wrapped (i.e. is not Jetty's {@link HttpOutput}), content gets copied through a heap array.
+ * <p>
+ * Each instance borrows a channel from the context's {@link ChannelPool} on first use and keeps it until closed, so that multiple regions can be sent in a single response,
+ * while responses consisting of cached content only don't need a channel at all.
+ */
+class FileContentSender implements Closeable {
+
+	// smaller regions aren't worth the cost of setting up and tearing down a mapping
+	static final long MIN_MAPPED_LENGTH = 1024 * 1024;
+	// bounds the size of each single mapping, not the address space held by a request, as all regions stay mapped until they get garbage collected:
+	static final long MAX_MAPPED_REGION_SIZE = 64L * 1024 * 1024;
+	/**
+	 * Mappings can't be released deterministically before Java 19, but only once garbage collected. As long as a mapping exists,
+	 * Windows refuses to delete, move or overwrite the file, which clients such as Explorer attempt right after reading it.
+	 */
+	static final boolean MAPPING_ENABLED = OperatingSystem.Value.current() != OperatingSystem.Value.WINDOWS;
+	static final int BUFFER_SIZE = 64 * 1024;
+
+	private final ChannelPool channelPool;
+	private final Path path;
+	private final long modificationTime;
+	private final OutputStream out;
+	private ChannelPool.Lease lease;
+	private boolean mappable;
+
+	/**
+	 * @param channelPool Pool to borrow a channel from
+	 * @param path File to send
+	 * @param modificationTime The file's modification time
+	 * @param out The response's output stream
+	 */
+	FileContentSender(ChannelPool channelPool, Path path, long modificationTime, OutputStream out) {
+		this.channelPool = channelPool;
+		this.path = path;
+		this.modificationTime = modificationTime;
+		this.out = out;
+	}
+
+	/**
+	 * Writes <code>length</code> bytes of the file starting at <code>offset</code>, failing with an {@link EOFException} if the file turns out to be shorter.
+	 *
+	 * @param offset Position of the first byte to send
+	 * @param length Number of bytes to send
+	 * @throws IOException If reading the file or writing the response fails
+	 */
+	void send(long offset, long length) throws IOException {
+		if (lease == null) {
+			lease = channelPool.acquire(path, modificationTime);
+			mappable = MAPPING_ENABLED && lease.channel() instanceof FileChannel;
+		}
+		if (out instanceof HttpOutput httpOutput) {
+			long position = offset;
+			if (mappable && length >= MIN_MAPPED_LENGTH && isWrittenToChannelDirectly(httpOutput)) {
+				position = sendMapped((FileChannel) lease.channel(), position, offset + length, httpOutput);
+			}
+			sendBuffered(position, offset + length, httpOutput, httpOutput.getHttpChannel().getByteBufferPool());
+		} else {
+			copy(offset, offset + length);
+		}
+	}
+
+	/**
+	 * Writes the remaining content of the given buffer, e.g. a block held by the {@link ReadAheadCache}.
+	 *
+	 * @param content Content to send, which must not be modified while being sent
+	 * @throws IOException If writing the response fails
+	 */
+	void send(ByteBuffer content) throws IOException {
+		if (out instanceof HttpOutput httpOutput) {
+			httpOutput.write(content);
+		} else {
+			byte[] chunk = new byte[Math.min(BUFFER_SIZE, content.remaining())];
+			while (content.hasRemaining()) {
+				int length = Math.min(chunk.length, content.remaining());
+				content.get(chunk, 0, length);
+				out.write(chunk, 0, length);
+			}
+		}
+	}
+
+	/**
+	 * Whether content is handed to the socket as is, i.e. neither compressed nor otherwise read in user space.
+	 * <p>
+	 * If a mapped file gets truncated concurrently, accessing the mapping beyond the new EOF raises a SIGBUS, which crashes the JVM.
+	 * When the socket reads the mapping, the kernel fails the write instead.
+	 */
+	private static boolean isWrittenToChannelDirectly(HttpOutput out) throws IOException {
+		if (out.getInterceptor() instanceof HttpChannel) {
+			return true;
+		}
+		// the compression stage decides on commit whether to deflate the content or to pass it through, e.g. depending on its type:
+		out.flush();
+		return !out.getHttpChannel().getResponse().containsHeader(HttpHeader.CONTENT_ENCODING.asString());
+	}
+
+	/**
+	 * @return The position up to which content has been sent, which is less than <code>end</code> if the channel doesn't support mapping
+	 */
+	private long sendMapped(FileChannel channel, long position, long end, HttpOutput out) throws IOException {
+		while (position < end) {
+			long regionSize = Math.min(end - position, MAX_MAPPED_REGION_SIZE);
+			if (position + regionSize > channel.size()) {
+				// accessing a mapping beyond EOF crashes the accessing thread, so don't even try:
+				throw new EOFException("File shrunk while being sent");
+			}
+			ByteBuffer region;
+			try {
+				region = channel.map(FileChannel.MapMode.READ_ONLY, position, regionSize);
+			} catch (UnsupportedOperationException e) {
+				mappable = false;
+				return position;
+			}
+			out.write(region);
+			position += regionSize;
+		}
+		return position;
+	}
+
+	private void sendBuffered(long position, long end, HttpOutput out, ByteBufferPool bufferPool) throws IOException {
+		if (position >= end) {
+			return;
+		}
+		ByteBuffer buffer = bufferPool.acquire(BUFFER_SIZE, true);
+		try {
+			while (position < end) {
+				buffer.clear().limit((int) Math.min(buffer.capacity(), end - position));
+				position += readFully(buffer, position);
+				buffer.flip();
+				out.write(buffer); // blocks until the buffer has been consumed
+			}
+		} finally {
+			bufferPool.release(buffer);
+		}
+	}
+
+	private void copy(long position, long end) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+		while (position < end) {
+			buffer.clear().limit((int) Math.min(buffer.capacity(), end - position));
+			int read = readFully(buffer, position);
+			out.write(buffer.array(), 0, read);
+			position += read;
+		}
+	}
+
+	private int readFully(ByteBuffer buffer, long position) throws IOException {
+		int total = 0;
+		while (buffer.hasRemaining()) {
+			int read = lease.read(buffer, position + total);
+			if (read == -1) {
+				throw new EOFException("File shrunk while being sent");
+			}
+			total += read;
+		}
+		return total;
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (lease != null) {
+			lease.close();
+		}
+	}
+
+}
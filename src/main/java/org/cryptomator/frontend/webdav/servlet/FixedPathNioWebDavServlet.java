@@ -1,15 +1,108 @@
 package org.cryptomator.frontend.webdav.servlet;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPOutputStream;
 
+import org.apache.jackrabbit.webdav.ContentCodingAwareRequest;
+import org.apache.jackrabbit.webdav.DavConstants;
+import org.apache.jackrabbit.webdav.DavException;
+import org.apache.jackrabbit.webdav.DavResource;
+import org.apache.jackrabbit.webdav.DavResourceLocator;
+import org.apache.jackrabbit.webdav.DavServletResponse;
+import org.apache.jackrabbit.webdav.DavSession;
+import org.apache.jackrabbit.webdav.MultiStatusResponse;
+import org.apache.jackrabbit.webdav.WebdavRequest;
+import org.apache.jackrabbit.webdav.WebdavResponse;
+import org.apache.jackrabbit.webdav.lock.ActiveLock;
+import org.apache.jackrabbit.webdav.lock.LockManager;
+import org.apache.jackrabbit.webdav.lock.Scope;
+import org.apache.jackrabbit.webdav.lock.Type;
+import org.apache.jackrabbit.webdav.property.DavPropertyName;
+import org.apache.jackrabbit.webdav.property.DavPropertyNameSet;
 import org.cryptomator.webdav.core.servlet.AbstractNioWebDavServlet;
+import org.eclipse.jetty.io.ArrayByteBufferPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.xml.stream.XMLStreamException;
 
 class FixedPathNioWebDavServlet extends AbstractNioWebDavServlet {
 
+	private static final Logger LOG = LoggerFactory.getLogger(FixedPathNioWebDavServlet.class);
+
 	private Path rootPath;
+	private final AttributePrefetching attributePrefetching;
+	private final ChannelPool channelPool;
+	private final ReadAheadCache readAheadCache;
+	private final LockTable lockTable;
+	private final ArrayByteBufferPool uploadBufferPool;
+	private volatile int uploadBufferSize;
 
-	public FixedPathNioWebDavServlet(Path rootPath) {
+	public FixedPathNioWebDavServlet(Path rootPath, String contextPath, AttributePrefetching attributePrefetching, ChannelPooling channelPooling, ReadAheadCaching readAheadCaching, Locking locking) {
 		this.rootPath = rootPath;
+		this.attributePrefetching = attributePrefetching;
+		this.channelPool = channelPooling.newPool();
+		this.readAheadCache = readAheadCaching.newCache(channelPool);
+		this.lockTable = locking.newTable(contextPath);
+		installLockManager(lockTable);
+		// retains up to four idle buffers of the largest size, while any number of uploads may be in flight with one buffer each:
+		this.uploadBufferPool = new ArrayByteBufferPool(0, FileContentReceiver.MIN_BUFFER_SIZE, FileContentReceiver.MAX_BUFFER_SIZE, -1, 0, 4L * FileContentReceiver.MAX_BUFFER_SIZE);
+	}
+
+	/**
+	 * Replaces the <code>ExclusiveSharedLockManager</code>, which the resource factory passes to every resource it creates, with the given lock table.
+	 * The library offers no hook to do so: The factory class is package-private, holds the lock manager in a <code>private final</code> field,
+	 * and its resources don't support {@link DavResource#addLockManager(LockManager)}. Hence the final field is overwritten reflectively,
+	 * which is permitted for instance fields of ordinary classes once made accessible.
+	 * <p>
+	 * Fails fast if this isn't possible (e.g. due to a changed library), as silently falling back to the library's lock manager would
+	 * leave the lock table empty, despite being reported by {@link Locking#getLockCounts()}.
+	 *
+	 * @throws IllegalStateException If the lock table couldn't be installed
+	 */
+	private void installLockManager(LockManager lockManager) throws IllegalStateException {
+		var factory = getResourceFactory();
+		try {
+			Field field = factory.getClass().getDeclaredField("lockManager");
+			field.setAccessible(true);
+			field.set(factory, lockManager);
+			if (field.get(factory) != lockManager) {
+				throw new IllegalStateException("Lock manager field of " + factory.getClass().getName() + " not updated.");
+			}
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			lockTable.close();
+			throw new IllegalStateException("Failed to install lock table into " + factory.getClass().getName(), e);
+		}
+	}
+
+	@Override
+	public void destroy() {
+		lockTable.close();
+		channelPool.close();
+		uploadBufferPool.clear();
+		super.destroy();
 	}
 
 	@Override
@@ -17,5 +110,416 @@ class FixedPathNioWebDavServlet extends AbstractNioWebDavServlet {
 		return rootPath.resolve(relativeUrl);
 	}
 
-}
+	@Override
+	protected void service(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+		super.service(Preconditions.hideEntityTagIfRange(request), response);
+	}
+
+	/**
+	 * Sends the content of files via {@link FileContentSender}, i.e. without copying it through heap arrays, setting the same headers as
+	 * <code>DavFile</code> and <code>DavFileWithRange</code> would.
+	 * <p>
+	 * The <code>Range</code> header is parsed by {@link ByteRangeSet}, regardless of what the resource factory decided.
+	 * Requests for multiple ranges, which the resource factory answers with the whole file, receive a <code>multipart/byteranges</code> response instead.
+	 * Single ranges are served through the {@link ReadAheadCache}, if enabled.
+	 * <p>
+	 * Responses carry an <code>ETag</code> and conditional requests are answered with <code>304 Not Modified</code> or <code>412 Precondition Failed</code>
+	 * before opening the file, see {@link Preconditions}.
+	 * <p>
+	 * Collections are still handled by the superclass.
+	 */
+	@Override
+	protected void doGet(WebdavRequest request, WebdavResponse response, DavResource resource) throws IOException, DavException {
+		if (!resource.exists() || resource.isCollection()) {
+			super.doGet(request, response, resource);
+			return;
+		}
+		var contentLength = resource.getProperty(DavPropertyName.GETCONTENTLENGTH);
+		if (contentLength == null || !(contentLength.getValue() instanceof Long size)) {
+			super.doGet(request, response, resource);
+			return;
+		}
+		long modificationTime = resource.getModificationTime();
+		var entityTag = Preconditions.entityTag(size, modificationTime);
+		if (!checkPreconditions(request, response, entityTag, modificationTime)) {
+			return;
+		}
+		var path = resolveUrl(resource.getLocator().getResourcePath());
+		// the resource factory may already have set 206 for a single range, but without knowing about entity tags in If-Range, so decide on our own:
+		var ranges = ByteRangeSet.parse(request.getHeader("Range"), size);
+		if (ranges.isPresent() && !Preconditions.isIfRangeSatisfied(request, entityTag, modificationTime)) {
+			ranges = Optional.empty(); // If-Range is only evaluated along with a Range header, see RFC 7233, section 3.2
+		}
+		if (ranges.isEmpty()) {
+			response.setStatus(DavServletResponse.SC_OK);
+			setFileHeaders(response);
+			response.setContentLengthLong(size);
+			try (var sender = new FileContentSender(channelPool, path, modificationTime, response.getOutputStream())) {
+				sender.send(0, size);
+			}
+		} else if (ranges.get().isEmpty()) {
+			sendUnsatisfiableRange(response, size);
+		} else if (ranges.get().size() == 1) {
+			sendRange(response, path, modificationTime, ranges.get().get(0), size);
+		} else {
+			sendRanges(response, path, modificationTime, ranges.get(), size);
+		}
+		response.flushBuffer();
+	}
+
+	/**
+	 * Answers <code>HEAD</code> requests for files like <code>DavFile</code> would, adding an <code>ETag</code> and evaluating conditional headers, see {@link Preconditions}.
+	 */
+	@Override
+	protected void doHead(WebdavRequest request, WebdavResponse response, DavResource resource) throws IOException {
+		var contentLength = resource.exists() && !resource.isCollection() ? resource.getProperty(DavPropertyName.GETCONTENTLENGTH) : null;
+		if (contentLength == null || !(contentLength.getValue() instanceof Long size)) {
+			super.doHead(request, response, resource);
+			return;
+		}
+		long modificationTime = resource.getModificationTime();
+		var entityTag = Preconditions.entityTag(size, modificationTime);
+		try {
+			checkPreconditions(request, response, entityTag, modificationTime);
+			response.flushBuffer();
+		} catch (DavException e) {
+			response.sendError(e.getErrorCode());
+		}
+	}
+
+	/**
+	 * Sets <code>ETag</code> and <code>Last-Modified</code> and evaluates the conditional headers of <code>GET</code> and <code>HEAD</code> requests.
+	 *
+	 * @return <code>true</code> if the request shall proceed, <code>false</code> if it has been answered with <code>304 Not Modified</code>
+	 * @throws DavException <code>412 Precondition Failed</code>
+	 */
+	private static boolean checkPreconditions(WebdavRequest request, WebdavResponse response, String entityTag, long modificationTime) throws DavException {
+		var result = Preconditions.evaluate(request, true, entityTag, modificationTime, true);
+		if (result == Preconditions.Result.FAILED) {
+			throw new DavException(DavServletResponse.SC_PRECONDITION_FAILED);
+		} else if (result == Preconditions.Result.NOT_MODIFIED) {
+			response.setStatus(DavServletResponse.SC_NOT_MODIFIED);
+		}
+		if (modificationTime >= 0) {
+			response.addDateHeader("Last-Modified", modificationTime);
+		}
+		if (entityTag != null) {
+			response.setHeader("ETag", entityTag);
+		}
+		return result == Preconditions.Result.PASSED;
+	}
 
+	// not via sendError(), which would drop the Content-Range header
+	private static void sendUnsatisfiableRange(WebdavResponse response, long size) {
+		response.setStatus(DavServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+		response.setHeader("Content-Range", "bytes */" + size);
+		response.setContentLength(0);
+	}
+
+	private void sendRange(WebdavResponse response, Path path, long modificationTime, ByteRangeSet.Range range, long size) throws IOException {
+		response.setStatus(DavServletResponse.SC_PARTIAL_CONTENT);
+		response.setContentLengthLong(range.length());
+		response.setHeader("Content-Range", contentRange(range, size));
+		setFileHeaders(response);
+		try (var sender = new FileContentSender(channelPool, path, modificationTime, response.getOutputStream())) {
+			if (readAheadCache != null) {
+				readAheadCache.send(sender, path, modificationTime, size, range.first(), range.length());
+			} else {
+				sender.send(range.first(), range.length());
+			}
+		}
+	}
+
+	// multipart/byteranges as specified in RFC 7233, appendix A, with a precomputed Content-Length
+	private void sendRanges(WebdavResponse response, Path path, long modificationTime, List<ByteRangeSet.Range> ranges, long size) throws IOException {
+		var boundary = UUID.randomUUID().toString();
+		var partHeaders = new ArrayList<byte[]>(ranges.size());
+		long contentLength = 0;
+		for (var range : ranges) {
+			var partHeader = (partHeaders.isEmpty() ? "" : "\r\n") + "--" + boundary + "\r\nContent-Type: application/octet-stream\r\nContent-Range: " + contentRange(range, size) + "\r\n\r\n";
+			partHeaders.add(partHeader.getBytes(StandardCharsets.US_ASCII));
+			contentLength += partHeaders.get(partHeaders.size() - 1).length + range.length();
+		}
+		var closeDelimiter = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+		contentLength += closeDelimiter.length;
+
+		response.setStatus(DavServletResponse.SC_PARTIAL_CONTENT);
+		response.setContentLengthLong(contentLength);
+		response.setContentType("multipart/byteranges; boundary=" + boundary);
+		response.setHeader("Content-Disposition", "attachment");
+		response.setHeader("X-Content-Type-Options", "nosniff");
+		var out = response.getOutputStream();
+		try (var sender = new FileContentSender(channelPool, path, modificationTime, out)) {
+			for (int i = 0; i < ranges.size(); i++) {
+				out.write(partHeaders.get(i));
+				sender.send(ranges.get(i).first(), ranges.get(i).length());
+			}
+		}
+		out.write(closeDelimiter);
+	}
+
+	private static String contentRange(ByteRangeSet.Range range, long size) {
+		return String.format("bytes %d-%d/%d", range.first(), range.last(), size);
+	}
+
+	private static void setFileHeaders(WebdavResponse response) {
+		response.setContentType("application/octet-stream");
+		response.setHeader("Content-Disposition", "attachment");
+		response.setHeader("X-Content-Type-Options", "nosniff");
+	}
+
+	// caches get invalidated before modifying files, so that no pooled channel keeps them open (which e.g. Windows wouldn't allow when deleting),
+	// and again afterwards, to drop anything read concurrently
+	@Override
+	protected void doPut(WebdavRequest request, WebdavResponse response, DavResource resource) throws IOException, DavException {
+		invalidateCaches(resource.getLocator());
+		try {
+			if (resource.isCollection()) {
+				super.doPut(request, response, resource);
+			} else {
+				receiveFile(request, response, resource);
+			}
+		} finally {
+			invalidateCaches(resource.getLocator());
+		}
+	}
+
+	/**
+	 * Writes the content of files via {@link FileContentReceiver}, i.e. through a single pooled direct buffer per upload instead of copying it through heap arrays,
+	 * answering the same way as <code>AbstractNioWebDavServlet</code> and <code>AbstractWebdavServlet</code> would.
+	 * <p>
+	 * <code>If-Match</code> and <code>If-None-Match</code> are evaluated against the existing file's entity tag, see {@link Preconditions}.
+	 * Only then, the file's attributes are read.
+	 */
+	private void receiveFile(WebdavRequest request, WebdavResponse response, DavResource resource) throws IOException, DavException {
+		if (isLocked(resource) && !hasCorrectLockTokens(request.getDavSession(), resource)) {
+			throw new DavException(DavServletResponse.SC_LOCKED, "The resource is locked");
+		}
+		var path = resolveUrl(resource.getLocator().getResourcePath());
+		if (request.getHeader("If-Match") != null || request.getHeader("If-None-Match") != null) {
+			checkPreconditions(request, path);
+		}
+		if (request.getHeader("Content-Range") != null) {
+			response.sendError(DavServletResponse.SC_BAD_REQUEST, "Content-Range in PUT request not supported");
+			return;
+		}
+		var parent = resource.getCollection();
+		if (parent == null || !parent.exists()) {
+			response.sendError(DavServletResponse.SC_CONFLICT);
+			return;
+		}
+		int status = resource.exists() ? DavServletResponse.SC_NO_CONTENT : DavServletResponse.SC_CREATED;
+		try {
+			FileContentReceiver.receive(request.getInputStream(), path, uploadBufferPool, uploadBufferSize(), CompatibilityFilter.expectedEntityLength(request));
+		} catch (FileSystemException e) {
+			// same as DavFolder's private addMemberFile()
+			if (e.getReason() != null && e.getReason().contains("path too long")) {
+				throw new DavException(DavServletResponse.SC_REQUEST_URI_TOO_LONG);
+			}
+			throw new UncheckedIOException(e);
+		}
+		response.setStatus(status);
+	}
+
+	// the resource factory doesn't pass the attributes of existing files on to resources created for PUT, so they need to be read again
+	private static void checkPreconditions(WebdavRequest request, Path path) throws IOException, DavException {
+		BasicFileAttributes attrs;
+		try {
+			attrs = Files.readAttributes(path, BasicFileAttributes.class);
+		} catch (NoSuchFileException e) {
+			attrs = null;
+		}
+		long modificationTime = attrs == null ? -1 : attrs.lastModifiedTime().toMillis();
+		var entityTag = attrs == null ? null : Preconditions.entityTag(attrs.size(), modificationTime);
+		if (Preconditions.evaluate(request, attrs != null, entityTag, modificationTime, false) == Preconditions.Result.FAILED) {
+			throw new DavException(DavServletResponse.SC_PRECONDITION_FAILED);
+		}
+	}
+
+	// determined lazily, as the root might not be accessible yet when creating the servlet
+	private int uploadBufferSize() {
+		if (uploadBufferSize == 0) {
+			uploadBufferSize = FileContentReceiver.bufferSize(rootPath);
+		}
+		return uploadBufferSize;
+	}
+
+	// same condition as in AbstractNioWebDavServlet's private isLocked()
+	private static boolean isLocked(DavResource resource) {
+		return resource.hasLock(Type.WRITE, Scope.EXCLUSIVE) || resource.hasLock(Type.WRITE, Scope.SHARED);
+	}
+
+	// same condition as in AbstractNioWebDavServlet's private hasCorrectLockTokens()
+	private static boolean hasCorrectLockTokens(DavSession session, DavResource resource) {
+		var requestedTokens = Set.of(session.getLockTokens());
+		return Arrays.stream(resource.getLocks()).map(ActiveLock::getToken).anyMatch(requestedTokens::contains);
+	}
+
+	@Override
+	protected void doDelete(WebdavRequest request, WebdavResponse response, DavResource resource) throws IOException, DavException {
+		invalidateCaches(resource.getLocator());
+		try {
+			super.doDelete(request, response, resource);
+		} finally {
+			invalidateCaches(resource.getLocator());
+		}
+	}
+
+	@Override
+	protected void doMove(WebdavRequest request, WebdavResponse response, DavResource resource) throws IOException, DavException {
+		invalidateCaches(resource.getLocator());
+		invalidateCachesOfDestination(request);
+		try {
+			super.doMove(request, response, resource);
+		} finally {
+			invalidateCaches(resource.getLocator());
+			invalidateCachesOfDestination(request);
+		}
+	}
+
+	@Override
+	protected void doCopy(WebdavRequest request, WebdavResponse response, DavResource resource) throws IOException, DavException {
+		invalidateCachesOfDestination(request);
+		try {
+			super.doCopy(request, response, resource);
+		} finally {
+			invalidateCachesOfDestination(request);
+		}
+	}
+
+	private void invalidateCaches(DavResourceLocator locator) {
+		if (locator == null) {
+			return;
+		}
+		var path = resolveUrl(locator.getResourcePath());
+		channelPool.invalidate(path);
+		if (readAheadCache != null) {
+			readAheadCache.invalidate(path);
+		}
+	}
+
+	private void invalidateCachesOfDestination(WebdavRequest request) {
+		try {
+			invalidateCaches(request.getDestinationLocator());
+		} catch (DavException e) {
+			// malformed destination, so nothing gets written
+		}
+	}
+
+	/**
+	 * Streams the multistatus response of <code>PROPFIND</code> requests with <code>Depth: 1</code> or <code>Depth: infinity</code>,
+	 * writing each <code>&lt;D:response&gt;</code> as soon as its directory entry has been read, instead of collecting all of them in memory first.
+	 * With <code>Depth: 1</code>, the members' attributes are read concurrently, see {@link AttributePrefetching}.
+	 * <p>
+	 * Clients expecting NFD-normalized hrefs still receive a buffered response,
+	 * as the {@link org.cryptomator.webdav.core.filters.UnicodeResourcePathNormalizationFilter} can only normalize responses of known length.
+	 * Whether they do has already been decided by the {@link CompatibilityFilter}.
+	 */
+	@Override
+	protected void doPropFind(WebdavRequest request, WebdavResponse response, DavResource resource) throws IOException, DavException {
+		int depth = request.getDepth(DavConstants.DEPTH_INFINITY);
+		if (!resource.exists() || !resource.isCollection() || depth == DavConstants.DEPTH_0 || CompatibilityFilter.isNormalizingResponse(request)) {
+			super.doPropFind(request, response, resource);
+			return;
+		}
+		var propNames = request.getPropFindProperties();
+		var propFindType = request.getPropFindType();
+		if (request instanceof ContentCodingAwareRequest r && r.getRequestContentCodings().isEmpty()) {
+			response.setHeader("Accept-Encoding", r.getAcceptableCodings()); // same hint as given by AbstractWebdavServlet
+		}
+		response.setStatus(DavServletResponse.SC_MULTI_STATUS);
+		response.setContentType("text/xml; charset=UTF-8");
+		OutputStream out = response.getOutputStream();
+		if (acceptsGzipEncoding(request)) {
+			response.setHeader("Content-Encoding", "gzip");
+			out = new GZIPOutputStream(out);
+		}
+		try {
+			var writer = new MultiStatusWriter(out);
+			writeResourceProperties(writer, request, resource, propNames, propFindType, depth);
+			writer.finish();
+		} catch (XMLStreamException e) {
+			throw new IOException("Failed to write multistatus response", e);
+		}
+	}
+
+	// same order as org.apache.jackrabbit.webdav.MultiStatus.addResourceProperties(), i.e. depth-first
+	private void writeResourceProperties(MultiStatusWriter writer, WebdavRequest request, DavResource resource, DavPropertyNameSet propNames, int propFindType, int depth) throws IOException, XMLStreamException {
+		writer.write(new MultiStatusResponse(resource, propNames, propFindType));
+		if (depth > 0 && resource.isCollection()) {
+			DavResourceLocator locator = resource.getLocator();
+			try (DirectoryStream<Path> children = Files.newDirectoryStream(resolveUrl(locator.getResourcePath()))) {
+				if (depth == 1 && attributePrefetching.isEnabled()) {
+					writeMemberProperties(writer, request.getDavSession(), locator, children, propNames, propFindType);
+				} else {
+					for (Path child : children) {
+						var member = createMember(request.getDavSession(), locator, child.getFileName().toString());
+						if (member != null) {
+							writeResourceProperties(writer, request, member, propNames, propFindType, depth - 1);
+						}
+					}
+				}
+			}
+		}
+	}
+
+	// reads up to `parallelism` members concurrently, writing each one as soon as it and all of its predecessors in directory order are available
+	private void writeMemberProperties(MultiStatusWriter writer, DavSession session, DavResourceLocator locator, DirectoryStream<Path> children, DavPropertyNameSet propNames, int propFindType) throws IOException, XMLStreamException {
+		Deque<Future<MultiStatusResponse>> pending = new ArrayDeque<>(attributePrefetching.parallelism());
+		try {
+			for (Path child : children) {
+				var name = child.getFileName().toString();
+				pending.add(attributePrefetching.submit(() -> {
+					var member = createMember(session, locator, name);
+					return member == null ? null : new MultiStatusResponse(member, propNames, propFindType);
+				}));
+				if (pending.size() == attributePrefetching.parallelism()) {
+					writeIfPresent(writer, AttributePrefetching.await(pending.remove()));
+				}
+			}
+			while (!pending.isEmpty()) {
+				writeIfPresent(writer, AttributePrefetching.await(pending.remove()));
+			}
+		} finally {
+			// don't interrupt running tasks, as interrupting NIO operations closes the channels involved (ClosedByInterruptException)
+			pending.forEach(task -> task.cancel(false));
+		}
+	}
+
+	private static void writeIfPresent(MultiStatusWriter writer, MultiStatusResponse response) throws XMLStreamException {
+		if (response != null) {
+			writer.write(response);
+		}
+	}
+
+	private DavResource createMember(DavSession session, DavResourceLocator parentLocator, String name) {
+		var memberPath = parentLocator.isRootLocation() ? name : parentLocator.getResourcePath() + "/" + name;
+		var memberLocator = parentLocator.getFactory().createResourceLocator(parentLocator.getPrefix(), parentLocator.getWorkspacePath(), memberPath);
+		try {
+			return getResourceFactory().createResource(memberLocator, session);
+		} catch (DavException e) {
+			if (e.getErrorCode() == DavServletResponse.SC_NOT_FOUND) {
+				LOG.warn("File disappeared during directory listing: {}", memberPath);
+			} else {
+				LOG.error("Failed to read attributes of {}", memberPath, e);
+			}
+			return null;
+		}
+	}
+
+	// same as AbstractWebdavServlet's private method of the same name
+	private static boolean acceptsGzipEncoding(HttpServletRequest request) {
+		var acceptEncodings = request.getHeaders("Accept-Encoding");
+		while (acceptEncodings.hasMoreElements()) {
+			for (var coding : acceptEncodings.nextElement().split(",")) {
+				var paramsStart = coding.indexOf(';');
+				var name = paramsStart == -1 ? coding : coding.substring(0, paramsStart);
+				if ("gzip".equals(name.replace(" ", ""))) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+}
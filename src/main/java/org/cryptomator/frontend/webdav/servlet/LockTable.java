@@ -0,0 +1,332 @@
+package org.cryptomator.frontend.webdav.servlet;
+
+import org.apache.jackrabbit.webdav.DavException;
+import org.apache.jackrabbit.webdav.DavResource;
+import org.apache.jackrabbit.webdav.DavServletResponse;
+import org.apache.jackrabbit.webdav.lock.ActiveLock;
+import org.apache.jackrabbit.webdav.lock.LockInfo;
+import org.apache.jackrabbit.webdav.lock.LockManager;
+import org.apache.jackrabbit.webdav.lock.Scope;
+import org.apache.jackrabbit.webdav.lock.Type;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * The locks of a single context, replacing the library's <code>ExclusiveSharedLockManager</code>, which serializes all <code>LOCK</code> and <code>UNLOCK</code>
+ * requests of a vault and scans all of its locks for conflicts with every new one.
+ * <p>
+ * Locks are kept in a node per locked path. Each ancestor of a locked path has a node as well, counting the locks in its subtree,
+ * so checking a new lock for conflicts with locks above and below it costs one lookup per path segment, regardless of the number of locks.
+ * Looking up locks never blocks. Creating and releasing locks takes the write lock of a stripe guarding the affected path and the read locks of the stripes
+ * guarding its ancestors, so these requests only wait for each other, if their paths are related (or happen to share a stripe).
+ * <p>
+ * Expired locks are ignored by lookups and removed by the {@link TimingWheel} of the server's {@link Locking}.
+ * Conflicts are reported with the same status codes and messages as by the library.
+ */
+class LockTable implements LockManager {
+
+	private static final int STRIPES = 64; // must be a power of two
+
+	private final String contextPath;
+	private final TimingWheel expiry;
+	private final Runnable onExpired;
+	private final Consumer<LockTable> onClose;
+	private final ConcurrentMap<String, Node> nodes = new ConcurrentHashMap<>();
+	private final ReentrantReadWriteLock[] stripes = new ReentrantReadWriteLock[STRIPES];
+	private final AtomicInteger lockCount = new AtomicInteger();
+
+	LockTable(String contextPath, TimingWheel expiry, Runnable onExpired, Consumer<LockTable> onClose) {
+		this.contextPath = contextPath;
+		this.expiry = expiry;
+		this.onExpired = onExpired;
+		this.onClose = onClose;
+		for (int i = 0; i < STRIPES; i++) {
+			stripes[i] = new ReentrantReadWriteLock();
+		}
+	}
+
+	private static class Node {
+
+		// all fields are only modified within Map.compute() and the list is copied on write:
+		private volatile List<ExpiringLock> locks = List.of();
+		private volatile int exclusiveBelow; // number of exclusive locks on descendants
+		private volatile int sharedBelow;
+		private volatile int exclusiveInChildren; // number of exclusive locks on direct children
+		private volatile int sharedInChildren;
+
+		private boolean isEmpty() {
+			return locks.isEmpty() && exclusiveBelow == 0 && sharedBelow == 0;
+		}
+
+		// mirrors the check of ExclusiveSharedLockManager, which lets shared locks coexist and only considers children for locks of depth 0
+		private boolean hasConflictBelow(LockInfo lockInfo) {
+			boolean exclusive = Scope.EXCLUSIVE.equals(lockInfo.getScope());
+			if (lockInfo.isDeep()) {
+				return exclusiveBelow > 0 || exclusive && sharedBelow > 0;
+			} else {
+				return exclusiveInChildren > 0 || exclusive && sharedInChildren > 0;
+			}
+		}
+
+		private void countBelow(ExpiringLock lock, boolean isChild, int delta) {
+			if (Scope.EXCLUSIVE.equals(lock.getScope())) {
+				exclusiveBelow += delta;
+				exclusiveInChildren += isChild ? delta : 0;
+			} else {
+				sharedBelow += delta;
+				sharedInChildren += isChild ? delta : 0;
+			}
+		}
+
+	}
+
+	String getContextPath() {
+		return contextPath;
+	}
+
+	/**
+	 * @return The number of locks, including expired ones not yet removed
+	 */
+	int size() {
+		return lockCount.get();
+	}
+
+	/**
+	 * Discards all locks. Must be invoked when the context stops.
+	 */
+	void close() {
+		onClose.accept(this);
+		nodes.values().forEach(node -> node.locks.forEach(ExpiringLock::release));
+		nodes.clear();
+		lockCount.set(0);
+	}
+
+	@Override
+	public ActiveLock createLock(LockInfo lockInfo, DavResource resource) throws DavException {
+		var path = pathOf(resource);
+		var guard = acquire(path);
+		try {
+			boolean exclusivelyLocked = findLock(lockInfo.getType(), Scope.EXCLUSIVE, path) != null;
+			boolean sharedLocked = findLock(lockInfo.getType(), Scope.SHARED, path) != null;
+			if (Scope.EXCLUSIVE.equals(lockInfo.getScope()) && (exclusivelyLocked || sharedLocked) || Scope.SHARED.equals(lockInfo.getScope()) && exclusivelyLocked) {
+				throw new DavException(DavServletResponse.SC_LOCKED, "Resource (or parent resource) already locked.");
+			}
+			var node = nodes.get(path);
+			if (node != null && node.hasConflictBelow(lockInfo)) {
+				throw new DavException(DavServletResponse.SC_CONFLICT, "Subresource already locked. " + path);
+			}
+			var lock = new ExpiringLock(this, path, lockInfo);
+			add(lock);
+			if (lock.expires()) {
+				expiry.schedule(lock);
+			}
+			return lock;
+		} finally {
+			release(guard);
+		}
+	}
+
+	@Override
+	public ActiveLock refreshLock(LockInfo lockInfo, String lockToken, DavResource resource) throws DavException {
+		var lock = getLock(lockInfo.getType(), lockInfo.getScope(), resource);
+		if (lock == null) {
+			throw new DavException(DavServletResponse.SC_PRECONDITION_FAILED);
+		} else if (!lock.isLockedByToken(lockToken)) {
+			throw new DavException(DavServletResponse.SC_LOCKED);
+		}
+		lock.setTimeout(lockInfo.getTimeout());
+		return lock;
+	}
+
+	@Override
+	public void releaseLock(String lockToken, DavResource resource) throws DavException {
+		var path = pathOf(resource);
+		var guard = acquire(path);
+		try {
+			var node = nodes.get(path);
+			if (node == null || node.locks.isEmpty()) {
+				return;
+			}
+			var lock = node.locks.stream().filter(l -> l.isLockedByToken(lockToken)).findAny();
+			if (lock.isEmpty()) {
+				throw new DavException(DavServletResponse.SC_LOCKED, "Resource locked with different token.");
+			}
+			remove(lock.get());
+		} finally {
+			release(guard);
+		}
+	}
+
+	@Override
+	public ActiveLock getLock(Type type, Scope scope, DavResource resource) {
+		return findLock(type, scope, pathOf(resource));
+	}
+
+	@Override
+	public boolean hasLock(String lockToken, DavResource resource) {
+		var node = lockCount.get() == 0 ? null : nodes.get(pathOf(resource));
+		return node != null && node.locks.stream().anyMatch(l -> l.isLockedByToken(lockToken) && !l.isExpired());
+	}
+
+	void scheduleExpiry(ExpiringLock lock) {
+		expiry.schedule(lock);
+	}
+
+	/**
+	 * Invoked by the {@link TimingWheel}. Removes the given lock, unless it has been refreshed or released in the meantime.
+	 *
+	 * @param lock An expired lock
+	 */
+	void expire(ExpiringLock lock) {
+		var guard = acquire(lock.getPath());
+		try {
+			var node = nodes.get(lock.getPath());
+			if (lock.isExpired() && node != null && node.locks.contains(lock)) {
+				remove(lock);
+				onExpired.run();
+			}
+		} finally {
+			release(guard);
+		}
+	}
+
+	// same as getLockInternal() of ExclusiveSharedLockManager, walking up from the given path and only considering deep locks on ancestors
+	private ExpiringLock findLock(Type type, Scope scope, String path) {
+		if (lockCount.get() == 0) {
+			return null;
+		}
+		var current = path;
+		boolean isAncestor = false;
+		while (true) {
+			var node = nodes.get(current);
+			if (node != null) {
+				for (var lock : node.locks) {
+					if (lock.getType().equals(type) && lock.getScope().equals(scope) && (!isAncestor || lock.isDeep()) && !lock.isExpired()) {
+						return lock;
+					}
+				}
+			}
+			if (current.isEmpty()) {
+				return null;
+			}
+			current = parentOf(current);
+			isAncestor = true;
+		}
+	}
+
+	private void add(ExpiringLock lock) {
+		var path = lock.getPath();
+		nodes.compute(path, (p, node) -> {
+			node = node == null ? new Node() : node;
+			var locks = new ArrayList<>(node.locks);
+			locks.add(lock);
+			node.locks = List.copyOf(locks);
+			return node;
+		});
+		for (var ancestor = path; !ancestor.isEmpty(); ) {
+			boolean isChild = ancestor.length() == path.length();
+			ancestor = parentOf(ancestor);
+			nodes.compute(ancestor, (p, node) -> {
+				node = node == null ? new Node() : node;
+				node.countBelow(lock, isChild, 1);
+				return node;
+			});
+		}
+		lockCount.incrementAndGet();
+	}
+
+	private void remove(ExpiringLock lock) {
+		var path = lock.getPath();
+		lock.release();
+		nodes.computeIfPresent(path, (p, node) -> {
+			var locks = new ArrayList<>(node.locks);
+			locks.remove(lock);
+			node.locks = List.copyOf(locks);
+			return node.isEmpty() ? null : node;
+		});
+		for (var ancestor = path; !ancestor.isEmpty(); ) {
+			boolean isChild = ancestor.length() == path.length();
+			ancestor = parentOf(ancestor);
+			nodes.computeIfPresent(ancestor, (p, node) -> {
+				node.countBelow(lock, isChild, -1);
+				return node.isEmpty() ? null : node;
+			});
+		}
+		lockCount.decrementAndGet();
+	}
+
+	/**
+	 * Acquires the write lock of the stripe guarding the given path and the read locks of the stripes guarding its ancestors, in ascending order of stripes.
+	 *
+	 * @param path A normalized path
+	 * @return The acquired locks in order of acquisition
+	 */
+	private Lock[] acquire(String path) {
+		var writeStripe = stripeOf(path);
+		var readStripes = new boolean[STRIPES];
+		for (var ancestor = path; !ancestor.isEmpty(); ) {
+			ancestor = parentOf(ancestor);
+			readStripes[stripeOf(ancestor)] = true;
+		}
+		readStripes[writeStripe] = false;
+		var acquired = new ArrayList<Lock>();
+		for (int i = 0; i < STRIPES; i++) {
+			if (i == writeStripe) {
+				acquired.add(stripes[i].writeLock());
+			} else if (readStripes[i]) {
+				acquired.add(stripes[i].readLock());
+			}
+		}
+		var locks = acquired.toArray(Lock[]::new);
+		for (int i = 0; i < locks.length; i++) {
+			try {
+				locks[i].lock();
+			} catch (RuntimeException | Error e) {
+				release(locks, i);
+				throw e;
+			}
+		}
+		return locks;
+	}
+
+	private static void release(Lock[] locks) {
+		release(locks, locks.length);
+	}
+
+	private static void release(Lock[] locks, int count) {
+		for (int i = count - 1; i >= 0; i--) {
+			locks[i].unlock();
+		}
+	}
+
+	private static int stripeOf(String path) {
+		int h = path.hashCode();
+		return (h ^ (h >>> 16)) & (STRIPES - 1);
+	}
+
+	private static String pathOf(DavResource resource) {
+		var path = resource.getLocator().getResourcePath();
+		int begin = 0;
+		int end = path == null ? 0 : path.length();
+		while (begin < end && path.charAt(begin) == '/') {
+			begin++;
+		}
+		while (end > begin && path.charAt(end - 1) == '/') {
+			end--;
+		}
+		return begin == end ? "" : path.substring(begin, end);
+	}
+
+	private static String parentOf(String path) {
+		int lastSlash = path.lastIndexOf('/');
+		return lastSlash == -1 ? "" : path.substring(0, lastSlash);
+	}
+
+}
@@ -0,0 +1,57 @@
+package org.cryptomator.frontend.webdav.servlet;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Manages the WebDAV locks (class 2 compliance) of all contexts of a server, see {@link LockTable}.
+ * <p>
+ * Each context gets its own lock table. Lock timeouts of all contexts are tracked by a single {@link TimingWheel},
+ * whose thread is only started once the first lock has been created.
+ */
+public class Locking {
+
+	private static final long TICK_MILLIS = 1000;
+
+	private final TimingWheel expiry = new TimingWheel(TICK_MILLIS);
+	private final Set<LockTable> tables = ConcurrentHashMap.newKeySet();
+	private final LongAdder expired = new LongAdder();
+
+	/**
+	 * @param contextPath The context's path, used to report its number of locks
+	 * @return A new lock table for a single context, which must be closed when the context stops
+	 */
+	LockTable newTable(String contextPath) {
+		var table = new LockTable(contextPath, expiry, expired::increment, tables::remove);
+		tables.add(table);
+		return table;
+	}
+
+	/**
+	 * @return The number of locks held per context path, including expired locks not yet removed
+	 */
+	public Map<String, Integer> getLockCounts() {
+		var counts = new TreeMap<String, Integer>();
+		tables.forEach(table -> counts.merge(table.getContextPath(), table.size(), Integer::sum));
+		return counts;
+	}
+
+	/**
+	 * @return The number of locks removed after they expired, since the server has been created
+	 */
+	public long getExpiredCount() {
+		return expired.sum();
+	}
+
+	/**
+	 * Stops expiring locks. Must only be invoked when terminating the server.
+	 */
+	public void shutdown() {
+		expiry.shutdown();
+		tables.forEach(LockTable::close);
+	}
+
+}
@@ -0,0 +1,107 @@
+package org.cryptomator.frontend.webdav.servlet;
+
+import org.apache.jackrabbit.webdav.DavConstants;
+import org.apache.jackrabbit.webdav.MultiStatusResponse;
+import org.apache.jackrabbit.webdav.xml.DomUtil;
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes a <code>&lt;D:multistatus&gt;</code> document one <code>&lt;D:response&gt;</code> at a time.
+ * <p>
+ * Each response is built by jackrabbit as a small DOM tree, which is copied to the output stream and discarded right away,
+ * so memory consumption doesn't depend on the number of responses.
+ * <p>
+ * If writing fails midway, the document is deliberately left unfinished, so the client can't mistake a truncated multistatus for a complete one.
+ */
+class MultiStatusWriter {
+
+	private static final byte[] XML_DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>".getBytes(StandardCharsets.US_ASCII);
+	private static final XMLOutputFactory XML_OUTPUT_FACTORY = XMLOutputFactory.newFactory();
+
+	static {
+		// jackrabbit's DOM nodes carry prefixes but no namespace declarations, let the writer declare them as needed:
+		XML_OUTPUT_FACTORY.setProperty(XMLOutputFactory.IS_REPAIRING_NAMESPACES, true);
+	}
+
+	private final OutputStream out;
+	private final XMLStreamWriter writer;
+	private final Document document;
+
+	MultiStatusWriter(OutputStream out) throws IOException, XMLStreamException {
+		try {
+			this.document = DomUtil.createDocument();
+		} catch (ParserConfigurationException e) {
+			throw new IOException(e);
+		}
+		this.out = out;
+		// same declaration as written by jackrabbit's DomUtil.transformDocument(), which XMLStreamWriter.writeStartDocument() can't reproduce:
+		out.write(XML_DECLARATION);
+		this.writer = XML_OUTPUT_FACTORY.createXMLStreamWriter(out, StandardCharsets.UTF_8.name());
+		writer.writeStartElement(DavConstants.NAMESPACE.getPrefix(), DavConstants.XML_MULTISTATUS, DavConstants.NAMESPACE.getURI());
+		writer.writeNamespace(DavConstants.NAMESPACE.getPrefix(), DavConstants.NAMESPACE.getURI());
+	}
+
+	void write(MultiStatusResponse response) throws XMLStreamException {
+		writeElement(response.toXml(document));
+	}
+
+	private void writeElement(Element element) throws XMLStreamException {
+		if (element.hasChildNodes()) {
+			writer.writeStartElement(nullToEmpty(element.getPrefix()), localName(element), nullToEmpty(element.getNamespaceURI()));
+		} else {
+			writer.writeEmptyElement(nullToEmpty(element.getPrefix()), localName(element), nullToEmpty(element.getNamespaceURI()));
+		}
+		NamedNodeMap attributes = element.getAttributes();
+		for (int i = 0; i < attributes.getLength(); i++) {
+			var attribute = (Attr) attributes.item(i);
+			if (!XMLConstants.XMLNS_ATTRIBUTE_NS_URI.equals(attribute.getNamespaceURI())) {
+				writer.writeAttribute(nullToEmpty(attribute.getPrefix()), nullToEmpty(attribute.getNamespaceURI()), localName(attribute), attribute.getValue());
+			}
+		}
+		for (Node child = element.getFirstChild(); child != null; child = child.getNextSibling()) {
+			switch (child.getNodeType()) {
+				case Node.ELEMENT_NODE -> writeElement((Element) child);
+				case Node.TEXT_NODE -> writer.writeCharacters(child.getNodeValue());
+				case Node.CDATA_SECTION_NODE -> writer.writeCData(child.getNodeValue());
+				default -> {
+					// comments and processing instructions are not part of property values
+				}
+			}
+		}
+		if (element.hasChildNodes()) {
+			writer.writeEndElement();
+		}
+	}
+
+	private static String localName(Node node) {
+		return node.getLocalName() != null ? node.getLocalName() : node.getNodeName();
+	}
+
+	private static String nullToEmpty(String str) {
+		return str == null ? "" : str;
+	}
+
+	/**
+	 * Ends the document and closes the output stream.
+	 */
+	void finish() throws IOException, XMLStreamException {
+		writer.writeEndElement();
+		writer.writeEndDocument();
+		writer.close(); // does not close the underlying stream
+		out.close();
+	}
+
+}
@@ -0,0 +1,148 @@
+package org.cryptomator.frontend.webdav.servlet;
+
+import org.apache.jackrabbit.webdav.util.HttpDateTimeFormatter;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Collections;
+import java.util.Enumeration;
+
+/**
+ * Evaluates the conditional headers of RFC 7232 for files, using nothing but the size and modification time the resource factory has already read.
+ * Revalidating an unchanged file therefore costs a single stat and never opens its content.
+ * <p>
+ * Entity tags are derived from the size and the modification time in milliseconds and are considered strong,
+ * as the content of a file can't change without changing at least one of them (unless rewritten to the same size within the same millisecond).
+ */
+class Preconditions {
+
+	private static final String IF_RANGE_ENTITY_TAG_ATTRIBUTE = Preconditions.class.getName() + ".ifRangeEntityTag";
+
+	enum Result {
+		PASSED, NOT_MODIFIED, FAILED
+	}
+
+	private Preconditions() {
+	}
+
+	/**
+	 * @param size The file's size
+	 * @param modificationTime The file's modification time in milliseconds since the epoch or <code>-1</code>, if unknown
+	 * @return A strong entity tag including its quotes or <code>null</code>, if the modification time is unknown
+	 */
+	static String entityTag(long size, long modificationTime) {
+		if (modificationTime == -1) {
+			return null;
+		}
+		return "\"" + Long.toHexString(size) + "-" + Long.toHexString(modificationTime) + "\"";
+	}
+
+	/**
+	 * Evaluates <code>If-Match</code>, <code>If-None-Match</code> and <code>If-Modified-Since</code> in the order given by RFC 7232, section 6.
+	 *
+	 * @param request The request
+	 * @param exists Whether the file exists
+	 * @param entityTag The file's entity tag, see {@link #entityTag(long, long)}
+	 * @param modificationTime The file's modification time in milliseconds since the epoch or <code>-1</code>, if unknown
+	 * @param safe Whether the request's method is <code>GET</code> or <code>HEAD</code>
+	 * @return {@link Result#NOT_MODIFIED} if a <code>GET</code> or <code>HEAD</code> request should be answered with <code>304 Not Modified</code>,
+	 * {@link Result#FAILED} if the request should be answered with <code>412 Precondition Failed</code>, {@link Result#PASSED} otherwise
+	 */
+	static Result evaluate(HttpServletRequest request, boolean exists, String entityTag, long modificationTime, boolean safe) {
+		var ifMatch = request.getHeaders("If-Match");
+		if (ifMatch.hasMoreElements() && !matches(ifMatch, exists, entityTag, false)) {
+			return Result.FAILED;
+		}
+		var ifNoneMatch = request.getHeaders("If-None-Match");
+		if (ifNoneMatch.hasMoreElements()) {
+			if (matches(ifNoneMatch, exists, entityTag, true)) {
+				return safe ? Result.NOT_MODIFIED : Result.FAILED;
+			}
+		} else if (safe && exists && isNotModifiedSince(request, modificationTime)) {
+			return Result.NOT_MODIFIED;
+		}
+		return Result.PASSED;
+	}
+
+	// strong comparison for If-Match, weak comparison for If-None-Match, see RFC 7232, section 2.3.2
+	private static boolean matches(Enumeration<String> headers, boolean exists, String entityTag, boolean weak) {
+		while (headers.hasMoreElements()) {
+			for (var candidate : headers.nextElement().split(",")) {
+				candidate = candidate.trim();
+				if ("*".equals(candidate)) {
+					return exists;
+				} else if (weak && candidate.startsWith("W/")) {
+					candidate = candidate.substring(2);
+				}
+				if (candidate.equals(entityTag)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	// same condition as in AbstractWebdavServlet's private spoolResource()
+	private static boolean isNotModifiedSince(HttpServletRequest request, long modificationTime) {
+		var ifModifiedSince = Collections.list(request.getHeaders("If-Modified-Since"));
+		if (ifModifiedSince.size() != 1 || modificationTime == -1) {
+			return false;
+		}
+		try {
+			return modificationTime / 1000 * 1000 <= HttpDateTimeFormatter.parse(ifModifiedSince.get(0));
+		} catch (IllegalArgumentException | DateTimeParseException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Evaluates <code>If-Range</code>, which may either be an entity tag hidden by {@link #hideEntityTagIfRange(HttpServletRequest)} or a date.
+	 *
+	 * @param request The request
+	 * @param entityTag The file's entity tag, see {@link #entityTag(long, long)}
+	 * @param modificationTime The file's modification time in milliseconds since the epoch
+	 * @return Whether the requested ranges may be sent
+	 */
+	static boolean isIfRangeSatisfied(HttpServletRequest request, String entityTag, long modificationTime) {
+		if (request.getAttribute(IF_RANGE_ENTITY_TAG_ATTRIBUTE) instanceof String ifRange) {
+			return ifRange.equals(entityTag); // weak tags never match, as entityTag is strong
+		}
+		// HTTP dates have a resolution of seconds, hence compare the truncated modification time, just like Last-Modified gets sent:
+		var ifRange = request.getHeader("If-Range");
+		try {
+			return ifRange == null || Instant.from(DateTimeFormatter.RFC_1123_DATE_TIME.parse(ifRange)).toEpochMilli() == modificationTime / 1000 * 1000;
+		} catch (DateTimeParseException e) {
+			return false; // usually already rejected by the resource factory
+		}
+	}
+
+	/**
+	 * The resource factory only understands dates in <code>If-Range</code> and rejects entity tags with <code>400 Bad Request</code>.
+	 * Therefore, entity tags are hidden from it and moved to a request attribute evaluated by {@link #isIfRangeSatisfied(HttpServletRequest, String, long)}.
+	 *
+	 * @param request The original request
+	 * @return A request without <code>If-Range</code>, if it contained an entity tag, the original request otherwise
+	 */
+	static HttpServletRequest hideEntityTagIfRange(HttpServletRequest request) {
+		var ifRange = request.getHeader("If-Range");
+		if (ifRange == null || !(ifRange.startsWith("\"") || ifRange.startsWith("W/\""))) {
+			return request;
+		}
+		request.setAttribute(IF_RANGE_ENTITY_TAG_ATTRIBUTE, ifRange.trim());
+		return new HttpServletRequestWrapper(request) {
+			@Override
+			public String getHeader(String name) {
+				return "If-Range".equalsIgnoreCase(name) ? null : super.getHeader(name);
+			}
+
+			@Override
+			public Enumeration<String> getHeaders(String name) {
+				return "If-Range".equalsIgnoreCase(name) ? Collections.emptyEnumeration() : super.getHeaders(name);
+			}
+		};
+	}
+
+}
@@ -0,0 +1,224 @@
+package org.cryptomator.frontend.webdav.servlet;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Block cache of a single context, holding file content in direct buffers of {@value #BLOCK_SIZE} bytes.
+ * <p>
+ * Blocks are keyed by path, modification time, size and index, so a modified file never hits blocks of its previous version.
+ * They only get populated by prefetching the blocks following a range that continues the previous range of the same file,
+ * i.e. random access doesn't pollute the cache. Once the total size of all blocks exceeds the limit, the least recently used ones get evicted.
+ * <p>
+ * Evicted buffers aren't reused but left to the garbage collector, as they may still be written by responses in progress.
+ */
+class ReadAheadCache {
+
+	private static final Logger LOG = LoggerFactory.getLogger(ReadAheadCache.class);
+	static final int BLOCK_SIZE = 256 * 1024;
+	// number of files whose read position is tracked to detect sequential access
+	private static final int MAX_STREAMS = 256;
+
+	private final long maxBytes;
+	private final int prefetchedBlocks;
+	private final Executor executor;
+	private final ChannelPool channelPool;
+	private final Map<Key, Block> blocks = new LinkedHashMap<>(16, 0.75f, true);
+	private final Map<Path, Long> streamPositions = new LinkedHashMap<>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Path, Long> eldest) {
+			return size() > MAX_STREAMS;
+		}
+	};
+	private long size;
+
+	ReadAheadCache(long maxBytes, int prefetchedBlocks, Executor executor, ChannelPool channelPool) {
+		this.maxBytes = maxBytes;
+		this.prefetchedBlocks = prefetchedBlocks;
+		this.executor = executor;
+		this.channelPool = channelPool;
+	}
+
+	private record Key(Path path, long modificationTime, long fileSize, long index) {
+
+		long offset() {
+			return index * BLOCK_SIZE;
+		}
+
+		int length() {
+			return (int) Math.min(BLOCK_SIZE, fileSize - offset());
+		}
+
+	}
+
+	// completed with the block's content, or with null if it couldn't be read
+	private static class Block extends CompletableFuture<ByteBuffer> {
+	}
+
+	/**
+	 * Sends a range of a file, using cached blocks where available and reading the rest via the given sender.
+	 * If the range continues the previous one of the same file, the blocks following it get prefetched before sending.
+	 *
+	 * @param sender Sender of the file's content
+	 * @param path File to send
+	 * @param modificationTime The file's modification time
+	 * @param fileSize The file's size
+	 * @param offset Position of the first byte to send
+	 * @param length Number of bytes to send
+	 * @throws IOException If reading the file or writing the response fails
+	 */
+	void send(FileContentSender sender, Path path, long modificationTime, long fileSize, long offset, long length) throws IOException {
+		long end = offset + length;
+		if (isSequential(path, offset, end)) {
+			prefetch(path, modificationTime, fileSize, end / BLOCK_SIZE);
+		}
+		long position = offset;
+		long pending = offset; // start of the bytes neither sent nor found in the cache
+		while (position < end) {
+			var key = new Key(path, modificationTime, fileSize, position / BLOCK_SIZE);
+			long sliceEnd = Math.min(key.offset() + BLOCK_SIZE, end);
+			var content = get(key);
+			if (content != null) {
+				if (pending < position) {
+					sender.send(pending, position - pending);
+				}
+				sender.send(content.duplicate().position((int) (position - key.offset())).limit((int) (sliceEnd - key.offset())));
+				pending = sliceEnd;
+			}
+			position = sliceEnd;
+		}
+		if (pending < end) {
+			sender.send(pending, end - pending);
+		}
+	}
+
+	/**
+	 * Removes all blocks of the given file or of any file within the given directory.
+	 *
+	 * @param path Modified file or directory
+	 */
+	synchronized void invalidate(Path path) {
+		for (Iterator<Map.Entry<Key, Block>> iterator = blocks.entrySet().iterator(); iterator.hasNext(); ) {
+			var key = iterator.next().getKey();
+			if (key.path().startsWith(path)) {
+				size -= key.length();
+				iterator.remove();
+			}
+		}
+		streamPositions.keySet().removeIf(p -> p.startsWith(path));
+	}
+
+	// a range is considered sequential, if it starts within one block of where the previous range ended, allowing for slightly reordered requests
+	private synchronized boolean isSequential(Path path, long offset, long end) {
+		Long previousEnd = streamPositions.put(path, end);
+		return previousEnd != null && offset >= previousEnd - BLOCK_SIZE && offset <= previousEnd + BLOCK_SIZE;
+	}
+
+	// waits for blocks being prefetched, as reading them again would only compete for the same backend
+	private ByteBuffer get(Key key) throws IOException {
+		Block block;
+		synchronized (this) {
+			block = blocks.get(key);
+		}
+		if (block == null) {
+			return null;
+		}
+		try {
+			return block.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for prefetched content");
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Blocks never complete exceptionally", e);
+		}
+	}
+
+	private void prefetch(Path path, long modificationTime, long fileSize, long firstIndex) {
+		var missing = new ArrayList<Key>(prefetchedBlocks);
+		var placeholders = new ArrayList<Block>(prefetchedBlocks);
+		synchronized (this) {
+			for (long index = firstIndex; index < firstIndex + prefetchedBlocks && index * BLOCK_SIZE < fileSize; index++) {
+				var key = new Key(path, modificationTime, fileSize, index);
+				if (!blocks.containsKey(key)) {
+					var block = new Block();
+					blocks.put(key, block);
+					size += key.length();
+					missing.add(key);
+					placeholders.add(block);
+				}
+			}
+			evict();
+		}
+		if (missing.isEmpty()) {
+			return;
+		}
+		try {
+			executor.execute(() -> read(missing, placeholders));
+		} catch (RejectedExecutionException e) {
+			discard(missing, placeholders, 0);
+		}
+	}
+
+	// evicts the least recently used blocks, including ones still being read, whose readers get the content nonetheless
+	private void evict() {
+		assert Thread.holdsLock(this);
+		for (Iterator<Map.Entry<Key, Block>> iterator = blocks.entrySet().iterator(); size > maxBytes && iterator.hasNext(); ) {
+			size -= iterator.next().getKey().length();
+			iterator.remove();
+		}
+	}
+
+	// reads consecutive blocks of the same file through a single channel, as opening files may be expensive
+	private void read(List<Key> keys, List<Block> placeholders) {
+		int i = 0;
+		try (var lease = channelPool.acquire(keys.get(0).path(), keys.get(0).modificationTime())) {
+			for (; i < keys.size(); i++) {
+				var key = keys.get(i);
+				var content = ByteBuffer.allocateDirect(key.length());
+				readFully(lease, content, key.offset());
+				placeholders.get(i).complete(content.flip().asReadOnlyBuffer());
+			}
+		} catch (IOException | RuntimeException e) {
+			LOG.debug("Failed to prefetch {}", keys.get(0).path(), e);
+			discard(keys, placeholders, i);
+		}
+	}
+
+	private static void readFully(ChannelPool.Lease lease, ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			if (lease.read(buffer, position + buffer.position()) == -1) {
+				throw new EOFException("File shrunk while being prefetched");
+			}
+		}
+	}
+
+	// removes the blocks starting at the given index and lets anyone waiting for them read the file themselves
+	private void discard(List<Key> keys, List<Block> placeholders, int from) {
+		synchronized (this) {
+			for (int i = from; i < keys.size(); i++) {
+				if (blocks.remove(keys.get(i), placeholders.get(i))) {
+					size -= keys.get(i).length();
+				}
+			}
+		}
+		for (int i = from; i < placeholders.size(); i++) {
+			placeholders.get(i).complete(null);
+		}
+	}
+
+}
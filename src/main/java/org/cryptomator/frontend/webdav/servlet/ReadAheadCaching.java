@@ -0,0 +1,53 @@
+package org.cryptomator.frontend.webdav.servlet;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Prefetches file content ahead of clients reading a file sequentially via successive range <code>GET</code> requests,
+ * as e.g. the macOS WebDAV client and GVfs do when streaming media, so that each request doesn't wait for a round trip to a high-latency backend.
+ * <p>
+ * Each context gets its own memory-bounded {@link ReadAheadCache}, which is cleared of files modified by <code>PUT</code>, <code>DELETE</code>,
+ * <code>MOVE</code> or <code>COPY</code> requests handled by that context. A single pool of threads is shared by all contexts of a server.
+ */
+public class ReadAheadCaching {
+
+	private final long cacheSize;
+	private final int prefetchedBlocks;
+	private final ThreadPoolExecutor executor;
+
+	/**
+	 * @param cacheSize Maximum number of bytes cached per context or <code>0</code> to disable read-ahead
+	 * @param prefetchedBlocks Number of blocks of {@value ReadAheadCache#BLOCK_SIZE} bytes prefetched ahead of sequential reads
+	 * @param threads Maximum number of threads prefetching blocks, shared by all contexts
+	 */
+	public ReadAheadCaching(long cacheSize, int prefetchedBlocks, int threads) {
+		this.cacheSize = cacheSize;
+		this.prefetchedBlocks = prefetchedBlocks;
+		if (cacheSize > 0) {
+			this.executor = BackgroundExecutors.create("webdav-readahead", threads);
+		} else {
+			this.executor = null;
+		}
+	}
+
+	/**
+	 * @param channelPool The context's pool of channels to read files through
+	 * @return A new cache for a single context or <code>null</code> if read-ahead is disabled
+	 */
+	@Nullable
+	ReadAheadCache newCache(ChannelPool channelPool) {
+		return executor == null ? null : new ReadAheadCache(cacheSize, prefetchedBlocks, executor, channelPool);
+	}
+
+	/**
+	 * Stops all threads. Must only be invoked when terminating the server.
+	 */
+	public void shutdown() {
+		if (executor != null) {
+			executor.shutdownNow();
+		}
+	}
+
+}
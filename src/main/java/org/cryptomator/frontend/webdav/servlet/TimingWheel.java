@@ -0,0 +1,112 @@
+package org.cryptomator.frontend.webdav.servlet;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A hashed timing wheel, which expires any number of timeouts at a constant cost per tick and per timeout, instead of scanning all of them.
+ * <p>
+ * Timeouts are scheduled into a lock-free queue and sorted into the wheel's buckets by the single ticker thread, which alone accesses the buckets.
+ * A timeout further away than one revolution is put into the farthest bucket and sorted in again when visited.
+ * The same happens to timeouts whose deadline has been extended in the meantime, so extending a deadline doesn't need to touch the wheel.
+ * Cancelled timeouts are dropped when their bucket is visited.
+ */
+class TimingWheel {
+
+	private static final Logger LOG = LoggerFactory.getLogger(TimingWheel.class);
+	private static final int WHEEL_SIZE = 512; // must be a power of two
+	private static final int MASK = WHEEL_SIZE - 1;
+
+	interface Timeout {
+
+		/**
+		 * @return The time in milliseconds since the epoch, after which {@link #expire()} shall be invoked
+		 */
+		long deadline();
+
+		boolean isCancelled();
+
+		void expire();
+
+	}
+
+	private final long tickMillis;
+	private final Queue<Timeout> scheduled = new ConcurrentLinkedQueue<>();
+	private final Queue<Timeout>[] buckets;
+	private final AtomicBoolean started = new AtomicBoolean();
+	private final ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor(TimingWheel::createTickerThread);
+	private long tick; // only accessed by the ticker thread
+
+	@SuppressWarnings("unchecked")
+	TimingWheel(long tickMillis) {
+		this.tickMillis = tickMillis;
+		this.buckets = new Queue[WHEEL_SIZE];
+		for (int i = 0; i < WHEEL_SIZE; i++) {
+			buckets[i] = new ArrayDeque<>();
+		}
+	}
+
+	private static Thread createTickerThread(Runnable runnable) {
+		Thread t = new Thread(runnable, "webdav-lock-expiry");
+		t.setDaemon(true);
+		return t;
+	}
+
+	/**
+	 * Schedules the given timeout. The ticker thread is started on first use, so servers that never see a timeout don't need it.
+	 *
+	 * @param timeout A timeout, which may be scheduled multiple times, e.g. after shortening its deadline
+	 */
+	void schedule(Timeout timeout) {
+		scheduled.add(timeout);
+		if (!started.get() && started.compareAndSet(false, true)) {
+			ticker.scheduleAtFixedRate(this::tick, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	private void tick() {
+		long now = System.currentTimeMillis();
+		Timeout timeout;
+		while ((timeout = scheduled.poll()) != null) {
+			place(timeout, now);
+		}
+		var bucket = buckets[(int) (tick & MASK)];
+		for (int n = bucket.size(); n > 0; n--) {
+			timeout = bucket.poll();
+			if (timeout.isCancelled()) {
+				continue;
+			} else if (timeout.deadline() >= now) { // only expire once the deadline has passed, like ExpiringLock#isExpired() does
+				place(timeout, now);
+				continue;
+			}
+			try {
+				timeout.expire();
+			} catch (RuntimeException e) {
+				LOG.warn("Failed to expire {}.", timeout, e);
+			}
+		}
+		tick++;
+	}
+
+	private void place(Timeout timeout, long now) {
+		long remaining = timeout.deadline() - now;
+		long ticks = Math.min(Math.max(1, remaining / tickMillis + 1), MASK);
+		buckets[(int) ((tick + ticks) & MASK)].add(timeout);
+	}
+
+	/**
+	 * Stops ticking. Scheduled timeouts won't expire anymore.
+	 */
+	void shutdown() {
+		ticker.shutdownNow();
+	}
+
+}
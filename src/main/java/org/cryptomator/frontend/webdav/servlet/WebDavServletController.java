@@ -1,15 +1,16 @@
 package org.cryptomator.frontend.webdav.servlet;
 
 import org.cryptomator.frontend.webdav.ContextPathRegistry;
+import org.cryptomator.frontend.webdav.ServerEndpoint;
 import org.cryptomator.frontend.webdav.ServerLifecycleException;
-import org.eclipse.jetty.server.ServerConnector;
+import org.cryptomator.frontend.webdav.jfr.ServletLifecycleEvent;
 import org.eclipse.jetty.server.handler.ContextHandlerCollection;
 import org.eclipse.jetty.servlet.ServletContextHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.net.URI;
-import java.net.URISyntaxException;
+import java.util.List;
 
 public class WebDavServletController {
 
@@ -17,14 +18,14 @@ public class WebDavServletController {
 
 	private final ServletContextHandler contextHandler;
 	private final ContextHandlerCollection contextHandlerCollection;
-	private final ServerConnector connector;
+	private final List<ServerEndpoint> endpoints;
 	private final ContextPathRegistry contextPathRegistry;
 	private final String contextPath;
 
-	WebDavServletController(ServletContextHandler contextHandler, ContextHandlerCollection contextHandlerCollection, ServerConnector connector, ContextPathRegistry contextPathRegistry, String contextPath) {
+	WebDavServletController(ServletContextHandler contextHandler, ContextHandlerCollection contextHandlerCollection, List<ServerEndpoint> endpoints, ContextPathRegistry contextPathRegistry, String contextPath) {
 		this.contextHandler = contextHandler;
 		this.contextHandlerCollection = contextHandlerCollection;
-		this.connector = connector;
+		this.endpoints = endpoints;
 		this.contextPathRegistry = contextPathRegistry;
 		this.contextPath = contextPath;
 	}
@@ -35,14 +36,18 @@ public class WebDavServletController {
 	 * @throws ServerLifecycleException If the servlet could not be started for any unexpected reason.
 	 */
 	public void start() throws ServerLifecycleException {
+		var event = newLifecycleEvent("start");
 		try {
 			contextPathRegistry.add(contextPath);
 			contextHandlerCollection.addHandler(contextHandler);
 			contextHandlerCollection.mapContexts();
 			contextHandler.start();
+			event.success = true;
 			LOG.info("WebDavServlet started: " + contextPath);
 		} catch (Exception e) {
 			throw new ServerLifecycleException("Servlet couldn't be started", e);
+		} finally {
+			event.commit();
 		}
 	}
 
@@ -52,30 +57,42 @@ public class WebDavServletController {
 	 * @throws ServerLifecycleException If the servlet could not be stopped for any unexpected reason.
 	 */
 	public void stop() throws ServerLifecycleException {
+		var event = newLifecycleEvent("stop");
 		try {
 			contextHandler.stop();
 			contextHandlerCollection.removeHandler(contextHandler);
 			contextHandlerCollection.mapContexts();
 			contextPathRegistry.remove(contextPath);
+			event.success = true;
 			LOG.info("WebDavServlet stopped: " + contextPath);
 		} catch (Exception e) {
 			throw new ServerLifecycleException("Servlet couldn't be stopped", e);
+		} finally {
+			event.commit();
 		}
 	}
 
+	private ServletLifecycleEvent newLifecycleEvent(String operation) {
+		var event = new ServletLifecycleEvent();
+		event.operation = operation;
+		event.contextPath = contextPath;
+		event.begin();
+		return event;
+	}
+
 	/**
 	 * @return A new http URI constructed from the servers bind addr and port as well as this servlet's contextPath.
+	 * If the server is only reachable via a Unix domain socket, a <code>http+unix</code> URI is returned instead.
 	 */
 	public URI getServletRootUri() {
-		return getServletRootUri(connector.getHost());
+		return endpoints.get(0).resolve(contextPath);
 	}
 
-	private URI getServletRootUri(String hostname) {
-		try {
-			return new URI("http", null, hostname, connector.getLocalPort(), contextPath, null, null);
-		} catch (URISyntaxException e) {
-			throw new IllegalArgumentException("Unable to construct valid URI for given contextPath.", e);
-		}
+	/**
+	 * @return URIs of this servlet's contextPath for every endpoint the server accepts connections on, i.e. its TCP port and/or its Unix domain socket.
+	 */
+	public List<URI> getServletRootUris() {
+		return endpoints.stream().map(endpoint -> endpoint.resolve(contextPath)).toList();
 	}
 
 }
@@ -9,16 +9,22 @@
 package org.cryptomator.frontend.webdav.servlet;
 
 import org.cryptomator.frontend.webdav.ContextPathRegistry;
-import org.cryptomator.webdav.core.filters.*;
+import org.cryptomator.frontend.webdav.ServerComponents;
+import org.cryptomator.frontend.webdav.ServerEndpoint;
+import org.cryptomator.frontend.webdav.jfr.RequestEventHandler;
 import org.eclipse.jetty.server.ServerConnector;
 import org.eclipse.jetty.server.handler.ContextHandlerCollection;
+import org.eclipse.jetty.servlet.FilterHolder;
 import org.eclipse.jetty.servlet.ServletContextHandler;
 import org.eclipse.jetty.servlet.ServletHolder;
 
 import javax.servlet.DispatcherType;
 import javax.servlet.Servlet;
 import java.nio.file.Path;
+import java.time.Duration;
 import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
 
 public class WebDavServletFactory {
 
@@ -26,28 +32,67 @@ public class WebDavServletFactory {
 
 	private static final String WILDCARD = "/*";
 
+	// shared by all contexts created without a Locking of their own, so they don't start a lock expiry thread each. their tables are closed along with their servlets:
+	private static final Locking DEFAULT_LOCKING = new Locking();
+
+	/**
+	 * Creates a servlet context serving the given directory, applying all {@link CompatibilityStep compatibility steps}.
+	 *
+	 * @see #createServletContext(Path, String, Set)
+	 */
 	public static ServletContextHandler createServletContext(Path rootPath, String contextPath) {
-		final Servlet servlet = new FixedPathNioWebDavServlet(rootPath);
+		return createServletContext(rootPath, contextPath, EnumSet.allOf(CompatibilityStep.class));
+	}
+
+	/**
+	 * Creates a servlet context serving the given directory without prefetching, channel pooling or read-ahead caching.
+	 * Its locks expire via a lock expiry thread shared by all contexts created this way.
+	 *
+	 * @param rootPath The path to the directory which should be served as root resource.
+	 * @param contextPath The servlet context path, i.e. the path of the root resource.
+	 * @param compatibilitySteps The steps to apply to requests before they reach the servlet
+	 * @return A new servlet context, not yet started
+	 */
+	public static ServletContextHandler createServletContext(Path rootPath, String contextPath, Set<CompatibilityStep> compatibilitySteps) {
+		return createServletContext(rootPath, contextPath, compatibilitySteps, new AttributePrefetching(1, 1), new ChannelPooling(0, Duration.ZERO), new ReadAheadCaching(0, 1, 1), DEFAULT_LOCKING);
+	}
+
+	public static ServletContextHandler createServletContext(Path rootPath, String contextPath, Set<CompatibilityStep> compatibilitySteps, AttributePrefetching attributePrefetching, ChannelPooling channelPooling, ReadAheadCaching readAheadCaching, Locking locking) {
+		final Servlet servlet = new FixedPathNioWebDavServlet(rootPath, contextPath, attributePrefetching, channelPooling, readAheadCaching, locking);
 		final ServletContextHandler servletContext = new ServletContextHandler(null, contextPath, ServletContextHandler.SESSIONS);
 		final ServletHolder servletHolder = new ServletHolder(contextPath, servlet);
 		servletContext.addServlet(servletHolder, WILDCARD);
-		servletContext.addFilter(LoggingFilter.class, WILDCARD, EnumSet.of(DispatcherType.REQUEST));
-		servletContext.addFilter(UnicodeResourcePathNormalizationFilter.class, WILDCARD, EnumSet.of(DispatcherType.REQUEST));
-		servletContext.addFilter(PostRequestBlockingFilter.class, WILDCARD, EnumSet.of(DispatcherType.REQUEST));
-		servletContext.addFilter(MkcolComplianceFilter.class, WILDCARD, EnumSet.of(DispatcherType.REQUEST));
-		servletContext.addFilter(AcceptRangeFilter.class, WILDCARD, EnumSet.of(DispatcherType.REQUEST));
-		servletContext.addFilter(MacChunkedPutCompatibilityFilter.class, WILDCARD, EnumSet.of(DispatcherType.REQUEST));
+		servletContext.addFilter(new FilterHolder(new CompatibilityFilter(compatibilitySteps)), WILDCARD, EnumSet.of(DispatcherType.REQUEST));
 		return servletContext;
 	}
 
-	public static WebDavServletController createServletController(Path rootPath, String untrimmedContextPath, ServerConnector serverConnector, ContextHandlerCollection contextHandlerCollection, ContextPathRegistry contextPathRegistry) {
+	private static String trimContextPath(String untrimmedContextPath) {
 		var trimmedCtxPath = untrimmedContextPath;
 		while (trimmedCtxPath.endsWith("/")) {
 			trimmedCtxPath = trimmedCtxPath.substring(0, trimmedCtxPath.length() - 1);
 		}
-		String contextPath = trimmedCtxPath.startsWith("/") ? trimmedCtxPath : "/" + trimmedCtxPath;
-		ServletContextHandler contextHandler = createServletContext(rootPath, contextPath);
-		return new WebDavServletController(contextHandler, contextHandlerCollection, serverConnector, contextPathRegistry, contextPath);
+		return trimmedCtxPath.startsWith("/") ? trimmedCtxPath : "/" + trimmedCtxPath;
+	}
+
+	/**
+	 * Creates a servlet context wired to the {@link ServerComponents#defaults() default components}, applying all {@link CompatibilityStep compatibility steps}.
+	 *
+	 * @see #createServletController(Path, String, List, ContextHandlerCollection, ContextPathRegistry, Set, ServerComponents)
+	 */
+	public static WebDavServletController createServletController(Path rootPath, String untrimmedContextPath, ServerConnector serverConnector, ContextHandlerCollection contextHandlerCollection, ContextPathRegistry contextPathRegistry) {
+		return createServletController(rootPath, untrimmedContextPath, List.of(ServerEndpoint.of(serverConnector)), contextHandlerCollection, contextPathRegistry, EnumSet.allOf(CompatibilityStep.class), ServerComponents.defaults());
+	}
+
+	public static WebDavServletController createServletController(Path rootPath, String untrimmedContextPath, List<ServerEndpoint> serverEndpoints, ContextHandlerCollection contextHandlerCollection, ContextPathRegistry contextPathRegistry, Set<CompatibilityStep> compatibilitySteps, ServerComponents components) {
+		String contextPath = trimContextPath(untrimmedContextPath);
+		ServletContextHandler contextHandler = createServletContext(components.attributeCaching().wrap(rootPath), contextPath, compatibilitySteps, components.attributePrefetching(), components.channelPooling(), components.readAheadCaching(), components.locking());
+		// each inserted handler is nested inside the previously inserted ones. metrics, events and traces come first to also cover rejected requests:
+		contextHandler.insertHandler(components.requestMetrics().newContextHandler(contextPath));
+		contextHandler.insertHandler(new RequestEventHandler(contextPath));
+		components.requestTracing().newContextHandler(contextPath).ifPresent(contextHandler::insertHandler);
+		contextHandler.insertHandler(components.admissionControl().newContextHandler());
+		components.responseCompression().newContextHandler().ifPresent(contextHandler::insertHandler);
+		return new WebDavServletController(contextHandler, contextHandlerCollection, serverEndpoints, contextPathRegistry, contextPath);
 	}
 
 }
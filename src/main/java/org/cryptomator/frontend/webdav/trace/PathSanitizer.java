@@ -0,0 +1,106 @@
+package org.cryptomator.frontend.webdav.trace;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Set;
+
+/**
+ * Replaces each segment of a path by a pseudonym derived from a salted hash of the segment, keeping only the traits that influence client behaviour:
+ * <ul>
+ *     <li>names of files commonly probed by clients (e.g. <code>.DS_Store</code>, <code>._.</code> or <code>desktop.ini</code>),</li>
+ *     <li>the <code>._</code> prefix of AppleDouble files and the <code>.</code> prefix of hidden files,</li>
+ *     <li>short alphanumeric file extensions and</li>
+ *     <li>a trailing slash.</li>
+ * </ul>
+ * Thus the same segment always maps to the same pseudonym for a given salt.
+ */
+class PathSanitizer {
+
+	private static final Set<String> WELL_KNOWN_NAMES = Set.of(".DS_Store", ".localized", ".hidden", ".Trash", ".Trashes", ".fseventsd", ".Spotlight-V100", ".metadata_never_index", //
+			".ql_disablethumbnails", ".ql_disablecache", ".VolumeIcon.icns", ".xdg-volume-info", ".directory", ".Trash-1000", //
+			"desktop.ini", "Desktop.ini", "Thumbs.db", "thumbs.db", "folder.jpg", "Folder.jpg", "autorun.inf", "Autorun.inf");
+	private static final String APPLE_DOUBLE_PREFIX = "._";
+	private static final int MAX_EXTENSION_LENGTH = 8;
+	private static final int PSEUDONYM_BYTES = 6;
+	private static final HexFormat HEX = HexFormat.of();
+
+	private final byte[] salt;
+
+	PathSanitizer(byte[] salt) {
+		this.salt = salt.clone();
+	}
+
+	/**
+	 * @param path A decoded absolute path, e.g. <code>/foo/bar.txt</code>
+	 * @return The sanitized path, e.g. <code>/n3f2a9c01d4e7/nb17e024c9a6f.txt</code>
+	 */
+	String sanitize(String path) {
+		var sb = new StringBuilder(path.length() + 16);
+		int start = 0;
+		while (start < path.length()) {
+			int end = path.indexOf('/', start);
+			if (end == -1) {
+				end = path.length();
+			}
+			if (end > start) {
+				sanitizeSegment(sb, path.substring(start, end));
+			}
+			if (end < path.length()) {
+				sb.append('/');
+			}
+			start = end + 1;
+		}
+		return sb.toString();
+	}
+
+	private void sanitizeSegment(StringBuilder sb, String segment) {
+		if (WELL_KNOWN_NAMES.contains(segment)) {
+			sb.append(segment);
+			return;
+		}
+		String name = segment;
+		if (name.startsWith(APPLE_DOUBLE_PREFIX)) {
+			sb.append(APPLE_DOUBLE_PREFIX);
+			name = name.substring(APPLE_DOUBLE_PREFIX.length());
+		} else if (name.startsWith(".")) {
+			sb.append('.');
+			name = name.substring(1);
+		}
+		if (name.isEmpty() || ".".equals(name) || WELL_KNOWN_NAMES.contains(name) || WELL_KNOWN_NAMES.contains("." + name)) {
+			sb.append(name);
+			return;
+		}
+		sb.append('n').append(pseudonym(name));
+		int dot = name.lastIndexOf('.');
+		if (dot > 0 && name.length() - dot - 1 <= MAX_EXTENSION_LENGTH && isAlphanumeric(name, dot + 1)) {
+			sb.append(name, dot, name.length());
+		}
+	}
+
+	private String pseudonym(String name) {
+		try {
+			var digest = MessageDigest.getInstance("SHA-256");
+			digest.update(salt);
+			var hash = digest.digest(name.getBytes(StandardCharsets.UTF_8));
+			return HEX.formatHex(hash, 0, PSEUDONYM_BYTES);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("Every implementation of the Java platform is required to support SHA-256.", e);
+		}
+	}
+
+	private static boolean isAlphanumeric(String str, int from) {
+		if (from >= str.length()) {
+			return false;
+		}
+		for (int i = from; i < str.length(); i++) {
+			char c = str.charAt(i);
+			if (!(c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9')) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+}
@@ -0,0 +1,143 @@
+package org.cryptomator.frontend.webdav.trace;
+
+import org.cryptomator.frontend.webdav.ClientFamily;
+import org.cryptomator.frontend.webdav.CompletionAwareHandler;
+import org.eclipse.jetty.io.EndPoint;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.handler.HandlerWrapper;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.SecureRandom;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+import java.util.WeakHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Records sanitized request traces of each context, which can be replayed to benchmark the server against realistic client behaviour.
+ * <p>
+ * While a context is running, each completed request is appended as a line to a file named <code>trace-&lt;timestamp&gt;-&lt;n&gt;.tsv</code> in the configured directory.
+ * The file starts with a header line naming the tab-separated columns {@value TraceFormat#HEADER}.
+ * <p>
+ * Traces contain neither bodies nor credentials, lock tokens or other headers except for the ones describing the request's shape.
+ * Paths are relative to the context and each file name is replaced by a pseudonym, that is stable within a server's lifetime, see {@link PathSanitizer}.
+ */
+public class RequestTracing {
+
+	private static final Logger LOG = LoggerFactory.getLogger(RequestTracing.class);
+	private static final DateTimeFormatter FILE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+	private final Path traceDirectory;
+	private final PathSanitizer sanitizer; // null if tracing is disabled
+	private final AtomicInteger traceNum = new AtomicInteger();
+
+	/**
+	 * @param traceDirectory The directory to write traces to or <code>null</code> to disable tracing
+	 */
+	public RequestTracing(@Nullable Path traceDirectory) {
+		this.traceDirectory = traceDirectory;
+		this.sanitizer = traceDirectory == null ? null : new PathSanitizer(randomSalt());
+	}
+
+	private static byte[] randomSalt() {
+		var salt = new byte[16];
+		new SecureRandom().nextBytes(salt);
+		return salt;
+	}
+
+	/**
+	 * @param contextPath The path of the context, the handler will be installed in
+	 * @return A new handler to be installed in the handler chain of a single context or an empty optional, if tracing is disabled
+	 */
+	public Optional<HandlerWrapper> newContextHandler(String contextPath) {
+		if (traceDirectory == null) {
+			return Optional.empty();
+		} else {
+			return Optional.of(new TraceHandler(contextPath));
+		}
+	}
+
+	private class TraceHandler extends CompletionAwareHandler<TraceEntry> {
+
+		private final String contextPath;
+		private final Map<EndPoint, Integer> connectionIds = Collections.synchronizedMap(new WeakHashMap<>());
+		private final AtomicInteger connectionNum = new AtomicInteger();
+		private volatile Writer writer;
+		private volatile long startNanos;
+
+		TraceHandler(String contextPath) {
+			this.contextPath = contextPath;
+		}
+
+		@Override
+		protected void doStart() throws Exception {
+			var fileName = "trace-" + LocalDateTime.now().format(FILE_TIMESTAMP) + "-" + traceNum.incrementAndGet() + ".tsv";
+			var file = Files.createDirectories(traceDirectory).resolve(fileName);
+			writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+			writer.write(TraceFormat.HEADER);
+			writer.write('\n');
+			startNanos = System.nanoTime();
+			LOG.info("Recording request trace to {}", file);
+			super.doStart();
+		}
+
+		@Override
+		protected void doStop() throws Exception {
+			super.doStop();
+			synchronized (this) {
+				writer.close();
+			}
+		}
+
+		@Override
+		protected TraceEntry begin(String target, Request baseRequest, HttpServletRequest request) {
+			var entry = new TraceEntry();
+			entry.startMicros = TimeUnit.NANOSECONDS.toMicros(baseRequest.getBeginNanoTime() - startNanos);
+			entry.connection = connectionIds.computeIfAbsent(baseRequest.getHttpChannel().getEndPoint(), ep -> connectionNum.incrementAndGet());
+			entry.client = ClientFamily.of(request.getHeader("User-Agent"));
+			entry.method = baseRequest.getMethod();
+			entry.path = sanitizer.sanitize(target);
+			entry.depth = request.getHeader("Depth");
+			entry.range = request.getHeader("Range");
+			entry.contentLength = request.getContentLengthLong();
+			entry.destination = sanitizeDestination(request.getHeader("Destination"));
+			entry.overwrite = request.getHeader("Overwrite");
+			return entry;
+		}
+
+		private String sanitizeDestination(@Nullable String destination) {
+			return TraceFormat.destinationPath(destination, contextPath).map(sanitizer::sanitize).orElse(null);
+		}
+
+		@Override
+		protected void complete(TraceEntry entry, Request baseRequest, int status) {
+			entry.status = status;
+			entry.durationMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - baseRequest.getBeginNanoTime());
+			entry.bytesSent = baseRequest.getResponse().getHttpOutput().getWritten();
+			var line = entry.toLine();
+			synchronized (this) {
+				try {
+					writer.write(line);
+					writer.flush();
+				} catch (IOException e) {
+					LOG.debug("Failed to record request trace.", e);
+				}
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,80 @@
+package org.cryptomator.frontend.webdav.trace;
+
+import org.cryptomator.frontend.webdav.ClientFamily;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A single line of a request trace.
+ */
+class TraceEntry {
+
+	long startMicros;
+	int connection;
+	ClientFamily client;
+	String method;
+	String path;
+	@Nullable String depth;
+	@Nullable String range;
+	long contentLength = -1;
+	@Nullable String destination;
+	@Nullable String overwrite;
+	int status;
+	long durationMicros;
+	long bytesSent;
+
+	String toLine() {
+		var sb = new StringBuilder(128);
+		sb.append(startMicros).append('\t');
+		sb.append(connection).append('\t');
+		sb.append(client.name()).append('\t');
+		sb.append(method).append('\t');
+		sb.append(path).append('\t');
+		appendOptional(sb, depth).append('\t');
+		appendOptional(sb, range).append('\t');
+		sb.append(contentLength).append('\t');
+		appendOptional(sb, destination).append('\t');
+		appendOptional(sb, overwrite).append('\t');
+		sb.append(status).append('\t');
+		sb.append(durationMicros).append('\t');
+		sb.append(bytesSent).append('\n');
+		return sb.toString();
+	}
+
+	private static StringBuilder appendOptional(StringBuilder sb, @Nullable String value) {
+		if (value == null || value.isEmpty()) {
+			return sb.append(TraceFormat.ABSENT);
+		}
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			sb.append(Character.isISOControl(c) ? ' ' : c);
+		}
+		return sb;
+	}
+
+	static TraceEntry parse(String line) {
+		var columns = line.split("\t", -1);
+		if (columns.length != TraceFormat.COLUMNS) {
+			throw new IllegalArgumentException("Expected " + TraceFormat.COLUMNS + " columns: " + line);
+		}
+		var entry = new TraceEntry();
+		entry.startMicros = Long.parseLong(columns[0]);
+		entry.connection = Integer.parseInt(columns[1]);
+		entry.client = ClientFamily.valueOf(columns[2]);
+		entry.method = columns[3];
+		entry.path = columns[4];
+		entry.depth = optional(columns[5]);
+		entry.range = optional(columns[6]);
+		entry.contentLength = Long.parseLong(columns[7]);
+		entry.destination = optional(columns[8]);
+		entry.overwrite = optional(columns[9]);
+		entry.status = Integer.parseInt(columns[10]);
+		entry.durationMicros = Long.parseLong(columns[11]);
+		entry.bytesSent = Long.parseLong(columns[12]);
+		return entry;
+	}
+
+	private static @Nullable String optional(String column) {
+		return TraceFormat.ABSENT.equals(column) ? null : column;
+	}
+
+}
@@ -0,0 +1,42 @@
+package org.cryptomator.frontend.webdav.trace;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.Optional;
+
+/**
+ * Constants and helpers shared by the recording and parsing of request traces.
+ */
+final class TraceFormat {
+
+	static final String HEADER = "startMicros\tconnection\tclient\tmethod\tpath\tdepth\trange\tcontentLength\tdestination\toverwrite\tstatus\tdurationMicros\tbytesSent";
+	static final int COLUMNS = 13;
+	static final String ABSENT = "-";
+
+	private TraceFormat() {
+	}
+
+	/**
+	 * @param destination The value of a <code>Destination</code> header, i.e. an absolute URI or absolute path
+	 * @param contextPath The context path to strip from the destination
+	 * @return The decoded destination path relative to the context, or an empty optional if the destination is absent, malformed or outside the context
+	 */
+	static Optional<String> destinationPath(@Nullable String destination, String contextPath) {
+		if (destination == null) {
+			return Optional.empty();
+		}
+		try {
+			var path = new URI(destination).getPath();
+			if (path != null && path.startsWith(contextPath + "/")) {
+				return Optional.of(path.substring(contextPath.length()));
+			} else {
+				return Optional.empty();
+			}
+		} catch (URISyntaxException e) {
+			return Optional.empty();
+		}
+	}
+
+}
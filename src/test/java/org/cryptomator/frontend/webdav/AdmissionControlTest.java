@@ -0,0 +1,172 @@
+package org.cryptomator.frontend.webdav;
+
+import org.eclipse.jetty.http.HttpTester;
+import org.eclipse.jetty.server.HttpConnectionFactory;
+import org.eclipse.jetty.server.LocalConnector;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.eclipse.jetty.server.handler.ContextHandler;
+import org.eclipse.jetty.server.handler.ContextHandlerCollection;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+@Timeout(10)
+public class AdmissionControlTest {
+
+	private final CountDownLatch blockedRequestEntered = new CountDownLatch(1);
+	private final CountDownLatch blockedRequestReleased = new CountDownLatch(1);
+	private Server server;
+	private LocalConnector connector;
+
+	@AfterEach
+	public void tearDown() throws Exception {
+		blockedRequestReleased.countDown();
+		if (server != null) {
+			server.stop();
+		}
+	}
+
+	// serves two contexts /a and /b, each behind its own admission handler, whose path /block blocks until released
+	private AdmissionControl start(WebDavServerConfig config) throws Exception {
+		var admissionControl = new AdmissionControl(config);
+		server = new Server();
+		connector = new LocalConnector(server, new HttpConnectionFactory());
+		server.addConnector(connector);
+		var contexts = new ContextHandlerCollection();
+		for (var contextPath : new String[]{"/a", "/b"}) {
+			var context = new ContextHandler(contextPath);
+			var admissionHandler = admissionControl.newContextHandler();
+			admissionHandler.setHandler(new BlockingHandler());
+			context.setHandler(admissionHandler);
+			contexts.addHandler(context);
+		}
+		server.setHandler(contexts);
+		server.start();
+		return admissionControl;
+	}
+
+	private class BlockingHandler extends AbstractHandler {
+
+		@Override
+		public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException {
+			if ("/block".equals(target)) {
+				blockedRequestEntered.countDown();
+				try {
+					blockedRequestReleased.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			baseRequest.setHandled(true);
+			response.setStatus(200);
+		}
+
+	}
+
+	private LocalConnector.LocalEndPoint sendBlockingRequest(String contextPath) throws Exception {
+		var endPoint = connector.executeRequest("GET " + contextPath + "/block HTTP/1.1\r\nHost: localhost\r\n\r\n");
+		Assertions.assertTrue(blockedRequestEntered.await(5, TimeUnit.SECONDS));
+		return endPoint;
+	}
+
+	private HttpTester.Response send(String path) throws Exception {
+		return HttpTester.parseResponse(connector.getResponse("GET " + path + " HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n"));
+	}
+
+	private static HttpTester.Response awaitResponse(LocalConnector.LocalEndPoint endPoint) throws Exception {
+		return HttpTester.parseResponse(endPoint.waitForResponse(false, 5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void testContextLimit() throws Exception {
+		var admissionControl = start(WebDavServerConfig.builder().setMaxRequestsPerContext(1).setRetryAfter(Duration.ofSeconds(7)).build());
+		var blocked = sendBlockingRequest("/a");
+
+		var rejected = send("/a/foo");
+		var otherContext = send("/b/foo");
+		blockedRequestReleased.countDown();
+
+		Assertions.assertEquals(503, rejected.getStatus());
+		Assertions.assertEquals("7", rejected.get("Retry-After"));
+		Assertions.assertEquals(200, otherContext.getStatus());
+		Assertions.assertEquals(200, awaitResponse(blocked).getStatus());
+		Assertions.assertEquals(200, send("/a/foo").getStatus());
+		Assertions.assertEquals(1, admissionControl.getShedByContextLimitCount());
+	}
+
+	@Test
+	public void testNoLimitsByDefault() throws Exception {
+		var admissionControl = start(WebDavServerConfig.builder().build());
+		var blocked = sendBlockingRequest("/a");
+
+		var response = send("/a/foo");
+		blockedRequestReleased.countDown();
+
+		Assertions.assertEquals(200, response.getStatus());
+		Assertions.assertEquals(200, awaitResponse(blocked).getStatus());
+		Assertions.assertEquals(0, admissionControl.getShedByContextLimitCount());
+		Assertions.assertEquals(0, admissionControl.getShedByQueueDelayCount());
+	}
+
+	@Test
+	public void testConnectionLimitDoesNotAffectSequentialHttp11Requests() throws Exception {
+		var admissionControl = start(WebDavServerConfig.builder().setMaxRequestsPerConnection(1).build());
+
+		var endPoint = connector.executeRequest("GET /a/foo HTTP/1.1\r\nHost: localhost\r\n\r\nGET /a/bar HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n");
+
+		Assertions.assertEquals(200, awaitResponse(endPoint).getStatus());
+		Assertions.assertEquals(200, awaitResponse(endPoint).getStatus());
+		Assertions.assertEquals(0, admissionControl.getShedByConnectionLimitCount());
+	}
+
+	@Test
+	public void testQueueDelayShedding() throws Exception {
+		var admissionControl = start(WebDavServerConfig.builder().setMaxQueueDelay(Duration.ofMillis(100)).setRetryAfter(Duration.ofSeconds(3)).build());
+		var maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(100);
+
+		// exceeding the maximum delay once isn't enough to be overloaded...
+		admissionControl.recordQueueDelay(2 * maxDelayNanos);
+		Assertions.assertFalse(admissionControl.isOverloaded());
+		// ...but keeping to exceed it for a whole interval is:
+		Thread.sleep(1100);
+		admissionControl.recordQueueDelay(2 * maxDelayNanos);
+		Assertions.assertTrue(admissionControl.isOverloaded());
+
+		var blocked = sendBlockingRequest("/a");
+		var rejected = send("/a/foo");
+		var idleContext = send("/b/foo");
+		blockedRequestReleased.countDown();
+		Assertions.assertEquals(200, awaitResponse(blocked).getStatus());
+
+		Assertions.assertEquals(503, rejected.getStatus());
+		Assertions.assertEquals("3", rejected.get("Retry-After"));
+		Assertions.assertEquals(200, idleContext.getStatus());
+		Assertions.assertEquals(1, admissionControl.getShedByQueueDelayCount());
+
+		// recovers with the first task that didn't wait too long:
+		admissionControl.recordQueueDelay(maxDelayNanos / 2);
+		Assertions.assertFalse(admissionControl.isOverloaded());
+	}
+
+	@Test
+	public void testQueueDelayIgnoredIfSheddingDisabled() throws Exception {
+		var admissionControl = start(WebDavServerConfig.builder().setMaxQueueDelay(Duration.ZERO).build());
+
+		admissionControl.recordQueueDelay(TimeUnit.SECONDS.toNanos(10));
+		Thread.sleep(1100);
+		admissionControl.recordQueueDelay(TimeUnit.SECONDS.toNanos(10));
+
+		Assertions.assertFalse(admissionControl.isOverloaded());
+	}
+
+}
@@ -0,0 +1,102 @@
+package org.cryptomator.frontend.webdav;
+
+import org.cryptomator.frontend.webdav.servlet.WebDavServletController;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Measures bytes on the wire and latency of <code>PROPFIND</code> (Depth 1) listings of a large directory with and without response compression.
+ * <p>
+ * Three setups are compared: A client not accepting gzip, a client accepting gzip with {@link WebDavServerConfig#compression()} disabled
+ * (in which case Jackrabbit compresses multistatus responses on its own) and a client accepting gzip with compression enabled.
+ * <p>
+ * Bytes on the wire are approximated by the size of the response body, as the JDK {@link HttpClient} does not transparently decompress responses.
+ */
+public class CompressionBenchmark {
+
+	static {
+		System.setProperty("org.slf4j.simpleLogger.defaultLogLevel", "warn");
+		System.setProperty("org.slf4j.simpleLogger.log.org.cryptomator.frontend.webdav.CompressionBenchmark", "info");
+	}
+
+	private static final Logger LOG = LoggerFactory.getLogger(CompressionBenchmark.class);
+	private static final int FILE_COUNT = 20_000;
+	private static final int WARMUP_REQUESTS = 3;
+	private static final int MEASURED_REQUESTS = 20;
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		Path dir = Files.createTempDirectory("compression-benchmark");
+		try {
+			Path listing = Files.createDirectory(dir.resolve("listing"));
+			for (int i = 0; i < FILE_COUNT; i++) {
+				Files.createFile(listing.resolve(String.format("some rather long file name number %06d.txt", i)));
+			}
+			run("identity", dir, false, false);
+			run("gzip (jackrabbit)", dir, true, false);
+			run("gzip (pooled)", dir, true, true);
+		} finally {
+			try (Stream<Path> files = Files.walk(dir)) {
+				files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+			}
+		}
+	}
+
+	private static void run(String name, Path dir, boolean acceptGzip, boolean compression) throws IOException, InterruptedException {
+		var config = WebDavServerConfig.builder().setCompression(compression).build();
+		var server = WebDavServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), config);
+		try {
+			server.start();
+			WebDavServletController servlet = server.createWebDavServlet(dir, "/bench");
+			servlet.start();
+			URI listing = servlet.getServletRootUri().resolve("bench/listing/");
+			HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+			var propfind = HttpRequest.newBuilder(listing).method("PROPFIND", HttpRequest.BodyPublishers.noBody()) //
+					.header("Depth", "1") //
+					.header("Accept-Encoding", acceptGzip ? "gzip" : "identity") //
+					.build();
+
+			var probe = client.send(propfind, HttpResponse.BodyHandlers.ofByteArray());
+			if (probe.statusCode() != 207) {
+				throw new IOException("Unexpected status " + probe.statusCode());
+			}
+			boolean gzipped = probe.headers().firstValue("Content-Encoding").filter("gzip"::equals).isPresent();
+			long decodedSize = gzipped ? new GZIPInputStream(new ByteArrayInputStream(probe.body())).readAllBytes().length : probe.body().length;
+
+			for (int i = 0; i < WARMUP_REQUESTS; i++) {
+				client.send(propfind, HttpResponse.BodyHandlers.discarding());
+			}
+			long[] latencies = new long[MEASURED_REQUESTS];
+			for (int i = 0; i < MEASURED_REQUESTS; i++) {
+				long start = System.nanoTime();
+				client.send(propfind, HttpResponse.BodyHandlers.ofByteArray());
+				latencies[i] = System.nanoTime() - start;
+			}
+			Arrays.sort(latencies);
+			LOG.info("{}: {} entries, {} bytes on wire ({} bytes decoded, content-encoding {}), latency p50 = {} ms, p99 = {} ms", name, FILE_COUNT, probe.body().length, decodedSize, gzipped ? "gzip" : "identity", millis(latencies, 0.5), millis(latencies, 0.99));
+		} finally {
+			server.terminate();
+		}
+	}
+
+	private static String millis(long[] sortedNanos, double percentile) {
+		long nanos = sortedNanos[(int) Math.min(sortedNanos.length - 1, Math.round(percentile * sortedNanos.length))];
+		return String.format(Locale.ROOT, "%.1f", nanos / 1e6);
+	}
+
+}
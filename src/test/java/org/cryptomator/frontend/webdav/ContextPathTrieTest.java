@@ -0,0 +1,92 @@
+package org.cryptomator.frontend.webdav;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+public class ContextPathTrieTest {
+
+	private ContextPathTrie trie;
+
+	@BeforeEach
+	public void setup() {
+		trie = new ContextPathTrie();
+		trie.add("/foo/bar");
+		trie.add("/foo/baz/qux");
+		trie.add("/other");
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = {"", "/", "/foo", "/foo/", "/foo/bar", "/foo/bar/", "//foo//bar", "foo/bar", "/foo/baz", "/foo/baz/qux", "/other"})
+	public void testIsSameOrParentOfAny(String path) {
+		Assertions.assertTrue(trie.isSameOrParentOfAny(path));
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = {"/fo", "/foo/ba", "/foo/bar/child", "/foo/barx", "/foo/baz/qux/child", "/other/child", "/unknown", "/Foo"})
+	public void testIsNeitherSameNorParentOfAny(String path) {
+		Assertions.assertFalse(trie.isSameOrParentOfAny(path));
+	}
+
+	@Test
+	public void testEmptyTrie() {
+		var empty = new ContextPathTrie();
+		Assertions.assertFalse(empty.isSameOrParentOfAny("/"));
+		Assertions.assertFalse(empty.isSameOrParentOfAny("/foo"));
+	}
+
+	@Test
+	public void testAddTwice() {
+		Assertions.assertFalse(trie.add("/foo/bar"));
+		Assertions.assertFalse(trie.add("/foo//bar/"));
+	}
+
+	@Test
+	public void testRemove() {
+		Assertions.assertTrue(trie.remove("/foo/baz/qux"));
+
+		Assertions.assertTrue(trie.isSameOrParentOfAny("/foo"));
+		Assertions.assertTrue(trie.isSameOrParentOfAny("/foo/bar"));
+		Assertions.assertFalse(trie.isSameOrParentOfAny("/foo/baz"));
+	}
+
+	@Test
+	public void testRemoveKeepsTerminalParent() {
+		trie.add("/foo");
+		Assertions.assertTrue(trie.remove("/foo/bar"));
+		Assertions.assertTrue(trie.remove("/foo/baz/qux"));
+
+		Assertions.assertTrue(trie.isSameOrParentOfAny("/foo"));
+		Assertions.assertFalse(trie.isSameOrParentOfAny("/foo/bar"));
+		Assertions.assertFalse(trie.isSameOrParentOfAny("/foo/baz"));
+	}
+
+	@Test
+	public void testRemoveKeepsChildren() {
+		trie.add("/foo");
+		Assertions.assertTrue(trie.remove("/foo"));
+
+		Assertions.assertTrue(trie.isSameOrParentOfAny("/foo/bar"));
+		Assertions.assertFalse(trie.remove("/foo"));
+	}
+
+	@Test
+	public void testRemoveUnknown() {
+		Assertions.assertFalse(trie.remove("/foo"));
+		Assertions.assertFalse(trie.remove("/foo/baz"));
+		Assertions.assertFalse(trie.remove("/unknown"));
+		Assertions.assertTrue(trie.isSameOrParentOfAny("/foo/baz/qux"));
+	}
+
+	@Test
+	public void testRemoveAll() {
+		Assertions.assertTrue(trie.remove("/foo/bar"));
+		Assertions.assertTrue(trie.remove("/foo/baz/qux"));
+		Assertions.assertTrue(trie.remove("/other"));
+
+		Assertions.assertFalse(trie.isSameOrParentOfAny("/"));
+	}
+
+}
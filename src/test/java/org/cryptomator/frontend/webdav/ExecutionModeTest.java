@@ -0,0 +1,29 @@
+package org.cryptomator.frontend.webdav;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.NullSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+public class ExecutionModeTest {
+
+	@ParameterizedTest
+	@CsvSource(value = {
+			"PLATFORM_THREADS, PLATFORM_THREADS",
+			"VIRTUAL_THREADS, VIRTUAL_THREADS",
+			"virtual_threads, VIRTUAL_THREADS",
+			"' Virtual_Threads ', VIRTUAL_THREADS",
+	})
+	public void testParse(String name, ExecutionMode expected) {
+		Assertions.assertEquals(expected, ExecutionMode.parse(name));
+	}
+
+	@ParameterizedTest
+	@NullSource
+	@ValueSource(strings = {"", "VIRTUAL", "virtual-threads", "LOOM"})
+	public void testParseFallsBackToPlatformThreads(String name) {
+		Assertions.assertEquals(ExecutionMode.PLATFORM_THREADS, ExecutionMode.parse(name));
+	}
+
+}
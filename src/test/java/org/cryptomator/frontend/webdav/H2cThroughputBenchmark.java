@@ -0,0 +1,127 @@
+package org.cryptomator.frontend.webdav;
+
+import org.cryptomator.frontend.webdav.servlet.WebDavServletController;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Compares HTTP/1.1 and h2c throughput for a many-small-files workload, using the JDK {@link HttpClient} as a stand-in for WebDAV clients.
+ * <p>
+ * Each round issues a <code>PROPFIND</code> (Depth 0) and a <code>GET</code> for every file, keeping up to {@value #CONCURRENCY} requests in flight.
+ * h2c requires the optional <code>org.eclipse.jetty.http2:http2-server</code> dependency. If the h2c run doesn't negotiate HTTP/2, the benchmark fails.
+ */
+public class H2cThroughputBenchmark {
+
+	static {
+		System.setProperty("org.slf4j.simpleLogger.defaultLogLevel", "warn");
+		System.setProperty("org.slf4j.simpleLogger.log.org.cryptomator.frontend.webdav.H2cThroughputBenchmark", "info");
+	}
+
+	private static final Logger LOG = LoggerFactory.getLogger(H2cThroughputBenchmark.class);
+	private static final int FILE_COUNT = 2000;
+	private static final int FILE_SIZE = 4 * 1024;
+	private static final int CONCURRENCY = 64;
+	private static final int WARMUP_ROUNDS = 2;
+	private static final int MEASURED_ROUNDS = 5;
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		Path dir = Files.createTempDirectory("h2c-benchmark");
+		try {
+			for (int i = 0; i < FILE_COUNT; i++) {
+				Files.write(dir.resolve(String.format("file-%05d.bin", i)), new byte[FILE_SIZE]);
+			}
+			run("HTTP/1.1", dir, false, HttpClient.Version.HTTP_1_1);
+			run("h2c", dir, true, HttpClient.Version.HTTP_2);
+		} finally {
+			try (Stream<Path> files = Files.walk(dir)) {
+				files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+			}
+		}
+	}
+
+	private static void run(String name, Path dir, boolean h2c, HttpClient.Version clientVersion) throws IOException, InterruptedException {
+		var config = WebDavServerConfig.builder().setH2c(h2c).setMaxRequestsPerContext(0).build();
+		var server = WebDavServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), config);
+		ExecutorService clientExecutor = Executors.newFixedThreadPool(8);
+		try {
+			server.start();
+			WebDavServletController servlet = server.createWebDavServlet(dir, "/bench");
+			servlet.start();
+			URI root = servlet.getServletRootUri();
+			HttpClient client = HttpClient.newBuilder().version(clientVersion).executor(clientExecutor).build();
+
+			var probe = client.send(HttpRequest.newBuilder(root.resolve("bench/file-00000.bin")).build(), HttpResponse.BodyHandlers.discarding());
+			if (probe.version() != clientVersion) {
+				throw new IllegalStateException(name + ": Server responded with " + probe.version() + " instead of " + clientVersion);
+			}
+
+			for (int i = 0; i < WARMUP_ROUNDS; i++) {
+				round(client, root);
+			}
+			long requests = 0;
+			long bytes = 0;
+			long start = System.nanoTime();
+			for (int i = 0; i < MEASURED_ROUNDS; i++) {
+				var result = round(client, root);
+				requests += result[0];
+				bytes += result[1];
+			}
+			double seconds = (System.nanoTime() - start) / 1e9;
+			LOG.info("{}: {} requests in {} s -> {} req/s, {} MiB/s", name, requests, String.format("%.2f", seconds), String.format("%.0f", requests / seconds), String.format("%.2f", bytes / seconds / 1024 / 1024));
+		} finally {
+			server.terminate();
+			clientExecutor.shutdownNow();
+		}
+	}
+
+	private static long[] round(HttpClient client, URI root) throws InterruptedException {
+		Semaphore inFlight = new Semaphore(CONCURRENCY);
+		AtomicLong requests = new AtomicLong();
+		AtomicLong bytes = new AtomicLong();
+		AtomicLong failures = new AtomicLong();
+		CompletableFuture<?>[] futures = new CompletableFuture<?>[2 * FILE_COUNT];
+		for (int i = 0; i < FILE_COUNT; i++) {
+			URI file = root.resolve(String.format("bench/file-%05d.bin", i));
+			var propfind = HttpRequest.newBuilder(file).method("PROPFIND", HttpRequest.BodyPublishers.noBody()).header("Depth", "0").build();
+			var get = HttpRequest.newBuilder(file).GET().build();
+			futures[2 * i] = send(client, propfind, inFlight, requests, bytes, failures);
+			futures[2 * i + 1] = send(client, get, inFlight, requests, bytes, failures);
+		}
+		CompletableFuture.allOf(futures).join();
+		if (failures.get() > 0) {
+			LOG.warn("{} requests failed.", failures.get());
+		}
+		return new long[]{requests.get(), bytes.get()};
+	}
+
+	private static CompletableFuture<?> send(HttpClient client, HttpRequest request, Semaphore inFlight, AtomicLong requests, AtomicLong bytes, AtomicLong failures) throws InterruptedException {
+		inFlight.acquire();
+		return client.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray()).whenComplete((response, e) -> {
+			inFlight.release();
+			requests.incrementAndGet();
+			if (e != null || response.statusCode() >= 400) {
+				failures.incrementAndGet();
+			} else {
+				bytes.addAndGet(response.body().length);
+			}
+		});
+	}
+
+}
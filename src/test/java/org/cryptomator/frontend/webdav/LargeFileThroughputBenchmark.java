@@ -0,0 +1,170 @@
+package org.cryptomator.frontend.webdav;
+
+import org.cryptomator.frontend.webdav.servlet.WebDavServletController;
+import org.cryptomator.frontend.webdav.slowfs.LatencyInjectingFileSystem;
+import org.cryptomator.frontend.webdav.slowfs.LatencyProfile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+/**
+ * Measures the throughput of <code>GET</code> requests for multi-GB files, both for the whole file and for large ranges.
+ * <p>
+ * The file is served once from the default file system, whose <code>FileChannel</code>s are memory-mapped,
+ * and once wrapped in a {@link LatencyInjectingFileSystem} without any latency, which doesn't support <code>FileChannel</code>s
+ * and therefore exercises the direct buffer fallback.
+ * <p>
+ * Responses are read by a minimal HTTP/1.1 client into a single direct buffer, so that the client's own overhead doesn't hide differences on the server side.
+ * Besides the throughput, the CPU time of the whole process (server and client) per GiB is reported.
+ * <p>
+ * Options:
+ * <dl>
+ *     <dt><code>--size=&lt;GiB&gt;</code></dt><dd>Size of the file (default: {@value #DEFAULT_SIZE_GIB})</dd>
+ *     <dt><code>--rounds=&lt;n&gt;</code></dt><dd>Measured downloads per scenario, preceded by one warmup download (default: {@value #DEFAULT_ROUNDS})</dd>
+ * </dl>
+ */
+public class LargeFileThroughputBenchmark {
+
+	static {
+		System.setProperty("org.slf4j.simpleLogger.defaultLogLevel", "warn");
+		System.setProperty("org.slf4j.simpleLogger.log.org.cryptomator.frontend.webdav.LargeFileThroughputBenchmark", "info");
+	}
+
+	private static final Logger LOG = LoggerFactory.getLogger(LargeFileThroughputBenchmark.class);
+	private static final int DEFAULT_SIZE_GIB = 2;
+	private static final int DEFAULT_ROUNDS = 3;
+	private static final long RANGE_LENGTH = 256L * 1024 * 1024;
+	private static final int BLOCK_SIZE = 1024 * 1024;
+	private static final Pattern CONTENT_LENGTH = Pattern.compile("\r\ncontent-length: *(\\d+)\r\n", Pattern.CASE_INSENSITIVE);
+
+	public static void main(String[] args) throws IOException {
+		int sizeGiB = DEFAULT_SIZE_GIB;
+		int rounds = DEFAULT_ROUNDS;
+		for (var arg : args) {
+			if (arg.startsWith("--size=")) {
+				sizeGiB = Integer.parseInt(arg.substring("--size=".length()));
+			} else if (arg.startsWith("--rounds=")) {
+				rounds = Integer.parseInt(arg.substring("--rounds=".length()));
+			} else {
+				throw new IllegalArgumentException("Unknown option " + arg);
+			}
+		}
+
+		Path dir = Files.createTempDirectory("large-file-benchmark");
+		Path file = dir.resolve("large.bin");
+		try {
+			createFile(file, (long) sizeGiB << 30);
+			run("default file system", dir, file, rounds);
+			run("non-FileChannel file system", LatencyInjectingFileSystem.wrap(dir, LatencyProfile.NONE), file, rounds);
+		} finally {
+			Files.deleteIfExists(file);
+			Files.deleteIfExists(dir);
+		}
+	}
+
+	// random content, so that neither the file system nor the page cache can take shortcuts for zeros
+	private static void createFile(Path file, long size) throws IOException {
+		var block = new byte[BLOCK_SIZE];
+		new Random(42).nextBytes(block);
+		try (var ch = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+			for (long written = 0; written < size; written += BLOCK_SIZE) {
+				ch.write(ByteBuffer.wrap(block));
+			}
+		}
+	}
+
+	private static void run(String name, Path root, Path file, int rounds) throws IOException {
+		var server = WebDavServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), WebDavServerConfig.defaults());
+		try {
+			server.start();
+			WebDavServletController servlet = server.createWebDavServlet(root, "/bench");
+			servlet.start();
+			URI uri = servlet.getServletRootUri().resolve("bench/" + file.getFileName());
+			long size = Files.size(file);
+			long middle = size / 2 - RANGE_LENGTH / 2;
+			measure(name + ", whole file", uri, null, rounds);
+			measure(name + ", range of " + (RANGE_LENGTH >> 20) + " MiB", uri, "bytes=" + middle + "-" + (middle + RANGE_LENGTH - 1), rounds);
+		} finally {
+			server.terminate();
+		}
+	}
+
+	private static void measure(String scenario, URI uri, String range, int rounds) throws IOException {
+		var buffer = ByteBuffer.allocateDirect(BLOCK_SIZE);
+		download(uri, range, buffer);
+		long bytes = 0;
+		long cpuStart = processCpuTime();
+		long start = System.nanoTime();
+		for (int i = 0; i < rounds; i++) {
+			bytes += download(uri, range, buffer);
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+		double cpuSeconds = (processCpuTime() - cpuStart) / 1e9;
+		double gib = bytes / (double) (1L << 30);
+		LOG.info("{}: {} GiB in {} s -> {} MiB/s, {} CPU s/GiB", scenario, String.format("%.2f", gib), String.format("%.2f", seconds), String.format("%.0f", gib * 1024 / seconds), String.format("%.3f", cpuSeconds / gib));
+	}
+
+	private static long processCpuTime() {
+		return ProcessHandle.current().info().totalCpuDuration().orElse(Duration.ZERO).toNanos();
+	}
+
+	private static long download(URI uri, String range, ByteBuffer buffer) throws IOException {
+		try (var ch = SocketChannel.open(new InetSocketAddress(uri.getHost(), uri.getPort()))) {
+			var request = "GET " + uri.getRawPath() + " HTTP/1.1\r\nHost: " + uri.getHost() + ":" + uri.getPort() + "\r\n" + (range == null ? "" : "Range: " + range + "\r\n") + "Connection: close\r\n\r\n";
+			ch.write(ByteBuffer.wrap(request.getBytes(StandardCharsets.US_ASCII)));
+
+			// read until the end of the header, which is assumed to fit into the buffer:
+			buffer.clear();
+			int headerEnd = -1;
+			while (headerEnd == -1) {
+				if (ch.read(buffer) == -1) {
+					throw new EOFException("Connection closed before end of header");
+				}
+				headerEnd = indexOfHeaderEnd(buffer);
+			}
+			var header = StandardCharsets.US_ASCII.decode(buffer.duplicate().flip().limit(headerEnd)).toString();
+			var status = header.substring(0, header.indexOf("\r\n"));
+			var contentLength = CONTENT_LENGTH.matcher(header);
+			if (!status.matches("HTTP/1\\.1 20[06] .*") || !contentLength.find()) {
+				throw new IOException("Unexpected response: " + status);
+			}
+			long expected = Long.parseLong(contentLength.group(1));
+
+			long received = buffer.position() - headerEnd;
+			while (received < expected) {
+				buffer.clear();
+				int read = ch.read(buffer);
+				if (read == -1) {
+					throw new EOFException("Received " + received + " of " + expected + " bytes");
+				}
+				received += read;
+			}
+			return received;
+		}
+	}
+
+	private static int indexOfHeaderEnd(ByteBuffer buffer) {
+		for (int i = 3; i < buffer.position(); i++) {
+			if (buffer.get(i - 3) == '\r' && buffer.get(i - 2) == '\n' && buffer.get(i - 1) == '\r' && buffer.get(i) == '\n') {
+				return i + 1;
+			}
+		}
+		return -1;
+	}
+
+}
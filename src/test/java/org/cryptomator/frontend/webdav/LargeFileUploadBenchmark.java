@@ -0,0 +1,188 @@
+package org.cryptomator.frontend.webdav;
+
+import org.cryptomator.frontend.webdav.servlet.WebDavServletController;
+import org.cryptomator.frontend.webdav.slowfs.LatencyInjectingFileSystem;
+import org.cryptomator.frontend.webdav.slowfs.LatencyProfile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Random;
+
+/**
+ * Measures the throughput of <code>PUT</code> requests uploading multi-GB files.
+ * <p>
+ * Files are written once to the default file system and once to a {@link LatencyInjectingFileSystem} without any latency,
+ * whose channels aren't <code>FileChannel</code>s. Each file system receives uploads with a <code>Content-Length</code>
+ * as well as chunked uploads with an <code>X-Expected-Entity-Length</code> header, as sent by macOS, which pass through the
+ * <code>MacChunkedPutCompatibilityFilter</code>.
+ * <p>
+ * Requests are sent by a minimal HTTP/1.1 client from a single direct buffer, so that the client's own overhead doesn't hide differences on the server side.
+ * Besides the throughput, the CPU time of the whole process (server and client) per GiB and the direct memory in use after the uploads are reported.
+ * After the last upload of each scenario, the written file is compared to the uploaded content.
+ * <p>
+ * Options:
+ * <dl>
+ *     <dt><code>--size=&lt;GiB&gt;</code></dt><dd>Size of the file (default: {@value #DEFAULT_SIZE_GIB})</dd>
+ *     <dt><code>--rounds=&lt;n&gt;</code></dt><dd>Measured uploads per scenario, preceded by one warmup upload (default: {@value #DEFAULT_ROUNDS})</dd>
+ * </dl>
+ */
+public class LargeFileUploadBenchmark {
+
+	static {
+		System.setProperty("org.slf4j.simpleLogger.defaultLogLevel", "warn");
+		System.setProperty("org.slf4j.simpleLogger.log.org.cryptomator.frontend.webdav.LargeFileUploadBenchmark", "info");
+	}
+
+	private static final Logger LOG = LoggerFactory.getLogger(LargeFileUploadBenchmark.class);
+	private static final int DEFAULT_SIZE_GIB = 2;
+	private static final int DEFAULT_ROUNDS = 3;
+	private static final int BLOCK_SIZE = 1024 * 1024;
+
+	public static void main(String[] args) throws IOException {
+		int sizeGiB = DEFAULT_SIZE_GIB;
+		int rounds = DEFAULT_ROUNDS;
+		for (var arg : args) {
+			if (arg.startsWith("--size=")) {
+				sizeGiB = Integer.parseInt(arg.substring("--size=".length()));
+			} else if (arg.startsWith("--rounds=")) {
+				rounds = Integer.parseInt(arg.substring("--rounds=".length()));
+			} else {
+				throw new IllegalArgumentException("Unknown option " + arg);
+			}
+		}
+
+		// random content, so that neither the file system nor the page cache can take shortcuts for zeros
+		var block = new byte[BLOCK_SIZE];
+		new Random(42).nextBytes(block);
+		Path dir = Files.createTempDirectory("large-upload-benchmark");
+		Path file = dir.resolve("large.bin");
+		try {
+			boolean passed = run("default file system", dir, file, block, (long) sizeGiB << 30, rounds);
+			passed &= run("non-FileChannel file system", LatencyInjectingFileSystem.wrap(dir, LatencyProfile.NONE), file, block, (long) sizeGiB << 30, rounds);
+			if (passed) {
+				LOG.info("PASSED");
+			} else {
+				LOG.error("FAILED: Written file differs from the uploaded content");
+				System.exit(1);
+			}
+		} finally {
+			Files.deleteIfExists(file);
+			Files.deleteIfExists(dir);
+		}
+	}
+
+	private static boolean run(String name, Path root, Path file, byte[] block, long size, int rounds) throws IOException {
+		var server = WebDavServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), WebDavServerConfig.defaults());
+		try {
+			server.start();
+			WebDavServletController servlet = server.createWebDavServlet(root, "/bench");
+			servlet.start();
+			URI uri = servlet.getServletRootUri().resolve("bench/" + file.getFileName());
+			boolean passed = measure(name + ", Content-Length", uri, file, block, size, false, rounds);
+			passed &= measure(name + ", chunked", uri, file, block, size, true, rounds);
+			return passed;
+		} finally {
+			server.terminate();
+		}
+	}
+
+	private static boolean measure(String scenario, URI uri, Path file, byte[] block, long size, boolean chunked, int rounds) throws IOException {
+		var buffer = ByteBuffer.allocateDirect(BLOCK_SIZE);
+		upload(uri, block, size, chunked, buffer);
+		long cpuStart = processCpuTime();
+		long start = System.nanoTime();
+		for (int i = 0; i < rounds; i++) {
+			upload(uri, block, size, chunked, buffer);
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+		double cpuSeconds = (processCpuTime() - cpuStart) / 1e9;
+		double gib = (double) size * rounds / (1L << 30);
+		LOG.info("{}: {} GiB in {} s -> {} MiB/s, {} CPU s/GiB, {} MiB direct memory in use", scenario, String.format("%.2f", gib), String.format("%.2f", seconds), String.format("%.0f", gib * 1024 / seconds), String.format("%.3f", cpuSeconds / gib), String.format("%.1f", directMemoryUsed() / (1024.0 * 1024)));
+		return verify(file, block, size);
+	}
+
+	private static long processCpuTime() {
+		return ProcessHandle.current().info().totalCpuDuration().orElse(Duration.ZERO).toNanos();
+	}
+
+	private static long directMemoryUsed() {
+		return ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class).stream().filter(pool -> "direct".equals(pool.getName())).mapToLong(BufferPoolMXBean::getMemoryUsed).sum();
+	}
+
+	private static void upload(URI uri, byte[] block, long size, boolean chunked, ByteBuffer buffer) throws IOException {
+		try (var ch = SocketChannel.open(new InetSocketAddress(uri.getHost(), uri.getPort()))) {
+			var request = "PUT " + uri.getRawPath() + " HTTP/1.1\r\nHost: " + uri.getHost() + ":" + uri.getPort() + "\r\n" //
+					+ (chunked ? "Transfer-Encoding: chunked\r\nX-Expected-Entity-Length: " + size + "\r\n" : "Content-Length: " + size + "\r\n") //
+					+ "Connection: close\r\n\r\n";
+			writeFully(ch, ByteBuffer.wrap(request.getBytes(StandardCharsets.US_ASCII)));
+			var chunkHeader = ByteBuffer.wrap((Integer.toHexString(BLOCK_SIZE) + "\r\n").getBytes(StandardCharsets.US_ASCII));
+			var chunkTrailer = ByteBuffer.wrap("\r\n".getBytes(StandardCharsets.US_ASCII));
+			buffer.clear().put(block).flip();
+			for (long sent = 0; sent < size; sent += BLOCK_SIZE) {
+				if (chunked) {
+					writeFully(ch, chunkHeader.rewind());
+				}
+				writeFully(ch, buffer.rewind());
+				if (chunked) {
+					writeFully(ch, chunkTrailer.rewind());
+				}
+			}
+			if (chunked) {
+				writeFully(ch, ByteBuffer.wrap("0\r\n\r\n".getBytes(StandardCharsets.US_ASCII)));
+			}
+
+			buffer.clear();
+			while (buffer.position() < 12) {
+				if (ch.read(buffer) == -1) {
+					throw new EOFException("Connection closed before status line");
+				}
+			}
+			var status = StandardCharsets.US_ASCII.decode(buffer.flip().limit(12)).toString();
+			if (!status.matches("HTTP/1\\.1 20[14]")) {
+				throw new IOException("Unexpected response: " + status);
+			}
+		}
+	}
+
+	private static void writeFully(SocketChannel ch, ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			ch.write(buffer);
+		}
+	}
+
+	private static boolean verify(Path file, byte[] block, long size) throws IOException {
+		if (Files.size(file) != size) {
+			return false;
+		}
+		var expected = ByteBuffer.wrap(block);
+		var actual = ByteBuffer.allocate(BLOCK_SIZE);
+		try (var ch = FileChannel.open(file, StandardOpenOption.READ)) {
+			for (long position = 0; position < size; position += BLOCK_SIZE) {
+				actual.clear();
+				while (actual.hasRemaining() && ch.read(actual) != -1) {
+					// keep reading until the block is complete
+				}
+				if (!actual.flip().equals(expected.rewind())) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+}
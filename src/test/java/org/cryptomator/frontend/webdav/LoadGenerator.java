@@ -0,0 +1,428 @@
+package org.cryptomator.frontend.webdav;
+
+import org.cryptomator.frontend.webdav.servlet.WebDavServletController;
+import org.cryptomator.frontend.webdav.slowfs.LatencyInjectingFileSystem;
+import org.cryptomator.frontend.webdav.slowfs.LatencyProfile;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Stream;
+
+/**
+ * End-to-end load generator driving concurrent WebDAV workloads against an embedded server obtained from {@link WebDavServerManager}.
+ * <p>
+ * Options are passed as <code>--key=value</code> arguments:
+ * <dl>
+ *     <dt>contexts</dt><dd>Number of servlet contexts, each serving its own directory (default 4)</dd>
+ *     <dt>concurrency</dt><dd>Number of client threads, each issuing one request at a time (default 32)</dd>
+ *     <dt>warmup, duration</dt><dd>Seconds to run before and while measuring (default 5 and 30)</dd>
+ *     <dt>mix</dt><dd>Relative weights of the operations, e.g. <code>GET_SMALL=10,PUT=1</code> (default: see {@link Operation})</dd>
+ *     <dt>smallFileSize, largeFileSize</dt><dd>Sizes of the files read by GET requests in bytes (default 4 KiB and 16 MiB)</dd>
+ *     <dt>maxThreads, maxPendingRequests, maxRequestsPerContext, attributeCacheSize, listingParallelism, readAheadCacheSize, channelPoolSize</dt><dd>Server settings, see {@link WebDavServerConfig}</dd>
+ *     <dt>storage</dt><dd>Either <code>local</code> to serve the temp directory as is or <code>cloudSynced</code> to simulate a slow backend, see {@link LatencyProfile#cloudSynced()} (default <code>local</code>)</dd>
+ *     <dt>statLatency, openLatency, listLatency, mutateLatency</dt><dd>Override the simulated latencies in milliseconds, see {@link LatencyProfile}</dd>
+ *     <dt>jitter, readThroughput, writeThroughput, maxConcurrentIo</dt><dd>Override the simulated jitter, throughput limits in MiB/s and concurrency limit</dd>
+ *     <dt>port</dt><dd>The loopback port (default 0, i.e. any free port)</dd>
+ *     <dt>output</dt><dd>File to write the JSON report to (default: stdout)</dd>
+ * </dl>
+ * Every response with a status other than 2xx counts as an error.
+ */
+public class LoadGenerator {
+
+	static {
+		System.setProperty("org.slf4j.simpleLogger.defaultLogLevel", "warn");
+	}
+
+	private static final int SMALL_FILE_COUNT = 100;
+	private static final int RANGE_LENGTH = 64 * 1024;
+	private static final String LOCK_BODY = "<?xml version=\"1.0\" encoding=\"utf-8\"?>\n" //
+			+ "<D:lockinfo xmlns:D=\"DAV:\"><D:lockscope><D:exclusive/></D:lockscope><D:locktype><D:write/></D:locktype><D:owner>load-generator</D:owner></D:lockinfo>";
+
+	enum Operation {
+		PROPFIND_DEPTH_0(10), PROPFIND_DEPTH_1(5), GET_SMALL(30), GET_LARGE(2), GET_RANGE(10), PUT(10), MOVE(5), DELETE(5), LOCK(3), UNLOCK(0);
+
+		private final int defaultWeight;
+
+		Operation(int defaultWeight) {
+			this.defaultWeight = defaultWeight;
+		}
+	}
+
+	public static void main(String[] args) throws IOException, InterruptedException, ServerLifecycleException {
+		var options = parseOptions(args);
+		int contextCount = Integer.parseInt(options.getOrDefault("contexts", "4"));
+		int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "32"));
+		int warmupSeconds = Integer.parseInt(options.getOrDefault("warmup", "5"));
+		int durationSeconds = Integer.parseInt(options.getOrDefault("duration", "30"));
+		int smallFileSize = Integer.parseInt(options.getOrDefault("smallFileSize", "4096"));
+		int largeFileSize = Integer.parseInt(options.getOrDefault("largeFileSize", Integer.toString(16 * 1024 * 1024)));
+		int port = Integer.parseInt(options.getOrDefault("port", "0"));
+		var weights = parseMix(options.get("mix"));
+		var configBuilder = WebDavServerConfig.builder();
+		if (options.containsKey("maxThreads")) {
+			configBuilder.setMaxThreads(Integer.parseInt(options.get("maxThreads")));
+		}
+		if (options.containsKey("maxPendingRequests")) {
+			configBuilder.setMaxPendingRequests(Integer.parseInt(options.get("maxPendingRequests")));
+		}
+		if (options.containsKey("maxRequestsPerContext")) {
+			configBuilder.setMaxRequestsPerContext(Integer.parseInt(options.get("maxRequestsPerContext")));
+		}
+		if (options.containsKey("attributeCacheSize")) {
+			configBuilder.setAttributeCacheSize(Integer.parseInt(options.get("attributeCacheSize")));
+		}
+		if (options.containsKey("listingParallelism")) {
+			configBuilder.setListingParallelism(Integer.parseInt(options.get("listingParallelism")));
+		}
+		if (options.containsKey("readAheadCacheSize")) {
+			configBuilder.setReadAheadCacheSize(Long.parseLong(options.get("readAheadCacheSize")));
+		}
+		if (options.containsKey("channelPoolSize")) {
+			configBuilder.setChannelPoolSize(Integer.parseInt(options.get("channelPoolSize")));
+		}
+		var config = configBuilder.build();
+		var latencyProfile = parseLatencyProfile(options);
+
+		Path tmpDir = Files.createTempDirectory("webdav-load");
+		try (var serverHandle = WebDavServerManager.getOrCreateServer(port, config)) {
+			List<URI> contextUris = new ArrayList<>();
+			for (int i = 0; i < contextCount; i++) {
+				Path root = Files.createDirectory(tmpDir.resolve("ctx" + i));
+				createFixture(root, smallFileSize, largeFileSize);
+				Path servedRoot = latencyProfile.equals(LatencyProfile.NONE) ? root : LatencyInjectingFileSystem.wrap(root, latencyProfile);
+				WebDavServletController servlet = serverHandle.server().createWebDavServlet(servedRoot, "/load/ctx" + i);
+				servlet.start();
+				contextUris.add(URI.create(servlet.getServletRootUri() + "/"));
+			}
+
+			var client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+			var workers = new ArrayList<Worker>();
+			for (int i = 0; i < concurrency; i++) {
+				workers.add(new Worker(i, client, contextUris, weights, largeFileSize));
+			}
+			var threads = workers.stream().map(w -> new Thread(w, "load-" + w.id)).toList();
+			threads.forEach(Thread::start);
+			Thread.sleep(warmupSeconds * 1000L);
+			long measureStart = System.nanoTime();
+			workers.forEach(w -> w.measuring = true);
+			Thread.sleep(durationSeconds * 1000L);
+			workers.forEach(w -> w.measuring = false);
+			long measuredNanos = System.nanoTime() - measureStart;
+			workers.forEach(w -> w.running = false);
+			for (var thread : threads) {
+				thread.join();
+			}
+
+			var report = report(options, config, contextCount, concurrency, measuredNanos, workers, serverHandle.server().getAdmissionControl());
+			if (options.containsKey("output")) {
+				Files.writeString(Path.of(options.get("output")), report);
+			} else {
+				System.out.println(report);
+			}
+		} finally {
+			try (Stream<Path> files = Files.walk(tmpDir)) {
+				files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+			}
+		}
+	}
+
+	private static Map<String, String> parseOptions(String[] args) {
+		var options = new LinkedHashMap<String, String>();
+		for (var arg : args) {
+			if (!arg.startsWith("--") || !arg.contains("=")) {
+				throw new IllegalArgumentException("Expected --key=value, got " + arg);
+			}
+			int eq = arg.indexOf('=');
+			options.put(arg.substring(2, eq), arg.substring(eq + 1));
+		}
+		return options;
+	}
+
+	private static LatencyProfile parseLatencyProfile(Map<String, String> options) {
+		var base = switch (options.getOrDefault("storage", "local")) {
+			case "local" -> LatencyProfile.NONE;
+			case "cloudSynced" -> LatencyProfile.cloudSynced();
+			default -> throw new IllegalArgumentException("Unknown storage " + options.get("storage"));
+		};
+		return new LatencyProfile(millis(options, "statLatency", base.stat()), //
+				millis(options, "openLatency", base.open()), //
+				millis(options, "listLatency", base.list()), //
+				millis(options, "mutateLatency", base.mutate()), //
+				Double.parseDouble(options.getOrDefault("jitter", Double.toString(base.jitter()))), //
+				mebibytes(options, "readThroughput", base.readBytesPerSecond()), //
+				mebibytes(options, "writeThroughput", base.writeBytesPerSecond()), //
+				Integer.parseInt(options.getOrDefault("maxConcurrentIo", Integer.toString(base.maxConcurrentOperations()))));
+	}
+
+	private static Duration millis(Map<String, String> options, String key, Duration defaultValue) {
+		return options.containsKey(key) ? Duration.ofNanos((long) (Double.parseDouble(options.get(key)) * 1e6)) : defaultValue;
+	}
+
+	private static long mebibytes(Map<String, String> options, String key, long defaultBytes) {
+		return options.containsKey(key) ? (long) (Double.parseDouble(options.get(key)) * (1 << 20)) : defaultBytes;
+	}
+
+	private static Map<Operation, Integer> parseMix(String mix) {
+		var weights = new EnumMap<Operation, Integer>(Operation.class);
+		if (mix == null) {
+			Arrays.stream(Operation.values()).forEach(op -> weights.put(op, op.defaultWeight));
+		} else {
+			Arrays.stream(Operation.values()).forEach(op -> weights.put(op, 0));
+			for (var entry : mix.split(",")) {
+				var keyValue = entry.split("=");
+				weights.put(Operation.valueOf(keyValue[0].trim().toUpperCase(Locale.ROOT)), Integer.parseInt(keyValue[1].trim()));
+			}
+		}
+		// each LOCK is followed by an UNLOCK
+		weights.put(Operation.UNLOCK, 0);
+		return weights;
+	}
+
+	private static void createFixture(Path root, int smallFileSize, int largeFileSize) throws IOException {
+		Path small = Files.createDirectory(root.resolve("small"));
+		byte[] smallContent = new byte[smallFileSize];
+		for (int i = 0; i < SMALL_FILE_COUNT; i++) {
+			Files.write(small.resolve("file" + i + ".bin"), smallContent);
+		}
+		Files.write(root.resolve("large.bin"), new byte[largeFileSize]);
+		Files.createDirectory(root.resolve("scratch"));
+	}
+
+	private static class Worker implements Runnable {
+
+		final int id;
+		private final HttpClient client;
+		private final List<URI> contexts;
+		private final Operation[] operations;
+		private final int[] cumulativeWeights;
+		private final int largeFileSize;
+		private final byte[] putContent = new byte[4096];
+		private final ArrayDeque<URI> ownFiles = new ArrayDeque<>();
+		final Map<Operation, Samples> samples = new EnumMap<>(Operation.class);
+		volatile boolean running = true;
+		volatile boolean measuring = false;
+		private long fileCounter;
+
+		Worker(int id, HttpClient client, List<URI> contexts, Map<Operation, Integer> weights, int largeFileSize) {
+			this.id = id;
+			this.client = client;
+			this.contexts = contexts;
+			this.operations = weights.entrySet().stream().filter(e -> e.getValue() > 0).map(Map.Entry::getKey).toArray(Operation[]::new);
+			this.cumulativeWeights = new int[operations.length];
+			int sum = 0;
+			for (int i = 0; i < operations.length; i++) {
+				sum += weights.get(operations[i]);
+				cumulativeWeights[i] = sum;
+			}
+			this.largeFileSize = largeFileSize;
+			for (var op : Operation.values()) {
+				samples.put(op, new Samples());
+			}
+		}
+
+		@Override
+		public void run() {
+			var random = ThreadLocalRandom.current();
+			while (running) {
+				int r = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+				int i = 0;
+				while (cumulativeWeights[i] <= r) {
+					i++;
+				}
+				var context = contexts.get(random.nextInt(contexts.size()));
+				execute(operations[i], context, random);
+			}
+		}
+
+		private void execute(Operation op, URI context, ThreadLocalRandom random) {
+			switch (op) {
+				case PROPFIND_DEPTH_0 -> send(op, propfind(context.resolve("small/file" + random.nextInt(SMALL_FILE_COUNT) + ".bin"), "0"));
+				case PROPFIND_DEPTH_1 -> send(op, propfind(context.resolve("small/"), "1"));
+				case GET_SMALL -> send(op, HttpRequest.newBuilder(context.resolve("small/file" + random.nextInt(SMALL_FILE_COUNT) + ".bin")).build());
+				case GET_LARGE -> send(op, HttpRequest.newBuilder(context.resolve("large.bin")).build());
+				case GET_RANGE -> {
+					long start = random.nextLong(Math.max(1, largeFileSize - RANGE_LENGTH));
+					send(op, HttpRequest.newBuilder(context.resolve("large.bin")).header("Range", "bytes=" + start + "-" + (start + RANGE_LENGTH - 1)).build());
+				}
+				case PUT -> put(context);
+				case MOVE -> {
+					var source = ownFiles.pollFirst();
+					if (source == null) {
+						put(context);
+					} else {
+						var target = newOwnFile(source.resolve("."));
+						var response = send(op, HttpRequest.newBuilder(source).method("MOVE", HttpRequest.BodyPublishers.noBody()).header("Destination", target.toString()).header("Overwrite", "F").build());
+						ownFiles.addLast(isSuccess(response) ? target : source);
+					}
+				}
+				case DELETE -> {
+					var file = ownFiles.pollFirst();
+					if (file == null) {
+						put(context);
+					} else {
+						send(op, HttpRequest.newBuilder(file).DELETE().build());
+					}
+				}
+				case LOCK, UNLOCK -> lockAndUnlock(context);
+			}
+		}
+
+		private void put(URI context) {
+			var file = newOwnFile(context.resolve("scratch/"));
+			var response = send(Operation.PUT, HttpRequest.newBuilder(file).PUT(HttpRequest.BodyPublishers.ofByteArray(putContent)).build());
+			if (isSuccess(response)) {
+				ownFiles.addLast(file);
+			}
+		}
+
+		private void lockAndUnlock(URI context) {
+			var file = context.resolve("scratch/lock-" + id + ".txt");
+			var response = send(Operation.LOCK, HttpRequest.newBuilder(file).method("LOCK", HttpRequest.BodyPublishers.ofString(LOCK_BODY, StandardCharsets.UTF_8)) //
+					.header("Content-Type", "application/xml; charset=utf-8").header("Timeout", "Second-60").build());
+			var lockToken = response == null ? null : response.headers().firstValue("Lock-Token").orElse(null);
+			if (isSuccess(response) && lockToken != null) {
+				send(Operation.UNLOCK, HttpRequest.newBuilder(file).method("UNLOCK", HttpRequest.BodyPublishers.noBody()).header("Lock-Token", lockToken).build());
+			}
+		}
+
+		private URI newOwnFile(URI dir) {
+			return dir.resolve("w" + id + "-" + (fileCounter++) + ".bin");
+		}
+
+		private static HttpRequest propfind(URI uri, String depth) {
+			return HttpRequest.newBuilder(uri).method("PROPFIND", HttpRequest.BodyPublishers.noBody()).header("Depth", depth).build();
+		}
+
+		private static boolean isSuccess(HttpResponse<?> response) {
+			return response != null && response.statusCode() / 100 == 2;
+		}
+
+		private HttpResponse<?> send(Operation op, HttpRequest request) {
+			boolean record = measuring;
+			long start = System.nanoTime();
+			HttpResponse<?> response;
+			try {
+				response = client.send(request, HttpResponse.BodyHandlers.discarding());
+			} catch (IOException e) {
+				response = null;
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				running = false;
+				return null;
+			}
+			if (record) {
+				samples.get(op).add(System.nanoTime() - start, isSuccess(response));
+			}
+			return response;
+		}
+
+	}
+
+	/**
+	 * Latencies in nanoseconds and error count of a single operation, recorded by a single worker.
+	 */
+	private static class Samples {
+
+		long[] latencies = new long[1024];
+		int count;
+		long errors;
+
+		void add(long latency, boolean success) {
+			if (count == latencies.length) {
+				latencies = Arrays.copyOf(latencies, count * 2);
+			}
+			latencies[count++] = latency;
+			if (!success) {
+				errors++;
+			}
+		}
+
+	}
+
+	private static String report(Map<String, String> options, WebDavServerConfig config, int contextCount, int concurrency, long measuredNanos, List<Worker> workers, AdmissionControl admissionControl) {
+		double seconds = measuredNanos / 1e9;
+		var sb = new StringBuilder();
+		sb.append("{\n");
+		sb.append("  \"options\": {");
+		sb.append(String.join(", ", options.entrySet().stream().map(e -> quote(e.getKey()) + ": " + quote(e.getValue())).toList()));
+		sb.append("},\n");
+		sb.append("  \"contexts\": ").append(contextCount).append(",\n");
+		sb.append("  \"concurrency\": ").append(concurrency).append(",\n");
+		sb.append("  \"maxThreads\": ").append(config.maxThreads()).append(",\n");
+		sb.append("  \"maxPendingRequests\": ").append(config.maxPendingRequests()).append(",\n");
+		sb.append("  \"durationSeconds\": ").append(format(seconds)).append(",\n");
+
+		long totalRequests = 0;
+		long totalErrors = 0;
+		var operations = new ArrayList<String>();
+		for (var op : Operation.values()) {
+			var merged = merge(workers.stream().map(w -> w.samples.get(op)).toList());
+			if (merged.count == 0) {
+				continue;
+			}
+			long[] sorted = Arrays.copyOf(merged.latencies, merged.count);
+			Arrays.sort(sorted);
+			totalRequests += merged.count;
+			totalErrors += merged.errors;
+			operations.add("    " + quote(op.name()) + ": {" //
+					+ "\"requests\": " + merged.count //
+					+ ", \"throughput\": " + format(merged.count / seconds) //
+					+ ", \"errors\": " + merged.errors //
+					+ ", \"errorRate\": " + format((double) merged.errors / merged.count) //
+					+ ", \"latencyMillis\": {\"p50\": " + millis(sorted, 0.5) + ", \"p99\": " + millis(sorted, 0.99) + ", \"p999\": " + millis(sorted, 0.999) + ", \"max\": " + format(sorted[sorted.length - 1] / 1e6) + "}" //
+					+ "}");
+		}
+		sb.append("  \"requests\": ").append(totalRequests).append(",\n");
+		sb.append("  \"throughput\": ").append(format(totalRequests / seconds)).append(",\n");
+		sb.append("  \"errors\": ").append(totalErrors).append(",\n");
+		sb.append("  \"errorRate\": ").append(format(totalRequests == 0 ? 0 : (double) totalErrors / totalRequests)).append(",\n");
+		sb.append("  \"shedRequests\": {\"connectionLimit\": ").append(admissionControl.getShedByConnectionLimitCount()) //
+				.append(", \"contextLimit\": ").append(admissionControl.getShedByContextLimitCount()) //
+				.append(", \"queueDelay\": ").append(admissionControl.getShedByQueueDelayCount()).append("},\n");
+		sb.append("  \"operations\": {\n").append(String.join(",\n", operations)).append("\n  }\n");
+		sb.append("}");
+		return sb.toString();
+	}
+
+	private static Samples merge(List<Samples> samples) {
+		var merged = new Samples();
+		merged.latencies = new long[samples.stream().mapToInt(s -> s.count).sum()];
+		for (var s : samples) {
+			System.arraycopy(s.latencies, 0, merged.latencies, merged.count, s.count);
+			merged.count += s.count;
+			merged.errors += s.errors;
+		}
+		return merged;
+	}
+
+	private static String millis(long[] sortedNanos, double percentile) {
+		int index = (int) Math.min(sortedNanos.length - 1, Math.ceil(percentile * sortedNanos.length) - 1);
+		return format(sortedNanos[Math.max(0, index)] / 1e6);
+	}
+
+	private static String format(double value) {
+		return String.format(Locale.ROOT, "%.3f", value);
+	}
+
+	private static String quote(String value) {
+		return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+	}
+
+}
@@ -0,0 +1,156 @@
+package org.cryptomator.frontend.webdav;
+
+import org.cryptomator.frontend.webdav.servlet.WebDavServletController;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+/**
+ * Measures the throughput of <code>LOCK</code> and <code>UNLOCK</code> requests for unrelated files of a single vault, while many other locks are held,
+ * e.g. by an office suite keeping documents open.
+ * <p>
+ * Each client thread repeatedly locks and unlocks its own file, so no request conflicts with another one. Before and after the measurement,
+ * conflicting requests are sent to check that held locks are still enforced.
+ * <p>
+ * Options:
+ * <dl>
+ *     <dt><code>--held=&lt;n&gt;</code></dt><dd>Number of locks held during the measurement (default: {@value #DEFAULT_HELD})</dd>
+ *     <dt><code>--threads=&lt;n&gt;</code></dt><dd>Number of concurrent clients (default: {@value #DEFAULT_THREADS})</dd>
+ *     <dt><code>--seconds=&lt;n&gt;</code></dt><dd>Duration of the measurement, preceded by a warmup of the same duration (default: {@value #DEFAULT_SECONDS})</dd>
+ * </dl>
+ */
+public class LockBenchmark {
+
+	static {
+		System.setProperty("org.slf4j.simpleLogger.defaultLogLevel", "warn");
+		System.setProperty("org.slf4j.simpleLogger.log.org.cryptomator.frontend.webdav.LockBenchmark", "info");
+	}
+
+	private static final Logger LOG = LoggerFactory.getLogger(LockBenchmark.class);
+	private static final int DEFAULT_HELD = 10_000;
+	private static final int DEFAULT_THREADS = 16;
+	private static final int DEFAULT_SECONDS = 10;
+	private static final String EXCLUSIVE_LOCK = """
+			<?xml version="1.0" encoding="utf-8"?>
+			<D:lockinfo xmlns:D="DAV:"><D:lockscope><D:exclusive/></D:lockscope><D:locktype><D:write/></D:locktype><D:owner>benchmark</D:owner></D:lockinfo>
+			""";
+
+	public static void main(String[] args) throws Exception {
+		int held = DEFAULT_HELD;
+		int threads = DEFAULT_THREADS;
+		int seconds = DEFAULT_SECONDS;
+		for (var arg : args) {
+			if (arg.startsWith("--held=")) {
+				held = Integer.parseInt(arg.substring("--held=".length()));
+			} else if (arg.startsWith("--threads=")) {
+				threads = Integer.parseInt(arg.substring("--threads=".length()));
+			} else if (arg.startsWith("--seconds=")) {
+				seconds = Integer.parseInt(arg.substring("--seconds=".length()));
+			} else {
+				throw new IllegalArgumentException("Unknown option " + arg);
+			}
+		}
+
+		Path dir = Files.createTempDirectory("lock-benchmark");
+		var server = WebDavServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), WebDavServerConfig.defaults());
+		var client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			server.start();
+			WebDavServletController servlet = server.createWebDavServlet(dir, "/bench");
+			servlet.start();
+			URI root = servlet.getServletRootUri().resolve("bench/");
+			for (int i = 0; i < 100; i++) {
+				Files.createDirectory(dir.resolve("d" + i));
+			}
+			for (int i = 0; i < held; i++) {
+				Files.createFile(dir.resolve("d" + i % 100 + "/held" + i));
+			}
+			for (int t = 0; t < threads; t++) {
+				Files.createFile(dir.resolve("d" + t % 100 + "/client" + t));
+			}
+
+			long start = System.nanoTime();
+			for (int i = 0; i < held; i++) {
+				expect(lock(client, root.resolve("d" + i % 100 + "/held" + i)), 200);
+			}
+			LOG.info("Acquired {} locks in {} s", held, String.format("%.2f", (System.nanoTime() - start) / 1e9));
+			boolean passed = held == 0 || lock(client, root.resolve("d0/held0")).statusCode() == 423;
+
+			measure(client, executor, root, threads, seconds); // warmup
+			long operations = measure(client, executor, root, threads, seconds);
+			LOG.info("{} threads, {} held locks: {} LOCK+UNLOCK/s", threads, held, String.format("%.0f", operations / (double) seconds));
+
+			passed &= held == 0 || lock(client, root.resolve("d" + (held - 1) % 100 + "/held" + (held - 1))).statusCode() == 423;
+			if (passed) {
+				LOG.info("PASSED");
+			} else {
+				LOG.error("FAILED: Held locks not enforced");
+				System.exit(1);
+			}
+		} finally {
+			executor.shutdownNow();
+			server.terminate();
+			try (Stream<Path> files = Files.walk(dir)) {
+				files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+			}
+		}
+	}
+
+	private static long measure(HttpClient client, ExecutorService executor, URI root, int threads, int seconds) throws Exception {
+		var stop = new AtomicBoolean();
+		var tasks = new ArrayList<Future<Long>>();
+		for (int t = 0; t < threads; t++) {
+			URI uri = root.resolve("d" + t % 100 + "/client" + t);
+			tasks.add(executor.submit((Callable<Long>) () -> {
+				long count = 0;
+				while (!stop.get()) {
+					var response = expect(lock(client, uri), 200);
+					var token = response.headers().firstValue("Lock-Token").orElseThrow();
+					var unlock = HttpRequest.newBuilder(uri).method("UNLOCK", HttpRequest.BodyPublishers.noBody()).header("Lock-Token", token).build();
+					expect(client.send(unlock, HttpResponse.BodyHandlers.discarding()), 204);
+					count++;
+				}
+				return count;
+			}));
+		}
+		Thread.sleep(seconds * 1000L);
+		stop.set(true);
+		long total = 0;
+		for (var task : tasks) {
+			total += task.get();
+		}
+		return total;
+	}
+
+	private static HttpResponse<Void> lock(HttpClient client, URI uri) throws IOException, InterruptedException {
+		var request = HttpRequest.newBuilder(uri).method("LOCK", HttpRequest.BodyPublishers.ofString(EXCLUSIVE_LOCK)) //
+				.header("Content-Type", "application/xml; charset=utf-8").header("Timeout", "Second-3600").build();
+		return client.send(request, HttpResponse.BodyHandlers.discarding());
+	}
+
+	private static <T> HttpResponse<T> expect(HttpResponse<T> response, int status) throws IOException {
+		if (response.statusCode() != status) {
+			throw new IOException("Unexpected status " + response.statusCode() + " for " + response.request().method() + " " + response.request().uri());
+		}
+		return response;
+	}
+
+}
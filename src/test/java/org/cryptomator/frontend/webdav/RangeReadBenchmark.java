@@ -0,0 +1,163 @@
+package org.cryptomator.frontend.webdav;
+
+import org.cryptomator.frontend.webdav.servlet.WebDavServletController;
+import org.cryptomator.frontend.webdav.slowfs.LatencyInjectingFileSystem;
+import org.cryptomator.frontend.webdav.slowfs.LatencyProfile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Measures how long it takes to read a file through range <code>GET</code> requests from a {@link LatencyInjectingFileSystem} simulating a cloud-synced backend,
+ * with pooled channels and read-ahead being disabled or enabled.
+ * <p>
+ * Each configuration runs three access patterns:
+ * <dl>
+ *     <dt>sequential</dt><dd>successive ranges from start to end, as the macOS WebDAV client and GVfs read files</dd>
+ *     <dt>random</dt><dd>ranges at random offsets, as when scrubbing through a video</dd>
+ *     <dt>concurrent random</dt><dd>the same from {@value #CONCURRENT_READERS} clients at once, sharing pooled channels</dd>
+ * </dl>
+ * Before each pattern, the file's content gets replaced via <code>PUT</code>.
+ * The benchmark fails with exit code 1 if any response differs from the file's current content, e.g. because of stale cached blocks or channels.
+ * <p>
+ * Options:
+ * <dl>
+ *     <dt><code>--size=&lt;MiB&gt;</code></dt><dd>Size of the file (default: {@value #DEFAULT_SIZE_MIB})</dd>
+ *     <dt><code>--range=&lt;KiB&gt;</code></dt><dd>Length of each requested range (default: {@value #DEFAULT_RANGE_KIB})</dd>
+ * </dl>
+ */
+public class RangeReadBenchmark {
+
+	static {
+		System.setProperty("org.slf4j.simpleLogger.defaultLogLevel", "warn");
+		System.setProperty("org.slf4j.simpleLogger.log.org.cryptomator.frontend.webdav.RangeReadBenchmark", "info");
+	}
+
+	private static final Logger LOG = LoggerFactory.getLogger(RangeReadBenchmark.class);
+	private static final int DEFAULT_SIZE_MIB = 32;
+	private static final int DEFAULT_RANGE_KIB = 64;
+	private static final long READ_AHEAD_CACHE_SIZE = 16L * 1024 * 1024;
+	private static final int CHANNEL_POOL_SIZE = 16;
+	private static final int RANDOM_READS = 256;
+	private static final int CONCURRENT_READERS = 4;
+
+	public static void main(String[] args) throws IOException, InterruptedException, ExecutionException {
+		int sizeMiB = DEFAULT_SIZE_MIB;
+		int rangeKiB = DEFAULT_RANGE_KIB;
+		for (var arg : args) {
+			if (arg.startsWith("--size=")) {
+				sizeMiB = Integer.parseInt(arg.substring("--size=".length()));
+			} else if (arg.startsWith("--range=")) {
+				rangeKiB = Integer.parseInt(arg.substring("--range=".length()));
+			} else {
+				throw new IllegalArgumentException("Unknown option " + arg);
+			}
+		}
+
+		Path dir = Files.createTempDirectory("range-read-benchmark");
+		try {
+			Path root = LatencyInjectingFileSystem.wrap(dir, LatencyProfile.cloudSynced());
+			var builder = WebDavServerConfig.builder();
+			boolean passed = run("plain", root, builder.build(), sizeMiB << 20, rangeKiB << 10);
+			passed &= run("channel pool", root, builder.setChannelPoolSize(CHANNEL_POOL_SIZE).build(), sizeMiB << 20, rangeKiB << 10);
+			passed &= run("channel pool + read-ahead", root, builder.setReadAheadCacheSize(READ_AHEAD_CACHE_SIZE).build(), sizeMiB << 20, rangeKiB << 10);
+			if (passed) {
+				LOG.info("PASSED");
+			} else {
+				LOG.error("FAILED: Received content differs from the file");
+				System.exit(1);
+			}
+		} finally {
+			Files.deleteIfExists(dir.resolve("range.bin"));
+			Files.deleteIfExists(dir);
+		}
+	}
+
+	private static boolean run(String name, Path root, WebDavServerConfig config, int size, int rangeLength) throws IOException, InterruptedException, ExecutionException {
+		var server = WebDavServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), config);
+		var readers = Executors.newFixedThreadPool(CONCURRENT_READERS);
+		try {
+			server.start();
+			WebDavServletController servlet = server.createWebDavServlet(root, "/bench");
+			servlet.start();
+			URI uri = servlet.getServletRootUri().resolve("bench/range.bin");
+			HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+			var random = new Random(42);
+			boolean passed = true;
+
+			var content = put(client, uri, size, random);
+			long start = System.nanoTime();
+			for (int offset = 0; offset < size; offset += rangeLength) {
+				passed &= get(client, uri, content, offset, rangeLength);
+			}
+			report(name, "sequential", (size + rangeLength - 1) / rangeLength, rangeLength, start);
+
+			var replaced = put(client, uri, size, random);
+			start = System.nanoTime();
+			for (int i = 0; i < RANDOM_READS; i++) {
+				passed &= get(client, uri, replaced, random.nextInt(size), rangeLength);
+			}
+			report(name, "random", RANDOM_READS, rangeLength, start);
+
+			var concurrentlyRead = put(client, uri, size, random);
+			start = System.nanoTime();
+			var tasks = new ArrayList<Future<Boolean>>();
+			for (int r = 0; r < CONCURRENT_READERS; r++) {
+				var offsets = random.ints(RANDOM_READS / CONCURRENT_READERS, 0, size).toArray();
+				tasks.add(readers.submit(() -> {
+					boolean ok = true;
+					for (int offset : offsets) {
+						ok &= get(client, uri, concurrentlyRead, offset, rangeLength);
+					}
+					return ok;
+				}));
+			}
+			for (var task : tasks) {
+				passed &= task.get();
+			}
+			report(name, "concurrent random", RANDOM_READS, rangeLength, start);
+			return passed;
+		} finally {
+			readers.shutdownNow();
+			server.terminate();
+		}
+	}
+
+	private static byte[] put(HttpClient client, URI uri, int size, Random random) throws IOException, InterruptedException {
+		var content = new byte[size];
+		random.nextBytes(content);
+		var response = client.send(HttpRequest.newBuilder(uri).PUT(HttpRequest.BodyPublishers.ofByteArray(content)).build(), HttpResponse.BodyHandlers.discarding());
+		if (response.statusCode() != 201 && response.statusCode() != 204) {
+			throw new IOException("PUT failed with status " + response.statusCode());
+		}
+		return content;
+	}
+
+	private static boolean get(HttpClient client, URI uri, byte[] content, int offset, int rangeLength) throws IOException, InterruptedException {
+		int end = Math.min(offset + rangeLength, content.length);
+		var request = HttpRequest.newBuilder(uri).header("Range", "bytes=" + offset + "-" + (end - 1)).build();
+		var response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+		return response.statusCode() == 206 && Arrays.equals(response.body(), 0, response.body().length, content, offset, end);
+	}
+
+	private static void report(String name, String pattern, int requests, int rangeLength, long start) {
+		double seconds = (System.nanoTime() - start) / 1e9;
+		LOG.info("{}, {}: {} requests of {} KiB in {} s -> {} ms per request", name, pattern, requests, rangeLength >> 10, String.format("%.2f", seconds), String.format("%.1f", seconds * 1000 / requests));
+	}
+
+}
@@ -0,0 +1,129 @@
+package org.cryptomator.frontend.webdav;
+
+import org.cryptomator.frontend.webdav.servlet.WebDavServletController;
+import org.cryptomator.frontend.webdav.synthfs.SyntheticFileSystem;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Verifies that a <code>PROPFIND</code> (Depth 1) of a directory with one million entries is answered without the heap growing with the directory size.
+ * <p>
+ * The directory is provided by a {@link SyntheticFileSystem}, so neither creating it nor reading its entries occupies any memory.
+ * While the client consumes the streamed response, a background thread repeatedly triggers a full GC and records the heap usage afterwards.
+ * The test fails, if the peak exceeds the usage measured before the request by more than {@value #MAX_HEAP_GROWTH_MIB} MiB,
+ * or if the response doesn't contain exactly one <code>&lt;D:response&gt;</code> per entry plus one for the directory itself.
+ * <p>
+ * Taking about half a minute, this test is tagged as <code>slow</code> and excluded by default. Run it with
+ * <code>mvn test -Dsurefire.excludedGroups= -Dtest=StreamingPropfindHeapTest</code>.
+ */
+@Tag("slow")
+public class StreamingPropfindHeapTest {
+
+	private static final Logger LOG = LoggerFactory.getLogger(StreamingPropfindHeapTest.class);
+	private static final int FILE_COUNT = 1_000_000;
+	private static final long MAX_HEAP_GROWTH_MIB = 32;
+	private static final long HEAP_SAMPLING_INTERVAL_MILLIS = 250;
+	private static final byte[] RESPONSE_END_TAG = "</D:response>".getBytes(StandardCharsets.US_ASCII);
+
+	@Test
+	public void testHeapDoesNotGrowWithDirectorySize() throws IOException, InterruptedException {
+		var server = WebDavServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), WebDavServerConfig.defaults());
+		try {
+			server.start();
+			WebDavServletController servlet = server.createWebDavServlet(SyntheticFileSystem.create(FILE_COUNT), "/huge");
+			servlet.start();
+			URI listing = servlet.getServletRootUri().resolve("huge/");
+			HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+			var propfind = HttpRequest.newBuilder(listing).method("PROPFIND", HttpRequest.BodyPublishers.noBody()) //
+					.header("Depth", "1") //
+					.build();
+
+			long baseline = usedHeapAfterGc();
+			var peak = new AtomicLong(baseline);
+			var sampler = new Thread(() -> {
+				while (!Thread.currentThread().isInterrupted()) {
+					peak.accumulateAndGet(usedHeapAfterGc(), Math::max);
+					try {
+						Thread.sleep(HEAP_SAMPLING_INTERVAL_MILLIS);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				}
+			}, "heap-sampler");
+			sampler.setDaemon(true);
+
+			long start = System.nanoTime();
+			var response = client.send(propfind, HttpResponse.BodyHandlers.ofInputStream());
+			long timeToFirstByte = System.nanoTime() - start;
+			sampler.start();
+			long responses;
+			long bytes;
+			try (var body = response.body()) {
+				var counter = new ResponseCounter();
+				bytes = counter.consume(body);
+				responses = counter.count;
+			}
+			long duration = System.nanoTime() - start;
+			sampler.interrupt();
+			sampler.join();
+
+			long growthMiB = (peak.get() - baseline) >> 20;
+			LOG.info("Status {}, {} responses, {} MiB received, headers after {} ms, completed after {} ms", response.statusCode(), responses, bytes >> 20, timeToFirstByte / 1_000_000, duration / 1_000_000);
+			LOG.info("Heap after GC: {} MiB before request, peak {} MiB during request (+{} MiB)", baseline >> 20, peak.get() >> 20, growthMiB);
+			Assertions.assertEquals(207, response.statusCode());
+			Assertions.assertEquals(FILE_COUNT + 1, responses);
+			Assertions.assertTrue(growthMiB <= MAX_HEAP_GROWTH_MIB, () -> "Heap grew by " + growthMiB + " MiB");
+		} finally {
+			server.terminate();
+		}
+	}
+
+	private static long usedHeapAfterGc() {
+		var memory = ManagementFactory.getMemoryMXBean();
+		memory.gc();
+		return memory.getHeapMemoryUsage().getUsed();
+	}
+
+	/**
+	 * Counts <code>&lt;/D:response&gt;</code> tags without keeping the body in memory.
+	 */
+	private static class ResponseCounter {
+
+		private long count;
+		private int matched;
+
+		long consume(InputStream in) throws IOException {
+			byte[] buffer = new byte[64 * 1024];
+			long total = 0;
+			int read;
+			while ((read = in.read(buffer)) != -1) {
+				for (int i = 0; i < read; i++) {
+					matched = buffer[i] == RESPONSE_END_TAG[matched] ? matched + 1 : (buffer[i] == RESPONSE_END_TAG[0] ? 1 : 0);
+					if (matched == RESPONSE_END_TAG.length) {
+						count++;
+						matched = 0;
+					}
+				}
+				total += read;
+			}
+			return total;
+		}
+
+	}
+
+}
@@ -0,0 +1,166 @@
+package org.cryptomator.frontend.webdav;
+
+import org.eclipse.jetty.http.HttpTester;
+import org.eclipse.jetty.server.LocalConnector;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+@Timeout(10)
+public class TarpitTest {
+
+	private static final int THREADS = 8;
+	private static final String TARPITTED_REQUEST = "GET /unknown HTTP/1.1\r\nHost: localhost\r\n\r\n";
+
+	private Server server;
+	private LocalConnector connector;
+	private Tarpit tarpit;
+
+	@AfterEach
+	public void tearDown() throws Exception {
+		if (server != null) {
+			tarpit.shutdown();
+			server.stop();
+		}
+	}
+
+	// serves 200 at /ok and tarpits anything else, using a pool of only a few threads
+	private void start(int maxRequests, long delayMillis) throws Exception {
+		tarpit = new Tarpit(maxRequests, delayMillis);
+		server = new Server(new QueuedThreadPool(THREADS, THREADS));
+		connector = new LocalConnector(server);
+		server.addConnector(connector);
+		var context = new ServletContextHandler(null, "/", ServletContextHandler.NO_SESSIONS);
+		var holder = new ServletHolder(new HttpServlet() {
+			@Override
+			protected void service(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+				if ("/ok".equals(req.getRequestURI())) {
+					resp.setStatus(HttpServletResponse.SC_OK);
+				} else {
+					tarpit.rejectDelayed(req, resp);
+				}
+			}
+		});
+		holder.setAsyncSupported(true);
+		context.addServlet(holder, "/");
+		server.setHandler(context);
+		server.start();
+	}
+
+	private static void awaitCount(IntSupplier count, int expected) throws InterruptedException {
+		while (count.getAsInt() != expected) {
+			Thread.sleep(10);
+		}
+	}
+
+	private static HttpTester.Response awaitResponse(LocalConnector.LocalEndPoint endPoint) throws Exception {
+		return HttpTester.parseResponse(endPoint.waitForResponse(false, 5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void testRejectsAfterDelayWithoutHoldingThreads() throws Exception {
+		start(100, 1000);
+		int requests = 2 * THREADS;
+		long startNanos = System.nanoTime();
+
+		var endPoints = new ArrayList<LocalConnector.LocalEndPoint>();
+		for (int i = 0; i < requests; i++) {
+			endPoints.add(connector.executeRequest(TARPITTED_REQUEST));
+		}
+		// more requests are delayed than there are threads, while further requests are still served:
+		awaitCount(tarpit::getDelayingCount, requests);
+		var ok = HttpTester.parseResponse(connector.getResponse("GET /ok HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n"));
+		Assertions.assertEquals(200, ok.getStatus());
+
+		for (var endPoint : endPoints) {
+			var response = awaitResponse(endPoint);
+			Assertions.assertEquals(404, response.getStatus());
+			Assertions.assertEquals("1000ms", response.get("X-Tarpit-Delayed"));
+		}
+		Assertions.assertTrue(System.nanoTime() - startNanos >= TimeUnit.MILLISECONDS.toNanos(1000));
+		awaitCount(tarpit::getDelayingCount, 0); // decremented only after the response has been sent
+		Assertions.assertEquals(requests, tarpit.getDelayedCount());
+		Assertions.assertEquals(0, tarpit.getNotDelayedCount());
+	}
+
+	@Test
+	public void testMaxTarpittedRequests() throws Exception {
+		start(2, 60_000);
+		connector.executeRequest(TARPITTED_REQUEST);
+		connector.executeRequest(TARPITTED_REQUEST);
+		awaitCount(tarpit::getDelayingCount, 2);
+
+		var response = HttpTester.parseResponse(connector.getResponse(TARPITTED_REQUEST));
+
+		Assertions.assertEquals(404, response.getStatus());
+		Assertions.assertNull(response.get("X-Tarpit-Delayed"));
+		Assertions.assertEquals(2, tarpit.getDelayingCount());
+		Assertions.assertEquals(2, tarpit.getDelayedCount());
+		Assertions.assertEquals(1, tarpit.getNotDelayedCount());
+	}
+
+	@Test
+	public void testDelayingCountReturnsToZeroIfClientGaveUp() throws Exception {
+		start(100, 200);
+		var endPoint = connector.executeRequest(TARPITTED_REQUEST);
+		awaitCount(tarpit::getDelayingCount, 1);
+
+		endPoint.close();
+
+		awaitCount(tarpit::getDelayingCount, 0);
+		Assertions.assertEquals(1, tarpit.getDelayedCount());
+	}
+
+	@Test
+	public void testShutdownCompletesDelayedRequests() throws Exception {
+		start(100, 60_000);
+		var endPoint = connector.executeRequest(TARPITTED_REQUEST);
+		awaitCount(tarpit::getDelayingCount, 1);
+
+		tarpit.shutdown();
+
+		Assertions.assertEquals(0, tarpit.getDelayingCount());
+		Assertions.assertEquals(404, awaitResponse(endPoint).getStatus());
+	}
+
+	@Test
+	public void testTerminateCompletesDelayedRequests(@TempDir Path rootPath) throws IOException, InterruptedException {
+		var webDavServer = WebDavServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+		webDavServer.start();
+		var servlet = webDavServer.createWebDavServlet(rootPath, "/context");
+		servlet.start();
+		int port = servlet.getServletRootUri().getPort();
+
+		try (var socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+			socket.getOutputStream().write("GET /unknown HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+			while (webDavServer.getTarpit().getDelayedCount() == 0) {
+				Thread.sleep(10);
+			}
+
+			webDavServer.terminate();
+
+			Assertions.assertEquals(0, webDavServer.getTarpit().getDelayingCount());
+			Assertions.assertEquals(-1, socket.getInputStream().read());
+		}
+	}
+
+}
@@ -0,0 +1,157 @@
+package org.cryptomator.frontend.webdav;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+/**
+ * Compares latency and throughput of loopback TCP and a Unix domain socket.
+ * <p>
+ * Both transports are driven by the same minimal HTTP/1.1 client issuing sequential <code>GET</code> requests over a single keep-alive connection,
+ * so the difference between the runs is caused by the transport only.
+ * Unix domain sockets require the optional <code>org.eclipse.jetty:jetty-unixdomain-server</code> dependency. Without it, the benchmark fails.
+ */
+public class UnixDomainSocketBenchmark {
+
+	static {
+		System.setProperty("org.slf4j.simpleLogger.defaultLogLevel", "warn");
+		System.setProperty("org.slf4j.simpleLogger.log.org.cryptomator.frontend.webdav.UnixDomainSocketBenchmark", "info");
+	}
+
+	private static final Logger LOG = LoggerFactory.getLogger(UnixDomainSocketBenchmark.class);
+	private static final int SMALL_FILE_SIZE = 1024;
+	private static final int LARGE_FILE_SIZE = 64 * 1024 * 1024;
+	private static final int LATENCY_WARMUP_REQUESTS = 2_000;
+	private static final int LATENCY_REQUESTS = 20_000;
+	private static final int THROUGHPUT_WARMUP_REQUESTS = 3;
+	private static final int THROUGHPUT_REQUESTS = 20;
+
+	public static void main(String[] args) throws IOException {
+		Path dir = Files.createTempDirectory("uds-benchmark");
+		Path socket = dir.resolve("webdav.sock");
+		Path content = Files.createDirectory(dir.resolve("content"));
+		Files.write(content.resolve("small.bin"), new byte[SMALL_FILE_SIZE]);
+		Files.write(content.resolve("large.bin"), new byte[LARGE_FILE_SIZE]);
+
+		var config = WebDavServerConfig.builder().setUnixDomainSocket(socket).build();
+		var server = WebDavServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), config);
+		try {
+			server.start();
+			var servlet = server.createWebDavServlet(content, "/bench");
+			servlet.start();
+			var tcpUri = servlet.getServletRootUri();
+			run("TCP", new InetSocketAddress(InetAddress.getLoopbackAddress(), tcpUri.getPort()));
+			run("UDS", UnixDomainSocketAddress.of(socket));
+		} finally {
+			server.terminate();
+			try (Stream<Path> files = Files.walk(dir)) {
+				files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+			}
+		}
+	}
+
+	private static void run(String name, SocketAddress address) throws IOException {
+		ByteBuffer buf = ByteBuffer.allocate(64 * 1024);
+		ByteBuffer smallRequest = request("/bench/small.bin");
+		ByteBuffer largeRequest = request("/bench/large.bin");
+		try (SocketChannel ch = SocketChannel.open(address)) {
+			for (int i = 0; i < LATENCY_WARMUP_REQUESTS; i++) {
+				get(ch, smallRequest, buf);
+			}
+			long[] latencies = new long[LATENCY_REQUESTS];
+			for (int i = 0; i < LATENCY_REQUESTS; i++) {
+				long start = System.nanoTime();
+				get(ch, smallRequest, buf);
+				latencies[i] = System.nanoTime() - start;
+			}
+			Arrays.sort(latencies);
+			LOG.info("{}: {} B GET latency p50 = {} us, p99 = {} us, p99.9 = {} us", name, SMALL_FILE_SIZE, micros(latencies, 0.5), micros(latencies, 0.99), micros(latencies, 0.999));
+
+			for (int i = 0; i < THROUGHPUT_WARMUP_REQUESTS; i++) {
+				get(ch, largeRequest, buf);
+			}
+			long bytes = 0;
+			long start = System.nanoTime();
+			for (int i = 0; i < THROUGHPUT_REQUESTS; i++) {
+				bytes += get(ch, largeRequest, buf);
+			}
+			double seconds = (System.nanoTime() - start) / 1e9;
+			LOG.info("{}: {} MiB GET throughput = {} MiB/s", name, LARGE_FILE_SIZE / 1024 / 1024, String.format(Locale.ROOT, "%.0f", bytes / seconds / 1024 / 1024));
+		}
+	}
+
+	private static String micros(long[] sortedNanos, double percentile) {
+		long nanos = sortedNanos[(int) Math.min(sortedNanos.length - 1, Math.round(percentile * sortedNanos.length))];
+		return String.format(Locale.ROOT, "%.1f", nanos / 1000.0);
+	}
+
+	private static ByteBuffer request(String path) {
+		return ByteBuffer.wrap(("GET " + path + " HTTP/1.1\r\nHost: localhost\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+	}
+
+	/**
+	 * Sends the given request and consumes the response.
+	 *
+	 * @return The response's content length
+	 */
+	private static long get(SocketChannel ch, ByteBuffer request, ByteBuffer buf) throws IOException {
+		request.rewind();
+		while (request.hasRemaining()) {
+			ch.write(request);
+		}
+		buf.clear();
+		int headerEnd;
+		while ((headerEnd = indexOfHeaderEnd(buf)) < 0) {
+			if (ch.read(buf) < 0) {
+				throw new EOFException();
+			}
+		}
+		String headers = new String(buf.array(), 0, headerEnd, StandardCharsets.US_ASCII);
+		if (!headers.startsWith("HTTP/1.1 200")) {
+			throw new IOException("Unexpected response: " + headers);
+		}
+		long contentLength = headers.lines() //
+				.filter(line -> line.regionMatches(true, 0, "Content-Length:", 0, 15)) //
+				.mapToLong(line -> Long.parseLong(line.substring(15).trim())) //
+				.findAny().orElseThrow(() -> new IOException("Missing Content-Length: " + headers));
+		long remaining = contentLength - (buf.position() - headerEnd);
+		while (remaining > 0) {
+			buf.clear();
+			int read = ch.read(buf);
+			if (read < 0) {
+				throw new EOFException();
+			}
+			remaining -= read;
+		}
+		return contentLength;
+	}
+
+	/**
+	 * @return The position after the blank line terminating the headers or <code>-1</code> if not yet received
+	 */
+	private static int indexOfHeaderEnd(ByteBuffer buf) {
+		byte[] bytes = buf.array();
+		for (int i = 3; i < buf.position(); i++) {
+			if (bytes[i - 3] == '\r' && bytes[i - 2] == '\n' && bytes[i - 1] == '\r' && bytes[i] == '\n') {
+				return i + 1;
+			}
+		}
+		return -1;
+	}
+
+}
@@ -0,0 +1,173 @@
+package org.cryptomator.frontend.webdav.cache;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+public class AttributeCacheTest {
+
+	private static final Path A = Path.of("/a");
+	private static final Path B = Path.of("/b");
+	private static final Path C = Path.of("/c");
+
+	private final AttributeCache cache = new AttributeCache(4, Duration.ofMinutes(1));
+
+	@Test
+	public void testGetUncached() {
+		Assertions.assertNull(cache.getAttributes(A, true));
+		Assertions.assertNull(cache.getListing(A));
+	}
+
+	@Test
+	public void testPutAndGetAttributes() {
+		cache.putAttributes(A, true, Optional.empty(), cache.generation());
+
+		Assertions.assertEquals(Optional.empty(), cache.getAttributes(A, true));
+		Assertions.assertNull(cache.getAttributes(A, false));
+	}
+
+	@Test
+	public void testPutAndGetListing() {
+		var children = List.of(A.resolve("x"), A.resolve("y"));
+		cache.putListing(A, children, cache.generation());
+
+		Assertions.assertEquals(children, cache.getListing(A));
+		Assertions.assertNull(cache.getAttributes(A, true));
+	}
+
+	@Test
+	public void testEvictLeastRecentlyUsed() {
+		cache.putAttributes(A, true, Optional.empty(), cache.generation());
+		cache.putAttributes(B, true, Optional.empty(), cache.generation());
+		cache.putAttributes(C, true, Optional.empty(), cache.generation());
+		cache.getAttributes(A, true); // B is now least recently used
+
+		cache.putListing(C, List.of(C.resolve("x")), cache.generation()); // size 2 exceeds maximum of 4 by one
+
+		Assertions.assertNotNull(cache.getAttributes(A, true));
+		Assertions.assertNull(cache.getAttributes(B, true));
+		Assertions.assertNotNull(cache.getAttributes(C, true));
+		Assertions.assertNotNull(cache.getListing(C));
+	}
+
+	@Test
+	public void testEvictBySizeOfListings() {
+		cache.putAttributes(A, true, Optional.empty(), cache.generation());
+		cache.putAttributes(B, true, Optional.empty(), cache.generation());
+
+		cache.putListing(C, List.of(C.resolve("x"), C.resolve("y"), C.resolve("z")), cache.generation()); // size 4 takes up the whole cache
+
+		Assertions.assertNull(cache.getAttributes(A, true));
+		Assertions.assertNull(cache.getAttributes(B, true));
+		Assertions.assertNotNull(cache.getListing(C));
+	}
+
+	@Test
+	public void testReplaceKeepsSize() {
+		for (int i = 0; i < 10; i++) {
+			cache.putListing(A, List.of(A.resolve("x"), A.resolve("y")), cache.generation());
+		}
+		cache.putAttributes(B, true, Optional.empty(), cache.generation());
+
+		Assertions.assertNotNull(cache.getListing(A));
+		Assertions.assertNotNull(cache.getAttributes(B, true));
+	}
+
+	@Test
+	public void testDontCacheListingsExceedingMaxSize() {
+		cache.putAttributes(A, true, Optional.empty(), cache.generation());
+
+		cache.putListing(C, List.of(C.resolve("v"), C.resolve("w"), C.resolve("x"), C.resolve("y")), cache.generation());
+
+		Assertions.assertEquals(3, cache.maxListingSize());
+		Assertions.assertNull(cache.getListing(C));
+		Assertions.assertNotNull(cache.getAttributes(A, true));
+	}
+
+	@Test
+	public void testDontPutAfterInvalidation() {
+		long generation = cache.generation();
+		cache.invalidate(B);
+
+		cache.putAttributes(A, true, Optional.empty(), generation);
+		cache.putListing(A, List.of(), generation);
+
+		Assertions.assertNull(cache.getAttributes(A, true));
+		Assertions.assertNull(cache.getListing(A));
+	}
+
+	@Test
+	public void testDontPutAfterTreeInvalidation() {
+		long generation = cache.generation();
+		cache.invalidateTree(B);
+
+		cache.putAttributes(A, true, Optional.empty(), generation);
+
+		Assertions.assertNull(cache.getAttributes(A, true));
+	}
+
+	@Test
+	public void testPutWithCurrentGenerationAfterInvalidation() {
+		cache.invalidate(B);
+
+		cache.putAttributes(A, true, Optional.empty(), cache.generation());
+
+		Assertions.assertNotNull(cache.getAttributes(A, true));
+	}
+
+	@Test
+	public void testInvalidate() {
+		cache.putAttributes(A, true, Optional.empty(), cache.generation());
+		cache.putAttributes(A, false, Optional.empty(), cache.generation());
+		cache.putListing(A, List.of(), cache.generation());
+		cache.putAttributes(A.resolve("x"), true, Optional.empty(), cache.generation());
+
+		cache.invalidate(A);
+
+		Assertions.assertNull(cache.getAttributes(A, true));
+		Assertions.assertNull(cache.getAttributes(A, false));
+		Assertions.assertNull(cache.getListing(A));
+		Assertions.assertNotNull(cache.getAttributes(A.resolve("x"), true));
+	}
+
+	@Test
+	public void testInvalidateTree() {
+		cache.putAttributes(A, true, Optional.empty(), cache.generation());
+		cache.putAttributes(A.resolve("x"), true, Optional.empty(), cache.generation());
+		cache.putAttributes(Path.of("/ab"), true, Optional.empty(), cache.generation());
+		cache.putAttributes(B, true, Optional.empty(), cache.generation());
+
+		cache.invalidateTree(A);
+
+		Assertions.assertNull(cache.getAttributes(A, true));
+		Assertions.assertNull(cache.getAttributes(A.resolve("x"), true));
+		Assertions.assertNotNull(cache.getAttributes(Path.of("/ab"), true));
+		Assertions.assertNotNull(cache.getAttributes(B, true));
+	}
+
+	@Test
+	public void testInvalidateFreesSpace() {
+		cache.putListing(A, List.of(A.resolve("x"), A.resolve("y")), cache.generation());
+		cache.putAttributes(B, true, Optional.empty(), cache.generation());
+
+		cache.invalidateTree(A);
+		cache.putListing(C, List.of(C.resolve("x"), C.resolve("y")), cache.generation());
+
+		Assertions.assertNotNull(cache.getAttributes(B, true));
+		Assertions.assertNotNull(cache.getListing(C));
+	}
+
+	@Test
+	public void testExpiry() {
+		var expiringCache = new AttributeCache(4, Duration.ZERO);
+
+		expiringCache.putAttributes(A, true, Optional.empty(), expiringCache.generation());
+
+		Assertions.assertNull(expiringCache.getAttributes(A, true));
+	}
+
+}
@@ -0,0 +1,105 @@
+package org.cryptomator.frontend.webdav.metrics;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+public class LatencyHistogramTest {
+
+	@Nested
+	public class Buckets {
+
+		@Test
+		public void testSmallValuesHaveBucketsOfTheirOwn() {
+			for (int value = 0; value < 32; value++) {
+				Assertions.assertEquals(value, LatencyHistogram.indexOf(value));
+				Assertions.assertEquals(value, LatencyHistogram.highestValueOf(value));
+			}
+		}
+
+		@Test
+		public void testBucketsAreContiguous() {
+			for (int index = 0; index < LatencyHistogram.BUCKET_COUNT - 1; index++) {
+				long highest = LatencyHistogram.highestValueOf(index);
+				Assertions.assertEquals(index, LatencyHistogram.indexOf(highest));
+				Assertions.assertEquals(index + 1, LatencyHistogram.indexOf(highest + 1));
+			}
+		}
+
+		@ParameterizedTest
+		@ValueSource(longs = {32, 33, 63, 64, 65, 100, 1_000, 4_095, 4_096, 12_345, 1_000_000, 60_000_000, 3_600_000_000L})
+		public void testRelativeError(long value) {
+			long highest = LatencyHistogram.highestValueOf(LatencyHistogram.indexOf(value));
+
+			Assertions.assertTrue(highest >= value);
+			Assertions.assertTrue(highest - value < value / 32.0, () -> value + " is counted in a bucket up to " + highest);
+		}
+
+		@ParameterizedTest
+		@ValueSource(longs = {1L << 33, 1L << 40, Long.MAX_VALUE})
+		public void testHugeValuesAreCountedInLastBucket(long value) {
+			Assertions.assertEquals(LatencyHistogram.BUCKET_COUNT - 1, LatencyHistogram.indexOf(value));
+		}
+
+	}
+
+	@Nested
+	public class Snapshot {
+
+		private final LatencyHistogram histogram = new LatencyHistogram();
+
+		@Test
+		public void testEmpty() {
+			var snapshot = histogram.snapshot();
+
+			Assertions.assertEquals(0, snapshot.count());
+			Assertions.assertEquals(0, snapshot.sum());
+			Assertions.assertEquals(0, snapshot.valueAt(0.5));
+			Assertions.assertEquals(0, snapshot.valueAt(1.0));
+		}
+
+		@Test
+		public void testCountSumAndMax() {
+			histogram.record(10);
+			histogram.record(1_000);
+			histogram.record(-5);
+
+			var snapshot = histogram.snapshot();
+
+			Assertions.assertEquals(3, snapshot.count());
+			Assertions.assertEquals(1_010, snapshot.sum());
+			Assertions.assertEquals(1_000, snapshot.max());
+			Assertions.assertEquals(1, snapshot.counts()[0]);
+		}
+
+		@Test
+		public void testPercentiles() {
+			for (int value = 1; value <= 100; value++) {
+				histogram.record(value);
+			}
+
+			var snapshot = histogram.snapshot();
+
+			Assertions.assertEquals(1, snapshot.valueAt(0.0));
+			Assertions.assertEquals(1, snapshot.valueAt(0.01));
+			Assertions.assertEquals(50, snapshot.valueAt(0.5));
+			Assertions.assertEquals(91, snapshot.valueAt(0.9)); // 90 and 91 share a bucket
+			Assertions.assertEquals(99, snapshot.valueAt(0.99));
+			Assertions.assertEquals(100, snapshot.valueAt(1.0));
+		}
+
+		@Test
+		public void testPercentileDoesNotExceedMax() {
+			histogram.record(1_000_001);
+
+			var snapshot = histogram.snapshot();
+
+			Assertions.assertTrue(LatencyHistogram.highestValueOf(LatencyHistogram.indexOf(1_000_001)) > 1_000_001);
+			Assertions.assertEquals(1_000_001, snapshot.valueAt(0.5));
+		}
+
+	}
+
+}
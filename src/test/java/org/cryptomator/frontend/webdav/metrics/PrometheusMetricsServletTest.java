@@ -0,0 +1,105 @@
+package org.cryptomator.frontend.webdav.metrics;
+
+import org.cryptomator.frontend.webdav.WebDavServer;
+import org.cryptomator.frontend.webdav.WebDavServerConfig;
+import org.eclipse.jetty.http.HttpTester;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.regex.Pattern;
+
+@Timeout(10)
+public class PrometheusMetricsServletTest {
+
+	private static final Pattern SAMPLE = Pattern.compile("([a-z_]+)(\\{[a-z_]+=\"[^\"]*\"(,[a-z_]+=\"[^\"]*\")*})? -?\\d+(\\.\\d+)?");
+
+	private WebDavServer server;
+	private int port;
+
+	@BeforeEach
+	public void setup(@TempDir Path rootPath) throws IOException {
+		Files.writeString(rootPath.resolve("foo.txt"), "hello");
+		server = WebDavServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), WebDavServerConfig.builder().setPrometheusMetrics(true).build());
+		server.start();
+		var servlet = server.createWebDavServlet(rootPath, "/ctx");
+		servlet.start();
+		port = servlet.getServletRootUri().getPort();
+	}
+
+	@AfterEach
+	public void tearDown() {
+		server.terminate();
+	}
+
+	// HTTP/1.0 responses are neither chunked nor kept alive, so the response is complete once the server closed the connection
+	private HttpTester.Response send(String method, String path) throws IOException {
+		try (var socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+			socket.getOutputStream().write((method + " " + path + " HTTP/1.0\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+			return HttpTester.parseResponse(new String(socket.getInputStream().readAllBytes(), StandardCharsets.UTF_8));
+		}
+	}
+
+	private List<String> scrape() throws IOException {
+		var response = send("GET", PrometheusMetricsServlet.PATH);
+		Assertions.assertEquals(200, response.getStatus());
+		Assertions.assertEquals("text/plain; version=0.0.4; charset=utf-8", response.get("Content-Type").toLowerCase());
+		return response.getContent().lines().toList();
+	}
+
+	@Test
+	public void testRequestMetrics() throws IOException {
+		Assertions.assertEquals(200, send("GET", "/ctx/foo.txt").getStatus());
+		Assertions.assertEquals(404, send("GET", "/ctx/bar.txt").getStatus());
+		Assertions.assertEquals(200, send("HEAD", "/ctx/foo.txt").getStatus());
+
+		var lines = scrape();
+
+		Assertions.assertTrue(lines.contains("webdav_requests_total{context=\"/ctx\",method=\"GET\",status=\"2xx\"} 1"));
+		Assertions.assertTrue(lines.contains("webdav_requests_total{context=\"/ctx\",method=\"GET\",status=\"4xx\"} 1"));
+		Assertions.assertTrue(lines.contains("webdav_requests_total{context=\"/ctx\",method=\"HEAD\",status=\"2xx\"} 1"));
+		Assertions.assertTrue(lines.contains("webdav_requests_in_flight{context=\"/ctx\",method=\"GET\"} 0"));
+		Assertions.assertTrue(lines.contains("webdav_request_duration_seconds_count{context=\"/ctx\",method=\"GET\"} 2"));
+		Assertions.assertTrue(lines.stream().anyMatch(l -> l.matches("webdav_request_duration_seconds\\{context=\"/ctx\",method=\"GET\",quantile=\"0\\.99\"} \\d+\\.\\d{6}")));
+		Assertions.assertTrue(lines.stream().noneMatch(l -> l.contains("method=\"PUT\"")), "methods never requested are omitted");
+		Assertions.assertTrue(lines.contains("webdav_locks{context=\"/ctx\"} 0"));
+		Assertions.assertTrue(lines.contains("webdav_requests_shed_total{reason=\"context_limit\"} 0"));
+		Assertions.assertTrue(lines.contains("webdav_overloaded 0"));
+	}
+
+	@Test
+	public void testFormat() throws IOException {
+		send("GET", "/ctx/foo.txt");
+
+		var lines = scrape();
+
+		var declared = new HashSet<String>();
+		for (var line : lines) {
+			if (line.startsWith("# TYPE ")) {
+				var parts = line.split(" ");
+				Assertions.assertEquals(4, parts.length, line);
+				Assertions.assertTrue(List.of("counter", "gauge", "summary").contains(parts[3]), line);
+				Assertions.assertTrue(declared.add(parts[2]), () -> "declared twice: " + line);
+			} else if (!line.startsWith("# HELP ")) {
+				var matcher = SAMPLE.matcher(line);
+				Assertions.assertTrue(matcher.matches(), () -> "malformed sample: " + line);
+				var family = matcher.group(1).replaceFirst("_(sum|count)$", "");
+				Assertions.assertTrue(declared.contains(family), () -> "sample precedes its type: " + line);
+			}
+		}
+		Assertions.assertTrue(declared.contains("webdav_request_duration_seconds"));
+	}
+
+}
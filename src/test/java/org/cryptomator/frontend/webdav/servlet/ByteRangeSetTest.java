@@ -0,0 +1,94 @@
+package org.cryptomator.frontend.webdav.servlet;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.NullSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.List;
+import java.util.Optional;
+
+public class ByteRangeSetTest {
+
+	private static final long SIZE = 1000;
+
+	private static Optional<List<ByteRangeSet.Range>> ranges(ByteRangeSet.Range... ranges) {
+		return Optional.of(List.of(ranges));
+	}
+
+	@Test
+	public void testSingleRange() {
+		Assertions.assertEquals(ranges(new ByteRangeSet.Range(0, 499)), ByteRangeSet.parse("bytes=0-499", SIZE));
+	}
+
+	@Test
+	public void testOpenEndedRange() {
+		Assertions.assertEquals(ranges(new ByteRangeSet.Range(900, 999)), ByteRangeSet.parse("bytes=900-", SIZE));
+	}
+
+	@Test
+	public void testLastByteBeyondEndOfFile() {
+		Assertions.assertEquals(ranges(new ByteRangeSet.Range(900, 999)), ByteRangeSet.parse("bytes=900-5000", SIZE));
+	}
+
+	@Test
+	public void testSuffixRange() {
+		Assertions.assertEquals(ranges(new ByteRangeSet.Range(900, 999)), ByteRangeSet.parse("bytes=-100", SIZE));
+	}
+
+	@Test
+	public void testSuffixRangeLongerThanFile() {
+		Assertions.assertEquals(ranges(new ByteRangeSet.Range(0, 999)), ByteRangeSet.parse("bytes=-5000", SIZE));
+	}
+
+	@Test
+	public void testMultipleRangesAreSorted() {
+		Assertions.assertEquals(ranges(new ByteRangeSet.Range(0, 9), new ByteRangeSet.Range(100, 199), new ByteRangeSet.Range(990, 999)), ByteRangeSet.parse("bytes=100-199, -10, 0-9", SIZE));
+	}
+
+	@Test
+	public void testOverlappingRangesAreCoalesced() {
+		Assertions.assertEquals(ranges(new ByteRangeSet.Range(0, 299)), ByteRangeSet.parse("bytes=0-199,100-299,150-160", SIZE));
+	}
+
+	@Test
+	public void testAdjacentRangesAreCoalesced() {
+		Assertions.assertEquals(ranges(new ByteRangeSet.Range(0, 199), new ByteRangeSet.Range(500, 999)), ByteRangeSet.parse("bytes=0-99,100-199,500-,-100", SIZE));
+	}
+
+	@Test
+	public void testUnsatisfiableRangesAreDropped() {
+		Assertions.assertEquals(ranges(new ByteRangeSet.Range(0, 9)), ByteRangeSet.parse("bytes=0-9,1000-1100,-0", SIZE));
+	}
+
+	@Test
+	public void testNoSatisfiableRange() {
+		Assertions.assertEquals(ranges(), ByteRangeSet.parse("bytes=1000-", SIZE));
+		Assertions.assertEquals(ranges(), ByteRangeSet.parse("bytes=-100", 0));
+	}
+
+	@Test
+	public void testEmptySpecsAreIgnored() {
+		Assertions.assertEquals(ranges(new ByteRangeSet.Range(0, 9)), ByteRangeSet.parse("bytes=0-9,, ,", SIZE));
+	}
+
+	@Test
+	public void testMaxRanges() {
+		var header = new StringBuilder("bytes=0-0");
+		for (int i = 1; i < ByteRangeSet.MAX_RANGES; i++) {
+			header.append(',').append(i * 10).append('-').append(i * 10);
+		}
+
+		Assertions.assertEquals(ByteRangeSet.MAX_RANGES, ByteRangeSet.parse(header.toString(), SIZE).orElseThrow().size());
+		Assertions.assertEquals(Optional.empty(), ByteRangeSet.parse(header + ",500-500", SIZE));
+	}
+
+	@ParameterizedTest
+	@NullSource
+	@ValueSource(strings = {"", "bytes=", "items=0-9", "bytes=-", "bytes=a-b", "bytes=0-9,x", "bytes=10-5", "bytes=0-9,10-5", "bytes=99999999999999999999-", "bytes=0-9;10-19"})
+	public void testIgnoreMalformedHeaders(String header) {
+		Assertions.assertEquals(Optional.empty(), ByteRangeSet.parse(header, SIZE));
+	}
+
+}
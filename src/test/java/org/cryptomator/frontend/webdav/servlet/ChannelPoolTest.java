@@ -0,0 +1,193 @@
+package org.cryptomator.frontend.webdav.servlet;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class ChannelPoolTest {
+
+	private static final long IDLE_TIMEOUT_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+	@TempDir
+	private Path tmpDir;
+	private Path dir;
+	private Path file1;
+	private Path file2;
+
+	@BeforeEach
+	public void setup() throws IOException {
+		dir = Files.createDirectory(tmpDir.resolve("dir"));
+		file1 = Files.write(dir.resolve("file1"), new byte[]{1, 2, 3});
+		file2 = Files.write(tmpDir.resolve("file2"), new byte[]{4, 5, 6});
+	}
+
+	@Test
+	public void testReadAtPosition() throws IOException {
+		var pool = new ChannelPool(1, IDLE_TIMEOUT_NANOS, p -> {});
+		try (var lease = pool.acquire(file1, 0)) {
+			var buffer = ByteBuffer.allocate(2);
+
+			Assertions.assertEquals(2, lease.read(buffer, 1));
+			Assertions.assertArrayEquals(new byte[]{2, 3}, buffer.array());
+			Assertions.assertEquals(-1, lease.read(buffer.clear(), 3));
+		}
+	}
+
+	@Test
+	public void testConcurrentReadersShareChannel() throws IOException {
+		var pool = new ChannelPool(1, IDLE_TIMEOUT_NANOS, p -> {});
+		try (var lease1 = pool.acquire(file1, 0); var lease2 = pool.acquire(file1, 0)) {
+			Assertions.assertSame(lease1.channel(), lease2.channel());
+		}
+	}
+
+	@Test
+	public void testReleasedChannelIsReused() throws IOException {
+		var pool = new ChannelPool(1, IDLE_TIMEOUT_NANOS, p -> {});
+		var lease1 = pool.acquire(file1, 0);
+		lease1.close();
+		lease1.close(); // closing twice must not release twice
+
+		Assertions.assertTrue(lease1.channel().isOpen());
+		try (var lease2 = pool.acquire(file1, 0)) {
+			Assertions.assertSame(lease1.channel(), lease2.channel());
+		}
+		Assertions.assertTrue(lease1.channel().isOpen());
+	}
+
+	@Test
+	public void testPoolOfSizeZeroClosesOnRelease() throws IOException {
+		var pool = new ChannelPool(0, IDLE_TIMEOUT_NANOS, p -> {});
+		var lease1 = pool.acquire(file1, 0);
+		var lease2 = pool.acquire(file1, 0);
+		Assertions.assertNotSame(lease1.channel(), lease2.channel());
+
+		lease1.close();
+		lease2.close();
+
+		Assertions.assertFalse(lease1.channel().isOpen());
+		Assertions.assertFalse(lease2.channel().isOpen());
+	}
+
+	@Test
+	public void testInvalidateClosesIdleChannel() throws IOException {
+		var pool = new ChannelPool(1, IDLE_TIMEOUT_NANOS, p -> {});
+		var lease = pool.acquire(file1, 0);
+		lease.close();
+
+		pool.invalidate(file1);
+
+		Assertions.assertFalse(lease.channel().isOpen());
+	}
+
+	@Test
+	public void testInvalidateRetiresChannelInUse() throws IOException {
+		var pool = new ChannelPool(1, IDLE_TIMEOUT_NANOS, p -> {});
+		var lease1 = pool.acquire(file1, 0);
+		var lease2 = pool.acquire(file1, 0);
+
+		pool.invalidate(dir);
+
+		Assertions.assertTrue(lease1.channel().isOpen());
+		try (var lease3 = pool.acquire(file1, 0)) {
+			Assertions.assertNotSame(lease1.channel(), lease3.channel());
+		}
+		lease1.close();
+		Assertions.assertTrue(lease2.channel().isOpen());
+		lease2.close();
+		Assertions.assertFalse(lease2.channel().isOpen());
+	}
+
+	@Test
+	public void testInvalidateKeepsChannelsOutsideOfSubtree() throws IOException {
+		var pool = new ChannelPool(2, IDLE_TIMEOUT_NANOS, p -> {});
+		var lease1 = pool.acquire(file1, 0);
+		var lease2 = pool.acquire(file2, 0);
+		lease1.close();
+		lease2.close();
+
+		pool.invalidate(dir);
+
+		Assertions.assertFalse(lease1.channel().isOpen());
+		Assertions.assertTrue(lease2.channel().isOpen());
+	}
+
+	@Test
+	public void testModifiedFileReplacesChannel() throws IOException {
+		var pool = new ChannelPool(1, IDLE_TIMEOUT_NANOS, p -> {});
+		var lease1 = pool.acquire(file1, 0);
+
+		try (var lease2 = pool.acquire(file1, 1)) {
+			Assertions.assertNotSame(lease1.channel(), lease2.channel());
+			Assertions.assertTrue(lease1.channel().isOpen());
+			lease1.close();
+			Assertions.assertFalse(lease1.channel().isOpen());
+		}
+	}
+
+	@Test
+	public void testEvictLeastRecentlyUsedIdleChannel() throws IOException {
+		var pool = new ChannelPool(1, IDLE_TIMEOUT_NANOS, p -> {});
+		var lease1 = pool.acquire(file1, 0);
+		lease1.close();
+
+		try (var lease2 = pool.acquire(file2, 0)) {
+			Assertions.assertFalse(lease1.channel().isOpen());
+			Assertions.assertTrue(lease2.channel().isOpen());
+		}
+	}
+
+	@Test
+	public void testDontEvictChannelInUse() throws IOException {
+		var pool = new ChannelPool(1, IDLE_TIMEOUT_NANOS, p -> {});
+		try (var lease1 = pool.acquire(file1, 0); var lease2 = pool.acquire(file2, 0)) {
+			Assertions.assertTrue(lease1.channel().isOpen());
+			Assertions.assertTrue(lease2.channel().isOpen());
+		}
+	}
+
+	@Test
+	public void testCloseIdle() throws IOException {
+		var pool = new ChannelPool(2, 0, p -> {});
+		var lease1 = pool.acquire(file1, 0);
+		var lease2 = pool.acquire(file2, 0);
+		lease1.close();
+
+		pool.closeIdle();
+
+		Assertions.assertFalse(lease1.channel().isOpen());
+		Assertions.assertTrue(lease2.channel().isOpen());
+		lease2.close();
+		Assertions.assertTrue(lease2.channel().isOpen()); // still pooled until the next cleanup
+	}
+
+	@Test
+	public void testClose() throws IOException {
+		var closed = new AtomicBoolean();
+		var pool = new ChannelPool(2, IDLE_TIMEOUT_NANOS, p -> closed.set(true));
+		var lease1 = pool.acquire(file1, 0);
+		var lease2 = pool.acquire(file2, 0);
+		lease1.close();
+
+		pool.close();
+
+		Assertions.assertTrue(closed.get());
+		Assertions.assertFalse(lease1.channel().isOpen());
+		Assertions.assertTrue(lease2.channel().isOpen());
+		lease2.close();
+		Assertions.assertFalse(lease2.channel().isOpen());
+		try (var lease3 = pool.acquire(file1, 0)) {
+			lease3.close();
+			Assertions.assertFalse(lease3.channel().isOpen());
+		}
+	}
+
+}
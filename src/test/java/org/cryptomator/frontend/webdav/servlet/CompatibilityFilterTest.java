@@ -0,0 +1,343 @@
+package org.cryptomator.frontend.webdav.servlet;
+
+import org.eclipse.jetty.http.HttpTester;
+import org.eclipse.jetty.server.HttpConnectionFactory;
+import org.eclipse.jetty.server.LocalConnector;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.servlet.FilterHolder;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumSet;
+import java.util.Set;
+
+public class CompatibilityFilterTest {
+
+	private static final String NFC_NAME = "\u00E4"; // ä
+	private static final String NFD_NAME = "a\u0308"; // a + combining diaeresis
+	private static final String NFC_NAME_ENCODED = "%C3%A4";
+	private static final String NFD_NAME_ENCODED = "a%CC%88";
+
+	private Server server;
+	private LocalConnector connector;
+
+	@AfterEach
+	public void tearDown() throws Exception {
+		if (server != null) {
+			server.stop();
+		}
+	}
+
+	// serves the filter in front of a servlet that describes the request it received in its response
+	private void start(Set<CompatibilityStep> steps) throws Exception {
+		server = new Server();
+		connector = new LocalConnector(server, new HttpConnectionFactory());
+		server.addConnector(connector);
+		var context = new ServletContextHandler(null, "/ctx");
+		context.addServlet(new ServletHolder(new DescribingServlet()), "/*");
+		context.addFilter(new FilterHolder(new CompatibilityFilter(steps)), "/*", EnumSet.of(DispatcherType.REQUEST));
+		server.setHandler(context);
+		server.start();
+	}
+
+	private void startWith(CompatibilityStep step) throws Exception {
+		start(EnumSet.of(step));
+	}
+
+	private void startWithout(CompatibilityStep step) throws Exception {
+		start(EnumSet.complementOf(EnumSet.of(step)));
+	}
+
+	private HttpTester.Response send(String request) throws Exception {
+		var raw = connector.getResponse(request);
+		Assertions.assertNotNull(raw, "no response");
+		return HttpTester.parseResponse(raw);
+	}
+
+	private static class DescribingServlet extends HttpServlet {
+
+		@Override
+		protected void service(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+			var body = req.getInputStream().readAllBytes();
+			switch (req.getMethod()) {
+				case "OPTIONS" -> resp.addHeader("Allow", "OPTIONS, GET, PUT, POST, PROPFIND");
+				case "PROPFIND" -> {
+					resp.setStatus(207);
+					resp.setContentType("application/xml; charset=UTF-8");
+					// like the WebDAV servlet, which the NFD normalization relies on, write to the output stream and declare the content length
+					var multistatus = ("<?xml version=\"1.0\" encoding=\"UTF-8\"?><d:multistatus xmlns:d=\"DAV:\"><d:response><d:href>http://localhost/ctx/" + NFC_NAME_ENCODED + "</d:href></d:response></d:multistatus>").getBytes(StandardCharsets.UTF_8);
+					resp.setContentLength(multistatus.length);
+					resp.getOutputStream().write(multistatus);
+					return;
+				}
+				default -> resp.setStatus(200);
+			}
+			resp.setContentType("text/plain; charset=UTF-8");
+			var writer = resp.getWriter();
+			writer.println("method=" + req.getMethod());
+			writer.println("pathInfo=" + req.getPathInfo());
+			writer.println("destination=" + req.getHeader("Destination"));
+			writer.println("expectedEntityLength=" + CompatibilityFilter.expectedEntityLength(req));
+			writer.println("bodyLength=" + body.length);
+		}
+
+	}
+
+	@Nested
+	public class RequestLogging {
+
+		// the test logger doesn't log at debug level, so only verify that the exchange is unaffected by this step
+		@ParameterizedTest
+		@ValueSource(booleans = {true, false})
+		public void testExchangeIsUnaffected(boolean enabled) throws Exception {
+			if (enabled) {
+				startWith(CompatibilityStep.REQUEST_LOGGING);
+			} else {
+				startWithout(CompatibilityStep.REQUEST_LOGGING);
+			}
+
+			var response = send("PUT /ctx/foo HTTP/1.1\r\nHost: localhost\r\nContent-Length: 3\r\nConnection: close\r\n\r\nabc");
+
+			Assertions.assertEquals(200, response.getStatus());
+			Assertions.assertTrue(response.getContent().contains("pathInfo=/foo\n"));
+			Assertions.assertTrue(response.getContent().contains("bodyLength=3\n"));
+		}
+
+	}
+
+	@Nested
+	public class UnicodeNormalization {
+
+		@Test
+		public void testEnabledNormalizesRequestToNfc() throws Exception {
+			startWith(CompatibilityStep.UNICODE_NORMALIZATION);
+
+			var response = send("MOVE /ctx/" + NFD_NAME_ENCODED + " HTTP/1.1\r\nHost: localhost\r\nDestination: http://localhost/ctx/" + NFD_NAME_ENCODED + "2\r\nConnection: close\r\n\r\n");
+
+			Assertions.assertEquals(200, response.getStatus());
+			Assertions.assertTrue(response.getContent().contains("pathInfo=/" + NFC_NAME + "\n"), response.getContent());
+			Assertions.assertTrue(response.getContent().contains("destination=http://localhost/ctx/" + NFC_NAME + "2\n"), response.getContent());
+		}
+
+		@Test
+		public void testDisabledKeepsNfdRequest() throws Exception {
+			startWithout(CompatibilityStep.UNICODE_NORMALIZATION);
+
+			var response = send("MOVE /ctx/" + NFD_NAME_ENCODED + " HTTP/1.1\r\nHost: localhost\r\nDestination: http://localhost/ctx/" + NFD_NAME_ENCODED + "2\r\nConnection: close\r\n\r\n");
+
+			Assertions.assertEquals(200, response.getStatus());
+			Assertions.assertTrue(response.getContent().contains("pathInfo=/" + NFD_NAME + "\n"), response.getContent());
+			Assertions.assertTrue(response.getContent().contains("destination=http://localhost/ctx/" + NFD_NAME_ENCODED + "2\n"), response.getContent());
+		}
+
+		@Test
+		public void testEnabledNormalizesMultistatusToNfdForMacOs() throws Exception {
+			startWith(CompatibilityStep.UNICODE_NORMALIZATION);
+
+			var response = send("PROPFIND /ctx/ HTTP/1.1\r\nHost: localhost\r\nUser-Agent: WebDAVFS\r\nDepth: 1\r\nConnection: close\r\n\r\n");
+
+			Assertions.assertEquals(207, response.getStatus());
+			Assertions.assertTrue(response.getContent().toUpperCase().contains("/CTX/A%CC%88<"), response.getContent()); // percent-encoded in lower case
+		}
+
+		@Test
+		public void testEnabledKeepsMultistatusForOtherClients() throws Exception {
+			startWith(CompatibilityStep.UNICODE_NORMALIZATION);
+
+			var response = send("PROPFIND /ctx/ HTTP/1.1\r\nHost: localhost\r\nUser-Agent: Microsoft-WebDAV-MiniRedir/10.0.19045\r\nDepth: 1\r\nConnection: close\r\n\r\n");
+
+			Assertions.assertEquals(207, response.getStatus());
+			Assertions.assertTrue(response.getContent().contains("/ctx/" + NFC_NAME_ENCODED + "<"), response.getContent());
+		}
+
+		@Test
+		public void testDisabledKeepsMultistatusForMacOs() throws Exception {
+			startWithout(CompatibilityStep.UNICODE_NORMALIZATION);
+
+			var response = send("PROPFIND /ctx/ HTTP/1.1\r\nHost: localhost\r\nUser-Agent: WebDAVFS\r\nDepth: 1\r\nConnection: close\r\n\r\n");
+
+			Assertions.assertEquals(207, response.getStatus());
+			Assertions.assertTrue(response.getContent().contains("/ctx/" + NFC_NAME_ENCODED + "<"), response.getContent());
+		}
+
+	}
+
+	@Nested
+	public class PostBlocking {
+
+		@Test
+		public void testEnabledRejectsPost() throws Exception {
+			startWith(CompatibilityStep.POST_BLOCKING);
+
+			var response = send("POST /ctx/foo HTTP/1.1\r\nHost: localhost\r\nContent-Length: 0\r\nConnection: close\r\n\r\n");
+
+			Assertions.assertEquals(405, response.getStatus());
+			Assertions.assertFalse(response.getContent().contains("method=POST"));
+		}
+
+		@Test
+		public void testEnabledRejectsLowerCasePost() throws Exception {
+			startWith(CompatibilityStep.POST_BLOCKING);
+
+			var response = send("post /ctx/foo HTTP/1.1\r\nHost: localhost\r\nContent-Length: 0\r\nConnection: close\r\n\r\n");
+
+			Assertions.assertEquals(405, response.getStatus());
+		}
+
+		@Test
+		public void testEnabledRemovesPostFromAllowHeader() throws Exception {
+			startWith(CompatibilityStep.POST_BLOCKING);
+
+			var response = send("OPTIONS /ctx/ HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n");
+
+			Assertions.assertEquals(200, response.getStatus());
+			Assertions.assertEquals("OPTIONS,GET,PUT,PROPFIND", response.get("Allow"));
+		}
+
+		@Test
+		public void testDisabledPassesPost() throws Exception {
+			startWithout(CompatibilityStep.POST_BLOCKING);
+
+			var postResponse = send("POST /ctx/foo HTTP/1.1\r\nHost: localhost\r\nContent-Length: 0\r\nConnection: close\r\n\r\n");
+			var optionsResponse = send("OPTIONS /ctx/ HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n");
+
+			Assertions.assertEquals(200, postResponse.getStatus());
+			Assertions.assertTrue(postResponse.getContent().contains("method=POST\n"));
+			Assertions.assertEquals("OPTIONS, GET, PUT, POST, PROPFIND", optionsResponse.get("Allow"));
+		}
+
+	}
+
+	@Nested
+	public class MkcolCompliance {
+
+		@Test
+		public void testEnabledRejectsMkcolWithBody() throws Exception {
+			startWith(CompatibilityStep.MKCOL_COMPLIANCE);
+
+			var response = send("MKCOL /ctx/foo HTTP/1.1\r\nHost: localhost\r\nContent-Length: 3\r\nConnection: close\r\n\r\nabc");
+
+			Assertions.assertEquals(415, response.getStatus());
+		}
+
+		@Test
+		public void testEnabledRejectsMkcolWithChunkedBody() throws Exception {
+			startWith(CompatibilityStep.MKCOL_COMPLIANCE);
+
+			var response = send("MKCOL /ctx/foo HTTP/1.1\r\nHost: localhost\r\nTransfer-Encoding: chunked\r\nConnection: close\r\n\r\n3\r\nabc\r\n0\r\n\r\n");
+
+			Assertions.assertEquals(415, response.getStatus());
+		}
+
+		@Test
+		public void testEnabledPassesMkcolWithoutBody() throws Exception {
+			startWith(CompatibilityStep.MKCOL_COMPLIANCE);
+
+			var response = send("MKCOL /ctx/foo HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n");
+
+			Assertions.assertEquals(200, response.getStatus());
+			Assertions.assertTrue(response.getContent().contains("method=MKCOL\n"));
+		}
+
+		@Test
+		public void testDisabledPassesMkcolWithBody() throws Exception {
+			startWithout(CompatibilityStep.MKCOL_COMPLIANCE);
+
+			var response = send("MKCOL /ctx/foo HTTP/1.1\r\nHost: localhost\r\nContent-Length: 3\r\nConnection: close\r\n\r\nabc");
+
+			Assertions.assertEquals(200, response.getStatus());
+			Assertions.assertTrue(response.getContent().contains("bodyLength=3\n"));
+		}
+
+	}
+
+	@Nested
+	public class AcceptRanges {
+
+		@Test
+		public void testEnabledAddsHeaderToGet() throws Exception {
+			startWith(CompatibilityStep.ACCEPT_RANGES);
+
+			var response = send("GET /ctx/foo HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n");
+
+			Assertions.assertEquals("bytes", response.get("Accept-Ranges"));
+		}
+
+		@Test
+		public void testEnabledDoesNotAddHeaderToOtherMethods() throws Exception {
+			startWith(CompatibilityStep.ACCEPT_RANGES);
+
+			var response = send("OPTIONS /ctx/foo HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n");
+
+			Assertions.assertNull(response.get("Accept-Ranges"));
+		}
+
+		@Test
+		public void testDisabledDoesNotAddHeader() throws Exception {
+			startWithout(CompatibilityStep.ACCEPT_RANGES);
+
+			var response = send("GET /ctx/foo HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n");
+
+			Assertions.assertNull(response.get("Accept-Ranges"));
+		}
+
+	}
+
+	@Nested
+	public class MacChunkedPut {
+
+		private static final String CHUNKED_PUT = "PUT /ctx/foo HTTP/1.1\r\nHost: localhost\r\nTransfer-Encoding: chunked\r\nX-Expected-Entity-Length: %s\r\nConnection: close\r\n\r\n5\r\nhello\r\n0\r\n\r\n";
+
+		@Test
+		public void testEnabledPassesExpectedLength() throws Exception {
+			startWith(CompatibilityStep.MAC_CHUNKED_PUT);
+
+			var response = send(CHUNKED_PUT.formatted("3"));
+
+			Assertions.assertEquals(200, response.getStatus());
+			Assertions.assertTrue(response.getContent().contains("expectedEntityLength=3\n"), response.getContent());
+		}
+
+		@Test
+		public void testEnabledRejectsInvalidExpectedLength() throws Exception {
+			startWith(CompatibilityStep.MAC_CHUNKED_PUT);
+
+			Assertions.assertEquals(400, send(CHUNKED_PUT.formatted("-1")).getStatus());
+			Assertions.assertEquals(400, send(CHUNKED_PUT.formatted("abc")).getStatus());
+		}
+
+		@Test
+		public void testEnabledIgnoresHeaderOfUnchunkedPut() throws Exception {
+			startWith(CompatibilityStep.MAC_CHUNKED_PUT);
+
+			var response = send("PUT /ctx/foo HTTP/1.1\r\nHost: localhost\r\nContent-Length: 5\r\nX-Expected-Entity-Length: 3\r\nConnection: close\r\n\r\nhello");
+
+			Assertions.assertTrue(response.getContent().contains("expectedEntityLength=" + Long.MAX_VALUE + "\n"), response.getContent());
+		}
+
+		@Test
+		public void testDisabledIgnoresExpectedLength() throws Exception {
+			startWithout(CompatibilityStep.MAC_CHUNKED_PUT);
+
+			var response = send(CHUNKED_PUT.formatted("abc"));
+
+			Assertions.assertEquals(200, response.getStatus());
+			Assertions.assertTrue(response.getContent().contains("expectedEntityLength=" + Long.MAX_VALUE + "\n"), response.getContent());
+			Assertions.assertTrue(response.getContent().contains("bodyLength=5\n"), response.getContent());
+		}
+
+	}
+
+}
@@ -0,0 +1,314 @@
+package org.cryptomator.frontend.webdav.servlet;
+
+import org.apache.jackrabbit.webdav.DavConstants;
+import org.apache.jackrabbit.webdav.DavException;
+import org.apache.jackrabbit.webdav.DavResource;
+import org.apache.jackrabbit.webdav.DavResourceLocator;
+import org.apache.jackrabbit.webdav.DavServletResponse;
+import org.apache.jackrabbit.webdav.lock.ActiveLock;
+import org.apache.jackrabbit.webdav.lock.LockInfo;
+import org.apache.jackrabbit.webdav.lock.Scope;
+import org.apache.jackrabbit.webdav.lock.Type;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class LockTableTest {
+
+	private static final long TICK_MILLIS = 10;
+
+	private TimingWheel expiry;
+	private AtomicInteger expiredCount;
+	private LockTable table;
+
+	@BeforeEach
+	public void setup() {
+		expiry = new TimingWheel(TICK_MILLIS);
+		expiredCount = new AtomicInteger();
+		table = new LockTable("/ctx", expiry, expiredCount::incrementAndGet, t -> {});
+	}
+
+	@AfterEach
+	public void tearDown() {
+		table.close();
+		expiry.shutdown();
+	}
+
+	// a minimal resource providing its locator's path only
+	private static DavResource resource(String path) {
+		var locator = (DavResourceLocator) Proxy.newProxyInstance(LockTableTest.class.getClassLoader(), new Class<?>[]{DavResourceLocator.class}, (proxy, method, args) -> switch (method.getName()) {
+			case "getResourcePath" -> path;
+			default -> throw new UnsupportedOperationException(method.getName());
+		});
+		return (DavResource) Proxy.newProxyInstance(LockTableTest.class.getClassLoader(), new Class<?>[]{DavResource.class}, (proxy, method, args) -> switch (method.getName()) {
+			case "getLocator" -> locator;
+			default -> throw new UnsupportedOperationException(method.getName());
+		});
+	}
+
+	private static LockInfo lockInfo(String scope, boolean deep, long timeout) {
+		return new LockInfo("exclusive".equals(scope) ? Scope.EXCLUSIVE : Scope.SHARED, Type.WRITE, "owner", timeout, deep);
+	}
+
+	private static LockInfo lockInfo(String scope, boolean deep) {
+		return lockInfo(scope, deep, DavConstants.INFINITE_TIMEOUT);
+	}
+
+	private ActiveLock lock(String path, String scope, boolean deep) throws DavException {
+		return table.createLock(lockInfo(scope, deep), resource(path));
+	}
+
+	@Nested
+	public class Conflicts {
+
+		@ParameterizedTest(name = "{0} on /foo/bar, then {1} (deep: {2}) on {3} -> {4}")
+		@CsvSource(value = {
+				// same path:
+				"exclusive, exclusive, false, /foo/bar, 423",
+				"exclusive, shared, false, /foo/bar, 423",
+				"shared, exclusive, false, /foo/bar, 423",
+				"shared, shared, false, /foo/bar, 0",
+				// deep lock on an ancestor covers descendants:
+				"exclusive, exclusive, false, /foo/bar/baz, 423",
+				"exclusive, shared, true, /foo/bar/baz/qux, 423",
+				"shared, exclusive, false, /foo/bar/baz, 423",
+				"shared, shared, false, /foo/bar/baz, 0",
+				// locks below conflict with deep locks on ancestors:
+				"exclusive, exclusive, true, /foo, 409",
+				"exclusive, shared, true, /, 409",
+				"shared, exclusive, true, /foo, 409",
+				"shared, shared, true, /, 0",
+				// ...but only with depth-0 locks on their parent:
+				"exclusive, exclusive, false, /foo, 409",
+				"exclusive, shared, false, /foo, 409",
+				"shared, exclusive, false, /foo, 409",
+				"shared, shared, false, /foo, 0",
+				"exclusive, exclusive, false, /, 0",
+				// unrelated paths:
+				"exclusive, exclusive, true, /foo/baz, 0",
+				"exclusive, exclusive, true, /foo/barbaz, 0",
+		})
+		public void testConflicts(String first, String second, boolean deep, String path, int expectedStatus) throws DavException {
+			lock("/foo/bar", first, true);
+
+			if (expectedStatus == 0) {
+				Assertions.assertNotNull(lock(path, second, deep));
+				Assertions.assertEquals(2, table.size());
+			} else {
+				var e = Assertions.assertThrows(DavException.class, () -> lock(path, second, deep));
+				Assertions.assertEquals(expectedStatus, e.getErrorCode());
+				Assertions.assertEquals(1, table.size());
+			}
+		}
+
+		@Test
+		public void testDepthZeroLockDoesNotCoverChildren() throws DavException {
+			lock("/foo", "exclusive", false);
+
+			Assertions.assertNotNull(lock("/foo/bar", "exclusive", true));
+		}
+
+		@Test
+		public void testTrailingAndLeadingSlashesAreIgnored() throws DavException {
+			lock("/foo/bar/", "exclusive", false);
+
+			var e = Assertions.assertThrows(DavException.class, () -> lock("foo/bar", "exclusive", false));
+			Assertions.assertEquals(DavServletResponse.SC_LOCKED, e.getErrorCode());
+		}
+
+		@Test
+		public void testReleasedLockDoesNotConflict() throws DavException {
+			var lock = lock("/foo/bar", "exclusive", true);
+			table.releaseLock(lock.getToken(), resource("/foo/bar"));
+
+			Assertions.assertNotNull(lock("/foo", "exclusive", true));
+			Assertions.assertEquals(1, table.size());
+		}
+
+	}
+
+	@Nested
+	public class Lookup {
+
+		@Test
+		public void testGetLockOfPath() throws DavException {
+			var lock = lock("/foo", "exclusive", false);
+
+			Assertions.assertSame(lock, table.getLock(Type.WRITE, Scope.EXCLUSIVE, resource("/foo")));
+			Assertions.assertNull(table.getLock(Type.WRITE, Scope.SHARED, resource("/foo")));
+			Assertions.assertNull(table.getLock(Type.WRITE, Scope.EXCLUSIVE, resource("/")));
+		}
+
+		@ParameterizedTest
+		@ValueSource(booleans = {true, false})
+		public void testGetLockOfAncestor(boolean deep) throws DavException {
+			var lock = lock("/foo", "exclusive", deep);
+
+			var found = table.getLock(Type.WRITE, Scope.EXCLUSIVE, resource("/foo/bar/baz"));
+
+			Assertions.assertEquals(deep ? lock : null, found);
+		}
+
+		@Test
+		public void testHasLock() throws DavException {
+			var lock = lock("/foo", "shared", true);
+
+			Assertions.assertTrue(table.hasLock(lock.getToken(), resource("/foo")));
+			Assertions.assertFalse(table.hasLock(lock.getToken(), resource("/foo/bar")));
+			Assertions.assertFalse(table.hasLock("opaquelocktoken:other", resource("/foo")));
+		}
+
+	}
+
+	@Nested
+	public class Release {
+
+		@Test
+		public void testRelease() throws DavException {
+			var lock = lock("/foo", "exclusive", false);
+
+			table.releaseLock(lock.getToken(), resource("/foo"));
+
+			Assertions.assertEquals(0, table.size());
+			Assertions.assertFalse(table.hasLock(lock.getToken(), resource("/foo")));
+			Assertions.assertNull(table.getLock(Type.WRITE, Scope.EXCLUSIVE, resource("/foo")));
+		}
+
+		@Test
+		public void testReleaseWithDifferentToken() throws DavException {
+			lock("/foo", "exclusive", false);
+
+			var e = Assertions.assertThrows(DavException.class, () -> table.releaseLock("opaquelocktoken:other", resource("/foo")));
+
+			Assertions.assertEquals(DavServletResponse.SC_LOCKED, e.getErrorCode());
+			Assertions.assertEquals(1, table.size());
+		}
+
+		@Test
+		public void testReleaseUnlockedPath() {
+			Assertions.assertDoesNotThrow(() -> table.releaseLock("opaquelocktoken:other", resource("/foo")));
+		}
+
+		@Test
+		public void testCloseDiscardsAllLocks() throws DavException {
+			var lock = lock("/foo", "exclusive", true);
+			lock("/bar", "shared", false);
+
+			table.close();
+
+			Assertions.assertEquals(0, table.size());
+			Assertions.assertFalse(table.hasLock(lock.getToken(), resource("/foo")));
+			Assertions.assertNotNull(lock("/foo/baz", "exclusive", true));
+		}
+
+	}
+
+	@Nested
+	public class Refresh {
+
+		@Test
+		public void testRefresh() throws DavException {
+			var lock = table.createLock(lockInfo("exclusive", false, 60_000), resource("/foo"));
+
+			var refreshed = table.refreshLock(lockInfo("exclusive", false, 3_600_000), lock.getToken(), resource("/foo"));
+
+			Assertions.assertSame(lock, refreshed);
+			Assertions.assertTrue(refreshed.getTimeout() > 60_000);
+		}
+
+		@Test
+		public void testRefreshUnlockedPath() {
+			var e = Assertions.assertThrows(DavException.class, () -> table.refreshLock(lockInfo("exclusive", false), "opaquelocktoken:other", resource("/foo")));
+
+			Assertions.assertEquals(DavServletResponse.SC_PRECONDITION_FAILED, e.getErrorCode());
+		}
+
+		@Test
+		public void testRefreshWithDifferentToken() throws DavException {
+			lock("/foo", "exclusive", false);
+
+			var e = Assertions.assertThrows(DavException.class, () -> table.refreshLock(lockInfo("exclusive", false), "opaquelocktoken:other", resource("/foo")));
+
+			Assertions.assertEquals(DavServletResponse.SC_LOCKED, e.getErrorCode());
+		}
+
+	}
+
+	@Nested
+	public class Expiry {
+
+		@ParameterizedTest
+		@ValueSource(longs = {0, DavConstants.INFINITE_TIMEOUT})
+		public void testNeverExpires(long timeout) throws DavException {
+			var lock = table.createLock(lockInfo("exclusive", false, timeout), resource("/foo"));
+
+			Assertions.assertFalse(lock.isExpired());
+			Assertions.assertEquals(DavConstants.INFINITE_TIMEOUT, lock.getTimeout());
+		}
+
+		@Test
+		public void testExpiredLockIsIgnoredAndRemoved() throws DavException {
+			var lock = table.createLock(lockInfo("exclusive", true, 50), resource("/foo"));
+
+			Assertions.assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+				while (table.size() > 0) {
+					Thread.sleep(TICK_MILLIS);
+				}
+			});
+
+			Assertions.assertTrue(lock.isExpired());
+			Assertions.assertEquals(1, expiredCount.get());
+			Assertions.assertFalse(table.hasLock(lock.getToken(), resource("/foo")));
+			Assertions.assertNull(table.getLock(Type.WRITE, Scope.EXCLUSIVE, resource("/foo/bar")));
+			Assertions.assertNotNull(lock("/foo/bar", "exclusive", true));
+		}
+
+		@Test
+		public void testRefreshedLockIsNotRemoved() throws DavException, InterruptedException {
+			var lock = table.createLock(lockInfo("exclusive", false, 50), resource("/foo"));
+
+			table.refreshLock(lockInfo("exclusive", false, 60_000), lock.getToken(), resource("/foo"));
+			Thread.sleep(200);
+
+			Assertions.assertEquals(1, table.size());
+			Assertions.assertEquals(0, expiredCount.get());
+			Assertions.assertTrue(table.hasLock(lock.getToken(), resource("/foo")));
+		}
+
+		@Test
+		public void testShortenedLockIsRemoved() throws DavException {
+			var lock = table.createLock(lockInfo("exclusive", false, 60_000), resource("/foo"));
+
+			table.refreshLock(lockInfo("exclusive", false, 50), lock.getToken(), resource("/foo"));
+
+			Assertions.assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+				while (table.size() > 0) {
+					Thread.sleep(TICK_MILLIS);
+				}
+			});
+			Assertions.assertEquals(1, expiredCount.get());
+		}
+
+		@Test
+		public void testReleasedLockIsNotExpiredAgain() throws DavException, InterruptedException {
+			var lock = table.createLock(lockInfo("exclusive", false, 50), resource("/foo"));
+
+			table.releaseLock(lock.getToken(), resource("/foo"));
+			Thread.sleep(200);
+
+			Assertions.assertEquals(0, table.size());
+			Assertions.assertEquals(0, expiredCount.get());
+		}
+
+	}
+
+}
@@ -0,0 +1,210 @@
+package org.cryptomator.frontend.webdav.servlet;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import javax.servlet.http.HttpServletRequest;
+import java.lang.reflect.Proxy;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class PreconditionsTest {
+
+	private static final long SIZE = 1234;
+	private static final long MODIFICATION_TIME = 1_700_000_000_123L; // has a millisecond fraction
+	private static final String ENTITY_TAG = Preconditions.entityTag(SIZE, MODIFICATION_TIME);
+
+	// a minimal request providing headers and attributes only
+	private static HttpServletRequest request(String... headerNamesAndValues) {
+		Map<String, List<String>> headers = new HashMap<>();
+		for (int i = 0; i < headerNamesAndValues.length; i += 2) {
+			headers.computeIfAbsent(headerNamesAndValues[i].toLowerCase(), k -> new ArrayList<>()).add(headerNamesAndValues[i + 1]);
+		}
+		Map<String, Object> attributes = new HashMap<>();
+		return (HttpServletRequest) Proxy.newProxyInstance(PreconditionsTest.class.getClassLoader(), new Class<?>[]{HttpServletRequest.class}, (proxy, method, args) -> switch (method.getName()) {
+			case "getHeader" -> headers.getOrDefault(((String) args[0]).toLowerCase(), List.of()).stream().findFirst().orElse(null);
+			case "getHeaders" -> Collections.enumeration(headers.getOrDefault(((String) args[0]).toLowerCase(), List.of()));
+			case "getAttribute" -> attributes.get((String) args[0]);
+			case "setAttribute" -> attributes.put((String) args[0], args[1]);
+			default -> throw new UnsupportedOperationException(method.getName());
+		});
+	}
+
+	private static String httpDate(long millis) {
+		return DateTimeFormatter.RFC_1123_DATE_TIME.format(Instant.ofEpochMilli(millis).atOffset(ZoneOffset.UTC));
+	}
+
+	@Nested
+	public class EntityTag {
+
+		@Test
+		public void testStrongEntityTag() {
+			Assertions.assertEquals("\"4d2-18bcfe5687b\"", ENTITY_TAG);
+		}
+
+		@Test
+		public void testDiffersBySize() {
+			Assertions.assertNotEquals(ENTITY_TAG, Preconditions.entityTag(SIZE + 1, MODIFICATION_TIME));
+		}
+
+		@Test
+		public void testDiffersByMillisecond() {
+			Assertions.assertNotEquals(ENTITY_TAG, Preconditions.entityTag(SIZE, MODIFICATION_TIME + 1));
+		}
+
+		@Test
+		public void testUnknownModificationTime() {
+			Assertions.assertNull(Preconditions.entityTag(SIZE, -1));
+		}
+
+	}
+
+	@Nested
+	public class Evaluate {
+
+		@Test
+		public void testNoConditions() {
+			Assertions.assertEquals(Preconditions.Result.PASSED, Preconditions.evaluate(request(), true, ENTITY_TAG, MODIFICATION_TIME, true));
+		}
+
+		@ParameterizedTest
+		@CsvSource(delimiter = '|', value = {
+				"\"4d2-18bcfe5687b\"                 | true  | PASSED",
+				"\"other\", \"4d2-18bcfe5687b\"      | true  | PASSED",
+				"\"other\"                           | true  | FAILED",
+				"W/\"4d2-18bcfe5687b\"               | true  | FAILED", // strong comparison
+				"*                                   | true  | PASSED",
+				"*                                   | false | FAILED",
+		})
+		public void testIfMatch(String ifMatch, boolean exists, Preconditions.Result expected) {
+			Assertions.assertEquals(expected, Preconditions.evaluate(request("If-Match", ifMatch), exists, ENTITY_TAG, MODIFICATION_TIME, false));
+		}
+
+		@ParameterizedTest
+		@CsvSource(delimiter = '|', value = {
+				"\"4d2-18bcfe5687b\"   | true  | true  | NOT_MODIFIED",
+				"W/\"4d2-18bcfe5687b\" | true  | true  | NOT_MODIFIED", // weak comparison
+				"\"4d2-18bcfe5687b\"   | true  | false | FAILED",
+				"\"other\"             | true  | true  | PASSED",
+				"*                     | true  | true  | NOT_MODIFIED",
+				"*                     | true  | false | FAILED",
+				"*                     | false | false | PASSED",
+		})
+		public void testIfNoneMatch(String ifNoneMatch, boolean exists, boolean safe, Preconditions.Result expected) {
+			Assertions.assertEquals(expected, Preconditions.evaluate(request("If-None-Match", ifNoneMatch), exists, ENTITY_TAG, MODIFICATION_TIME, safe));
+		}
+
+		@Test
+		public void testIfMatchTakesPrecedenceOverIfNoneMatch() {
+			var request = request("If-Match", "\"other\"", "If-None-Match", ENTITY_TAG);
+
+			Assertions.assertEquals(Preconditions.Result.FAILED, Preconditions.evaluate(request, true, ENTITY_TAG, MODIFICATION_TIME, true));
+		}
+
+		@Test
+		public void testIfModifiedSinceSameSecond() {
+			var request = request("If-Modified-Since", httpDate(MODIFICATION_TIME));
+
+			Assertions.assertEquals(Preconditions.Result.NOT_MODIFIED, Preconditions.evaluate(request, true, ENTITY_TAG, MODIFICATION_TIME, true));
+		}
+
+		@Test
+		public void testIfModifiedSinceEarlier() {
+			var request = request("If-Modified-Since", httpDate(MODIFICATION_TIME - 1000));
+
+			Assertions.assertEquals(Preconditions.Result.PASSED, Preconditions.evaluate(request, true, ENTITY_TAG, MODIFICATION_TIME, true));
+		}
+
+		@Test
+		public void testIfModifiedSinceIgnoredForUnsafeMethods() {
+			var request = request("If-Modified-Since", httpDate(MODIFICATION_TIME));
+
+			Assertions.assertEquals(Preconditions.Result.PASSED, Preconditions.evaluate(request, true, ENTITY_TAG, MODIFICATION_TIME, false));
+		}
+
+		@Test
+		public void testIfModifiedSinceIgnoredIfIfNoneMatchPresent() {
+			var request = request("If-None-Match", "\"other\"", "If-Modified-Since", httpDate(MODIFICATION_TIME));
+
+			Assertions.assertEquals(Preconditions.Result.PASSED, Preconditions.evaluate(request, true, ENTITY_TAG, MODIFICATION_TIME, true));
+		}
+
+		@Test
+		public void testMalformedIfModifiedSince() {
+			var request = request("If-Modified-Since", "yesterday");
+
+			Assertions.assertEquals(Preconditions.Result.PASSED, Preconditions.evaluate(request, true, ENTITY_TAG, MODIFICATION_TIME, true));
+		}
+
+	}
+
+	@Nested
+	public class IfRange {
+
+		@Test
+		public void testAbsent() {
+			Assertions.assertTrue(Preconditions.isIfRangeSatisfied(request(), ENTITY_TAG, MODIFICATION_TIME));
+		}
+
+		@Test
+		public void testMatchingEntityTag() {
+			var request = request("If-Range", ENTITY_TAG);
+			var hidden = Preconditions.hideEntityTagIfRange(request);
+
+			Assertions.assertNull(hidden.getHeader("If-Range"));
+			Assertions.assertFalse(hidden.getHeaders("If-Range").hasMoreElements());
+			Assertions.assertTrue(Preconditions.isIfRangeSatisfied(hidden, ENTITY_TAG, MODIFICATION_TIME));
+		}
+
+		@Test
+		public void testOtherEntityTag() {
+			var hidden = Preconditions.hideEntityTagIfRange(request("If-Range", "\"other\""));
+
+			Assertions.assertFalse(Preconditions.isIfRangeSatisfied(hidden, ENTITY_TAG, MODIFICATION_TIME));
+		}
+
+		@Test
+		public void testWeakEntityTag() {
+			var hidden = Preconditions.hideEntityTagIfRange(request("If-Range", "W/" + ENTITY_TAG));
+
+			Assertions.assertFalse(Preconditions.isIfRangeSatisfied(hidden, ENTITY_TAG, MODIFICATION_TIME));
+		}
+
+		@Test
+		public void testDateIsNotHidden() {
+			var request = request("If-Range", httpDate(MODIFICATION_TIME));
+
+			Assertions.assertSame(request, Preconditions.hideEntityTagIfRange(request));
+		}
+
+		@Test
+		public void testSameDate() {
+			// Last-Modified and thus If-Range have a resolution of seconds only:
+			var request = request("If-Range", httpDate(MODIFICATION_TIME));
+
+			Assertions.assertTrue(Preconditions.isIfRangeSatisfied(request, ENTITY_TAG, MODIFICATION_TIME));
+		}
+
+		@Test
+		public void testOtherDate() {
+			Assertions.assertFalse(Preconditions.isIfRangeSatisfied(request("If-Range", httpDate(MODIFICATION_TIME - 1000)), ENTITY_TAG, MODIFICATION_TIME));
+			Assertions.assertFalse(Preconditions.isIfRangeSatisfied(request("If-Range", httpDate(MODIFICATION_TIME + 1000)), ENTITY_TAG, MODIFICATION_TIME));
+		}
+
+		@Test
+		public void testMalformedDate() {
+			Assertions.assertFalse(Preconditions.isIfRangeSatisfied(request("If-Range", "yesterday"), ENTITY_TAG, MODIFICATION_TIME));
+		}
+
+	}
+
+}
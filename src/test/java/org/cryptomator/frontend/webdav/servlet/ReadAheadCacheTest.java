@@ -0,0 +1,153 @@
+package org.cryptomator.frontend.webdav.servlet;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+public class ReadAheadCacheTest {
+
+	private static final int FILE_SIZE = 4 * ReadAheadCache.BLOCK_SIZE;
+	private static final long MODIFICATION_TIME = 42L;
+
+	@TempDir
+	private Path tmpDir;
+	private Path dir;
+	private Path file;
+	private ChannelPool channelPool;
+	private ReadAheadCache cache;
+
+	@BeforeEach
+	public void setup() throws IOException {
+		dir = Files.createDirectory(tmpDir.resolve("dir"));
+		file = dir.resolve("file.bin");
+		fill(file, (byte) 1);
+		channelPool = new ChannelPool(0, 0, pool -> {});
+		cache = new ReadAheadCache(FILE_SIZE, 2, Runnable::run, channelPool);
+	}
+
+	// overwrites the file with the same size, while the cache is still told the previous modification time, so cached blocks are distinguishable by content
+	private static void fill(Path file, byte value) throws IOException {
+		var content = new byte[FILE_SIZE];
+		Arrays.fill(content, value);
+		Files.write(file, content);
+	}
+
+	private byte[] send(Path path, long offset, int length) throws IOException {
+		var out = new ByteArrayOutputStream();
+		try (var sender = new FileContentSender(channelPool, path, MODIFICATION_TIME, out)) {
+			cache.send(sender, path, MODIFICATION_TIME, FILE_SIZE, offset, length);
+		}
+		Assertions.assertEquals(length, out.size());
+		return out.toByteArray();
+	}
+
+	private static byte[] bytes(int length, byte value) {
+		var bytes = new byte[length];
+		Arrays.fill(bytes, value);
+		return bytes;
+	}
+
+	@Test
+	public void testRandomAccessIsNotCached() throws IOException {
+		send(file, 0, 100);
+		send(file, 3 * ReadAheadCache.BLOCK_SIZE, 100);
+		fill(file, (byte) 2);
+
+		Assertions.assertArrayEquals(bytes(100, (byte) 2), send(file, 100, 100));
+	}
+
+	@Test
+	public void testSequentialAccessIsPrefetched() throws IOException {
+		send(file, 0, 100);
+		send(file, 100, 100); // continues the previous range, prefetching blocks 0 and 1
+		fill(file, (byte) 2);
+
+		Assertions.assertArrayEquals(bytes(100, (byte) 1), send(file, 200, 100));
+		Assertions.assertArrayEquals(bytes(200, (byte) 1), send(file, ReadAheadCache.BLOCK_SIZE - 100, 200)); // spans blocks 0 and 1
+	}
+
+	@Test
+	public void testRangeSpanningCachedAndUncachedBlocks() throws IOException {
+		send(file, 0, 100);
+		send(file, 100, 100); // prefetches blocks 0 and 1
+		fill(file, (byte) 2);
+
+		var content = send(file, 2 * ReadAheadCache.BLOCK_SIZE - 100, 200);
+
+		Assertions.assertArrayEquals(bytes(100, (byte) 1), Arrays.copyOfRange(content, 0, 100));
+		Assertions.assertArrayEquals(bytes(100, (byte) 2), Arrays.copyOfRange(content, 100, 200));
+	}
+
+	@Test
+	public void testInvalidateFile() throws IOException {
+		send(file, 0, 100);
+		send(file, 100, 100);
+		fill(file, (byte) 2);
+
+		cache.invalidate(file);
+
+		Assertions.assertArrayEquals(bytes(100, (byte) 2), send(file, 200, 100));
+	}
+
+	@Test
+	public void testInvalidateParentDirectory() throws IOException {
+		send(file, 0, 100);
+		send(file, 100, 100);
+		fill(file, (byte) 2);
+
+		cache.invalidate(tmpDir);
+
+		Assertions.assertArrayEquals(bytes(100, (byte) 2), send(file, 200, 100));
+	}
+
+	@Test
+	public void testInvalidateKeepsOtherSubtrees() throws IOException {
+		var sibling = Files.createDirectory(tmpDir.resolve("dir2")); // shares the name's prefix, but isn't an ancestor
+		var siblingFile = sibling.resolve("file.bin");
+		fill(siblingFile, (byte) 1);
+		send(file, 0, 100);
+		send(file, 100, 100);
+		send(siblingFile, 0, 100);
+		send(siblingFile, 100, 100);
+		fill(file, (byte) 2);
+		fill(siblingFile, (byte) 2);
+
+		cache.invalidate(sibling);
+
+		Assertions.assertArrayEquals(bytes(100, (byte) 1), send(file, 200, 100));
+		Assertions.assertArrayEquals(bytes(100, (byte) 2), send(siblingFile, 200, 100));
+	}
+
+	@Test
+	public void testInvalidateResetsSequentialDetection() throws IOException {
+		send(file, 0, 100);
+		cache.invalidate(dir);
+
+		send(file, 100, 100); // not considered sequential anymore, hence no prefetching
+		fill(file, (byte) 2);
+
+		Assertions.assertArrayEquals(bytes(100, (byte) 2), send(file, 200, 100));
+	}
+
+	@Test
+	public void testEvictLeastRecentlyUsedBlocks() throws IOException {
+		cache = new ReadAheadCache(ReadAheadCache.BLOCK_SIZE, 1, Runnable::run, channelPool);
+		send(file, 0, 100);
+		send(file, 100, 100); // prefetches block 0
+		fill(file, (byte) 2);
+		Assertions.assertArrayEquals(bytes(100, (byte) 1), send(file, 200, 100));
+
+		send(file, 3 * ReadAheadCache.BLOCK_SIZE, 100);
+		send(file, 3 * ReadAheadCache.BLOCK_SIZE + 100, 100); // prefetches block 3, which evicts block 0
+
+		Assertions.assertArrayEquals(bytes(100, (byte) 2), send(file, 300, 100));
+	}
+
+}
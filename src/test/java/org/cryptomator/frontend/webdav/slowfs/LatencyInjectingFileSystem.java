@@ -0,0 +1,191 @@
+package org.cryptomator.frontend.webdav.slowfs;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.FileStore;
+import java.nio.file.FileSystem;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.UserPrincipalLookupService;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+/**
+ * Wraps a directory of the default file system, delaying each operation according to a {@link LatencyProfile}, in order to simulate slow storage backends.
+ * <p>
+ * Obtain a path to serve via {@link #wrap(Path, LatencyProfile)}. All paths derived from it are subject to the same profile.
+ * <code>FileChannel</code>s are not supported, so consumers need to use {@link java.nio.file.Files#newByteChannel(Path, java.nio.file.OpenOption...)}.
+ */
+public class LatencyInjectingFileSystem extends FileSystem {
+
+	private final LatencyInjectingFileSystemProvider provider;
+	private final FileSystem delegate;
+	private final LatencyProfile profile;
+	private final Semaphore concurrentOperations;
+	private final AtomicLong readAvailableAt = new AtomicLong(System.nanoTime());
+	private final AtomicLong writeAvailableAt = new AtomicLong(System.nanoTime());
+
+	private LatencyInjectingFileSystem(FileSystem delegate, LatencyProfile profile) {
+		this.provider = new LatencyInjectingFileSystemProvider(this);
+		this.delegate = delegate;
+		this.profile = profile;
+		this.concurrentOperations = profile.maxConcurrentOperations() > 0 ? new Semaphore(profile.maxConcurrentOperations(), true) : null;
+	}
+
+	/**
+	 * @param path A path of the default file system
+	 * @param profile The latencies to inject
+	 * @return The same path residing in a new file system that delays each operation according to the given profile
+	 */
+	public static Path wrap(Path path, LatencyProfile profile) {
+		return new LatencyInjectingFileSystem(path.getFileSystem(), profile).wrap(path);
+	}
+
+	LatencyInjectingPath wrap(Path delegatePath) {
+		return delegatePath == null ? null : new LatencyInjectingPath(this, delegatePath);
+	}
+
+	FileSystem delegate() {
+		return delegate;
+	}
+
+	LatencyProfile profile() {
+		return profile;
+	}
+
+	/**
+	 * Runs the given operation after the given latency, while holding a permit if concurrency is limited.
+	 */
+	<T> T simulate(Duration latency, IOOperation<T> operation) throws IOException {
+		acquire();
+		try {
+			sleep(profile.jittered(latency));
+			return operation.run();
+		} finally {
+			release();
+		}
+	}
+
+	/**
+	 * Runs the given transfer, delaying its completion until the shared bandwidth allowed transmitting the transferred bytes.
+	 */
+	int transfer(boolean write, IOOperation<Integer> transfer) throws IOException {
+		acquire();
+		try {
+			int bytes = transfer.run();
+			long bytesPerSecond = write ? profile.writeBytesPerSecond() : profile.readBytesPerSecond();
+			if (bytes > 0 && bytesPerSecond > 0) {
+				var availableAt = write ? writeAvailableAt : readAvailableAt;
+				long transmissionNanos = bytes * TimeUnit.SECONDS.toNanos(1) / bytesPerSecond;
+				long now = System.nanoTime();
+				long done = availableAt.accumulateAndGet(now, (next, n) -> Math.max(next, n) + transmissionNanos);
+				sleep(done - now);
+			}
+			return bytes;
+		} finally {
+			release();
+		}
+	}
+
+	private void acquire() throws InterruptedIOException {
+		if (concurrentOperations != null) {
+			try {
+				concurrentOperations.acquire();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException();
+			}
+		}
+	}
+
+	private void release() {
+		if (concurrentOperations != null) {
+			concurrentOperations.release();
+		}
+	}
+
+	private static void sleep(long nanos) throws InterruptedIOException {
+		if (nanos <= 0) {
+			return;
+		}
+		try {
+			TimeUnit.NANOSECONDS.sleep(nanos);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		}
+	}
+
+	@FunctionalInterface
+	interface IOOperation<T> {
+		T run() throws IOException;
+	}
+
+	@Override
+	public LatencyInjectingFileSystemProvider provider() {
+		return provider;
+	}
+
+	@Override
+	public void close() {
+		// the wrapped file system stays open
+	}
+
+	@Override
+	public boolean isOpen() {
+		return delegate.isOpen();
+	}
+
+	@Override
+	public boolean isReadOnly() {
+		return delegate.isReadOnly();
+	}
+
+	@Override
+	public String getSeparator() {
+		return delegate.getSeparator();
+	}
+
+	@Override
+	public Iterable<Path> getRootDirectories() {
+		return StreamSupport.stream(delegate.getRootDirectories().spliterator(), false).<Path>map(this::wrap).toList();
+	}
+
+	@Override
+	public Iterable<FileStore> getFileStores() {
+		return delegate.getFileStores();
+	}
+
+	@Override
+	public Set<String> supportedFileAttributeViews() {
+		return delegate.supportedFileAttributeViews().stream().collect(Collectors.toUnmodifiableSet());
+	}
+
+	@Override
+	public Path getPath(String first, String... more) {
+		return wrap(delegate.getPath(first, more));
+	}
+
+	@Override
+	public PathMatcher getPathMatcher(String syntaxAndPattern) {
+		var matcher = delegate.getPathMatcher(syntaxAndPattern);
+		return path -> matcher.matches(LatencyInjectingPath.unwrap(path));
+	}
+
+	@Override
+	public UserPrincipalLookupService getUserPrincipalLookupService() {
+		return delegate.getUserPrincipalLookupService();
+	}
+
+	@Override
+	public WatchService newWatchService() {
+		throw new UnsupportedOperationException();
+	}
+
+}
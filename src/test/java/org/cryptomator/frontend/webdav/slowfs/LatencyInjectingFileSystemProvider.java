@@ -0,0 +1,230 @@
+package org.cryptomator.frontend.webdav.slowfs;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.AccessMode;
+import java.nio.file.CopyOption;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileStore;
+import java.nio.file.FileSystem;
+import java.nio.file.LinkOption;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.FileAttributeView;
+import java.nio.file.spi.FileSystemProvider;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Provider of a single {@link LatencyInjectingFileSystem}. Not installed, as instances are created via {@link LatencyInjectingFileSystem#wrap(Path, LatencyProfile)}.
+ */
+class LatencyInjectingFileSystemProvider extends FileSystemProvider {
+
+	static final String SCHEME = "slowfs";
+
+	private final LatencyInjectingFileSystem fileSystem;
+
+	LatencyInjectingFileSystemProvider(LatencyInjectingFileSystem fileSystem) {
+		this.fileSystem = fileSystem;
+	}
+
+	private FileSystemProvider delegate() {
+		return fileSystem.delegate().provider();
+	}
+
+	private LatencyProfile profile() {
+		return fileSystem.profile();
+	}
+
+	@Override
+	public String getScheme() {
+		return SCHEME;
+	}
+
+	@Override
+	public FileSystem newFileSystem(URI uri, Map<String, ?> env) {
+		throw new UnsupportedOperationException("Use LatencyInjectingFileSystem.wrap()");
+	}
+
+	@Override
+	public FileSystem getFileSystem(URI uri) {
+		throw new UnsupportedOperationException("Use LatencyInjectingFileSystem.wrap()");
+	}
+
+	@Override
+	public Path getPath(URI uri) {
+		throw new UnsupportedOperationException("Use LatencyInjectingFileSystem.wrap()");
+	}
+
+	@Override
+	public SeekableByteChannel newByteChannel(Path path, Set<? extends OpenOption> options, FileAttribute<?>... attrs) throws IOException {
+		var channel = fileSystem.simulate(profile().open(), () -> delegate().newByteChannel(LatencyInjectingPath.unwrap(path), options, attrs));
+		return new ThrottledChannel(channel);
+	}
+
+	@Override
+	public DirectoryStream<Path> newDirectoryStream(Path dir, DirectoryStream.Filter<? super Path> filter) throws IOException {
+		var stream = fileSystem.simulate(profile().list(), () -> delegate().newDirectoryStream(LatencyInjectingPath.unwrap(dir), p -> filter.accept(fileSystem.wrap(p))));
+		return new DirectoryStream<>() {
+			@Override
+			public Iterator<Path> iterator() {
+				var iterator = stream.iterator();
+				return new Iterator<>() {
+					@Override
+					public boolean hasNext() {
+						return iterator.hasNext();
+					}
+
+					@Override
+					public Path next() {
+						return fileSystem.wrap(iterator.next());
+					}
+				};
+			}
+
+			@Override
+			public void close() throws IOException {
+				stream.close();
+			}
+		};
+	}
+
+	@Override
+	public void createDirectory(Path dir, FileAttribute<?>... attrs) throws IOException {
+		fileSystem.simulate(profile().mutate(), () -> {
+			delegate().createDirectory(LatencyInjectingPath.unwrap(dir), attrs);
+			return null;
+		});
+	}
+
+	@Override
+	public void delete(Path path) throws IOException {
+		fileSystem.simulate(profile().mutate(), () -> {
+			delegate().delete(LatencyInjectingPath.unwrap(path));
+			return null;
+		});
+	}
+
+	@Override
+	public void copy(Path source, Path target, CopyOption... options) throws IOException {
+		fileSystem.simulate(profile().mutate(), () -> {
+			delegate().copy(LatencyInjectingPath.unwrap(source), LatencyInjectingPath.unwrap(target), options);
+			return null;
+		});
+	}
+
+	@Override
+	public void move(Path source, Path target, CopyOption... options) throws IOException {
+		fileSystem.simulate(profile().mutate(), () -> {
+			delegate().move(LatencyInjectingPath.unwrap(source), LatencyInjectingPath.unwrap(target), options);
+			return null;
+		});
+	}
+
+	@Override
+	public boolean isSameFile(Path path, Path path2) throws IOException {
+		return delegate().isSameFile(LatencyInjectingPath.unwrap(path), LatencyInjectingPath.unwrap(path2));
+	}
+
+	@Override
+	public boolean isHidden(Path path) throws IOException {
+		return delegate().isHidden(LatencyInjectingPath.unwrap(path));
+	}
+
+	@Override
+	public FileStore getFileStore(Path path) throws IOException {
+		return fileSystem.simulate(profile().stat(), () -> delegate().getFileStore(LatencyInjectingPath.unwrap(path)));
+	}
+
+	@Override
+	public void checkAccess(Path path, AccessMode... modes) throws IOException {
+		fileSystem.simulate(profile().stat(), () -> {
+			delegate().checkAccess(LatencyInjectingPath.unwrap(path), modes);
+			return null;
+		});
+	}
+
+	@Override
+	public <V extends FileAttributeView> V getFileAttributeView(Path path, Class<V> type, LinkOption... options) {
+		return delegate().getFileAttributeView(LatencyInjectingPath.unwrap(path), type, options);
+	}
+
+	@Override
+	public <A extends BasicFileAttributes> A readAttributes(Path path, Class<A> type, LinkOption... options) throws IOException {
+		return fileSystem.simulate(profile().stat(), () -> delegate().readAttributes(LatencyInjectingPath.unwrap(path), type, options));
+	}
+
+	@Override
+	public Map<String, Object> readAttributes(Path path, String attributes, LinkOption... options) throws IOException {
+		return fileSystem.simulate(profile().stat(), () -> delegate().readAttributes(LatencyInjectingPath.unwrap(path), attributes, options));
+	}
+
+	@Override
+	public void setAttribute(Path path, String attribute, Object value, LinkOption... options) throws IOException {
+		fileSystem.simulate(profile().mutate(), () -> {
+			delegate().setAttribute(LatencyInjectingPath.unwrap(path), attribute, value, options);
+			return null;
+		});
+	}
+
+	/**
+	 * Limits the throughput of reads and writes to the bandwidth shared by all channels of the file system.
+	 */
+	private class ThrottledChannel implements SeekableByteChannel {
+
+		private final SeekableByteChannel delegate;
+
+		ThrottledChannel(SeekableByteChannel delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public int read(ByteBuffer dst) throws IOException {
+			return fileSystem.transfer(false, () -> delegate.read(dst));
+		}
+
+		@Override
+		public int write(ByteBuffer src) throws IOException {
+			return fileSystem.transfer(true, () -> delegate.write(src));
+		}
+
+		@Override
+		public long position() throws IOException {
+			return delegate.position();
+		}
+
+		@Override
+		public SeekableByteChannel position(long newPosition) throws IOException {
+			delegate.position(newPosition);
+			return this;
+		}
+
+		@Override
+		public long size() throws IOException {
+			return delegate.size();
+		}
+
+		@Override
+		public SeekableByteChannel truncate(long size) throws IOException {
+			delegate.truncate(size);
+			return this;
+		}
+
+		@Override
+		public boolean isOpen() {
+			return delegate.isOpen();
+		}
+
+		@Override
+		public void close() throws IOException {
+			delegate.close();
+		}
+
+	}
+
+}
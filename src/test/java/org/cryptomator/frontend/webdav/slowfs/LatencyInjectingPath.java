@@ -0,0 +1,151 @@
+package org.cryptomator.frontend.webdav.slowfs;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.ProviderMismatchException;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+
+/**
+ * A path of a {@link LatencyInjectingFileSystem}, backed by a path of the wrapped file system.
+ */
+class LatencyInjectingPath implements Path {
+
+	private final LatencyInjectingFileSystem fileSystem;
+	private final Path delegate;
+
+	LatencyInjectingPath(LatencyInjectingFileSystem fileSystem, Path delegate) {
+		this.fileSystem = fileSystem;
+		this.delegate = delegate;
+	}
+
+	static Path unwrap(Path path) {
+		if (path instanceof LatencyInjectingPath p) {
+			return p.delegate;
+		} else {
+			throw new ProviderMismatchException();
+		}
+	}
+
+	private Path toDelegateFs(Path other) {
+		if (other instanceof LatencyInjectingPath p) {
+			return p.delegate;
+		} else {
+			return delegate.getFileSystem().getPath(other.toString());
+		}
+	}
+
+	@Override
+	public LatencyInjectingFileSystem getFileSystem() {
+		return fileSystem;
+	}
+
+	@Override
+	public boolean isAbsolute() {
+		return delegate.isAbsolute();
+	}
+
+	@Override
+	public Path getRoot() {
+		return fileSystem.wrap(delegate.getRoot());
+	}
+
+	@Override
+	public Path getFileName() {
+		return fileSystem.wrap(delegate.getFileName());
+	}
+
+	@Override
+	public Path getParent() {
+		return fileSystem.wrap(delegate.getParent());
+	}
+
+	@Override
+	public int getNameCount() {
+		return delegate.getNameCount();
+	}
+
+	@Override
+	public Path getName(int index) {
+		return fileSystem.wrap(delegate.getName(index));
+	}
+
+	@Override
+	public Path subpath(int beginIndex, int endIndex) {
+		return fileSystem.wrap(delegate.subpath(beginIndex, endIndex));
+	}
+
+	@Override
+	public boolean startsWith(Path other) {
+		return other instanceof LatencyInjectingPath p && delegate.startsWith(p.delegate);
+	}
+
+	@Override
+	public boolean endsWith(Path other) {
+		return other instanceof LatencyInjectingPath p && delegate.endsWith(p.delegate);
+	}
+
+	@Override
+	public Path normalize() {
+		return fileSystem.wrap(delegate.normalize());
+	}
+
+	@Override
+	public Path resolve(Path other) {
+		return fileSystem.wrap(delegate.resolve(toDelegateFs(other)));
+	}
+
+	@Override
+	public Path relativize(Path other) {
+		return fileSystem.wrap(delegate.relativize(toDelegateFs(other)));
+	}
+
+	@Override
+	public URI toUri() {
+		try {
+			return new URI(LatencyInjectingFileSystemProvider.SCHEME, null, delegate.toAbsolutePath().toUri().getPath(), null);
+		} catch (URISyntaxException e) {
+			throw new IllegalStateException("Path of delegate is a valid URI path", e);
+		}
+	}
+
+	@Override
+	public Path toAbsolutePath() {
+		return fileSystem.wrap(delegate.toAbsolutePath());
+	}
+
+	@Override
+	public Path toRealPath(LinkOption... options) throws IOException {
+		return fileSystem.wrap(delegate.toRealPath(options));
+	}
+
+	@Override
+	public WatchKey register(WatchService watcher, WatchEvent.Kind<?>[] events, WatchEvent.Modifier... modifiers) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public int compareTo(Path other) {
+		return delegate.compareTo(unwrap(other));
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		return obj instanceof LatencyInjectingPath p && p.fileSystem == fileSystem && p.delegate.equals(delegate);
+	}
+
+	@Override
+	public int hashCode() {
+		return delegate.hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return delegate.toString();
+	}
+
+}
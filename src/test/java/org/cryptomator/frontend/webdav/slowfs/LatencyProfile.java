@@ -0,0 +1,51 @@
+package org.cryptomator.frontend.webdav.slowfs;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Characteristics of a slow storage backend simulated by {@link LatencyInjectingFileSystem}.
+ *
+ * @param stat Latency of reading attributes or checking the existence of a file
+ * @param open Latency of opening a file
+ * @param list Latency of opening a directory stream
+ * @param mutate Latency of creating, deleting, moving or copying a file or directory or of changing its attributes
+ * @param jitter Relative random deviation of each latency, e.g. <code>0.5</code> for latencies varying between 50% and 150% of the configured value
+ * @param readBytesPerSecond Throughput of reads shared by all channels or <code>0</code> for no limit
+ * @param writeBytesPerSecond Throughput of writes shared by all channels or <code>0</code> for no limit
+ * @param maxConcurrentOperations Maximum number of operations being processed concurrently, while others wait, or <code>0</code> for no limit
+ */
+public record LatencyProfile(Duration stat, Duration open, Duration list, Duration mutate, double jitter, long readBytesPerSecond, long writeBytesPerSecond, int maxConcurrentOperations) {
+
+	public static final LatencyProfile NONE = new LatencyProfile(Duration.ZERO, Duration.ZERO, Duration.ZERO, Duration.ZERO, 0, 0, 0, 0);
+
+	public LatencyProfile {
+		Objects.requireNonNull(stat);
+		Objects.requireNonNull(open);
+		Objects.requireNonNull(list);
+		Objects.requireNonNull(mutate);
+		if (jitter < 0 || jitter > 1) {
+			throw new IllegalArgumentException("Jitter must be between 0 and 1");
+		}
+		if (readBytesPerSecond < 0 || writeBytesPerSecond < 0 || maxConcurrentOperations < 0) {
+			throw new IllegalArgumentException("Limits must not be negative");
+		}
+	}
+
+	/**
+	 * A typical encrypted cloud-synced directory, where each file system operation involves a few milliseconds of I/O and crypto.
+	 */
+	public static LatencyProfile cloudSynced() {
+		return new LatencyProfile(Duration.ofMillis(2), Duration.ofMillis(5), Duration.ofMillis(10), Duration.ofMillis(15), 0.5, 50L << 20, 20L << 20, 16);
+	}
+
+	long jittered(Duration latency) {
+		long nanos = latency.toNanos();
+		if (nanos == 0 || jitter == 0) {
+			return nanos;
+		}
+		return (long) (nanos * (1 + jitter * (2 * ThreadLocalRandom.current().nextDouble() - 1)));
+	}
+
+}
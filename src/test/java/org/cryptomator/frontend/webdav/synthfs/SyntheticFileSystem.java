@@ -0,0 +1,127 @@
+package org.cryptomator.frontend.webdav.synthfs;
+
+import java.nio.file.FileStore;
+import java.nio.file.FileSystem;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.UserPrincipalLookupService;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A read-only file system consisting of a single root directory with an arbitrary number of empty files, none of which occupy any memory or disk space.
+ * <p>
+ * Files are named <code>file-0000000</code>, <code>file-0000001</code>, ... and listed in this order. Obtain the root directory via {@link #create(int)}.
+ */
+public class SyntheticFileSystem extends FileSystem {
+
+	static final String SEPARATOR = "/";
+
+	private final SyntheticFileSystemProvider provider;
+	private final int fileCount;
+
+	private SyntheticFileSystem(int fileCount) {
+		this.provider = new SyntheticFileSystemProvider(this);
+		this.fileCount = fileCount;
+	}
+
+	/**
+	 * @param fileCount Number of files in the root directory
+	 * @return The root directory of a new file system
+	 */
+	public static Path create(int fileCount) {
+		return new SyntheticFileSystem(fileCount).root();
+	}
+
+	SyntheticPath root() {
+		return new SyntheticPath(this, true, "");
+	}
+
+	int fileCount() {
+		return fileCount;
+	}
+
+	static String fileName(int index) {
+		return String.format("file-%07d", index);
+	}
+
+	/**
+	 * @return The index of the file with the given name or <code>-1</code> if there is no such file
+	 */
+	int indexOf(String fileName) {
+		if (!fileName.startsWith("file-") || fileName.length() != 12) {
+			return -1;
+		}
+		try {
+			int index = Integer.parseInt(fileName.substring(5));
+			return index < fileCount ? index : -1;
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+
+	@Override
+	public SyntheticFileSystemProvider provider() {
+		return provider;
+	}
+
+	@Override
+	public void close() {
+		// nothing to release
+	}
+
+	@Override
+	public boolean isOpen() {
+		return true;
+	}
+
+	@Override
+	public boolean isReadOnly() {
+		return true;
+	}
+
+	@Override
+	public String getSeparator() {
+		return SEPARATOR;
+	}
+
+	@Override
+	public Iterable<Path> getRootDirectories() {
+		return List.of(root());
+	}
+
+	@Override
+	public Iterable<FileStore> getFileStores() {
+		return List.of();
+	}
+
+	@Override
+	public Set<String> supportedFileAttributeViews() {
+		return Set.of("basic");
+	}
+
+	@Override
+	public Path getPath(String first, String... more) {
+		var path = more.length == 0 ? first : first + SEPARATOR + String.join(SEPARATOR, more);
+		var absolute = path.startsWith(SEPARATOR);
+		var name = path.replaceAll("^/+|/+$", ""); // nested paths keep their separators and simply don't exist
+		return new SyntheticPath(this, absolute, name);
+	}
+
+	@Override
+	public PathMatcher getPathMatcher(String syntaxAndPattern) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public UserPrincipalLookupService getUserPrincipalLookupService() {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public WatchService newWatchService() {
+		throw new UnsupportedOperationException();
+	}
+
+}
@@ -0,0 +1,223 @@
+package org.cryptomator.frontend.webdav.synthfs;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.AccessMode;
+import java.nio.file.CopyOption;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileStore;
+import java.nio.file.FileSystem;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.NotDirectoryException;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.ReadOnlyFileSystemException;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.FileAttributeView;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.spi.FileSystemProvider;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Provider of a single {@link SyntheticFileSystem}. Not installed, as instances are created via {@link SyntheticFileSystem#create(int)}.
+ */
+class SyntheticFileSystemProvider extends FileSystemProvider {
+
+	static final String SCHEME = "synthfs";
+	private static final FileTime TIMESTAMP = FileTime.from(Instant.parse("2020-01-01T00:00:00Z"));
+
+	private final SyntheticFileSystem fileSystem;
+
+	SyntheticFileSystemProvider(SyntheticFileSystem fileSystem) {
+		this.fileSystem = fileSystem;
+	}
+
+	@Override
+	public String getScheme() {
+		return SCHEME;
+	}
+
+	@Override
+	public FileSystem newFileSystem(URI uri, Map<String, ?> env) {
+		throw new UnsupportedOperationException("Use SyntheticFileSystem.create()");
+	}
+
+	@Override
+	public FileSystem getFileSystem(URI uri) {
+		throw new UnsupportedOperationException("Use SyntheticFileSystem.create()");
+	}
+
+	@Override
+	public Path getPath(URI uri) {
+		throw new UnsupportedOperationException("Use SyntheticFileSystem.create()");
+	}
+
+	@Override
+	public SeekableByteChannel newByteChannel(Path path, Set<? extends OpenOption> options, FileAttribute<?>... attrs) throws IOException {
+		throw new UnsupportedOperationException("Files have no content");
+	}
+
+	@Override
+	public DirectoryStream<Path> newDirectoryStream(Path dir, DirectoryStream.Filter<? super Path> filter) throws IOException {
+		checkIsRoot(dir);
+		var root = fileSystem.root();
+		return new DirectoryStream<>() {
+			@Override
+			public Iterator<Path> iterator() {
+				return new Iterator<>() {
+					private int next = 0;
+
+					@Override
+					public boolean hasNext() {
+						return next < fileSystem.fileCount();
+					}
+
+					@Override
+					public Path next() {
+						if (!hasNext()) {
+							throw new NoSuchElementException();
+						}
+						return root.resolve(SyntheticFileSystem.fileName(next++));
+					}
+				};
+			}
+
+			@Override
+			public void close() {
+				// nothing to release
+			}
+		};
+	}
+
+	private void checkIsRoot(Path dir) throws IOException {
+		var path = SyntheticPath.cast(dir);
+		if (path.fileIndex() != -1) {
+			throw new NotDirectoryException(dir.toString());
+		} else if (!path.isRoot()) {
+			throw new NoSuchFileException(dir.toString());
+		}
+	}
+
+	@Override
+	public void createDirectory(Path dir, FileAttribute<?>... attrs) {
+		throw new ReadOnlyFileSystemException();
+	}
+
+	@Override
+	public void delete(Path path) {
+		throw new ReadOnlyFileSystemException();
+	}
+
+	@Override
+	public void copy(Path source, Path target, CopyOption... options) {
+		throw new ReadOnlyFileSystemException();
+	}
+
+	@Override
+	public void move(Path source, Path target, CopyOption... options) {
+		throw new ReadOnlyFileSystemException();
+	}
+
+	@Override
+	public boolean isSameFile(Path path, Path path2) {
+		return path.toAbsolutePath().equals(path2.toAbsolutePath());
+	}
+
+	@Override
+	public boolean isHidden(Path path) {
+		return false;
+	}
+
+	@Override
+	public FileStore getFileStore(Path path) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public void checkAccess(Path path, AccessMode... modes) throws IOException {
+		readAttributes(path, BasicFileAttributes.class);
+		for (var mode : modes) {
+			if (mode == AccessMode.WRITE) {
+				throw new ReadOnlyFileSystemException();
+			}
+		}
+	}
+
+	@Override
+	public <V extends FileAttributeView> V getFileAttributeView(Path path, Class<V> type, LinkOption... options) {
+		return null;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public <A extends BasicFileAttributes> A readAttributes(Path path, Class<A> type, LinkOption... options) throws IOException {
+		if (type != BasicFileAttributes.class) {
+			throw new UnsupportedOperationException();
+		}
+		var p = SyntheticPath.cast(path);
+		if (p.isRoot()) {
+			return (A) new Attributes(true, "root");
+		} else if (p.fileIndex() != -1) {
+			return (A) new Attributes(false, p.fileIndex());
+		} else {
+			throw new NoSuchFileException(path.toString());
+		}
+	}
+
+	@Override
+	public Map<String, Object> readAttributes(Path path, String attributes, LinkOption... options) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public void setAttribute(Path path, String attribute, Object value, LinkOption... options) {
+		throw new ReadOnlyFileSystemException();
+	}
+
+	private record Attributes(boolean isDirectory, Object fileKey) implements BasicFileAttributes {
+
+		@Override
+		public FileTime lastModifiedTime() {
+			return TIMESTAMP;
+		}
+
+		@Override
+		public FileTime lastAccessTime() {
+			return TIMESTAMP;
+		}
+
+		@Override
+		public FileTime creationTime() {
+			return TIMESTAMP;
+		}
+
+		@Override
+		public boolean isRegularFile() {
+			return !isDirectory;
+		}
+
+		@Override
+		public boolean isSymbolicLink() {
+			return false;
+		}
+
+		@Override
+		public boolean isOther() {
+			return false;
+		}
+
+		@Override
+		public long size() {
+			return 0;
+		}
+
+	}
+
+}
@@ -0,0 +1,173 @@
+package org.cryptomator.frontend.webdav.synthfs;
+
+import java.net.URI;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.ProviderMismatchException;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Objects;
+
+/**
+ * A path of a {@link SyntheticFileSystem}, i.e. either the root directory, the empty path or a single file name, each of which may be absolute or relative.
+ */
+class SyntheticPath implements Path {
+
+	private final SyntheticFileSystem fileSystem;
+	private final boolean absolute;
+	private final String name;
+
+	SyntheticPath(SyntheticFileSystem fileSystem, boolean absolute, String name) {
+		this.fileSystem = fileSystem;
+		this.absolute = absolute;
+		this.name = name;
+	}
+
+	static SyntheticPath cast(Path path) {
+		if (path instanceof SyntheticPath p) {
+			return p;
+		} else {
+			throw new ProviderMismatchException();
+		}
+	}
+
+	boolean isRoot() {
+		return absolute && name.isEmpty();
+	}
+
+	/**
+	 * @return The index of the file denoted by this path or <code>-1</code> if there is no such file
+	 */
+	int fileIndex() {
+		return absolute ? fileSystem.indexOf(name) : -1;
+	}
+
+	@Override
+	public SyntheticFileSystem getFileSystem() {
+		return fileSystem;
+	}
+
+	@Override
+	public boolean isAbsolute() {
+		return absolute;
+	}
+
+	@Override
+	public Path getRoot() {
+		return absolute ? fileSystem.root() : null;
+	}
+
+	@Override
+	public Path getFileName() {
+		return name.isEmpty() ? null : new SyntheticPath(fileSystem, false, name);
+	}
+
+	@Override
+	public Path getParent() {
+		return absolute && !name.isEmpty() ? fileSystem.root() : null;
+	}
+
+	@Override
+	public int getNameCount() {
+		return name.isEmpty() ? 0 : 1;
+	}
+
+	@Override
+	public Path getName(int index) {
+		if (index != 0 || name.isEmpty()) {
+			throw new IllegalArgumentException();
+		}
+		return getFileName();
+	}
+
+	@Override
+	public Path subpath(int beginIndex, int endIndex) {
+		if (beginIndex != 0 || endIndex != 1) {
+			throw new IllegalArgumentException();
+		}
+		return getName(0);
+	}
+
+	@Override
+	public boolean startsWith(Path other) {
+		var o = cast(other);
+		return o.absolute == absolute && (o.name.isEmpty() || o.name.equals(name));
+	}
+
+	@Override
+	public boolean endsWith(Path other) {
+		var o = cast(other);
+		return o.absolute ? equals(o) : o.name.equals(name);
+	}
+
+	@Override
+	public Path normalize() {
+		return this;
+	}
+
+	@Override
+	public Path resolve(Path other) {
+		var o = cast(other);
+		if (o.absolute || name.isEmpty()) {
+			return new SyntheticPath(fileSystem, absolute || o.absolute, o.name);
+		} else if (o.name.isEmpty()) {
+			return this;
+		} else {
+			return new SyntheticPath(fileSystem, absolute, name + SyntheticFileSystem.SEPARATOR + o.name);
+		}
+	}
+
+	@Override
+	public Path relativize(Path other) {
+		var o = cast(other);
+		if (isRoot() && o.absolute) {
+			return new SyntheticPath(fileSystem, false, o.name);
+		} else if (equals(o)) {
+			return new SyntheticPath(fileSystem, false, "");
+		} else {
+			throw new IllegalArgumentException();
+		}
+	}
+
+	@Override
+	public URI toUri() {
+		return URI.create(SyntheticFileSystemProvider.SCHEME + ":" + toAbsolutePath());
+	}
+
+	@Override
+	public Path toAbsolutePath() {
+		return absolute ? this : new SyntheticPath(fileSystem, true, name);
+	}
+
+	@Override
+	public Path toRealPath(LinkOption... options) {
+		return toAbsolutePath();
+	}
+
+	@Override
+	public WatchKey register(WatchService watcher, WatchEvent.Kind<?>[] events, WatchEvent.Modifier... modifiers) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public int compareTo(Path other) {
+		return toString().compareTo(cast(other).toString());
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		return obj instanceof SyntheticPath p && p.fileSystem == fileSystem && p.absolute == absolute && p.name.equals(name);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(absolute, name);
+	}
+
+	@Override
+	public String toString() {
+		return absolute ? SyntheticFileSystem.SEPARATOR + name : name;
+	}
+
+}
@@ -0,0 +1,311 @@
+package org.cryptomator.frontend.webdav.trace;
+
+import org.cryptomator.frontend.webdav.WebDavServer;
+import org.cryptomator.frontend.webdav.WebDavServerConfig;
+import org.cryptomator.frontend.webdav.servlet.WebDavServletController;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Replays request traces recorded by {@link RequestTracing} against an embedded server.
+ * <p>
+ * Options are passed as <code>--key=value</code> arguments:
+ * <dl>
+ *     <dt>trace</dt><dd>A trace file or the name of one of the bundled traces <code>finder</code>, <code>explorer</code> or <code>gvfs</code> (default <code>finder</code>)</dd>
+ *     <dt>speed</dt><dd>Time scale factor, e.g. <code>1</code> to replay in real time, <code>10</code> to replay ten times faster
+ *     or <code>0</code> to send each request as soon as the previous one of the same connection completed (default 1)</dd>
+ *     <dt>repeat</dt><dd>Number of times to replay the trace, each time against a fresh copy of the fixture (default 1)</dd>
+ * </dl>
+ * Before replaying, a fixture is derived from the trace: Each resource, that has successfully been accessed before being created, is created up front,
+ * as a directory if it has been listed or as a file of the size implied by the largest response or range read from it.
+ * <p>
+ * Requests of the same connection are replayed sequentially on a dedicated connection. Recorded request bodies consist of zeros,
+ * lock tokens are taken from the replayed <code>LOCK</code> responses. Reported are the latencies per method and how many responses differ in status from the recorded ones.
+ * <p>
+ * The bundled traces are synthetic approximations of the respective clients' access patterns,
+ * which should be complemented by traces recorded from real clients using {@link WebDavServerConfig#traceDirectory()}.
+ */
+public class TraceReplay {
+
+	static {
+		System.setProperty("org.slf4j.simpleLogger.defaultLogLevel", "warn");
+		System.setProperty("org.slf4j.simpleLogger.log.org.cryptomator.frontend.webdav.trace.TraceReplay", "info");
+	}
+
+	private static final Logger LOG = LoggerFactory.getLogger(TraceReplay.class);
+	private static final Set<String> CREATING_METHODS = Set.of("PUT", "MKCOL", "COPY", "MOVE");
+	private static final String CONTEXT_PATH = "/replay";
+	private static final String LOCK_BODY = "<?xml version=\"1.0\" encoding=\"utf-8\"?>\n" //
+			+ "<D:lockinfo xmlns:D=\"DAV:\"><D:lockscope><D:exclusive/></D:lockscope><D:locktype><D:write/></D:locktype><D:owner>replay</D:owner></D:lockinfo>";
+	private static final String PROPPATCH_BODY = "<?xml version=\"1.0\" encoding=\"utf-8\"?>\n" //
+			+ "<D:propertyupdate xmlns:D=\"DAV:\" xmlns:Z=\"urn:schemas-microsoft-com:\"><D:set><D:prop><Z:Win32LastModifiedTime>Thu, 01 Jan 2026 00:00:00 GMT</Z:Win32LastModifiedTime></D:prop></D:set></D:propertyupdate>";
+
+	public static void main(String[] args) throws Exception {
+		var options = Arrays.stream(args).map(arg -> arg.replaceFirst("^--", "").split("=", 2)).collect(Collectors.toMap(kv -> kv[0], kv -> kv[1]));
+		var traceName = options.getOrDefault("trace", "finder");
+		double speed = Double.parseDouble(options.getOrDefault("speed", "1"));
+		int repeat = Integer.parseInt(options.getOrDefault("repeat", "1"));
+
+		List<TraceEntry> entries = readTrace(traceName);
+		entries.sort(Comparator.comparingLong(e -> e.startMicros));
+		LOG.info("Replaying {} requests of {} connections from {} at speed {}", entries.size(), entries.stream().mapToInt(e -> e.connection).distinct().count(), traceName, speed == 0 ? "max" : speed + "x");
+
+		var server = WebDavServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), WebDavServerConfig.defaults());
+		server.start();
+		try {
+			for (int i = 0; i < repeat; i++) {
+				Path root = Files.createTempDirectory("trace-replay");
+				try {
+					createFixture(root, entries);
+					WebDavServletController servlet = server.createWebDavServlet(root, CONTEXT_PATH);
+					servlet.start();
+					try {
+						replay(servlet.getServletRootUri(), entries, speed).log(entries);
+					} finally {
+						servlet.stop();
+					}
+				} finally {
+					try (Stream<Path> files = Files.walk(root)) {
+						files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+					}
+				}
+			}
+		} finally {
+			server.terminate();
+		}
+	}
+
+	private static List<TraceEntry> readTrace(String traceName) throws IOException {
+		var resource = TraceReplay.class.getResourceAsStream("/traces/" + traceName + ".tsv");
+		try (var reader = resource != null ? new BufferedReader(new InputStreamReader(resource, StandardCharsets.UTF_8)) : Files.newBufferedReader(Path.of(traceName))) {
+			var header = reader.readLine();
+			if (!TraceFormat.HEADER.equals(header)) {
+				throw new IOException("Not a request trace: " + traceName);
+			}
+			return reader.lines().filter(line -> !line.isBlank()).map(TraceEntry::parse).collect(Collectors.toCollection(ArrayList::new));
+		}
+	}
+
+	private static void createFixture(Path root, List<TraceEntry> entries) throws IOException {
+		Set<String> seen = new HashSet<>();
+		Set<String> directories = new HashSet<>();
+		Map<String, Long> fileSizes = new LinkedHashMap<>();
+		for (var entry : entries) {
+			var path = stripTrailingSlash(entry.path);
+			boolean isDirectory = entry.path.endsWith("/") || "1".equals(entry.depth);
+			if (seen.add(path) && !CREATING_METHODS.contains(entry.method) && entry.status / 100 == 2) {
+				if (isDirectory) {
+					directories.add(path);
+				} else {
+					fileSizes.put(path, impliedFileSize(entry));
+				}
+			} else if (fileSizes.containsKey(path)) {
+				if (isDirectory) {
+					// initially accessed without trailing slash
+					fileSizes.remove(path);
+					directories.add(path);
+				} else {
+					fileSizes.merge(path, impliedFileSize(entry), Math::max);
+				}
+			}
+			if (entry.destination != null) {
+				seen.add(stripTrailingSlash(entry.destination));
+			}
+		}
+		for (var dir : directories) {
+			Files.createDirectories(root.resolve(dir.substring(1)));
+		}
+		for (var file : fileSizes.entrySet()) {
+			var path = root.resolve(file.getKey().substring(1));
+			Files.createDirectories(path.getParent());
+			try (var ch = Files.newByteChannel(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+				if (file.getValue() > 0) {
+					ch.position(file.getValue() - 1);
+					ch.write(ByteBuffer.wrap(new byte[1]));
+				}
+			}
+		}
+	}
+
+	private static String stripTrailingSlash(String path) {
+		return path.length() > 1 && path.endsWith("/") ? path.substring(0, path.length() - 1) : path;
+	}
+
+	private static long impliedFileSize(TraceEntry entry) {
+		if (!"GET".equals(entry.method) || entry.status / 100 != 2) {
+			return 0;
+		} else if (entry.range != null && entry.range.startsWith("bytes=")) {
+			// the file is at least as large as the end of the last range
+			var ranges = entry.range.substring("bytes=".length()).split(",");
+			var last = ranges[ranges.length - 1].trim().split("-", 2);
+			return last[1].isEmpty() ? Long.parseLong(last[0]) + 1 : Long.parseLong(last[1]) + 1;
+		} else {
+			return entry.bytesSent;
+		}
+	}
+
+	private static Results replay(URI contextUri, List<TraceEntry> entries, double speed) throws InterruptedException {
+		var base = URI.create(contextUri.toString() + "/");
+		var results = new Results(entries.size());
+		var lockTokens = new ConcurrentHashMap<String, String>();
+		var byConnection = new TreeMap<Integer, List<Integer>>();
+		for (int i = 0; i < entries.size(); i++) {
+			byConnection.computeIfAbsent(entries.get(i).connection, c -> new ArrayList<>()).add(i);
+		}
+		long startNanos = System.nanoTime();
+		long firstMicros = entries.isEmpty() ? 0 : entries.get(0).startMicros;
+		var threads = new ArrayList<Thread>();
+		for (var connection : byConnection.entrySet()) {
+			var client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+			var thread = new Thread(() -> {
+				for (int index : connection.getValue()) {
+					var entry = entries.get(index);
+					if (speed > 0) {
+						long due = startNanos + (long) (TimeUnit.MICROSECONDS.toNanos(entry.startMicros - firstMicros) / speed);
+						long delay = due - System.nanoTime();
+						if (delay > 0) {
+							try {
+								TimeUnit.NANOSECONDS.sleep(delay);
+							} catch (InterruptedException e) {
+								Thread.currentThread().interrupt();
+								return;
+							}
+						}
+					}
+					results.record(index, send(client, base, entry, lockTokens));
+				}
+			}, "replay-connection-" + connection.getKey());
+			thread.start();
+			threads.add(thread);
+		}
+		for (var thread : threads) {
+			thread.join();
+		}
+		results.wallNanos = System.nanoTime() - startNanos;
+		return results;
+	}
+
+	private static long[] send(HttpClient client, URI base, TraceEntry entry, Map<String, String> lockTokens) {
+		var uri = base.resolve(entry.path.substring(1));
+		var builder = HttpRequest.newBuilder(uri);
+		var body = switch (entry.method) {
+			case "PUT" -> HttpRequest.BodyPublishers.ofByteArray(new byte[(int) Math.max(0, entry.contentLength)]);
+			case "LOCK" -> entry.contentLength > 0 ? HttpRequest.BodyPublishers.ofString(LOCK_BODY) : HttpRequest.BodyPublishers.noBody();
+			case "PROPPATCH" -> HttpRequest.BodyPublishers.ofString(PROPPATCH_BODY);
+			default -> HttpRequest.BodyPublishers.noBody();
+		};
+		builder.method(entry.method, body);
+		if (entry.depth != null) {
+			builder.header("Depth", entry.depth);
+		}
+		if (entry.range != null) {
+			builder.header("Range", entry.range);
+		}
+		if (entry.overwrite != null) {
+			builder.header("Overwrite", entry.overwrite);
+		}
+		if (entry.destination != null) {
+			builder.header("Destination", base.resolve(entry.destination.substring(1)).toString());
+		}
+		var key = stripTrailingSlash(entry.path);
+		var lockToken = lockTokens.get(key);
+		if ("UNLOCK".equals(entry.method)) {
+			builder.header("Lock-Token", lockToken != null ? lockToken : "<urn:uuid:00000000-0000-0000-0000-000000000000>");
+		} else if (lockToken != null) {
+			builder.header("If", "(" + lockToken + ")");
+		}
+		long start = System.nanoTime();
+		try {
+			var response = client.send(builder.build(), HttpResponse.BodyHandlers.discarding());
+			long duration = System.nanoTime() - start;
+			if ("LOCK".equals(entry.method) && response.statusCode() / 100 == 2) {
+				response.headers().firstValue("Lock-Token").ifPresent(token -> lockTokens.put(key, token));
+			} else if ("UNLOCK".equals(entry.method) || "DELETE".equals(entry.method) || "MOVE".equals(entry.method)) {
+				lockTokens.remove(key);
+			}
+			return new long[]{response.statusCode(), duration};
+		} catch (IOException e) {
+			return new long[]{0, System.nanoTime() - start};
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return new long[]{0, System.nanoTime() - start};
+		}
+	}
+
+	private static class Results {
+
+		final int[] statuses;
+		final long[] durations;
+		long wallNanos;
+
+		Results(int size) {
+			this.statuses = new int[size];
+			this.durations = new long[size];
+		}
+
+		void record(int index, long[] statusAndDuration) {
+			statuses[index] = (int) statusAndDuration[0];
+			durations[index] = statusAndDuration[1];
+		}
+
+		void log(List<TraceEntry> entries) {
+			long recordedSpan = entries.isEmpty() ? 0 : entries.stream().mapToLong(e -> e.startMicros + e.durationMicros).max().getAsLong() - entries.get(0).startMicros;
+			var mismatches = new AtomicLong();
+			Map<String, List<Integer>> byMethod = new TreeMap<>();
+			Map<String, Long> mismatchesByKind = new HashMap<>();
+			for (int i = 0; i < entries.size(); i++) {
+				var entry = entries.get(i);
+				byMethod.computeIfAbsent(entry.method, m -> new ArrayList<>()).add(i);
+				if (statuses[i] != entry.status) {
+					mismatches.incrementAndGet();
+					mismatchesByKind.merge(entry.method + " " + entry.status + "->" + statuses[i], 1L, Long::sum);
+				}
+			}
+			LOG.info("Replayed {} requests in {} ms (recorded: {} ms), {} status mismatches {}", entries.size(), TimeUnit.NANOSECONDS.toMillis(wallNanos), TimeUnit.MICROSECONDS.toMillis(recordedSpan), mismatches.get(), mismatchesByKind.isEmpty() ? "" : mismatchesByKind);
+			LOG.info(String.format(Locale.ROOT, "%-10s %8s %14s %14s %14s %14s", "method", "requests", "p50 [us]", "p99 [us]", "rec. p50 [us]", "rec. p99 [us]"));
+			for (var method : byMethod.entrySet()) {
+				var indices = method.getValue();
+				long[] replayed = indices.stream().mapToLong(i -> TimeUnit.NANOSECONDS.toMicros(durations[i])).sorted().toArray();
+				long[] recorded = indices.stream().mapToLong(i -> entries.get(i).durationMicros).sorted().toArray();
+				LOG.info(String.format(Locale.ROOT, "%-10s %8d %14d %14d %14d %14d", method.getKey(), indices.size(), percentile(replayed, 0.5), percentile(replayed, 0.99), percentile(recorded, 0.5), percentile(recorded, 0.99)));
+			}
+		}
+
+		private static long percentile(long[] sorted, double p) {
+			return sorted[(int) Math.min(sorted.length - 1, Math.max(0, Math.ceil(p * sorted.length) - 1))];
+		}
+
+	}
+
+}